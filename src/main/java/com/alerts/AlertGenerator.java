@@ -4,404 +4,205 @@ import com.data_management.DataStorage;
 import com.data_management.Patient;
 import java.util.*;
 import com.data_management.PatientRecord;
-import com.alerts.factory.AlertFactory;
+import com.data_management.RecordTypeRegistry;
+import com.data_management.TimeSeriesColumn;
+import com.alerts.dispatch.AlertDispatcher;
+import com.alerts.rules.AlertSink;
+import com.alerts.rules.RuleEngine;
+import com.alerts.rules.RuleEvaluator;
 
 /**
  * The {@code AlertGenerator} class monitors patient data and generates alerts
  * when specific health conditions are met. It uses a {@link DataStorage} instance
- * to access and evaluate patient data against predefined criteria.
+ * to access and evaluate patient data against the rules of a {@link RuleEngine}.
+ *
+ * Data can be evaluated in two ways: {@link #evaluateData(Patient)} reads a
+ * patient's new records on demand, while streaming evaluation receives every new
+ * sample once from the storage. Streaming goes through a
+ * {@link PartitionedAlertEvaluator}, which hands the samples of each patient
+ * to one thread, since storage listeners are called on whichever threads add
+ * data. Both paths run each sample
+ * once through the compiled rules, which keep per-patient sliding-window state,
+ * so both raise the same alerts. Reloading the engine changes the rules of
+ * both paths from the next sample on.
+ * Triggered, updated and resolved alerts are handed to an {@link AlertDispatcher},
+ * which delivers them to its subscribers on their own threads.
+ * An AlertGenerator is not thread-safe; samples must be delivered by one thread at a time.
  */
 public class AlertGenerator {
     private final DataStorage dataStorage;
     // Maps patientId -> (AlertType -> Alert) for currently active alerts
     private final Map<Integer, Map<AlertType, Alert>> activeAlerts = new HashMap<>();
-    // Stores historical records for each patient and record type
-    private final Map<Integer, Map<String, List<PatientRecord>>> patientRecordHistory = new HashMap<>();
-
-    // Blood pressure thresholds
-    private static final int HIGH_SYSTOLIC_BP_THRESHOLD = 180;
-    private static final int LOW_SYSTOLIC_BP_THRESHOLD = 90;
-    private static final int HIGH_DIASTOLIC_BP_THRESHOLD = 120;
-    private static final int LOW_DIASTOLIC_BP_THRESHOLD = 60;
-    private static final int BP_TREND_CHANGE_THRESHOLD = 10;
-    private static final int BP_TREND_CONSECUTIVE_READINGS = 3;
-
-    // Oxygen saturation thresholds
-    private static final double LOW_OXYGEN_THRESHOLD = 92.0;
-    private static final double OXYGEN_DROP_THRESHOLD = 5.0;
-    private static final long OXYGEN_DROP_TIME_WINDOW_MS = 10 * 60 * 1000; // 10 minutes
+    // Time of the newest record already evaluated, per patient and record type id
+    private final Map<Integer, Map<Integer, Long>> evaluatedUpTo = new HashMap<>();
+    // Receives the outcome of every rule and updates the active alerts
+    private final AlertSink alertSink = new AlertSink() {
+        @Override
+        public void trigger(Alert alert) {
+            triggerAlert(alert);
+        }
 
-    // ECG thresholds
-    private static final int ECG_WINDOW_SIZE = 20;
-    private static final double ECG_ABNORMAL_THRESHOLD = 2.0;
+        @Override
+        public void resolve(int patientId, AlertType alertType) {
+            resolveAlert(patientId, alertType);
+        }
+    };
+    // Rule state of the streaming path and of the history path, kept apart as before
+    private final RuleEvaluator streamingRules;
+    private final RuleEvaluator historyRules;
+    private final AlertDispatcher dispatcher;
 
     /**
-     * Constructs an {@code AlertGenerator} with the specified {@code DataStorage}.
+     * Constructs an {@code AlertGenerator} with the specified {@code DataStorage},
+     * evaluating the rules of {@link RuleEngine#shared()} and reporting to
+     * {@link AlertDispatcher#shared()}.
      *
      * @param dataStorage the data storage system for patient data access
      */
     public AlertGenerator(DataStorage dataStorage) {
-        this.dataStorage = dataStorage;
+        this(dataStorage, RuleEngine.shared());
     }
 
     /**
-     * Evaluates the specified patient's data for alert conditions.
-     * Triggers or resolves alerts as appropriate.
+     * Constructs an {@code AlertGenerator} evaluating the rules of a specific engine.
      *
-     * @param patient the patient whose data to evaluate
+     * @param dataStorage the data storage system for patient data access
+     * @param rules       the alert rules
      */
-    public void evaluateData(Patient patient) {
-        int patientId = patient.getPatientId();
-
-        // Ensure patient history and active alerts are initialized
-        patientRecordHistory.computeIfAbsent(patientId, k -> new HashMap<>());
-        activeAlerts.computeIfAbsent(patientId, k -> new HashMap<>());
-
-        // Update patient history with new records from patient object
-        updatePatientHistory(patient);
-
-        // Add recent records from storage to history (last 24 hours)
-        long now = System.currentTimeMillis();
-        long twentyFourHoursAgo = now - (24 * 60 * 60 * 1000);
-        List<PatientRecord> recentStorageRecords = dataStorage.getRecords(patientId, twentyFourHoursAgo, now);
-        if (!recentStorageRecords.isEmpty()) {
-            for (PatientRecord record : recentStorageRecords) {
-                String recordType = record.getRecordType();
-                patientRecordHistory.get(patientId).computeIfAbsent(recordType, k -> new ArrayList<>());
-                List<PatientRecord> typeHistory = patientRecordHistory.get(patientId).get(recordType);
-                // Avoid duplicate records by timestamp
-                boolean exists = typeHistory.stream().anyMatch(r -> r.getTimestamp() == record.getTimestamp());
-                if (!exists) {
-                    typeHistory.add(record);
-                }
-            }
-            // Sort all record types by timestamp
-            for (List<PatientRecord> typeHistory : patientRecordHistory.get(patientId).values()) {
-                typeHistory.sort(Comparator.comparingLong(PatientRecord::getTimestamp));
-            }
-        }
-
-        // Check all alert types for this patient
-        checkBloodPressureAlerts(patientId);
-        checkOxygenSaturationAlerts(patientId);
-        checkCombinedAlerts(patientId);
-        checkECGAlerts(patientId);
-        checkManuallyTriggeredAlerts(patientId);
-
-        // Print summary of active alerts for this patient
-        Map<AlertType, Alert> patientAlerts = activeAlerts.get(patientId);
-        if (patientAlerts != null && !patientAlerts.isEmpty()) {
-            System.out.println("Patient #" + patientId + " has " + patientAlerts.size() +
-                               " active alert(s): " + patientAlerts.keySet());
-        }
+    public AlertGenerator(DataStorage dataStorage, RuleEngine rules) {
+        this(dataStorage, rules, AlertDispatcher.shared());
     }
 
     /**
-     * Updates the patient's record history with new data from the Patient object.
+     * Constructs an {@code AlertGenerator} evaluating the rules of a specific
+     * engine and reporting to a specific dispatcher.
      *
-     * @param patient the patient whose history to update
+     * @param dataStorage the data storage system for patient data access
+     * @param rules       the alert rules
+     * @param dispatcher  receives every triggered, updated and resolved alert
      */
-    private void updatePatientHistory(Patient patient) {
-        int patientId = patient.getPatientId();
-        Map<String, List<PatientRecord>> recordsByType = patient.getRecordsByType();
-
-        for (Map.Entry<String, List<PatientRecord>> entry : recordsByType.entrySet()) {
-            String recordType = entry.getKey();
-            List<PatientRecord> records = entry.getValue();
-            if (!records.isEmpty()) {
-                patientRecordHistory.get(patientId).computeIfAbsent(recordType, k -> new ArrayList<>());
-                List<PatientRecord> history = patientRecordHistory.get(patientId).get(recordType);
-
-                // Limit history size to last 100 records
-                if (history.size() > 100) {
-                    history = history.subList(history.size() - 100, history.size());
-                }
-
-                // Add new records if not already present (by timestamp)
-                for (PatientRecord record : records) {
-                    boolean exists = history.stream().anyMatch(r -> r.getTimestamp() == record.getTimestamp());
-                    if (!exists) {
-                        history.add(record);
-                    }
-                }
-                // Sort by timestamp
-                history.sort(Comparator.comparingLong(PatientRecord::getTimestamp));
-                patientRecordHistory.get(patientId).put(recordType, history);
-            }
-        }
+    public AlertGenerator(DataStorage dataStorage, RuleEngine rules, AlertDispatcher dispatcher) {
+        this.dataStorage = dataStorage;
+        this.dispatcher = dispatcher;
+        this.streamingRules = new RuleEvaluator(rules, alertSink);
+        this.historyRules = new RuleEvaluator(rules, alertSink);
     }
 
     /**
-     * Checks for blood pressure related alerts (high/low/trend).
+     * Evaluates a single new sample against the alert rules for its record type,
+     * using the patient's sliding-window state instead of re-reading history.
+     * "Alert" records raise or resolve the manual alert, as their additional
+     * information says. Other record types without rules are ignored. Called by
+     * the partition thread of a {@link PartitionedAlertEvaluator}.
      *
-     * @param patientId the ID of the patient to check
+     * @param patientId        the patient the sample belongs to
+     * @param measurementValue the measured value
+     * @param recordType       the type of record
+     * @param timestamp        the time of the measurement
+     * @param additionalInfo   the additional information stored with the sample, or null
      */
-    private void checkBloodPressureAlerts(int patientId) {
-        Map<String, List<PatientRecord>> recordsByType = patientRecordHistory.get(patientId);
-        if (recordsByType == null) return;
-
-        List<PatientRecord> systolicRecords = recordsByType.get("SystolicBP");
-        List<PatientRecord> diastolicRecords = recordsByType.get("DiastolicBP");
-
-        // Systolic BP checks
-        if (systolicRecords != null && !systolicRecords.isEmpty()) {
-            PatientRecord latestSystolic = systolicRecords.get(systolicRecords.size() - 1);
-            double systolicValue = latestSystolic.getMeasurementValue();
-            long timestamp = latestSystolic.getTimestamp();
-            // High systolic BP alert check (uses factory)
-            if (systolicValue >= HIGH_SYSTOLIC_BP_THRESHOLD) {
-                AlertFactory factory = AlertFactory.getFactory("bloodpressure");
-                Alert alert = factory.createAlert(patientId, "high_systolic", timestamp, systolicValue);
-                triggerAlert(alert);
-            } else {
-                resolveAlert(patientId, AlertType.HIGH_SYSTOLIC_BP);
-            }
-
-            // Low systolic BP alert
-            if (systolicValue <= LOW_SYSTOLIC_BP_THRESHOLD) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.LOW_SYSTOLIC_BP,
-                    "Critical low systolic blood pressure: " + systolicValue + " mmHg",
-                    timestamp, AlertSeverity.HIGH));
-            } else {
-                resolveAlert(patientId, AlertType.LOW_SYSTOLIC_BP);
-            }
-
-            // Check for systolic BP trend if enough readings
-            if (systolicRecords.size() >= BP_TREND_CONSECUTIVE_READINGS) {
-                checkBPTrend(patientId, systolicRecords, "systolic");
-            }
+    void evaluateSample(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) {
+        if ("Alert".equals(recordType)) {
+            applyManualAlert(patientId, additionalInfo, timestamp);
+            return;
         }
-
-        // Diastolic BP checks
-        if (diastolicRecords != null && !diastolicRecords.isEmpty()) {
-            PatientRecord latestDiastolic = diastolicRecords.get(diastolicRecords.size() - 1);
-            double diastolicValue = latestDiastolic.getMeasurementValue();
-            long timestamp = latestDiastolic.getTimestamp();
-
-            // High diastolic BP alert
-            if (diastolicValue >= HIGH_DIASTOLIC_BP_THRESHOLD) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.HIGH_DIASTOLIC_BP,
-                    "Critical high diastolic blood pressure: " + diastolicValue + " mmHg",
-                    timestamp, AlertSeverity.HIGH));
-            } else {
-                resolveAlert(patientId, AlertType.HIGH_DIASTOLIC_BP);
-            }
-
-            // Low diastolic BP alert
-            if (diastolicValue <= LOW_DIASTOLIC_BP_THRESHOLD) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.LOW_DIASTOLIC_BP,
-                    "Critical low diastolic blood pressure: " + diastolicValue + " mmHg",
-                    timestamp, AlertSeverity.MEDIUM));
-            } else {
-                resolveAlert(patientId, AlertType.LOW_DIASTOLIC_BP);
-            }
-
-            // Check for diastolic BP trend if enough readings
-            if (diastolicRecords.size() >= BP_TREND_CONSECUTIVE_READINGS) {
-                checkBPTrend(patientId, diastolicRecords, "diastolic");
-            }
+        int typeId = RecordTypeRegistry.lookup(recordType);
+        if (typeId >= 0) {
+            streamingRules.evaluate(patientId, typeId, measurementValue, timestamp);
         }
     }
 
     /**
-     * Checks for blood pressure trends (increasing or decreasing) over recent readings.
+     * Evaluates the specified patient's data for alert conditions.
+     * Triggers or resolves alerts as appropriate. Records already evaluated by
+     * an earlier call are not evaluated again: only the records newer than the
+     * last evaluated one of their type are read, from the patient and from the
+     * last 24 hours of the storage, so a call costs as much as the new records.
      *
-     * @param patientId the ID of the patient
-     * @param records the BP records to check
-     * @param bpType "systolic" or "diastolic"
+     * @param patient the patient whose data to evaluate
      */
-    private void checkBPTrend(int patientId, List<PatientRecord> records, String bpType) {
-        int size = records.size();
-        List<PatientRecord> recentReadings = records.subList(size - BP_TREND_CONSECUTIVE_READINGS, size);
-
-        boolean increasing = true;
-        boolean decreasing = true;
-
-        // Check if all consecutive readings are increasing or decreasing by threshold
-        for (int i = 1; i < recentReadings.size(); i++) {
-            double current = recentReadings.get(i).getMeasurementValue();
-            double previous = recentReadings.get(i - 1).getMeasurementValue();
-            if (current - previous <= BP_TREND_CHANGE_THRESHOLD) increasing = false;
-            if (previous - current <= BP_TREND_CHANGE_THRESHOLD) decreasing = false;
-        }
-
-        PatientRecord latest = recentReadings.get(recentReadings.size() - 1);
-
-        if (increasing) {
-            triggerAlert(new Alert(
-                patientId, AlertType.BP_INCREASING_TREND,
-                "Increasing trend in " + bpType + " blood pressure detected over " + BP_TREND_CONSECUTIVE_READINGS + " readings",
-                latest.getTimestamp(), AlertSeverity.MEDIUM));
-        } else {
-            resolveAlert(patientId, AlertType.BP_INCREASING_TREND);
-        }
-
-        if (decreasing) {
-            triggerAlert(new Alert(
-                patientId, AlertType.BP_DECREASING_TREND,
-                "Decreasing trend in " + bpType + " blood pressure detected over " + BP_TREND_CONSECUTIVE_READINGS + " readings",
-                latest.getTimestamp(), AlertSeverity.MEDIUM));
-        } else {
-            resolveAlert(patientId, AlertType.BP_DECREASING_TREND);
+    public void evaluateData(Patient patient) {
+        int patientId = patient.getPatientId();
+        activeAlerts.computeIfAbsent(patientId, k -> new HashMap<>());
+        Map<Integer, Long> upTo = evaluatedUpTo.computeIfAbsent(patientId, k -> new HashMap<>());
+
+        List<PatientRecord> newRecords = new ArrayList<>();
+        collectNewRecords(patient, Long.MIN_VALUE, Long.MAX_VALUE, upTo, newRecords);
+        // Recent records from storage (last 24 hours), unless they are the patient's own
+        Patient stored = dataStorage.getPatient(patientId);
+        if (stored != null && stored != patient) {
+            long now = System.currentTimeMillis();
+            long twentyFourHoursAgo = now - (24 * 60 * 60 * 1000);
+            collectNewRecords(stored, twentyFourHoursAgo, now, upTo, newRecords);
         }
-    }
 
-    /**
-     * Checks for oxygen saturation related alerts (low or rapid drop).
-     *
-     * @param patientId the ID of the patient to check
-     */
-    private void checkOxygenSaturationAlerts(int patientId) {
-        Map<String, List<PatientRecord>> recordsByType = patientRecordHistory.get(patientId);
-        if (recordsByType == null) return;
-
-        List<PatientRecord> oxygenRecords = recordsByType.get("OxygenSaturation");
-        if (oxygenRecords != null && !oxygenRecords.isEmpty()) {
-            PatientRecord latestOxygen = oxygenRecords.get(oxygenRecords.size() - 1);
-            double oxygenValue = latestOxygen.getMeasurementValue();
-            long timestamp = latestOxygen.getTimestamp();
-            // Check for low oxygen saturation (uses factory)
-            if (oxygenValue < LOW_OXYGEN_THRESHOLD) {
-                AlertFactory factory = AlertFactory.getFactory("bloodoxygen");
-                Alert alert = factory.createAlert(patientId, "low_saturation", timestamp, oxygenValue);
-                triggerAlert(alert);
-            } else {
-                resolveAlert(patientId, AlertType.LOW_OXYGEN_SATURATION);
+        // Run them through the rules in time order, once per type and timestamp
+        newRecords.sort(Comparator.comparingLong(PatientRecord::getTimestamp)
+                .thenComparing(PatientRecord::getRecordType));
+        PatientRecord previous = null;
+        for (PatientRecord record : newRecords) {
+            if (previous != null && previous.getTimestamp() == record.getTimestamp()
+                    && previous.getRecordType().equals(record.getRecordType())) {
+                continue;
             }
-
-            // Check for rapid drop in oxygen saturation
-            if (oxygenRecords.size() >= 2) {
-                checkOxygenRapidDrop(patientId, oxygenRecords);
+            previous = record;
+            if ("Alert".equals(record.getRecordType())) {
+                applyManualAlert(patientId, record.getAdditionalInfo(), record.getTimestamp());
+                continue;
             }
-        }
-    }
-
-    /**
-     * Checks for rapid drops in oxygen saturation within a time window.
-     *
-     * @param patientId the ID of the patient
-     * @param records the oxygen saturation records to check
-     */
-    private void checkOxygenRapidDrop(int patientId, List<PatientRecord> records) {
-        PatientRecord latest = records.get(records.size() - 1);
-        double latestValue = latest.getMeasurementValue();
-        long latestTime = latest.getTimestamp();
-
-        // Look back for a drop >= threshold within the time window
-        for (int i = records.size() - 2; i >= 0; i--) {
-            PatientRecord earlier = records.get(i);
-            long earlierTime = earlier.getTimestamp();
-            if (latestTime - earlierTime > OXYGEN_DROP_TIME_WINDOW_MS) break;
-            double earlierValue = earlier.getMeasurementValue();
-            double drop = earlierValue - latestValue;
-            if (drop >= OXYGEN_DROP_THRESHOLD) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.RAPID_OXYGEN_DROP,
-                    "Rapid drop in oxygen saturation of " + String.format("%.1f", drop) + "% within 10 minutes",
-                    latestTime, AlertSeverity.HIGH));
-                return;
+            int typeId = RecordTypeRegistry.lookup(record.getRecordType());
+            if (typeId >= 0) {
+                historyRules.evaluate(patientId, typeId, record.getMeasurementValue(), record.getTimestamp());
             }
         }
-        resolveAlert(patientId, AlertType.RAPID_OXYGEN_DROP);
-    }
-
-    /**
-     * Checks for combined alerts such as Hypotensive Hypoxemia (low BP and low O2).
-     *
-     * @param patientId the ID of the patient to check
-     */
-    private void checkCombinedAlerts(int patientId) {
-        Map<String, List<PatientRecord>> recordsByType = patientRecordHistory.get(patientId);
-        if (recordsByType == null) return;
-
-        List<PatientRecord> systolicRecords = recordsByType.get("SystolicBP");
-        List<PatientRecord> oxygenRecords = recordsByType.get("OxygenSaturation");
-
-        if (systolicRecords != null && !systolicRecords.isEmpty() &&
-            oxygenRecords != null && !oxygenRecords.isEmpty()) {
-
-            PatientRecord latestSystolic = systolicRecords.get(systolicRecords.size() - 1);
-            PatientRecord latestOxygen = oxygenRecords.get(oxygenRecords.size() - 1);
-
-            double systolicValue = latestSystolic.getMeasurementValue();
-            double oxygenValue = latestOxygen.getMeasurementValue();
-
-            // Trigger combined alert if both BP and O2 are low
-            if (systolicValue < LOW_SYSTOLIC_BP_THRESHOLD && oxygenValue < LOW_OXYGEN_THRESHOLD) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.HYPOTENSIVE_HYPOXEMIA,
-                    "Critical condition: Hypotensive Hypoxemia detected - Low blood pressure (" +
-                        systolicValue + " mmHg) and low oxygen saturation (" + oxygenValue + "%)",
-                    Math.max(latestSystolic.getTimestamp(), latestOxygen.getTimestamp()),
-                    AlertSeverity.CRITICAL));
-            } else {
-                resolveAlert(patientId, AlertType.HYPOTENSIVE_HYPOXEMIA);
-            }
+        for (PatientRecord record : newRecords) {
+            upTo.merge(RecordTypeRegistry.lookup(record.getRecordType()), record.getTimestamp(), Math::max);
         }
     }
 
     /**
-     * Checks for ECG abnormalities using a sliding window approach.
+     * Collects the records of a patient within a time range that are newer than
+     * the last evaluated record of their type. Each column is cut by binary search.
      *
-     * @param patientId the ID of the patient to check
+     * @param patient   the patient to read
+     * @param startTime the start of the time range
+     * @param endTime   the end of the time range
+     * @param upTo      the time of the newest evaluated record, per record type id
+     * @param out       receives the records
      */
-    private void checkECGAlerts(int patientId) {
-        Map<String, List<PatientRecord>> recordsByType = patientRecordHistory.get(patientId);
-        if (recordsByType == null) return;
-
-        List<PatientRecord> ecgRecords = recordsByType.get("ECG");
-        if (ecgRecords != null && ecgRecords.size() >= ECG_WINDOW_SIZE) {
-            List<PatientRecord> window = ecgRecords.subList(ecgRecords.size() - ECG_WINDOW_SIZE, ecgRecords.size());
-            double sum = 0, sumOfSquares = 0;
-            for (PatientRecord record : window) {
-                double value = record.getMeasurementValue();
-                sum += value;
-                sumOfSquares += value * value;
+    private static void collectNewRecords(Patient patient, long startTime, long endTime,
+            Map<Integer, Long> upTo, List<PatientRecord> out) {
+        for (TimeSeriesColumn column : patient.getColumns()) {
+            Long last = upTo.get(column.getTypeId());
+            long from = last == null ? startTime : Math.max(startTime, last + 1);
+            if (from > endTime) {
+                continue;
             }
-            double mean = sum / ECG_WINDOW_SIZE;
-            double variance = (sumOfSquares / ECG_WINDOW_SIZE) - (mean * mean);
-            double stdDev = Math.sqrt(variance);
-
-            PatientRecord latest = window.get(window.size() - 1);
-            double latestValue = latest.getMeasurementValue();
-            long latestTime = latest.getTimestamp();
-
-            // Check for abnormal peaks in ECG (uses factory)
-            if (Math.abs(latestValue - mean) > ECG_ABNORMAL_THRESHOLD * stdDev) {
-                AlertFactory factory = AlertFactory.getFactory("ecg");
-                Alert alert = factory.createAlert(patientId, "abnormal_peak", latestTime, latestValue);
-                triggerAlert(alert);
-            } else {
-                resolveAlert(patientId, AlertType.ECG_ABNORMAL_PEAK);
+            TimeSeriesColumn.Slice slice = column.slice(from, endTime);
+            String recordType = RecordTypeRegistry.name(column.getTypeId());
+            for (int i = 0; i < slice.size(); i++) {
+                out.add(new PatientRecord(patient.getPatientId(), slice.valueAt(i), recordType,
+                        slice.timestampAt(i), slice.hasInfo() ? slice.infoAt(i) : null));
             }
         }
     }
 
     /**
-     * Checks for manually triggered alerts (from patient or staff).
+     * Triggers or resolves the manual alert of a patient as an "Alert" record's status says.
      *
-     * @param patientId the ID of the patient to check
+     * @param patientId   the ID of the patient
+     * @param alertStatus "triggered" or "resolved"; anything else is ignored
+     * @param timestamp   the time of the record
      */
-    private void checkManuallyTriggeredAlerts(int patientId) {
-        Map<String, List<PatientRecord>> recordsByType = patientRecordHistory.get(patientId);
-        if (recordsByType == null) return;
-
-        List<PatientRecord> alertRecords = recordsByType.get("Alert");
-        if (alertRecords != null && !alertRecords.isEmpty()) {
-            PatientRecord latestAlert = alertRecords.get(alertRecords.size() - 1);
-            String alertStatus = latestAlert.getAdditionalInfo();
-
-            if ("triggered".equalsIgnoreCase(alertStatus)) {
-                triggerAlert(new Alert(
-                    patientId, AlertType.MANUAL_TRIGGER,
-                    "Manual alert triggered by patient or staff",
-                    latestAlert.getTimestamp(), AlertSeverity.HIGH));
-            } else if ("resolved".equalsIgnoreCase(alertStatus)) {
-                resolveAlert(patientId, AlertType.MANUAL_TRIGGER);
-            }
+    private void applyManualAlert(int patientId, String alertStatus, long timestamp) {
+        if ("triggered".equalsIgnoreCase(alertStatus)) {
+            triggerAlert(new Alert(
+                patientId, AlertType.MANUAL_TRIGGER,
+                "Manual alert triggered by patient or staff",
+                timestamp, AlertSeverity.HIGH));
+        } else if ("resolved".equalsIgnoreCase(alertStatus)) {
+            resolveAlert(patientId, AlertType.MANUAL_TRIGGER);
         }
     }
 
@@ -424,10 +225,12 @@ public class AlertGenerator {
         if (patientAlerts.containsKey(alertType)) {
             Alert existingAlert = patientAlerts.get(alertType);
             existingAlert.updateAlert(alert.getMessage(), alert.getTimestamp());
+            dispatcher.updated(alert);
         } else {
             patientAlerts.put(alertType, alert);
-            System.out.println("ALERT TRIGGERED: " + alert);
-            // Additional notification logic can be added here
+            // The stored alert changes with later updates, so the dispatcher gets a copy
+            dispatcher.triggered(new Alert(patientId, alertType, alert.getMessage(), alert.getTimestamp(),
+                    alert.getSeverity()));
         }
     }
 
@@ -441,8 +244,7 @@ public class AlertGenerator {
         Map<AlertType, Alert> patientAlerts = activeAlerts.get(patientId);
         if (patientAlerts != null && patientAlerts.containsKey(alertType)) {
             Alert alert = patientAlerts.remove(alertType);
-            System.out.println("ALERT RESOLVED: " + alert);
-            // Additional resolution logic can be added here
+            dispatcher.resolved(alert);
         }
     }
 
@@ -0,0 +1,271 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientDataListener;
+
+/**
+ * Evaluates alerts for many patients in parallel.
+ * Patients are split across a fixed number of partitions by patient ID. Each
+ * partition owns one single-threaded executor and one {@link AlertGenerator},
+ * so all alert state of a patient is only ever touched by that partition's
+ * thread and no locking is needed. Reads of the active alerts are also run on
+ * the owning threads and merged afterwards.
+ *
+ * This is the entry point for streaming evaluation: DataStorage calls its
+ * listeners on the threads that add data, and an {@link AlertGenerator} must
+ * only be used by one thread at a time. Each partition queues a bounded number
+ * of samples; when a queue is full, the thread adding data waits until the
+ * partition has caught up, so a slow evaluation slows ingestion down instead
+ * of filling the heap. Alerts handed out by the read methods are copies.
+ */
+public class PartitionedAlertEvaluator implements PatientDataListener {
+
+    /** Default number of samples queued per partition */
+    public static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+    private final DataStorage dataStorage;
+    private final AlertGenerator[] generators;
+    private final ExecutorService[] executors;
+
+    /**
+     * Creates an evaluator with one partition per available processor.
+     *
+     * @param dataStorage the data storage system for patient data access
+     */
+    public PartitionedAlertEvaluator(DataStorage dataStorage) {
+        this(dataStorage, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an evaluator with the given number of partitions.
+     *
+     * @param dataStorage the data storage system for patient data access
+     * @param partitions  number of partitions (and worker threads)
+     * @throws IllegalArgumentException if partitions is not positive
+     */
+    public PartitionedAlertEvaluator(DataStorage dataStorage, int partitions) {
+        this(dataStorage, partitions, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an evaluator with the given number of partitions and queue size.
+     *
+     * @param dataStorage   the data storage system for patient data access
+     * @param partitions    number of partitions (and worker threads)
+     * @param queueCapacity number of tasks each partition queues before callers wait
+     * @throws IllegalArgumentException if partitions or queueCapacity is not positive
+     */
+    public PartitionedAlertEvaluator(DataStorage dataStorage, int partitions, int queueCapacity) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        this.dataStorage = dataStorage;
+        this.generators = new AlertGenerator[partitions];
+        this.executors = new ExecutorService[partitions];
+        for (int i = 0; i < partitions; i++) {
+            final String name = "alert-partition-" + i;
+            generators[i] = new AlertGenerator(dataStorage);
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), task -> {
+                        Thread thread = new Thread(task, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, PartitionedAlertEvaluator::waitForRoom);
+        }
+    }
+
+    /**
+     * @return the number of partitions
+     */
+    public int getPartitionCount() {
+        return generators.length;
+    }
+
+    /**
+     * Returns the partition that owns a patient.
+     *
+     * @param patientId the patient ID
+     * @return the partition index
+     */
+    public int partitionOf(int patientId) {
+        return Math.floorMod(patientId, generators.length);
+    }
+
+    /**
+     * Evaluates the data of all given patients, in parallel across partitions,
+     * and waits until every partition is done.
+     *
+     * @param patients the patients to evaluate
+     */
+    public void evaluateAll(Collection<Patient> patients) {
+        List<List<Patient>> buckets = new ArrayList<>(generators.length);
+        for (int i = 0; i < generators.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Patient patient : patients) {
+            buckets.get(partitionOf(patient.getPatientId())).add(patient);
+        }
+
+        List<Future<?>> sweeps = new ArrayList<>(generators.length);
+        for (int i = 0; i < generators.length; i++) {
+            AlertGenerator generator = generators[i];
+            List<Patient> bucket = buckets.get(i);
+            sweeps.add(executors[i].submit(() -> {
+                for (Patient patient : bucket) {
+                    generator.evaluateData(patient);
+                }
+            }));
+        }
+        for (Future<?> sweep : sweeps) {
+            await(sweep);
+        }
+    }
+
+    /**
+     * Evaluates all patients currently held by the data storage.
+     */
+    public void evaluateAll() {
+        evaluateAll(dataStorage.getAllPatients());
+    }
+
+    /**
+     * Starts streaming evaluation: every sample added to the data storage is handed
+     * to the partition that owns the patient and evaluated there.
+     */
+    public void startStreaming() {
+        dataStorage.addListener(this);
+    }
+
+    /**
+     * Stops streaming evaluation. Active alerts are kept.
+     */
+    public void stopStreaming() {
+        dataStorage.removeListener(this);
+    }
+
+    /**
+     * Queues a new sample on the partition that owns the patient. Samples of one
+     * patient are evaluated in arrival order. Waits while the partition's queue is full.
+     */
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        onPatientData(patientId, measurementValue, recordType, timestamp, null);
+    }
+
+    /**
+     * Queues a new sample with its additional information, which carries the
+     * status of "Alert" records, on the partition that owns the patient.
+     */
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) {
+        int partition = partitionOf(patientId);
+        AlertGenerator generator = generators[partition];
+        executors[partition].execute(() -> generator.evaluateSample(patientId, measurementValue, recordType,
+                timestamp, additionalInfo));
+    }
+
+    /**
+     * Gets all active alerts for a patient, as seen by its partition.
+     *
+     * @param patientId the patient ID
+     * @return copies of the active alerts or empty list if none
+     */
+    public List<Alert> getActiveAlertsForPatient(int patientId) {
+        int partition = partitionOf(patientId);
+        AlertGenerator generator = generators[partition];
+        return await(executors[partition].submit(() -> copy(generator.getActiveAlertsForPatient(patientId))));
+    }
+
+    /**
+     * Gets all active alerts in the system, merged over all partitions.
+     *
+     * @return copies of all active alerts
+     */
+    public List<Alert> getAllActiveAlerts() {
+        List<Future<List<Alert>>> parts = new ArrayList<>(generators.length);
+        for (int i = 0; i < generators.length; i++) {
+            AlertGenerator generator = generators[i];
+            parts.add(executors[i].submit(() -> copy(generator.getAllActiveAlerts())));
+        }
+        List<Alert> allAlerts = new ArrayList<>();
+        for (Future<List<Alert>> part : parts) {
+            allAlerts.addAll(await(part));
+        }
+        return allAlerts;
+    }
+
+    /**
+     * Stops streaming and shuts down the worker threads after queued work is done.
+     */
+    public void shutdown() {
+        stopStreaming();
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies alerts on the owning partition's thread, since that thread keeps
+     * updating the originals.
+     */
+    private static List<Alert> copy(List<Alert> alerts) {
+        List<Alert> copies = new ArrayList<>(alerts.size());
+        for (Alert alert : alerts) {
+            copies.add(new Alert(alert.getPatientId(), alert.getType(), alert.getMessage(), alert.getTimestamp(),
+                    alert.getSeverity()));
+        }
+        return copies;
+    }
+
+    /**
+     * Called when a partition's queue is full: blocks the caller until there is room.
+     */
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Alert evaluation has been shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for alert evaluation", e);
+        }
+    }
+
+    /**
+     * Waits for a partition task, rethrowing failures unchecked.
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for alert evaluation", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Alert evaluation failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.alerts.decorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Schedules the repeats of all {@link RepeatedAlertDecorator}s on one thread,
+ * with a hashed timer wheel: a ring of buckets, one per tick, that the thread
+ * steps through. A repeat goes into the bucket of its due tick, with a count
+ * of the full turns of the wheel to wait first, so scheduling and cancelling
+ * are O(1) however many repeats are pending. Repeats are due at tick
+ * resolution and never early.
+ *
+ * The repeats that come due in the same tick are delivered together, as one
+ * batch to the sink. The thread is started with the first repeat.
+ */
+public final class RepeatScheduler {
+
+    /** Tick length of the shared scheduler, in milliseconds */
+    public static final long DEFAULT_TICK_MS = 10;
+    /** Buckets of the shared scheduler; one turn of the wheel takes 5.12 s */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static volatile RepeatScheduler shared;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Consumer<List<RepeatedAlertDecorator>> sink;
+    // Handed from other threads to the wheel thread
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+    private final Object startLock = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Thread thread;
+    private volatile boolean stopped;
+    // Only used by the wheel thread
+    private long startNanos;
+    private long tick;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param tickMs    tick length in milliseconds; repeats are due at this resolution
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param sink      receives the repeats that came due in one tick, on the wheel thread
+     * @throws IllegalArgumentException if the tick or the wheel size is not positive
+     */
+    public RepeatScheduler(long tickMs, int wheelSize, Consumer<List<RepeatedAlertDecorator>> sink) {
+        if (tickMs <= 0 || wheelSize <= 0 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive: " + tickMs + ", " + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (wheelSize == 1) {
+            size = 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.sink = sink;
+    }
+
+    /**
+     * Returns the scheduler used by decorators created without one. It prints
+     * every batch of repeats to the console in one write.
+     */
+    public static RepeatScheduler shared() {
+        RepeatScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (RepeatScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    scheduler = new RepeatScheduler(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE, RepeatScheduler::print);
+                    shared = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * @return the number of repeats waiting to come due
+     */
+    public int pendingRepeats() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the wheel thread. Pending repeats are dropped.
+     */
+    public void shutdown() {
+        stopped = true;
+        synchronized (startLock) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Schedules the next repeat of a decorator.
+     *
+     * @param timeout the decorator's handle, reused for all of its repeats
+     * @param delayMs delay from now, in milliseconds
+     */
+    void schedule(Timeout timeout, long delayMs) {
+        start();
+        pending.incrementAndGet();
+        timeout.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        added.add(timeout);
+    }
+
+    private void start() {
+        if (thread == null) {
+            synchronized (startLock) {
+                if (thread == null && !stopped) {
+                    startNanos = System.nanoTime();
+                    thread = new Thread(this::run, "alert-repeat-wheel");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+    }
+
+    private void run() {
+        List<RepeatedAlertDecorator> batch = new ArrayList<>();
+        List<Timeout> due = new ArrayList<>();
+        while (!stopped) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            removeCancelled();
+            addScheduled();
+            wheel[(int) (tick & mask)].expire(due);
+            tick++;
+            if (due.isEmpty()) {
+                continue;
+            }
+            for (Timeout timeout : due) {
+                timeout.alert.countRepeat();
+                batch.add(timeout.alert);
+            }
+            try {
+                sink.accept(batch);
+            } catch (RuntimeException e) {
+                // A failing sink must not stop the repeats of other alerts
+                System.err.println("Error delivering alert repeats: " + e.getMessage());
+            }
+            for (Timeout timeout : due) {
+                if (!timeout.cancelled && timeout.alert.hasRepeatsLeft()) {
+                    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(timeout.alert.getRepeatIntervalMs());
+                    timeout.deadline = System.nanoTime() + intervalNanos;
+                    place(timeout);
+                } else {
+                    pending.decrementAndGet();
+                }
+            }
+            due.clear();
+            batch.clear();
+        }
+    }
+
+    private void addScheduled() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                pending.decrementAndGet();
+            } else {
+                place(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancellations.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Puts a timeout into the bucket of its due tick, never one already passed.
+     */
+    private void place(Timeout timeout) {
+        long dueTick = Math.max(tick, ceilDiv(timeout.deadline - startNanos, tickNanos));
+        timeout.rounds = (dueTick - tick) / wheel.length;
+        wheel[(int) (dueTick & mask)].add(timeout);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static void print(List<RepeatedAlertDecorator> repeats) {
+        StringBuilder lines = new StringBuilder();
+        for (RepeatedAlertDecorator repeat : repeats) {
+            // The message already ends in "[REPEAT n/m]"
+            lines.append("Alert repeated: ").append(repeat.getMessage()).append(System.lineSeparator());
+        }
+        System.out.print(lines);
+    }
+
+    /**
+     * Handle of a decorator in the wheel, a node of a bucket's list.
+     */
+    final class Timeout {
+
+        final RepeatedAlertDecorator alert;
+        volatile boolean cancelled;
+        // Set when handed to the wheel thread, which alone uses these afterwards
+        long deadline;
+        long rounds;
+        Bucket bucket;
+        Timeout previous;
+        Timeout next;
+
+        Timeout(RepeatedAlertDecorator alert) {
+            this.alert = alert;
+        }
+
+        /**
+         * Cancels the pending repeat and all later ones.
+         */
+        void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                cancellations.add(this);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts of one tick, so any one can be unlinked in O(1).
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Moves the timeouts due in this turn to the list and counts down the others.
+         */
+        void expire(List<Timeout> due) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds <= 0) {
+                    remove(timeout);
+                    due.add(timeout);
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -1,65 +1,97 @@
 package com.alerts.decorator;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import com.alerts.Alert;
 
 /**
  * Decorator that adds repeat notification behavior to alerts.
  * Repeats alert notifications at a fixed interval, up to a maximum count.
+ * The repeats of all decorators are scheduled on one shared
+ * {@link RepeatScheduler} rather than a timer thread per alert. The class is
+ * final and schedules itself as the last step of its constructor, so the
+ * scheduler's thread only ever sees a fully constructed decorator.
  */
-public class RepeatedAlertDecorator extends AlertDecorator {
+public final class RepeatedAlertDecorator extends AlertDecorator {
 
-    private long repeatIntervalMs;
-    private int repeatCount;
-    private int maxRepeatCount;
-    private Timer timer;
+    private final long repeatIntervalMs;
+    private volatile int repeatCount;
+    private final int maxRepeatCount;
+    private final RepeatScheduler.Timeout timeout;
 
     /**
-     * Constructs a RepeatedAlertDecorator.
+     * Constructs a RepeatedAlertDecorator on the shared scheduler.
      *
      * @param alert the alert to decorate
      * @param repeatIntervalMs interval between repeats in milliseconds
      * @param maxRepeatCount maximum number of repeats
      */
     public RepeatedAlertDecorator(Alert alert, long repeatIntervalMs, int maxRepeatCount) {
+        this(alert, repeatIntervalMs, maxRepeatCount, RepeatScheduler.shared());
+    }
+
+    /**
+     * Constructs a RepeatedAlertDecorator.
+     *
+     * @param alert the alert to decorate
+     * @param repeatIntervalMs interval between repeats in milliseconds
+     * @param maxRepeatCount maximum number of repeats
+     * @param scheduler scheduler that delivers the repeats
+     */
+    public RepeatedAlertDecorator(Alert alert, long repeatIntervalMs, int maxRepeatCount,
+            RepeatScheduler scheduler) {
         super(alert);
         this.repeatIntervalMs = repeatIntervalMs;
         this.maxRepeatCount = maxRepeatCount;
         this.repeatCount = 0;
-        scheduleNextRepeat();
+        this.timeout = scheduler.new Timeout(this);
+        if (maxRepeatCount > 0) {
+            scheduler.schedule(timeout, repeatIntervalMs);
+        }
     }
 
     /**
-     * Schedules the next repeat of the alert.
+     * Cancels all future scheduled repeats.
      */
-    private void scheduleNextRepeat() {
-        this.timer = new Timer(true); // Daemon thread
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                repeatCount++;
-                if (repeatCount <= maxRepeatCount) {
-                    System.out.println("Alert repeated: " + getMessage() + " (" + repeatCount + "/" + maxRepeatCount + ")");
-                    if (repeatCount < maxRepeatCount) {
-                        scheduleNextRepeat();
-                    }
-                }
-            }
-        }, repeatIntervalMs);
+    public void cancelRepeats() {
+        timeout.cancel();
     }
 
     /**
-     * Cancels all future scheduled repeats.
+     * @return the number of repeats delivered so far
      */
-    public void cancelRepeats() {
-        if (timer != null) {
-            timer.cancel();
-        }
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    /**
+     * @return the maximum number of repeats
+     */
+    public int getMaxRepeatCount() {
+        return maxRepeatCount;
+    }
+
+    /**
+     * @return the interval between repeats in milliseconds
+     */
+    public long getRepeatIntervalMs() {
+        return repeatIntervalMs;
+    }
+
+    /**
+     * Counts a repeat as delivered. Called by the scheduler's thread only.
+     */
+    void countRepeat() {
+        repeatCount++;
+    }
+
+    /**
+     * @return true if the alert is to be repeated again
+     */
+    boolean hasRepeatsLeft() {
+        return repeatCount < maxRepeatCount;
     }
 
     @Override
     public String getMessage() {
         return wrappedAlert.getMessage() + " [REPEAT " + repeatCount + "/" + maxRepeatCount + "]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,538 @@
+package com.alerts.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.alerts.Alert;
+import com.alerts.AlertType;
+
+/**
+ * Delivers alert changes to subscribers without holding up the evaluation
+ * that reports them. The evaluating thread only puts the change on a
+ * lock-free queue. A dispatch thread debounces the changes per patient and
+ * {@link AlertType}, as the type's {@link DebouncePolicy} says, and hands the
+ * resulting events to every subscriber.
+ *
+ * Debounce delays run on the dispatch thread's clock, from the moment a
+ * change is dispatched, not on the alert timestamps. A condition reported
+ * live is debounced as its data arrives, but history evaluated in bulk, such
+ * as a file load or a replay, reaches the dispatcher within milliseconds: a
+ * trigger and resolution hours apart in the data then count as a flap and
+ * are withheld. Leave such types without a policy when replaying history.
+ *
+ * Each subscriber has its own thread and mailbox, so a slow subscriber only
+ * delays itself. While it is busy, a new update of an alert whose previous
+ * update is still waiting in its mailbox replaces the waiting one, so only
+ * the alert's triggers and resolutions pile up, and those are debounced
+ * already. Triggers and resolutions are never merged away. Should the
+ * dispatch thread itself fall behind by more than the queue limit, new
+ * updates are dropped; triggers and resolutions are still queued.
+ *
+ * The dispatch thread is started with the first change.
+ */
+public final class AlertDispatcher {
+
+    /** Queued changes above which updates are dropped */
+    public static final int DEFAULT_MAX_QUEUED = 1 << 16;
+
+    private static volatile AlertDispatcher shared;
+
+    private final int maxQueued;
+    // Handed from the evaluating threads to the dispatch thread
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final List<Mailbox> mailboxes = new CopyOnWriteArrayList<>();
+    private final Map<AlertType, DebouncePolicy> policies = new ConcurrentHashMap<>();
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    private final AtomicLong suppressedFlaps = new AtomicLong();
+    private final Object startLock = new Object();
+    private volatile Thread thread;
+    private volatile boolean sleeping;
+    private volatile boolean stopped;
+    // Only used by the dispatch thread
+    private final Map<Long, KeyState> states = new HashMap<>();
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparingLong(d -> d.at));
+
+    /**
+     * Creates a dispatcher without subscribers.
+     */
+    public AlertDispatcher() {
+        this(DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * Creates a dispatcher without subscribers.
+     *
+     * @param maxQueued queued changes above which updates are dropped
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public AlertDispatcher(int maxQueued) {
+        if (maxQueued <= 0) {
+            throw new IllegalArgumentException("Queue limit must be positive: " + maxQueued);
+        }
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Returns the dispatcher used by alert generators created without one. It
+     * prints triggered and resolved alerts to the console, without debouncing.
+     */
+    public static AlertDispatcher shared() {
+        AlertDispatcher dispatcher = shared;
+        if (dispatcher == null) {
+            synchronized (AlertDispatcher.class) {
+                dispatcher = shared;
+                if (dispatcher == null) {
+                    dispatcher = new AlertDispatcher();
+                    dispatcher.subscribe(new ConsoleAlertSubscriber());
+                    shared = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Adds a subscriber. It receives the changes reported from now on.
+     */
+    public void subscribe(AlertSubscriber subscriber) {
+        Mailbox mailbox = new Mailbox(subscriber);
+        Thread delivery = new Thread(mailbox::run, "alert-subscriber-" + mailboxes.size());
+        delivery.setDaemon(true);
+        delivery.start();
+        mailboxes.add(mailbox);
+    }
+
+    /**
+     * Removes a subscriber. Events already in its mailbox are still delivered.
+     */
+    public void unsubscribe(AlertSubscriber subscriber) {
+        for (Mailbox mailbox : mailboxes) {
+            if (mailbox.subscriber == subscriber) {
+                mailboxes.remove(mailbox);
+                mailbox.close();
+            }
+        }
+    }
+
+    /**
+     * Sets how the alerts of a type are debounced, from their next change on.
+     * Types without a policy are not debounced. The delays are measured in
+     * wall-clock time from when each change is dispatched.
+     */
+    public void setDebounce(AlertType type, DebouncePolicy policy) {
+        policies.put(type, policy);
+    }
+
+    /**
+     * Reports that an alert's condition started to hold. Does not block.
+     *
+     * @param alert the alert; must not be modified afterwards
+     */
+    public void triggered(Alert alert) {
+        offer(AlertEvent.Kind.TRIGGERED, alert);
+    }
+
+    /**
+     * Reports a newer reading of an alert that still holds. Does not block;
+     * the update is dropped if the dispatch thread has fallen behind.
+     *
+     * @param alert the alert with the newer message and timestamp; must not be modified afterwards
+     */
+    public void updated(Alert alert) {
+        if (queued.get() >= maxQueued) {
+            droppedUpdates.incrementAndGet();
+            return;
+        }
+        offer(AlertEvent.Kind.UPDATED, alert);
+    }
+
+    /**
+     * Reports that an alert's condition stopped holding. Does not block.
+     *
+     * @param alert the alert as it was last; must not be modified afterwards
+     */
+    public void resolved(Alert alert) {
+        offer(AlertEvent.Kind.RESOLVED, alert);
+    }
+
+    /**
+     * Waits until every queued change has been dispatched and every mailbox
+     * delivered. Triggers and resolutions still held back by a debounce
+     * policy are not waited for.
+     *
+     * @param timeoutMs how long to wait at most
+     * @return true if everything was delivered in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitDelivery(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            boolean idle = queued.get() == 0;
+            for (Mailbox mailbox : mailboxes) {
+                idle &= mailbox.isIdle();
+            }
+            if (idle) {
+                return true;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Stops the dispatch thread once the queued changes are dispatched and
+     * the subscriber threads once their mailboxes are delivered. Changes
+     * reported afterwards and debounced events not yet due are dropped.
+     */
+    public void shutdown() {
+        stopped = true;
+        synchronized (startLock) {
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            } else {
+                closeMailboxes();
+            }
+        }
+    }
+
+    /**
+     * @return the number of updates dropped because the dispatch thread had fallen behind
+     */
+    public long getDroppedUpdates() {
+        return droppedUpdates.get();
+    }
+
+    /**
+     * @return the number of triggers and resolutions withheld because the
+     *         condition changed back within its debounce delay
+     */
+    public long getSuppressedFlaps() {
+        return suppressedFlaps.get();
+    }
+
+    /**
+     * @return the number of updates that replaced an update still waiting for its subscriber
+     */
+    public long getCoalescedUpdates() {
+        long total = 0;
+        for (Mailbox mailbox : mailboxes) {
+            total += mailbox.coalesced();
+        }
+        return total;
+    }
+
+    private void offer(AlertEvent.Kind kind, Alert alert) {
+        if (stopped) {
+            return;
+        }
+        start();
+        queued.incrementAndGet();
+        changes.add(new Change(kind, alert));
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void start() {
+        if (thread == null) {
+            synchronized (startLock) {
+                if (thread == null && !stopped) {
+                    thread = new Thread(this::run, "alert-dispatch");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Change change;
+            while ((change = changes.poll()) != null) {
+                apply(change, System.nanoTime());
+                queued.decrementAndGet();
+            }
+            if (stopped) {
+                break;
+            }
+            long now = System.nanoTime();
+            expire(now);
+            sleeping = true;
+            // Reporters and shutdown unpark a sleeping thread, so only a debounce deadline needs a timeout
+            if (changes.isEmpty() && !stopped) {
+                if (deadlines.isEmpty()) {
+                    LockSupport.park(this);
+                } else {
+                    long parkNanos = deadlines.peek().at - now;
+                    if (parkNanos > 0) {
+                        LockSupport.parkNanos(this, parkNanos);
+                    }
+                }
+            }
+            sleeping = false;
+        }
+        closeMailboxes();
+    }
+
+    /**
+     * Advances the debounce state of the change's alert, publishing what is due at once.
+     */
+    private void apply(Change change, long now) {
+        Alert alert = change.alert;
+        long key = key(alert.getPatientId(), alert.getType());
+        DebouncePolicy policy = policies.getOrDefault(alert.getType(), DebouncePolicy.NONE);
+        KeyState state = states.get(key);
+        if (change.kind == AlertEvent.Kind.RESOLVED) {
+            if (state == null) {
+                return;
+            }
+            state.alert = alert;
+            if (state.phase == Phase.PENDING_TRIGGER) {
+                states.remove(key);
+                state.version++;
+                suppressedFlaps.incrementAndGet();
+            } else if (state.phase == Phase.ACTIVE) {
+                if (policy.getResolveAfterMs() == 0) {
+                    states.remove(key);
+                    publish(AlertEvent.Kind.RESOLVED, key, alert);
+                } else {
+                    state.phase = Phase.PENDING_RESOLVE;
+                    schedule(state, now, policy.getResolveAfterMs());
+                }
+            }
+            return;
+        }
+
+        if (state == null) {
+            state = new KeyState(key, alert);
+            states.put(key, state);
+            if (policy.getTriggerAfterMs() == 0) {
+                state.phase = Phase.ACTIVE;
+                publish(AlertEvent.Kind.TRIGGERED, key, alert);
+            } else {
+                state.phase = Phase.PENDING_TRIGGER;
+                schedule(state, now, policy.getTriggerAfterMs());
+            }
+            return;
+        }
+        state.alert = alert;
+        if (state.phase == Phase.PENDING_RESOLVE) {
+            // Cleared and back within the resolve delay: the alert never stopped
+            state.phase = Phase.ACTIVE;
+            state.version++;
+            suppressedFlaps.incrementAndGet();
+            publish(AlertEvent.Kind.UPDATED, key, alert);
+        } else if (state.phase == Phase.ACTIVE) {
+            publish(AlertEvent.Kind.UPDATED, key, alert);
+        }
+    }
+
+    /**
+     * Publishes the triggers and resolutions whose debounce delay has passed.
+     */
+    private void expire(long now) {
+        while (!deadlines.isEmpty() && deadlines.peek().at - now <= 0) {
+            Deadline deadline = deadlines.poll();
+            KeyState state = deadline.state;
+            if (state.version != deadline.version) {
+                continue;
+            }
+            if (state.phase == Phase.PENDING_TRIGGER) {
+                state.phase = Phase.ACTIVE;
+                publish(AlertEvent.Kind.TRIGGERED, state.key, state.alert);
+            } else if (state.phase == Phase.PENDING_RESOLVE) {
+                states.remove(state.key);
+                publish(AlertEvent.Kind.RESOLVED, state.key, state.alert);
+            }
+        }
+    }
+
+    private void schedule(KeyState state, long now, long delayMs) {
+        state.version++;
+        deadlines.add(new Deadline(now + TimeUnit.MILLISECONDS.toNanos(delayMs), state, state.version));
+    }
+
+    private void publish(AlertEvent.Kind kind, long key, Alert alert) {
+        for (Mailbox mailbox : mailboxes) {
+            mailbox.offer(kind, key, alert);
+        }
+    }
+
+    private void closeMailboxes() {
+        for (Mailbox mailbox : mailboxes) {
+            mailbox.close();
+        }
+    }
+
+    private static long key(int patientId, AlertType type) {
+        return (long) patientId << 8 | type.ordinal();
+    }
+
+    private enum Phase {
+        /** Raised, waiting out the trigger delay */
+        PENDING_TRIGGER,
+        /** Trigger published */
+        ACTIVE,
+        /** Cleared, waiting out the resolve delay */
+        PENDING_RESOLVE
+    }
+
+    /**
+     * A change as reported by the evaluating thread.
+     */
+    private static final class Change {
+
+        final AlertEvent.Kind kind;
+        final Alert alert;
+
+        Change(AlertEvent.Kind kind, Alert alert) {
+            this.kind = kind;
+            this.alert = alert;
+        }
+    }
+
+    /**
+     * The debounce state of one patient's alert of one type.
+     */
+    private static final class KeyState {
+
+        final long key;
+        Alert alert;
+        Phase phase;
+        // Bumped whenever a scheduled deadline stops applying
+        int version;
+
+        KeyState(long key, Alert alert) {
+            this.key = key;
+            this.alert = alert;
+        }
+    }
+
+    private static final class Deadline {
+
+        final long at;
+        final KeyState state;
+        final int version;
+
+        Deadline(long at, KeyState state, int version) {
+            this.at = at;
+            this.state = state;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The events waiting for one subscriber, delivered by its own thread.
+     */
+    private static final class Mailbox {
+
+        final AlertSubscriber subscriber;
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        // The waiting update of each alert, which later updates replace
+        private final Map<Long, Pending> mergeable = new HashMap<>();
+        private long coalesced;
+        private boolean delivering;
+        private boolean closed;
+
+        Mailbox(AlertSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized void offer(AlertEvent.Kind kind, long key, Alert alert) {
+            if (closed) {
+                return;
+            }
+            if (kind == AlertEvent.Kind.UPDATED) {
+                Pending waiting = mergeable.get(key);
+                if (waiting != null) {
+                    waiting.alert = alert;
+                    coalesced++;
+                    return;
+                }
+            }
+            Pending pending = new Pending(kind, key, alert);
+            queue.add(pending);
+            if (kind == AlertEvent.Kind.UPDATED) {
+                mergeable.put(key, pending);
+            } else {
+                mergeable.remove(key);
+            }
+            notifyAll();
+        }
+
+        synchronized boolean isIdle() {
+            return queue.isEmpty() && !delivering;
+        }
+
+        synchronized long coalesced() {
+            return coalesced;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        void run() {
+            while (true) {
+                AlertEvent event;
+                synchronized (this) {
+                    while (queue.isEmpty() && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    Pending next = queue.poll();
+                    if (next == null) {
+                        return;
+                    }
+                    if (mergeable.get(next.key) == next) {
+                        mergeable.remove(next.key);
+                    }
+                    event = new AlertEvent(next.kind, next.alert);
+                    delivering = true;
+                }
+                try {
+                    subscriber.onAlert(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Alert subscriber failed on " + event + ": " + e.getMessage());
+                } finally {
+                    synchronized (this) {
+                        delivering = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        final AlertEvent.Kind kind;
+        final long key;
+        Alert alert;
+
+        Pending(AlertEvent.Kind kind, long key, Alert alert) {
+            this.kind = kind;
+            this.alert = alert;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+
+/**
+ * A change of an alert, as delivered to an {@link AlertSubscriber}.
+ */
+public final class AlertEvent {
+
+    /**
+     * What happened to the alert.
+     */
+    public enum Kind {
+        /** The condition started to hold */
+        TRIGGERED,
+        /** The condition still holds, with a newer reading */
+        UPDATED,
+        /** The condition stopped holding */
+        RESOLVED
+    }
+
+    private final Kind kind;
+    private final Alert alert;
+
+    public AlertEvent(Kind kind, Alert alert) {
+        this.kind = kind;
+        this.alert = alert;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the alert as it was when the event happened; must not be modified
+     */
+    public Alert getAlert() {
+        return alert;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + alert;
+    }
+}
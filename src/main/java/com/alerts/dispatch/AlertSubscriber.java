@@ -0,0 +1,16 @@
+package com.alerts.dispatch;
+
+/**
+ * Receives alert events from an {@link AlertDispatcher}.
+ */
+public interface AlertSubscriber {
+
+    /**
+     * Handles one event. Called on the subscriber's own thread, one event at a
+     * time, in the order the events of a patient's alert happened. Taking long
+     * only delays this subscriber: updates that pile up meanwhile are coalesced.
+     *
+     * @param event the event
+     */
+    void onAlert(AlertEvent event);
+}
@@ -0,0 +1,18 @@
+package com.alerts.dispatch;
+
+/**
+ * Prints triggered and resolved alerts to the console. Updates are not printed.
+ */
+public class ConsoleAlertSubscriber implements AlertSubscriber {
+
+    @Override
+    public void onAlert(AlertEvent event) {
+        switch (event.getKind()) {
+            case TRIGGERED -> System.out.println("ALERT TRIGGERED: " + event.getAlert());
+            case RESOLVED -> System.out.println("ALERT RESOLVED: " + event.getAlert());
+            case UPDATED -> {
+                // Not printed, as before
+            }
+        }
+    }
+}
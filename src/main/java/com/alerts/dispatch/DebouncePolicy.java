@@ -0,0 +1,46 @@
+package com.alerts.dispatch;
+
+/**
+ * How long an alert's condition must hold before its trigger is published,
+ * and how long it must stay clear before its resolution is published. A
+ * condition that flaps faster than that produces no events at all, or keeps
+ * its alert active, instead of a trigger and a resolve for every flap.
+ * Delays are wall-clock time on the dispatcher, not alert time; see
+ * {@link AlertDispatcher}.
+ */
+public final class DebouncePolicy {
+
+    /** Publishes every trigger and resolve at once */
+    public static final DebouncePolicy NONE = new DebouncePolicy(0, 0);
+
+    private final long triggerAfterMs;
+    private final long resolveAfterMs;
+
+    private DebouncePolicy(long triggerAfterMs, long resolveAfterMs) {
+        this.triggerAfterMs = triggerAfterMs;
+        this.resolveAfterMs = resolveAfterMs;
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param triggerAfterMs how long the condition must hold before the trigger is published
+     * @param resolveAfterMs how long the condition must stay clear before the resolution is published
+     * @throws IllegalArgumentException if a delay is negative
+     */
+    public static DebouncePolicy of(long triggerAfterMs, long resolveAfterMs) {
+        if (triggerAfterMs < 0 || resolveAfterMs < 0) {
+            throw new IllegalArgumentException("Delays must not be negative: " + triggerAfterMs + ", "
+                    + resolveAfterMs);
+        }
+        return new DebouncePolicy(triggerAfterMs, resolveAfterMs);
+    }
+
+    public long getTriggerAfterMs() {
+        return triggerAfterMs;
+    }
+
+    public long getResolveAfterMs() {
+        return resolveAfterMs;
+    }
+}
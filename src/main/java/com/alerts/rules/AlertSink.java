@@ -0,0 +1,25 @@
+package com.alerts.rules;
+
+import com.alerts.Alert;
+import com.alerts.AlertType;
+
+/**
+ * Receives the outcome of every rule a sample is evaluated against.
+ */
+public interface AlertSink {
+
+    /**
+     * Called when a rule's condition holds for the latest sample.
+     *
+     * @param alert the alert of the rule, for the latest sample
+     */
+    void trigger(Alert alert);
+
+    /**
+     * Called when a rule's condition does not hold for the latest sample.
+     *
+     * @param patientId the patient the sample belongs to
+     * @param alertType the alert of the rule
+     */
+    void resolve(int patientId, AlertType alertType);
+}
@@ -0,0 +1,48 @@
+package com.alerts.rules;
+
+/**
+ * How a value is compared against the threshold of a rule.
+ */
+public enum Comparison {
+
+    /** The value is greater than or equal to the threshold */
+    AT_LEAST,
+    /** The value is less than or equal to the threshold */
+    AT_MOST,
+    /** The value is strictly greater than the threshold */
+    ABOVE,
+    /** The value is strictly less than the threshold */
+    BELOW;
+
+    /**
+     * @return true if the value satisfies this comparison against the threshold
+     */
+    public boolean test(double value, double threshold) {
+        return switch (this) {
+            case AT_LEAST -> value >= threshold;
+            case AT_MOST -> value <= threshold;
+            case ABOVE -> value > threshold;
+            case BELOW -> value < threshold;
+        };
+    }
+
+    /**
+     * Returns the factor that turns this comparison into {@code sign * value >= bound}.
+     */
+    double sign() {
+        return this == AT_LEAST || this == ABOVE ? 1 : -1;
+    }
+
+    /**
+     * Returns the bound of {@code sign * value >= bound}. A strict comparison
+     * moves the threshold by one ulp, which is exact for doubles.
+     */
+    double bound(double threshold) {
+        return switch (this) {
+            case AT_LEAST -> threshold;
+            case AT_MOST -> -threshold;
+            case ABOVE -> Math.nextUp(threshold);
+            case BELOW -> -Math.nextDown(threshold);
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.alerts.rules;
+
+/**
+ * The extreme value of a sliding window, as a monotonic deque of
+ * (key, value) pairs with increasing keys. For a max deque the values
+ * decrease from head to tail, so the head holds the highest value whose key
+ * is still inside the window; a min deque is the mirror image. A value that
+ * can never be the extreme again is dropped when it is pushed past, so
+ * pushing and evicting take amortized constant time.
+ */
+final class MonotonicDeque {
+
+    private final boolean max;
+    private long[] keys = new long[16];
+    private double[] values = new double[16];
+    private int head;
+    private int size;
+
+    /**
+     * @param max true to track the maximum, false to track the minimum
+     */
+    MonotonicDeque(boolean max) {
+        this.max = max;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param key a key not smaller than the keys pushed before, e.g. a timestamp or a sequence number
+     */
+    void push(long key, double value) {
+        int mask = keys.length - 1;
+        while (size > 0) {
+            double tail = values[(head + size - 1) & mask];
+            if (max ? tail > value : tail < value) {
+                break;
+            }
+            size--;
+        }
+        if (size == keys.length) {
+            grow();
+            mask = keys.length - 1;
+        }
+        int slot = (head + size) & mask;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Drops the values with a key below the given one.
+     */
+    void evictBefore(long key) {
+        int mask = keys.length - 1;
+        while (size > 0 && keys[head] < key) {
+            head = (head + 1) & mask;
+            size--;
+        }
+    }
+
+    /**
+     * @return the extreme value in the window, or NaN if it is empty
+     */
+    double peek() {
+        return size > 0 ? values[head] : Double.NaN;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity, unrolling the deque to start at index 0.
+     */
+    private void grow() {
+        int capacity = keys.length * 2;
+        long[] grownKeys = new long[capacity];
+        double[] grownValues = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (keys.length - 1);
+            grownKeys[i] = keys[index];
+            grownValues[i] = values[index];
+        }
+        keys = grownKeys;
+        values = grownValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,235 @@
+package com.alerts.rules;
+
+/**
+ * A sliding window over a stream of timestamped readings, bounded by a number
+ * of readings, an age, or both. It keeps the readings in a primitive ring and
+ * maintains their mean and variance with Welford's update, for the reading
+ * that enters and for each one that leaves, plus the minimum and maximum with
+ * monotonic deques. Adding a reading takes amortized constant time and does
+ * not allocate once the ring has grown to the window's size.
+ *
+ * Welford's update avoids the cancellation of E[x^2] - E[x]^2, which loses
+ * all precision when the spread of the readings is small against their
+ * magnitude. Removing a reading can still cancel digits, badly so when an
+ * outlier leaves the window, so the sums are recomputed from the ring when
+ * they have shrunk to a small fraction of their peak, at most once per
+ * window's worth of removals, and at least once every
+ * {@value #RESYNC_INTERVAL} removals, so the cost stays constant per reading.
+ *
+ * A window is not thread-safe.
+ */
+public final class RollingWindow {
+
+    /** Removals between two exact recomputations of the mean and variance */
+    static final int RESYNC_INTERVAL = 1 << 16;
+    // Fraction of its peak the sum of squared deviations may shrink to before it is recomputed
+    private static final double RESYNC_SHRINK = 0x1p-20;
+
+    private final int maxCount;
+    private final long maxAgeMs;
+    private double[] values;
+    private long[] times;
+    private int head;
+    private int size;
+    // Sequence number of the oldest reading, keying the deques
+    private long first;
+    private double mean;
+    private double m2; // sum of squared deviations from the mean
+    private double peakM2; // highest m2 since the last recomputation
+    private int removals;
+    private final MonotonicDeque maxima = new MonotonicDeque(true);
+    private final MonotonicDeque minima = new MonotonicDeque(false);
+
+    /**
+     * Creates a window of the last readings.
+     *
+     * @param maxCount number of readings in a full window
+     * @throws IllegalArgumentException if the count is not positive
+     */
+    public RollingWindow(int maxCount) {
+        this(maxCount, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a window of the last readings that are not older than an age.
+     *
+     * @param maxCount number of readings in a full window, or {@link Integer#MAX_VALUE} for no limit
+     * @param maxAgeMs how much older than the latest reading a reading may be, or {@link Long#MAX_VALUE}
+     * @throws IllegalArgumentException if a bound is not positive
+     */
+    public RollingWindow(int maxCount, long maxAgeMs) {
+        if (maxCount <= 0 || maxAgeMs <= 0) {
+            throw new IllegalArgumentException("Window bounds must be positive: " + maxCount + ", " + maxAgeMs);
+        }
+        this.maxCount = maxCount;
+        this.maxAgeMs = maxAgeMs;
+        int capacity = Integer.highestOneBit(Math.min(maxCount, 16) - 1) << 1;
+        this.values = new double[Math.max(capacity, 1)];
+        this.times = new long[values.length];
+    }
+
+    /**
+     * Adds a reading, evicting the readings that fall out of the window.
+     * Readings must arrive in time order.
+     */
+    public void add(double value, long timestamp) {
+        if (maxAgeMs != Long.MAX_VALUE) {
+            while (size > 0 && timestamp - times[head] > maxAgeMs) {
+                removeOldest();
+            }
+        }
+        if (size == maxCount) {
+            removeOldest();
+        }
+        if (size == values.length) {
+            grow();
+        }
+        int slot = (head + size) & (values.length - 1);
+        values[slot] = value;
+        times[slot] = timestamp;
+        size++;
+        long sequence = first + size - 1;
+        maxima.push(sequence, value);
+        minima.push(sequence, value);
+
+        double delta = value - mean;
+        mean += delta / size;
+        m2 += delta * (value - mean);
+        peakM2 = Math.max(peakM2, m2);
+    }
+
+    /**
+     * @return the number of readings in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true once the window holds its maximum number of readings
+     */
+    public boolean isFull() {
+        return size == maxCount;
+    }
+
+    /**
+     * @param index 0 for the oldest reading in the window
+     * @return the reading
+     * @throws IndexOutOfBoundsException if there is no such reading
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        return values[(head + index) & (values.length - 1)];
+    }
+
+    /**
+     * @return the mean of the readings, or NaN if the window is empty
+     */
+    public double mean() {
+        return size > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return the population variance of the readings, or NaN if the window is empty
+     */
+    public double variance() {
+        return size > 0 ? Math.max(0, m2 / size) : Double.NaN;
+    }
+
+    /**
+     * @return the population standard deviation of the readings, or NaN if the window is empty
+     */
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return the highest reading, or NaN if the window is empty
+     */
+    public double max() {
+        return maxima.peek();
+    }
+
+    /**
+     * @return the lowest reading, or NaN if the window is empty
+     */
+    public double min() {
+        return minima.peek();
+    }
+
+    /**
+     * Removes all readings.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        first = 0;
+        mean = 0;
+        m2 = 0;
+        peakM2 = 0;
+        maxima.clear();
+        minima.clear();
+    }
+
+    private void removeOldest() {
+        double value = values[head];
+        head = (head + 1) & (values.length - 1);
+        size--;
+        first++;
+        maxima.evictBefore(first);
+        minima.evictBefore(first);
+
+        if (size == 0) {
+            mean = 0;
+            m2 = 0;
+            peakM2 = 0;
+            return;
+        }
+        double oldMean = mean;
+        mean -= (value - mean) / size;
+        m2 -= (value - oldMean) * (value - mean);
+        removals++;
+        if (removals == RESYNC_INTERVAL || (removals >= size && m2 < peakM2 * RESYNC_SHRINK)) {
+            resync();
+        }
+    }
+
+    /**
+     * Recomputes the mean and the sum of squared deviations from the readings, in two passes.
+     */
+    private void resync() {
+        removals = 0;
+        int mask = values.length - 1;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[(head + i) & mask];
+        }
+        mean = sum / size;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            double deviation = values[(head + i) & mask] - mean;
+            squares += deviation * deviation;
+        }
+        m2 = squares;
+        peakM2 = squares;
+    }
+
+    /**
+     * Doubles the capacity of the ring, unrolling it to start at index 0.
+     */
+    private void grow() {
+        int capacity = values.length * 2;
+        double[] grownValues = new double[capacity];
+        long[] grownTimes = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (values.length - 1);
+            grownValues[i] = values[index];
+            grownTimes[i] = times[index];
+        }
+        values = grownValues;
+        times = grownTimes;
+        head = 0;
+    }
+}
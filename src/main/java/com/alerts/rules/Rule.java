@@ -0,0 +1,275 @@
+package com.alerts.rules;
+
+import com.alerts.AlertSeverity;
+import com.alerts.AlertType;
+
+/**
+ * One declarative alert rule: which record type it watches, the condition
+ * that raises its alert, and the alert it raises. A rule's alert is triggered
+ * while the condition holds for the latest sample and resolved once it no
+ * longer does. Rules are immutable; a {@link RuleSet} is compiled into a
+ * {@link RulePlan} before it is evaluated.
+ *
+ * The message is a template. {@code {value}} is replaced by the latest value,
+ * {@code {other}} by the value of the second record type of a combined rule,
+ * {@code {drop}} by the drop of a drop rule with one decimal,
+ * {@code {readings}} by the readings of a trend or deviation rule and
+ * {@code {minutes}} by the window of a drop rule in whole minutes.
+ */
+public final class Rule {
+
+    /**
+     * The kinds of conditions a rule can check.
+     */
+    public enum Kind {
+        /** The latest value compared against a threshold */
+        THRESHOLD,
+        /** Every one of the last readings changes by more than the threshold in one direction */
+        TREND,
+        /** The latest value is at least the threshold below the highest value inside a time window */
+        DROP,
+        /** The latest value is more than threshold standard deviations away from the mean of the last readings */
+        DEVIATION,
+        /** The latest values of two record types both satisfy their comparisons */
+        COMBINED
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final String recordType;
+    private final Comparison comparison;
+    private final double threshold;
+    private final int readings;
+    private final long windowMs;
+    private final String otherType;
+    private final Comparison otherComparison;
+    private final double otherThreshold;
+    private final AlertType alertType;
+    private final AlertSeverity severity;
+    private final String message;
+
+    private Rule(String name, Kind kind, String recordType, Comparison comparison, double threshold, int readings,
+            long windowMs, String otherType, Comparison otherComparison, double otherThreshold, AlertType alertType,
+            AlertSeverity severity, String message) {
+        if (name == null || name.isEmpty() || recordType == null || alertType == null || severity == null
+                || message == null) {
+            throw new IllegalArgumentException("A rule needs a name, a record type, an alert and a message");
+        }
+        if ((kind == Kind.TREND && readings < 2) || (kind == Kind.DEVIATION && readings < 1)) {
+            throw new IllegalArgumentException("Too few readings for rule " + name + ": " + readings);
+        }
+        if (kind == Kind.DROP && windowMs <= 0) {
+            throw new IllegalArgumentException("Window of rule " + name + " must be positive: " + windowMs);
+        }
+        this.name = name;
+        this.kind = kind;
+        this.recordType = recordType;
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.readings = readings;
+        this.windowMs = windowMs;
+        this.otherType = otherType;
+        this.otherComparison = otherComparison;
+        this.otherThreshold = otherThreshold;
+        this.alertType = alertType;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    /**
+     * Creates a rule that compares every new value against a threshold.
+     */
+    public static Rule threshold(String name, String recordType, Comparison comparison, double threshold,
+            AlertType alertType, AlertSeverity severity, String message) {
+        return new Rule(name, Kind.THRESHOLD, recordType, comparison, threshold, 0, 0, null, null, 0,
+                alertType, severity, message);
+    }
+
+    /**
+     * Creates a rule that fires when each of the last readings rises (or falls)
+     * by more than the minimum change from the one before.
+     *
+     * @param readings  number of consecutive readings the trend spans, at least 2
+     * @param minChange change between two readings that must be exceeded
+     * @param rising    true for a rising trend, false for a falling one
+     */
+    public static Rule trend(String name, String recordType, int readings, double minChange, boolean rising,
+            AlertType alertType, AlertSeverity severity, String message) {
+        return new Rule(name, Kind.TREND, recordType, rising ? Comparison.ABOVE : Comparison.BELOW, minChange,
+                readings, 0, null, null, 0, alertType, severity, message);
+    }
+
+    /**
+     * Creates a rule that fires when the latest value is at least the minimum
+     * drop below the highest value seen inside the time window.
+     */
+    public static Rule drop(String name, String recordType, long windowMs, double minDrop, AlertType alertType,
+            AlertSeverity severity, String message) {
+        return new Rule(name, Kind.DROP, recordType, Comparison.AT_LEAST, minDrop, 0, windowMs, null, null, 0,
+                alertType, severity, message);
+    }
+
+    /**
+     * Creates a rule that fires when the latest value lies more than the given
+     * number of standard deviations from the mean of the last readings,
+     * including the latest one. It is only checked once that many readings exist.
+     */
+    public static Rule deviation(String name, String recordType, int readings, double stdDevs, AlertType alertType,
+            AlertSeverity severity, String message) {
+        return new Rule(name, Kind.DEVIATION, recordType, Comparison.ABOVE, stdDevs, readings, 0, null, null, 0,
+                alertType, severity, message);
+    }
+
+    /**
+     * Creates a rule on the latest values of two record types, checked when
+     * either of them gets a new value once both have one.
+     */
+    public static Rule combined(String name, String recordType, Comparison comparison, double threshold,
+            String otherType, Comparison otherComparison, double otherThreshold, AlertType alertType,
+            AlertSeverity severity, String message) {
+        if (otherType == null || otherType.equals(recordType)) {
+            throw new IllegalArgumentException("A combined rule needs two different record types: " + name);
+        }
+        return new Rule(name, Kind.COMBINED, recordType, comparison, threshold, 0, 0, otherType, otherComparison,
+                otherThreshold, alertType, severity, message);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getRecordType() {
+        return recordType;
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    /**
+     * @return the threshold, minimum change, minimum drop or number of standard deviations, by kind
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the readings of a trend or deviation rule, 0 for other kinds
+     */
+    public int getReadings() {
+        return readings;
+    }
+
+    /**
+     * @return the window of a drop rule in milliseconds, 0 for other kinds
+     */
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * @return the second record type of a combined rule, null for other kinds
+     */
+    public String getOtherType() {
+        return otherType;
+    }
+
+    public Comparison getOtherComparison() {
+        return otherComparison;
+    }
+
+    public double getOtherThreshold() {
+        return otherThreshold;
+    }
+
+    public AlertType getAlertType() {
+        return alertType;
+    }
+
+    public AlertSeverity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns a copy of this rule with one parameter changed.
+     *
+     * @param parameter "threshold", "readings", "windowMs" or "otherThreshold"
+     * @param value     the new value
+     * @throws IllegalArgumentException if the parameter does not apply to this rule or the value is invalid
+     */
+    Rule with(String parameter, String value) {
+        try {
+            switch (parameter) {
+                case "threshold":
+                    return new Rule(name, kind, recordType, comparison, Double.parseDouble(value), readings,
+                            windowMs, otherType, otherComparison, otherThreshold, alertType, severity, message);
+                case "readings":
+                    if (kind == Kind.TREND || kind == Kind.DEVIATION) {
+                        return new Rule(name, kind, recordType, comparison, threshold, Integer.parseInt(value),
+                                windowMs, otherType, otherComparison, otherThreshold, alertType, severity, message);
+                    }
+                    break;
+                case "windowMs":
+                    if (kind == Kind.DROP) {
+                        return new Rule(name, kind, recordType, comparison, threshold, readings,
+                                Long.parseLong(value), otherType, otherComparison, otherThreshold, alertType,
+                                severity, message);
+                    }
+                    break;
+                case "otherThreshold":
+                    if (kind == Kind.COMBINED) {
+                        return new Rule(name, kind, recordType, comparison, threshold, readings, windowMs,
+                                otherType, otherComparison, Double.parseDouble(value), alertType, severity, message);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for " + name + "." + parameter + ": " + value, e);
+        }
+        throw new IllegalArgumentException("Rule " + name + " has no parameter " + parameter);
+    }
+
+    /**
+     * Fills in the message template.
+     *
+     * @param value the latest value
+     * @param other the other type's value of a combined rule, or the drop of a drop rule
+     */
+    String describe(double value, double other) {
+        StringBuilder text = new StringBuilder(message.length() + 16);
+        int from = 0;
+        int open;
+        while ((open = message.indexOf('{', from)) >= 0) {
+            int close = message.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            text.append(message, from, open);
+            switch (message.substring(open + 1, close)) {
+                case "value" -> text.append(value);
+                case "other" -> text.append(other);
+                case "drop" -> text.append(String.format("%.1f", other));
+                case "readings" -> text.append(readings);
+                case "minutes" -> text.append(windowMs / 60_000);
+                default -> text.append(message, open, close + 1);
+            }
+            from = close + 1;
+        }
+        return text.append(message, from, message.length()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Rule{" + name + ", " + kind + " on " + recordType + " -> " + alertType + "}";
+    }
+}
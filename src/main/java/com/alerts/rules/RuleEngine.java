@@ -0,0 +1,79 @@
+package com.alerts.rules;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Holds the compiled rules that alert evaluation runs against, and swaps them
+ * at runtime. A reload compiles the new rules once and publishes the plan;
+ * every {@link RuleEvaluator} picks it up with its next sample, so alert
+ * thresholds change without restarting or pausing evaluation.
+ *
+ * An engine can be shared by any number of threads.
+ */
+public final class RuleEngine {
+
+    private static volatile RuleEngine shared;
+
+    private volatile RulePlan plan;
+
+    /**
+     * Creates an engine running the given rules.
+     */
+    public RuleEngine(RuleSet rules) {
+        this.plan = RulePlan.compile(rules);
+    }
+
+    /**
+     * Returns the engine used by alert generators and strategies created
+     * without one. It starts with {@link RuleSet#defaults()}.
+     */
+    public static RuleEngine shared() {
+        RuleEngine engine = shared;
+        if (engine == null) {
+            synchronized (RuleEngine.class) {
+                engine = shared;
+                if (engine == null) {
+                    engine = new RuleEngine(RuleSet.defaults());
+                    shared = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * @return the current plan
+     */
+    public RulePlan plan() {
+        return plan;
+    }
+
+    /**
+     * @return the rules currently in effect
+     */
+    public RuleSet getRuleSet() {
+        return plan.getRuleSet();
+    }
+
+    /**
+     * Replaces the rules. Samples already being evaluated finish with the old ones.
+     *
+     * @param rules the new rules
+     */
+    public void reload(RuleSet rules) {
+        plan = RulePlan.compile(rules);
+    }
+
+    /**
+     * Replaces the rules with the defaults overridden by a properties file, as
+     * described in {@link RuleSet}. If the file is invalid the rules are left unchanged.
+     *
+     * @param file the properties file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file holds an unknown key or an invalid value
+     */
+    public void reload(Path file) throws IOException {
+        reload(RuleSet.load(file));
+    }
+}
@@ -0,0 +1,248 @@
+package com.alerts.rules;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alerts.Alert;
+import com.alerts.AlertType;
+import com.data_management.PatientRecord;
+import com.data_management.RecordTypeRegistry;
+
+/**
+ * Runs the current plan of a {@link RuleEngine} on one sample at a time,
+ * keeping the windows its rules need per patient. Each sample updates the
+ * windows of its record type and then evaluates only the rules of that type,
+ * in time independent of the patient's history.
+ *
+ * When the engine is reloaded, a patient's state is carried over to the new
+ * plan with its next sample: windows the new plan still has keep their
+ * readings, new ones start empty.
+ *
+ * An evaluator is not thread-safe; samples must be delivered by one thread at a time.
+ */
+public final class RuleEvaluator {
+
+    private final RuleEngine engine;
+    private final AlertSink sink;
+    private final Map<Integer, PatientRules> patients = new HashMap<>();
+
+    /**
+     * Creates an evaluator.
+     *
+     * @param engine the rules to run
+     * @param sink   receives the outcome of every rule
+     */
+    public RuleEvaluator(RuleEngine engine, AlertSink sink) {
+        this.engine = engine;
+        this.sink = sink;
+    }
+
+    /**
+     * Evaluates one sample. Samples of a patient and record type must arrive in time order.
+     *
+     * @param patientId the patient the sample belongs to
+     * @param typeId    the interned record type, see {@link RecordTypeRegistry}
+     * @param value     the measured value
+     * @param timestamp the time of the measurement
+     */
+    public void evaluate(int patientId, int typeId, double value, long timestamp) {
+        RulePlan plan = engine.plan();
+        RulePlan.TypePlan type = plan.forType(typeId);
+        if (type == null) {
+            return;
+        }
+        PatientRules state = patients.get(patientId);
+        if (state == null || state.plan != plan) {
+            state = new PatientRules(plan, state);
+            patients.put(patientId, state);
+        }
+        run(type, state, patientId, value, timestamp, sink);
+    }
+
+    /**
+     * Evaluates a list of records from scratch and returns the alerts that hold
+     * after the last one, ranked in rule order. Records too old to reach any
+     * window of the latest result are skipped.
+     *
+     * @param plan      the rules
+     * @param patientId the patient the records belong to
+     * @param records   the records, oldest first
+     * @return the alerts that hold for the latest records
+     */
+    public static List<Alert> replay(RulePlan plan, int patientId, List<PatientRecord> records) {
+        int size = records.size();
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+        // Skip the records the longest ring and time window no longer reach
+        long latestTime = records.get(size - 1).getTimestamp();
+        Map<String, int[]> seen = new HashMap<>();
+        boolean[] needed = new boolean[size];
+        for (int i = size - 1; i >= 0; i--) {
+            PatientRecord record = records.get(i);
+            int[] count = seen.computeIfAbsent(record.getRecordType(), k -> new int[1]);
+            needed[i] = count[0]++ < plan.maxReadings || latestTime - record.getTimestamp() <= plan.maxWindowMs;
+        }
+
+        Map<AlertType, Alert> active = new EnumMap<>(AlertType.class);
+        AlertSink collector = new AlertSink() {
+            @Override
+            public void trigger(Alert alert) {
+                active.put(alert.getType(), alert);
+            }
+
+            @Override
+            public void resolve(int patientId, AlertType alertType) {
+                active.remove(alertType);
+            }
+        };
+        PatientRules state = new PatientRules(plan, null);
+        for (int i = 0; i < size; i++) {
+            PatientRecord record = records.get(i);
+            RulePlan.TypePlan type = needed[i] ? plan.forType(RecordTypeRegistry.lookup(record.getRecordType())) : null;
+            if (type != null) {
+                run(type, state, patientId, record.getMeasurementValue(), record.getTimestamp(), collector);
+            }
+        }
+
+        List<Alert> alerts = new ArrayList<>();
+        for (Rule rule : plan.getRuleSet().getRules()) {
+            Alert alert = active.remove(rule.getAlertType());
+            if (alert != null) {
+                alerts.add(alert);
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Adds a sample to the windows of its type, then evaluates the rules of the type, kind by kind.
+     */
+    private static void run(RulePlan.TypePlan type, PatientRules state, int patientId, double value,
+            long timestamp, AlertSink sink) {
+        for (int slot : type.windows) {
+            state.windows[slot].add(value, timestamp);
+        }
+        for (int slot : type.slidingMaxima) {
+            state.maxima[slot].add(value, timestamp);
+        }
+        if (type.valueSlot >= 0) {
+            state.values[type.valueSlot] = value;
+            state.valueTimes[type.valueSlot] = timestamp;
+            state.hasValue[type.valueSlot] = true;
+        }
+
+        for (int i = 0; i < type.thresholdRules.length; i++) {
+            boolean hit = type.thresholdSigns[i] * value >= type.thresholdBounds[i];
+            report(hit, type.thresholdRules[i], patientId, value, 0, timestamp, sink);
+        }
+
+        for (int i = 0; i < type.trendRules.length; i++) {
+            RollingWindow window = state.windows[type.trendWindows[i]];
+            if (!window.isFull()) {
+                continue;
+            }
+            double sign = type.trendSigns[i];
+            double change = type.trendChanges[i];
+            boolean hit = true;
+            double previous = window.get(0);
+            for (int r = 1; r < window.size(); r++) {
+                double current = window.get(r);
+                hit &= sign * (current - previous) > change;
+                previous = current;
+            }
+            report(hit, type.trendRules[i], patientId, value, 0, timestamp, sink);
+        }
+
+        for (int i = 0; i < type.dropRules.length; i++) {
+            double drop = state.maxima[type.dropRuleWindows[i]].max() - value;
+            report(drop >= type.dropMinimums[i], type.dropRules[i], patientId, value, drop, timestamp, sink);
+        }
+
+        for (int i = 0; i < type.deviationRules.length; i++) {
+            RollingWindow window = state.windows[type.deviationWindows[i]];
+            if (!window.isFull()) {
+                continue;
+            }
+            boolean hit = Math.abs(value - window.mean()) > type.deviationFactors[i] * window.stdDev();
+            report(hit, type.deviationRules[i], patientId, value, 0, timestamp, sink);
+        }
+
+        for (int i = 0; i < type.combinedRules.length; i++) {
+            int otherSlot = type.combinedOtherSlots[i];
+            if (!state.hasValue[otherSlot]) {
+                continue;
+            }
+            double other = state.values[otherSlot];
+            boolean hit = type.combinedSigns[i] * value >= type.combinedBounds[i]
+                    & type.combinedOtherSigns[i] * other >= type.combinedOtherBounds[i];
+            long time = Math.max(timestamp, state.valueTimes[otherSlot]);
+            if (type.combinedFirst[i]) {
+                report(hit, type.combinedRules[i], patientId, value, other, time, sink);
+            } else {
+                report(hit, type.combinedRules[i], patientId, other, value, time, sink);
+            }
+        }
+    }
+
+    private static void report(boolean hit, Rule rule, int patientId, double value, double other, long timestamp,
+            AlertSink sink) {
+        if (hit) {
+            sink.trigger(new Alert(patientId, rule.getAlertType(), rule.describe(value, other), timestamp,
+                    rule.getSeverity()));
+        } else {
+            sink.resolve(patientId, rule.getAlertType());
+        }
+    }
+
+    /**
+     * The windows and latest values of one patient, laid out as a plan says.
+     */
+    private static final class PatientRules {
+
+        final RulePlan plan;
+        final RollingWindow[] windows;
+        final SlidingMax[] maxima;
+        final double[] values;
+        final long[] valueTimes;
+        final boolean[] hasValue;
+
+        /**
+         * Creates the state for a plan, taking over what still fits from the state of an earlier plan.
+         *
+         * @param previous the state under the earlier plan, or null
+         */
+        PatientRules(RulePlan plan, PatientRules previous) {
+            this.plan = plan;
+            windows = new RollingWindow[plan.windowTypes.length];
+            for (int slot = 0; slot < windows.length; slot++) {
+                int old = previous == null ? -1 : previous.plan.findWindow(plan.windowTypes[slot],
+                        plan.windowCounts[slot], plan.windowAges[slot]);
+                windows[slot] = old >= 0 ? previous.windows[old]
+                        : new RollingWindow(plan.windowCounts[slot], plan.windowAges[slot]);
+            }
+            maxima = new SlidingMax[plan.maxTypes.length];
+            for (int slot = 0; slot < maxima.length; slot++) {
+                int old = previous == null ? -1
+                        : previous.plan.findSlidingMax(plan.maxTypes[slot], plan.maxWindowsMs[slot]);
+                maxima[slot] = old >= 0 ? previous.maxima[old] : new SlidingMax(plan.maxWindowsMs[slot]);
+            }
+            int slots = plan.valueSlotTypes.length;
+            values = new double[slots];
+            valueTimes = new long[slots];
+            hasValue = new boolean[slots];
+            for (int slot = 0; slot < slots && previous != null; slot++) {
+                for (int p = 0; p < previous.plan.valueSlotTypes.length; p++) {
+                    if (previous.plan.valueSlotTypes[p] == plan.valueSlotTypes[slot]) {
+                        values[slot] = previous.values[p];
+                        valueTimes[slot] = previous.valueTimes[p];
+                        hasValue[slot] = previous.hasValue[p];
+                    }
+                }
+            }
+        }
+    }
+}
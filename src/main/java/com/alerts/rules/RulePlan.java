@@ -0,0 +1,323 @@
+package com.alerts.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.data_management.RecordTypeRegistry;
+
+/**
+ * A {@link RuleSet} compiled for evaluation. The rules are grouped by record
+ * type and by kind into flat parallel arrays, so a sample only visits the
+ * rules of its own type, looked up by its interned type id, and every
+ * comparison is one multiply and one compare: {@code sign * value >= bound}.
+ *
+ * The plan also lays out the per-patient state its rules need: one
+ * {@link RollingWindow} per record type and length, one {@link SlidingMax}
+ * per record type and time span, and one latest-value slot per record type
+ * used by a combined rule. Rules that need the same window
+ * share it. A plan is immutable and can be used by any number of threads.
+ */
+public final class RulePlan {
+
+    private final RuleSet ruleSet;
+    private final TypePlan[] byType;
+    // Per-patient state layout; see PatientRules
+    final int[] windowTypes;
+    final int[] windowCounts;
+    final long[] windowAges;
+    final int[] maxTypes;
+    final long[] maxWindowsMs;
+    final int[] valueSlotTypes;
+    // How much history can still affect the latest result
+    final int maxReadings;
+    final long maxWindowMs;
+
+    private RulePlan(RuleSet ruleSet, TypePlan[] byType, Layout layout) {
+        this.ruleSet = ruleSet;
+        this.byType = byType;
+        this.windowTypes = toIntArray(layout.types);
+        this.windowCounts = toIntArray(layout.counts);
+        this.windowAges = layout.ages.stream().mapToLong(Long::longValue).toArray();
+        this.maxTypes = toIntArray(layout.maxTypes);
+        this.maxWindowsMs = layout.maxWindowsMs.stream().mapToLong(Long::longValue).toArray();
+        this.valueSlotTypes = toIntArray(layout.valueTypes);
+        this.maxReadings = Math.max(1, layout.counts.stream().mapToInt(Integer::intValue)
+                .filter(count -> count != Integer.MAX_VALUE).max().orElse(1));
+        this.maxWindowMs = Math.max(layout.maxWindowsMs.stream().mapToLong(Long::longValue).max().orElse(0),
+                layout.ages.stream().mapToLong(Long::longValue).filter(age -> age != Long.MAX_VALUE).max().orElse(0));
+    }
+
+    /**
+     * Compiles a rule set.
+     *
+     * @param ruleSet the rules
+     * @return the evaluation plan
+     */
+    public static RulePlan compile(RuleSet ruleSet) {
+        Layout layout = new Layout();
+        List<TypeBuilder> builders = new ArrayList<>();
+        for (Rule rule : ruleSet.getRules()) {
+            TypeBuilder type = builder(builders, RecordTypeRegistry.intern(rule.getRecordType()));
+            switch (rule.getKind()) {
+                case THRESHOLD -> type.thresholds.add(rule);
+                case TREND -> {
+                    type.trends.add(rule);
+                    type.trendWindows.add(layout.window(type, rule.getReadings(), Long.MAX_VALUE));
+                }
+                case DROP -> {
+                    type.drops.add(rule);
+                    type.dropWindows.add(layout.slidingMax(type, rule.getWindowMs()));
+                }
+                case DEVIATION -> {
+                    type.deviations.add(rule);
+                    type.deviationWindows.add(layout.window(type, rule.getReadings(), Long.MAX_VALUE));
+                }
+                case COMBINED -> {
+                    TypeBuilder other = builder(builders, RecordTypeRegistry.intern(rule.getOtherType()));
+                    int ownSlot = layout.valueSlot(type);
+                    int otherSlot = layout.valueSlot(other);
+                    type.addCombined(rule, true, otherSlot);
+                    other.addCombined(rule, false, ownSlot);
+                }
+            }
+        }
+        int size = 0;
+        for (TypeBuilder builder : builders) {
+            size = Math.max(size, builder.typeId + 1);
+        }
+        TypePlan[] byType = new TypePlan[size];
+        for (TypeBuilder builder : builders) {
+            byType[builder.typeId] = builder.build();
+        }
+        return new RulePlan(ruleSet, byType, layout);
+    }
+
+    /**
+     * @return the rules this plan was compiled from
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * @return the rules for a record type, or null if none watch it
+     */
+    TypePlan forType(int typeId) {
+        return typeId >= 0 && typeId < byType.length ? byType[typeId] : null;
+    }
+
+    /**
+     * @return the slot of the window with the given record type and bounds, or -1 if there is none
+     */
+    int findWindow(int typeId, int count, long ageMs) {
+        for (int slot = 0; slot < windowTypes.length; slot++) {
+            if (windowTypes[slot] == typeId && windowCounts[slot] == count && windowAges[slot] == ageMs) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the slot of the sliding maximum with the given record type and window, or -1 if there is none
+     */
+    int findSlidingMax(int typeId, long windowMs) {
+        for (int slot = 0; slot < maxTypes.length; slot++) {
+            if (maxTypes[slot] == typeId && maxWindowsMs[slot] == windowMs) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static TypeBuilder builder(List<TypeBuilder> builders, int typeId) {
+        for (TypeBuilder builder : builders) {
+            if (builder.typeId == typeId) {
+                return builder;
+            }
+        }
+        TypeBuilder builder = new TypeBuilder(typeId);
+        builders.add(builder);
+        return builder;
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * The rules of one record type, by kind, as parallel arrays. Comparisons are
+     * stored as a sign and a bound; see {@link Comparison#bound(double)}.
+     */
+    static final class TypePlan {
+
+        // State slots the sample is added to before the rules run
+        final int[] windows;
+        final int[] slidingMaxima;
+        final int valueSlot;
+
+        final Rule[] thresholdRules;
+        final double[] thresholdSigns;
+        final double[] thresholdBounds;
+
+        final Rule[] trendRules;
+        final int[] trendWindows;
+        final double[] trendSigns;
+        final double[] trendChanges;
+
+        final Rule[] dropRules;
+        final int[] dropRuleWindows;
+        final double[] dropMinimums;
+
+        final Rule[] deviationRules;
+        final int[] deviationWindows;
+        final double[] deviationFactors;
+
+        final Rule[] combinedRules;
+        // Whether this type is the rule's first type, which fills {value} in the message
+        final boolean[] combinedFirst;
+        final int[] combinedOtherSlots;
+        final double[] combinedSigns;
+        final double[] combinedBounds;
+        final double[] combinedOtherSigns;
+        final double[] combinedOtherBounds;
+
+        private TypePlan(TypeBuilder builder) {
+            windows = toIntArray(builder.windows);
+            slidingMaxima = toIntArray(builder.slidingMaxima);
+            valueSlot = builder.valueSlot;
+
+            thresholdRules = builder.thresholds.toArray(new Rule[0]);
+            thresholdSigns = new double[thresholdRules.length];
+            thresholdBounds = new double[thresholdRules.length];
+            for (int i = 0; i < thresholdRules.length; i++) {
+                Comparison comparison = thresholdRules[i].getComparison();
+                thresholdSigns[i] = comparison.sign();
+                thresholdBounds[i] = comparison.bound(thresholdRules[i].getThreshold());
+            }
+
+            trendRules = builder.trends.toArray(new Rule[0]);
+            trendWindows = toIntArray(builder.trendWindows);
+            trendSigns = new double[trendRules.length];
+            trendChanges = new double[trendRules.length];
+            for (int i = 0; i < trendRules.length; i++) {
+                trendSigns[i] = trendRules[i].getComparison().sign();
+                trendChanges[i] = trendRules[i].getThreshold();
+            }
+
+            dropRules = builder.drops.toArray(new Rule[0]);
+            dropRuleWindows = toIntArray(builder.dropWindows);
+            dropMinimums = new double[dropRules.length];
+            for (int i = 0; i < dropRules.length; i++) {
+                dropMinimums[i] = dropRules[i].getThreshold();
+            }
+
+            deviationRules = builder.deviations.toArray(new Rule[0]);
+            deviationWindows = toIntArray(builder.deviationWindows);
+            deviationFactors = new double[deviationRules.length];
+            for (int i = 0; i < deviationRules.length; i++) {
+                deviationFactors[i] = deviationRules[i].getThreshold();
+            }
+
+            combinedRules = builder.combined.toArray(new Rule[0]);
+            combinedFirst = new boolean[combinedRules.length];
+            combinedOtherSlots = toIntArray(builder.combinedOtherSlots);
+            combinedSigns = new double[combinedRules.length];
+            combinedBounds = new double[combinedRules.length];
+            combinedOtherSigns = new double[combinedRules.length];
+            combinedOtherBounds = new double[combinedRules.length];
+            for (int i = 0; i < combinedRules.length; i++) {
+                Rule rule = combinedRules[i];
+                boolean first = builder.combinedFirst.get(i);
+                Comparison own = first ? rule.getComparison() : rule.getOtherComparison();
+                Comparison other = first ? rule.getOtherComparison() : rule.getComparison();
+                combinedFirst[i] = first;
+                combinedSigns[i] = own.sign();
+                combinedBounds[i] = own.bound(first ? rule.getThreshold() : rule.getOtherThreshold());
+                combinedOtherSigns[i] = other.sign();
+                combinedOtherBounds[i] = other.bound(first ? rule.getOtherThreshold() : rule.getThreshold());
+            }
+        }
+    }
+
+    /**
+     * Collects the rules of one record type while compiling.
+     */
+    private static final class TypeBuilder {
+
+        final int typeId;
+        final List<Integer> windows = new ArrayList<>();
+        final List<Integer> slidingMaxima = new ArrayList<>();
+        int valueSlot = -1;
+        final List<Rule> thresholds = new ArrayList<>();
+        final List<Rule> trends = new ArrayList<>();
+        final List<Integer> trendWindows = new ArrayList<>();
+        final List<Rule> drops = new ArrayList<>();
+        final List<Integer> dropWindows = new ArrayList<>();
+        final List<Rule> deviations = new ArrayList<>();
+        final List<Integer> deviationWindows = new ArrayList<>();
+        final List<Rule> combined = new ArrayList<>();
+        final List<Boolean> combinedFirst = new ArrayList<>();
+        final List<Integer> combinedOtherSlots = new ArrayList<>();
+
+        TypeBuilder(int typeId) {
+            this.typeId = typeId;
+        }
+
+        void addCombined(Rule rule, boolean first, int otherSlot) {
+            combined.add(rule);
+            combinedFirst.add(first);
+            combinedOtherSlots.add(otherSlot);
+        }
+
+        TypePlan build() {
+            return new TypePlan(this);
+        }
+    }
+
+    /**
+     * Assigns the per-patient state slots, sharing a slot between rules that need the same one.
+     */
+    private static final class Layout {
+
+        final List<Integer> types = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+        final List<Long> ages = new ArrayList<>();
+        final List<Integer> maxTypes = new ArrayList<>();
+        final List<Long> maxWindowsMs = new ArrayList<>();
+        final List<Integer> valueTypes = new ArrayList<>();
+
+        int window(TypeBuilder type, int count, long ageMs) {
+            for (int slot = 0; slot < types.size(); slot++) {
+                if (types.get(slot) == type.typeId && counts.get(slot) == count && ages.get(slot) == ageMs) {
+                    return slot;
+                }
+            }
+            types.add(type.typeId);
+            counts.add(count);
+            ages.add(ageMs);
+            type.windows.add(types.size() - 1);
+            return types.size() - 1;
+        }
+
+        int slidingMax(TypeBuilder type, long windowMs) {
+            for (int slot = 0; slot < maxTypes.size(); slot++) {
+                if (maxTypes.get(slot) == type.typeId && maxWindowsMs.get(slot) == windowMs) {
+                    return slot;
+                }
+            }
+            maxTypes.add(type.typeId);
+            maxWindowsMs.add(windowMs);
+            type.slidingMaxima.add(maxTypes.size() - 1);
+            return maxTypes.size() - 1;
+        }
+
+        int valueSlot(TypeBuilder type) {
+            if (type.valueSlot < 0) {
+                valueTypes.add(type.typeId);
+                type.valueSlot = valueTypes.size() - 1;
+            }
+            return type.valueSlot;
+        }
+    }
+}
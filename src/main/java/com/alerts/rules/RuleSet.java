@@ -0,0 +1,175 @@
+package com.alerts.rules;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import com.alerts.AlertSeverity;
+import com.alerts.AlertType;
+
+/**
+ * An ordered, immutable set of alert rules. The order ranks the alerts of
+ * one sample, e.g. for a strategy that reports only the first of them.
+ *
+ * The parameters of the default rules can be overridden from a properties
+ * file, one key per parameter, named after the rule:
+ * <pre>
+ * systolic.high.threshold=175
+ * oxygen.drop.windowMs=300000
+ * ecg.peak.readings=40
+ * hypotensive_hypoxemia.otherThreshold=90
+ * diastolic.falling.enabled=false
+ * </pre>
+ */
+public final class RuleSet {
+
+    private final List<Rule> rules;
+
+    /**
+     * Creates a rule set.
+     *
+     * @param rules the rules, in evaluation order
+     * @throws IllegalArgumentException if two rules have the same name
+     */
+    public RuleSet(List<Rule> rules) {
+        Set<String> names = new HashSet<>();
+        for (Rule rule : rules) {
+            if (!names.add(rule.getName())) {
+                throw new IllegalArgumentException("Duplicate rule name: " + rule.getName());
+            }
+        }
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    /**
+     * Returns the standard monitoring rules for blood pressure, oxygen
+     * saturation and ECG.
+     */
+    public static RuleSet defaults() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(Rule.threshold("systolic.high", "SystolicBP", Comparison.AT_LEAST, 180,
+                AlertType.HIGH_SYSTOLIC_BP, AlertSeverity.CRITICAL,
+                "Critical high systolic blood pressure: {value} mmHg"));
+        rules.add(Rule.threshold("systolic.low", "SystolicBP", Comparison.AT_MOST, 90,
+                AlertType.LOW_SYSTOLIC_BP, AlertSeverity.HIGH,
+                "Critical low systolic blood pressure: {value} mmHg"));
+        rules.add(Rule.trend("systolic.rising", "SystolicBP", 3, 10, true,
+                AlertType.BP_INCREASING_TREND, AlertSeverity.MEDIUM,
+                "Increasing trend in systolic blood pressure detected over {readings} readings"));
+        rules.add(Rule.trend("systolic.falling", "SystolicBP", 3, 10, false,
+                AlertType.BP_DECREASING_TREND, AlertSeverity.MEDIUM,
+                "Decreasing trend in systolic blood pressure detected over {readings} readings"));
+        rules.add(Rule.threshold("diastolic.high", "DiastolicBP", Comparison.AT_LEAST, 120,
+                AlertType.HIGH_DIASTOLIC_BP, AlertSeverity.HIGH,
+                "Critical high diastolic blood pressure: {value} mmHg"));
+        rules.add(Rule.threshold("diastolic.low", "DiastolicBP", Comparison.AT_MOST, 60,
+                AlertType.LOW_DIASTOLIC_BP, AlertSeverity.MEDIUM,
+                "Critical low diastolic blood pressure: {value} mmHg"));
+        rules.add(Rule.trend("diastolic.rising", "DiastolicBP", 3, 10, true,
+                AlertType.BP_INCREASING_TREND, AlertSeverity.MEDIUM,
+                "Increasing trend in diastolic blood pressure detected over {readings} readings"));
+        rules.add(Rule.trend("diastolic.falling", "DiastolicBP", 3, 10, false,
+                AlertType.BP_DECREASING_TREND, AlertSeverity.MEDIUM,
+                "Decreasing trend in diastolic blood pressure detected over {readings} readings"));
+        rules.add(Rule.threshold("oxygen.low", "OxygenSaturation", Comparison.BELOW, 92,
+                AlertType.LOW_OXYGEN_SATURATION, AlertSeverity.HIGH,
+                "Low oxygen saturation: {value}%"));
+        rules.add(Rule.drop("oxygen.drop", "OxygenSaturation", 10 * 60 * 1000, 5,
+                AlertType.RAPID_OXYGEN_DROP, AlertSeverity.HIGH,
+                "Rapid drop in oxygen saturation of {drop}% within {minutes} minutes"));
+        rules.add(Rule.combined("hypotensive_hypoxemia", "SystolicBP", Comparison.BELOW, 90,
+                "OxygenSaturation", Comparison.BELOW, 92,
+                AlertType.HYPOTENSIVE_HYPOXEMIA, AlertSeverity.CRITICAL,
+                "Critical condition: Hypotensive Hypoxemia detected - Low blood pressure ({value} mmHg)"
+                        + " and low oxygen saturation ({other}%)"));
+        rules.add(Rule.deviation("ecg.peak", "ECG", 20, 2.0,
+                AlertType.ECG_ABNORMAL_PEAK, AlertSeverity.HIGH,
+                "Abnormal ECG peak detected: {value} (exceeds normal threshold)"));
+        return new RuleSet(rules);
+    }
+
+    /**
+     * Reads a properties file of overrides and applies it to the default rules.
+     *
+     * @param file the properties file
+     * @return the default rules with the overrides applied
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a key names an unknown rule or parameter, or a value is invalid
+     */
+    public static RuleSet load(Path file) throws IOException {
+        Properties overrides = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            overrides.load(reader);
+        }
+        return defaults().withOverrides(overrides);
+    }
+
+    /**
+     * Returns a copy of this set with parameters overridden. Keys have the form
+     * {@code <rule name>.<parameter>}; the parameter {@code enabled=false} drops the rule.
+     *
+     * @throws IllegalArgumentException if a key names an unknown rule or parameter, or a value is invalid
+     */
+    public RuleSet withOverrides(Properties overrides) {
+        List<Rule> updated = new ArrayList<>(rules);
+        Set<String> used = new HashSet<>();
+        for (int i = updated.size() - 1; i >= 0; i--) {
+            Rule rule = updated.get(i);
+            String prefix = rule.getName() + ".";
+            boolean enabled = true;
+            for (String key : overrides.stringPropertyNames()) {
+                if (!key.startsWith(prefix)) {
+                    continue;
+                }
+                String parameter = key.substring(prefix.length());
+                String value = overrides.getProperty(key).trim();
+                used.add(key);
+                if (parameter.equals("enabled")) {
+                    enabled = Boolean.parseBoolean(value);
+                } else {
+                    rule = rule.with(parameter, value);
+                }
+            }
+            if (enabled) {
+                updated.set(i, rule);
+            } else {
+                updated.remove(i);
+            }
+        }
+        for (String key : overrides.stringPropertyNames()) {
+            if (!used.contains(key)) {
+                throw new IllegalArgumentException("Override does not match a rule: " + key);
+            }
+        }
+        return new RuleSet(updated);
+    }
+
+    /**
+     * @return the rules, in evaluation order
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the rule with the given name.
+     *
+     * @return the rule, or null if there is none
+     */
+    public Rule find(String name) {
+        for (Rule rule : rules) {
+            if (rule.getName().equals(name)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
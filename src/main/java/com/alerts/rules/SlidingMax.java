@@ -0,0 +1,60 @@
+package com.alerts.rules;
+
+/**
+ * The highest reading of a stream within the last stretch of time, as a
+ * monotonic deque keyed by timestamp. Only readings that may still become the
+ * maximum are kept, those not followed by a higher one. Adding a reading and
+ * reading the maximum take amortized constant time.
+ *
+ * Unlike a {@link RollingWindow} bounded by age, it does not keep every
+ * reading of the window: for a noisy saturation signal a 10 minute window of
+ * a 100 Hz feed holds some tens of readings instead of 60000.
+ *
+ * A window is not thread-safe.
+ */
+public final class SlidingMax {
+
+    private final long windowMs;
+    private final MonotonicDeque maxima = new MonotonicDeque(true);
+
+    /**
+     * @param windowMs how much older than the latest reading a reading may be
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public SlidingMax(long windowMs) {
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowMs);
+        }
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Adds a reading, evicting the readings that fell out of the window.
+     * Readings must arrive in time order.
+     */
+    public void add(double value, long timestamp) {
+        maxima.evictBefore(timestamp - windowMs);
+        maxima.push(timestamp, value);
+    }
+
+    /**
+     * @return the highest reading in the window, including the latest one, or NaN if there is none
+     */
+    public double max() {
+        return maxima.peek();
+    }
+
+    /**
+     * @return the number of readings held, the candidates for the maximum
+     */
+    int size() {
+        return maxima.size();
+    }
+
+    /**
+     * @return the window length in milliseconds
+     */
+    public long getWindowMs() {
+        return windowMs;
+    }
+}
@@ -0,0 +1,67 @@
+package com.alerts.strategy;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import com.alerts.Alert;
+import com.alerts.AlertType;
+import com.alerts.rules.RuleEngine;
+import com.alerts.rules.RuleEvaluator;
+import com.data_management.PatientRecord;
+
+/**
+ * Base of the strategies that check records against the rules of a
+ * {@link RuleEngine}, so they use the same thresholds as the
+ * {@link com.alerts.AlertGenerator} and follow a reload of the rules.
+ * A strategy reports the first alert, in rule order, among the alert types it covers.
+ *
+ * A strategy for a single signal treats every record it is given as a reading
+ * of that signal, whatever its record type. A strategy for several signals
+ * tells them apart by record type and ignores records of other types.
+ */
+abstract class RuleStrategy implements AlertStrategy {
+
+    private final RuleEngine rules;
+    private final Set<AlertType> alertTypes;
+    // Record type given to every record, or null to keep the records' own types
+    private final String signal;
+
+    RuleStrategy(RuleEngine rules, AlertType first, AlertType... rest) {
+        this(rules, null, first, rest);
+    }
+
+    RuleStrategy(RuleEngine rules, String signal, AlertType first, AlertType... rest) {
+        this.rules = rules;
+        this.signal = signal;
+        this.alertTypes = EnumSet.of(first, rest);
+    }
+
+    @Override
+    public Alert checkAlert(int patientId, List<PatientRecord> records) {
+        // Return null if no records to analyze
+        if (records == null || records.isEmpty()) {
+            return null;
+        }
+        if (signal != null) {
+            records = asSignal(records);
+        }
+        for (Alert alert : RuleEvaluator.replay(rules.plan(), patientId, records)) {
+            if (alertTypes.contains(alert.getType())) {
+                return alert;
+            }
+        }
+        // No alert needed
+        return null;
+    }
+
+    private List<PatientRecord> asSignal(List<PatientRecord> records) {
+        List<PatientRecord> readings = new ArrayList<>(records.size());
+        for (PatientRecord record : records) {
+            readings.add(signal.equals(record.getRecordType()) ? record
+                    : new PatientRecord(record.getPatientId(), record.getMeasurementValue(), signal,
+                            record.getTimestamp(), record.getAdditionalInfo()));
+        }
+        return readings;
+    }
+}
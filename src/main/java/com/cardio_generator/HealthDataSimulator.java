@@ -1,5 +1,6 @@
 package com.cardio_generator;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -10,6 +11,11 @@ import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.HighFrequencyECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SimulationClock;
+import com.cardio_generator.load.LoadGenerator;
+import com.cardio_generator.outputs.AsyncOutputStrategy;
 import com.cardio_generator.outputs.ConsoleOutputStrategy;
 import com.cardio_generator.outputs.FileOutputStrategy;
 import com.cardio_generator.outputs.OutputStrategy;
@@ -37,6 +43,22 @@ public class HealthDataSimulator {
     private static ScheduledExecutorService scheduler;
     /**variable for allocating an output destination*/
     private static OutputStrategy outputStrategy = new ConsoleOutputStrategy(); // Default output strategy
+    /**Capacity of the queue between the generators and the output; 0 outputs synchronously */
+    private static int outputQueueCapacity = 65536;
+    /**What the output queue does when it is full*/
+    private static AsyncOutputStrategy.OverflowPolicy overflowPolicy = AsyncOutputStrategy.OverflowPolicy.BLOCK;
+    /**How generator tasks are run: "pool", "virtual" or "legacy"*/
+    private static String schedulerMode = "pool";
+    /**Load mode: samples per second to produce, 0 for maximum throughput; null when not in load mode*/
+    private static Double loadRate;
+    /**Number of threads producing samples in load mode*/
+    private static int loadThreads = 1;
+    /**Simulated start time of seeded load runs, 2024-01-01T00:00:00Z, so that timestamps replay too*/
+    private static final long SEEDED_START_TIME = 1_704_067_200_000L;
+    /**ECG samples per second; 0 for the classic one sample per second*/
+    private static int ecgSampleRate = 0;
+    /**Seed of the generated values and the patient order; null for a different run every time*/
+    private static Long seed;
     /**Number randomizer*/
     private static final Random random = new Random();
 
@@ -78,13 +100,28 @@ public class HealthDataSimulator {
         
 
         parseArguments(args);
+        if (outputQueueCapacity > 0) {
+            // Generators only enqueue; a slow output no longer stalls the scheduler threads
+            outputStrategy = new AsyncOutputStrategy(outputStrategy, outputQueueCapacity, overflowPolicy);
+        }
+        // Buffered outputs must write their last data before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> outputStrategy.close(), "output-close"));
 
-        scheduler = Executors.newScheduledThreadPool(patientCount * 4);
-
+        boolean seeded = seed != null;
+        if (!seeded) {
+            seed = random.nextLong();
+        }
         List<Integer> patientIds = initializePatientIds(patientCount);
-        Collections.shuffle(patientIds); // Randomize the order of patient IDs
+        Collections.shuffle(patientIds, new Random(seed)); // Randomize the order of patient IDs
 
-        scheduleTasksForPatients(patientIds);
+        if (loadRate != null) {
+            startLoad(patientIds, seeded ? SEEDED_START_TIME : System.currentTimeMillis());
+        } else if (schedulerMode.equals("legacy")) {
+            scheduler = Executors.newScheduledThreadPool(patientCount * 4);
+            scheduleTasksForPatients(patientIds);
+        } else {
+            schedulePatientBatches(patientIds);
+        }
     }
 
     /**
@@ -110,6 +147,85 @@ public class HealthDataSimulator {
                         }
                     }
                     break;
+                case "--seed":
+                    if (i + 1 < args.length) {
+                        try {
+                            seed = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid seed. Using a random seed.");
+                        }
+                    }
+                    break;
+                case "--ecg-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            ecgSampleRate = Integer.parseInt(args[++i]);
+                            if (ecgSampleRate < 0 || ecgSampleRate > 1000) {
+                                System.err.println(
+                                        "Error: ECG rate must be between 0 and 1000. Using 1 sample per second.");
+                                ecgSampleRate = 0;
+                            }
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid ECG rate. Using 1 sample per second.");
+                        }
+                    }
+                    break;
+                case "--scheduler":
+                    if (i + 1 < args.length) {
+                        String mode = args[++i];
+                        if (mode.equals("pool") || mode.equals("virtual") || mode.equals("legacy")) {
+                            schedulerMode = mode;
+                        } else {
+                            System.err.println("Error: Unknown scheduler '" + mode + "'. Using default: "
+                                    + schedulerMode);
+                        }
+                    }
+                    break;
+                case "--rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            loadRate = Double.parseDouble(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid rate. Using maximum throughput.");
+                            loadRate = 0.0;
+                        }
+                    }
+                    break;
+                case "--max-throughput":
+                    loadRate = 0.0;
+                    break;
+                case "--load-threads":
+                    if (i + 1 < args.length) {
+                        try {
+                            loadThreads = Math.max(1, Integer.parseInt(args[++i]));
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid number of load threads. Using default value: "
+                                    + loadThreads);
+                        }
+                    }
+                    break;
+                case "--output-queue":
+                    if (i + 1 < args.length) {
+                        try {
+                            outputQueueCapacity = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid output queue capacity. Using default value: "
+                                    + outputQueueCapacity);
+                        }
+                    }
+                    break;
+                case "--overflow":
+                    if (i + 1 < args.length) {
+                        String policy = args[++i];
+                        try {
+                            overflowPolicy = AsyncOutputStrategy.OverflowPolicy
+                                    .valueOf(policy.toUpperCase().replace('-', '_'));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Unknown overflow policy '" + policy + "'. Using default: "
+                                    + overflowPolicy);
+                        }
+                    }
+                    break;
                 case "--output":
                     if (i + 1 < args.length) {
                         String outputArg = args[++i];
@@ -168,6 +284,28 @@ public class HealthDataSimulator {
         System.out.println("                             'file:<directory>' for file output,");
         System.out.println("                             'websocket:<port>' for WebSocket output,");
         System.out.println("                             'tcp:<port>' for TCP socket output.");
+        System.out.println(
+                "  --ecg-rate <hz>          Generate ECG with PQRST beats at <hz> samples per second, e.g. 250 or 500,");
+        System.out.println(
+                "                           sent in one block per patient and second (default: 1 sample per second).");
+        System.out.println(
+                "  --seed <number>          Seed the generated values; with --max-throughput or --rate and one load");
+        System.out.println(
+                "                           thread, the same seed and patient count reproduce the same output.");
+        System.out.println(
+                "  --scheduler <mode>       How generators run: 'pool' (one timer, a thread per core, default),");
+        System.out.println(
+                "                           'virtual' (one timer, virtual threads) or 'legacy' (4 threads per patient).");
+        System.out.println(
+                "  --rate <samples/s>       Load mode: produce samples at this rate with simulated timestamps.");
+        System.out.println(
+                "  --max-throughput         Load mode: produce samples as fast as the output accepts them.");
+        System.out.println(
+                "  --load-threads <count>   Number of threads producing samples in load mode (default: 1).");
+        System.out.println(
+                "  --output-queue <size>    Queue up to <size> samples between generators and output (default: 65536, 0 to disable).");
+        System.out.println(
+                "  --overflow <policy>      What a full output queue does: 'block', 'drop-oldest' or 'drop-newest' (default: block).");
         System.out.println("Example:");
         System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
         System.out.println(
@@ -188,17 +326,72 @@ public class HealthDataSimulator {
         return patientIds;
     }
 
+    /**
+     * Schedules data creation for every patient on a single timer that runs the
+     * due patients in batches, on a fixed pool or on virtual threads. The number
+     * of threads no longer grows with the patient count.
+     *
+     * @param patientIds list of patient IDs
+     */
+    private static void schedulePatientBatches(List<Integer> patientIds) {
+        ExecutorService workers = schedulerMode.equals("virtual")
+                ? PatientScheduler.virtualThreads()
+                : PatientScheduler.fixedPool();
+        SimulationClock clock = SimulationClock.SYSTEM;
+        PatientScheduler patientScheduler = new PatientScheduler(patientIds, outputStrategy, workers,
+                PatientScheduler.DEFAULT_TICK_MS, clock);
+        patientScheduler.schedule(createEcgGenerator(clock), 1, TimeUnit.SECONDS);
+        patientScheduler.schedule(new BloodSaturationDataGenerator(patientCount, seed, clock), 1, TimeUnit.SECONDS);
+        patientScheduler.schedule(new BloodPressureDataGenerator(patientCount, seed, clock), 1, TimeUnit.MINUTES);
+        patientScheduler.schedule(new BloodLevelsDataGenerator(patientCount, seed, clock), 2, TimeUnit.MINUTES);
+        patientScheduler.schedule(new AlertGenerator(patientCount, seed, clock), 20, TimeUnit.SECONDS);
+        patientScheduler.start();
+    }
+
+    /**
+     * Runs the generators in load mode: as fast as the output accepts samples, or
+     * at the requested rate, with simulated timestamps. Throughput and output
+     * latency percentiles are printed every second.
+     *
+     * @param patientIds list of patient IDs
+     * @param startTime  simulated time of the first sample
+     */
+    private static void startLoad(List<Integer> patientIds, long startTime) {
+        LoadGenerator load = new LoadGenerator(patientIds, outputStrategy, loadRate, loadThreads);
+        load.schedule(createEcgGenerator(load.getClock()), 1, TimeUnit.SECONDS);
+        load.schedule(new BloodSaturationDataGenerator(patientCount, seed, load.getClock()), 1, TimeUnit.SECONDS);
+        load.schedule(new BloodPressureDataGenerator(patientCount, seed, load.getClock()), 1, TimeUnit.MINUTES);
+        load.schedule(new BloodLevelsDataGenerator(patientCount, seed, load.getClock()), 2, TimeUnit.MINUTES);
+        load.schedule(new AlertGenerator(patientCount, seed, load.getClock()), 20, TimeUnit.SECONDS);
+        load.start(startTime, 1000, report -> System.out.println("Load: " + report));
+    }
+
+    /**
+     * Creates the ECG generator: one sample per second, or a block of
+     * high-frequency samples per second with --ecg-rate. Both run every second.
+     *
+     * @param clock source of the timestamps
+     * @return the generator
+     */
+    private static PatientDataGenerator createEcgGenerator(SimulationClock clock) {
+        if (ecgSampleRate > 0) {
+            return new HighFrequencyECGDataGenerator(patientCount, ecgSampleRate, seed, clock);
+        }
+        return new ECGDataGenerator(patientCount, seed, clock);
+    }
+
     /**
      * Schedules data creation tasks for every patient.
      *
      * @param patientIds list of patient IDs
      */
     private static void scheduleTasksForPatients(List<Integer> patientIds) {
-        ECGDataGenerator ecgDataGenerator = new ECGDataGenerator(patientCount);
-        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount);
-        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount);
-        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount);
-        AlertGenerator alertGenerator = new AlertGenerator(patientCount);
+        SimulationClock clock = SimulationClock.SYSTEM;
+        PatientDataGenerator ecgDataGenerator = createEcgGenerator(clock);
+        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount, seed, clock);
+        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount, seed, clock);
+        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount, seed, clock);
+        AlertGenerator alertGenerator = new AlertGenerator(patientCount, seed, clock);
 
         for (int patientId : patientIds) {
             scheduleTask(() -> ecgDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
@@ -0,0 +1,235 @@
+package com.cardio_generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleSink;
+import com.cardio_generator.generators.SimulationClock;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Runs the periodic generators of many patients with a bounded number of
+ * threads. Instead of one timer entry per patient and generator, a single
+ * timer thread ticks at a fixed resolution. Every generator spreads the
+ * patients evenly over the ticks of its period, like the slots of a hashed
+ * timer wheel, so each tick only touches the patients that are due. The due
+ * patients are run in chunks on a worker executor, which can be a small fixed
+ * pool or a virtual thread per chunk. A chunk is one
+ * {@link PatientDataGenerator#generateBatch} call, stamped with the scheduler's
+ * clock time when it runs.
+ *
+ * A generator is never called for the same patient twice at the same time as
+ * long as a chunk finishes within the generator's period; chunks that are
+ * still running when their slot comes round again are skipped and counted.
+ */
+public class PatientScheduler {
+
+    /** Default timer resolution, in milliseconds */
+    public static final long DEFAULT_TICK_MS = 100;
+    // Patients per task, so a large slot is spread over all workers
+    private static final int CHUNK_SIZE = 256;
+
+    private final int[] patientIds;
+    private final SampleSink sink;
+    private final ExecutorService workers;
+    private final long tickMs;
+    private final SimulationClock clock;
+    private final List<Job> jobs = new ArrayList<>();
+    private final AtomicLong skippedChunks = new AtomicLong();
+    private ScheduledExecutorService timer;
+    private long tick;
+
+    /**
+     * Creates a scheduler that stamps batches with the system clock; add
+     * generators with {@link #schedule}, then call {@link #start()}.
+     *
+     * @param patientIds     the patients to generate data for
+     * @param outputStrategy where the generated data goes
+     * @param workers        runs the generator chunks; shut down by {@link #shutdown()}
+     * @param tickMs         timer resolution, in milliseconds
+     */
+    public PatientScheduler(List<Integer> patientIds, OutputStrategy outputStrategy, ExecutorService workers,
+            long tickMs) {
+        this(patientIds, outputStrategy, workers, tickMs, SimulationClock.SYSTEM);
+    }
+
+    /**
+     * Creates a scheduler; add generators with {@link #schedule}, then call {@link #start()}.
+     *
+     * @param patientIds     the patients to generate data for
+     * @param outputStrategy where the generated data goes
+     * @param workers        runs the generator chunks; shut down by {@link #shutdown()}
+     * @param tickMs         timer resolution, in milliseconds
+     * @param clock          source of the batch timestamps
+     */
+    public PatientScheduler(List<Integer> patientIds, OutputStrategy outputStrategy, ExecutorService workers,
+            long tickMs, SimulationClock clock) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.patientIds = patientIds.stream().mapToInt(Integer::intValue).toArray();
+        this.sink = SampleSink.of(outputStrategy);
+        this.workers = workers;
+        this.tickMs = tickMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a fixed pool with one worker per available processor.
+     *
+     * @return the worker pool
+     */
+    public static ExecutorService fixedPool() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "generator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per chunk.
+     *
+     * @return the worker executor
+     */
+    public static ExecutorService virtualThreads() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("generator-", 0).factory());
+    }
+
+    /**
+     * Runs a generator for every patient once per period. Periods are rounded
+     * to whole ticks.
+     *
+     * @param generator the generator
+     * @param period    time between two runs for the same patient
+     * @param timeUnit  period's time unit
+     */
+    public synchronized void schedule(PatientDataGenerator generator, long period, TimeUnit timeUnit) {
+        if (timer != null) {
+            throw new IllegalStateException("Generators must be scheduled before the scheduler starts");
+        }
+        int periodTicks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeUnit.toMillis(period) / tickMs));
+        jobs.add(new Job(generator, periodTicks, patientIds));
+    }
+
+    /**
+     * Starts the timer thread, which keeps the JVM alive until {@link #shutdown()}.
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            throw new IllegalStateException("Scheduler is already running");
+        }
+        // Not a daemon: the timer keeps the simulator running until shutdown
+        timer = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "generator-timer"));
+        timer.scheduleAtFixedRate(this::tick, 0, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the timer and the workers. Chunks that are already running are finished first.
+     */
+    public void shutdown() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = timer;
+            timer = null;
+        }
+        if (stopped != null) {
+            stopped.shutdown();
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of chunks skipped because their previous run had not finished
+     */
+    public long getSkippedChunks() {
+        return skippedChunks.get();
+    }
+
+    /**
+     * Submits the chunks that are due in the current tick. Only called by the timer thread.
+     */
+    private void tick() {
+        for (Job job : jobs) {
+            int slot = (int) (tick % job.periodTicks);
+            int[][] chunks = job.chunks[slot];
+            for (int c = 0; c < chunks.length; c++) {
+                AtomicBoolean running = job.running[slot][c];
+                if (!running.compareAndSet(false, true)) {
+                    skippedChunks.incrementAndGet();
+                    continue;
+                }
+                int[] chunk = chunks[c];
+                try {
+                    workers.execute(() -> {
+                        try {
+                            job.run(chunk, clock.currentTimeMillis(), sink);
+                        } finally {
+                            running.set(false);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Rejected during shutdown
+                    running.set(false);
+                }
+            }
+        }
+        tick++;
+    }
+
+    /**
+     * One generator with its patients spread over the slots of its period, and
+     * each slot cut into chunks.
+     */
+    private static final class Job {
+        final PatientDataGenerator generator;
+        final int periodTicks;
+        final int[][][] chunks;
+        final AtomicBoolean[][] running;
+
+        Job(PatientDataGenerator generator, int periodTicks, int[] patientIds) {
+            this.generator = generator;
+            this.periodTicks = periodTicks;
+            this.chunks = new int[periodTicks][][];
+            this.running = new AtomicBoolean[periodTicks][];
+            // Patient i goes into slot i * periodTicks / n, so every slot gets an equal share
+            int n = patientIds.length;
+            for (int slot = 0; slot < periodTicks; slot++) {
+                int from = (int) (((long) slot * n + periodTicks - 1) / periodTicks);
+                int to = (int) (((long) (slot + 1) * n + periodTicks - 1) / periodTicks);
+                int count = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                chunks[slot] = new int[count][];
+                running[slot] = new AtomicBoolean[count];
+                for (int c = 0; c < count; c++) {
+                    int start = from + c * CHUNK_SIZE;
+                    chunks[slot][c] = Arrays.copyOfRange(patientIds, start, Math.min(to, start + CHUNK_SIZE));
+                    running[slot][c] = new AtomicBoolean();
+                }
+            }
+        }
+
+        void run(int[] chunk, long timestamp, SampleSink sink) {
+            try {
+                generator.generateBatch(chunk, timestamp, sink);
+            } catch (RuntimeException e) {
+                // One failing chunk must not stop the others
+                System.err.println("Error generating data for " + chunk.length + " patients: " + e.getMessage());
+            }
+        }
+    }
+}
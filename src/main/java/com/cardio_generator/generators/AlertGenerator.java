@@ -1,6 +1,6 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
 
@@ -9,7 +9,8 @@ import com.cardio_generator.outputs.OutputStrategy;
  */
 public class AlertGenerator implements PatientDataGenerator {
 
-    public static final Random randomGenerator = new Random();
+    private final SplittableRandom[] randomGenerator;
+    private final SimulationClock clock;
     // Change the name to lower camel case
     private boolean[] alertStates; // false = resolved, true = pressed
 
@@ -19,6 +20,19 @@ public class AlertGenerator implements PatientDataGenerator {
      * @param patientCount total number of patients
      */
     public AlertGenerator(int patientCount) {
+        this(patientCount, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    /**
+     * Creates a generator whose alerts only depend on the seed and the patient count.
+     *
+     * @param patientCount total number of patients
+     * @param seed         seed of the per-patient random streams
+     * @param clock        source of the alert timestamps
+     */
+    public AlertGenerator(int patientCount, long seed, SimulationClock clock) {
+        this.randomGenerator = PatientRandom.streams(seed, "Alert", patientCount);
+        this.clock = clock;
         // Set the name to the right one
         alertStates = new boolean[patientCount + 1];
     }
@@ -33,22 +47,22 @@ public class AlertGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
             if (alertStates[patientId]) {
-                if (randomGenerator.nextDouble() < 0.9) { // 90% chance to resolve
+                if (randomGenerator[patientId].nextDouble() < 0.9) { // 90% chance to resolve
                     // Set the name to the right one
                     alertStates[patientId] = false;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "resolved");
+                    outputStrategy.output(patientId, clock.currentTimeMillis(), "Alert", "resolved");
                 }
             } else {
                 double Lambda = 0.1; // Average rate (alerts per period), adjust based on desired frequency
                 double p = -Math.expm1(-Lambda); // Probability of at least one alert in the period
-                boolean alertTriggered = randomGenerator.nextDouble() < p;
+                boolean alertTriggered = randomGenerator[patientId].nextDouble() < p;
 
                 if (alertTriggered) {
                  // set the name to be correct
                  alertStates[patientId] = true;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "triggered");
+                    outputStrategy.output(patientId, clock.currentTimeMillis(), "Alert", "triggered");
                 }
             }
         } catch (Exception e) {
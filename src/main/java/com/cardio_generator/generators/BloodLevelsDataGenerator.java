@@ -1,16 +1,23 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final SplittableRandom[] random;
+    private final SimulationClock clock;
     private final double[] baselineCholesterol;
     private final double[] baselineWhiteCells;
     private final double[] baselineRedCells;
 
     public BloodLevelsDataGenerator(int patientCount) {
+        this(patientCount, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    public BloodLevelsDataGenerator(int patientCount, long seed, SimulationClock clock) {
+        this.random = PatientRandom.streams(seed, "BloodLevels", patientCount);
+        this.clock = clock;
         // Initialize arrays to store baseline values for each patient
         baselineCholesterol = new double[patientCount + 1];
         baselineWhiteCells = new double[patientCount + 1];
@@ -18,9 +25,9 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
 
         // Generate baseline values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            baselineCholesterol[i] = 150 + random.nextDouble() * 50; // Initial random baseline
-            baselineWhiteCells[i] = 4 + random.nextDouble() * 6; // Initial random baseline
-            baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
+            baselineCholesterol[i] = 150 + random[i].nextDouble() * 50; // Initial random baseline
+            baselineWhiteCells[i] = 4 + random[i].nextDouble() * 6; // Initial random baseline
+            baselineRedCells[i] = 4.5 + random[i].nextDouble() * 1.5; // Initial random baseline
         }
     }
 
@@ -28,18 +35,44 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
             // Generate values around the baseline for realism
-            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10; // Small variation
-            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1; // Small variation
-            double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
+            double cholesterol = baselineCholesterol[patientId] + (random[patientId].nextDouble() - 0.5) * 10; // Small variation
+            double whiteCells = baselineWhiteCells[patientId] + (random[patientId].nextDouble() - 0.5) * 1; // Small variation
+            double redCells = baselineRedCells[patientId] + (random[patientId].nextDouble() - 0.5) * 0.2; // Small variation
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "WhiteBloodCells",
                     Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    /**
+     * Generates the three blood levels for each patient and outputs them as three blocks.
+     */
+    @Override
+    public void generateBatch(int[] patientIds, long timestamp, SampleSink sink) {
+        int n = patientIds.length;
+        double[] cholesterol = new double[n];
+        double[] whiteCells = new double[n];
+        double[] redCells = new double[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                int patientId = patientIds[i];
+                SplittableRandom patientRandom = random[patientId];
+                cholesterol[i] = baselineCholesterol[patientId] + (patientRandom.nextDouble() - 0.5) * 10;
+                whiteCells[i] = baselineWhiteCells[patientId] + (patientRandom.nextDouble() - 0.5) * 1;
+                redCells[i] = baselineRedCells[patientId] + (patientRandom.nextDouble() - 0.5) * 0.2;
+            }
+            sink.outputBatch("Cholesterol", timestamp, patientIds, cholesterol, n);
+            sink.outputBatch("WhiteBloodCells", timestamp, patientIds, whiteCells, n);
+            sink.outputBatch("RedBloodCells", timestamp, patientIds, redCells, n);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating blood levels data for " + n + " patients");
+            e.printStackTrace();
+        }
+    }
 }
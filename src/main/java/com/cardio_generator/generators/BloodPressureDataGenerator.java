@@ -1,31 +1,38 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class BloodPressureDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final SplittableRandom[] random;
+    private final SimulationClock clock;
 
     private int[] lastSystolicValues;
     private int[] lastDiastolicValues;
 
     public BloodPressureDataGenerator(int patientCount) {
+        this(patientCount, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    public BloodPressureDataGenerator(int patientCount, long seed, SimulationClock clock) {
+        this.random = PatientRandom.streams(seed, "BloodPressure", patientCount);
+        this.clock = clock;
         lastSystolicValues = new int[patientCount + 1];
         lastDiastolicValues = new int[patientCount + 1];
 
         // Initialize with baseline values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            lastSystolicValues[i] = 110 + random.nextInt(20); // Random baseline between 110 and 130
-            lastDiastolicValues[i] = 70 + random.nextInt(15); // Random baseline between 70 and 85
+            lastSystolicValues[i] = 110 + random[i].nextInt(20); // Random baseline between 110 and 130
+            lastDiastolicValues[i] = 70 + random[i].nextInt(15); // Random baseline between 70 and 85
         }
     }
 
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            int systolicVariation = random.nextInt(5) - 2; // -2, -1, 0, 1, or 2
-            int diastolicVariation = random.nextInt(5) - 2;
+            int systolicVariation = random[patientId].nextInt(5) - 2; // -2, -1, 0, 1, or 2
+            int diastolicVariation = random[patientId].nextInt(5) - 2;
             int newSystolicValue = lastSystolicValues[patientId] + systolicVariation;
             int newDiastolicValue = lastDiastolicValues[patientId] + diastolicVariation;
             // Ensure the blood pressure stays within a realistic and safe range
@@ -34,13 +41,41 @@ public class BloodPressureDataGenerator implements PatientDataGenerator {
             lastSystolicValues[patientId] = newSystolicValue;
             lastDiastolicValues[patientId] = newDiastolicValue;
 
-            outputStrategy.output(patientId, System.currentTimeMillis(), "SystolicPressure",
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "SystolicPressure",
                     Double.toString(newSystolicValue));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "DiastolicPressure",
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "DiastolicPressure",
                     Double.toString(newDiastolicValue));
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood pressure data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    /**
+     * Generates a systolic and a diastolic value for each patient and outputs
+     * them as two blocks.
+     */
+    @Override
+    public void generateBatch(int[] patientIds, long timestamp, SampleSink sink) {
+        int n = patientIds.length;
+        double[] systolic = new double[n];
+        double[] diastolic = new double[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                int patientId = patientIds[i];
+                SplittableRandom patientRandom = random[patientId];
+                int newSystolicValue = lastSystolicValues[patientId] + patientRandom.nextInt(5) - 2;
+                int newDiastolicValue = lastDiastolicValues[patientId] + patientRandom.nextInt(5) - 2;
+                lastSystolicValues[patientId] = Math.min(Math.max(newSystolicValue, 90), 180);
+                lastDiastolicValues[patientId] = Math.min(Math.max(newDiastolicValue, 60), 120);
+                systolic[i] = lastSystolicValues[patientId];
+                diastolic[i] = lastDiastolicValues[patientId];
+            }
+            sink.outputBatch("SystolicPressure", timestamp, patientIds, systolic, n);
+            sink.outputBatch("DiastolicPressure", timestamp, patientIds, diastolic, n);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating blood pressure data for " + n + " patients");
+            e.printStackTrace();
+        }
+    }
 }
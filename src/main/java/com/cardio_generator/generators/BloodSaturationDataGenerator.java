@@ -1,6 +1,6 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
 
@@ -8,7 +8,8 @@ import com.cardio_generator.outputs.OutputStrategy;
  * Creates random patient's data for blood saturation.
  */
 public class BloodSaturationDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final SplittableRandom[] random;
+    private final SimulationClock clock;
     private int[] lastSaturationValues;
 
     /**
@@ -17,11 +18,24 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
      * @param patientCount total number of patients
      */
     public BloodSaturationDataGenerator(int patientCount) {
+        this(patientCount, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    /**
+     * Creates a generator whose values only depend on the seed and the patient count.
+     *
+     * @param patientCount total number of patients
+     * @param seed         seed of the per-patient random streams
+     * @param clock        source of the sample timestamps
+     */
+    public BloodSaturationDataGenerator(int patientCount, long seed, SimulationClock clock) {
+        this.random = PatientRandom.streams(seed, "Saturation", patientCount);
+        this.clock = clock;
         lastSaturationValues = new int[patientCount + 1];
 
         // Initialize with baseline saturation values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            lastSaturationValues[i] = 95 + random.nextInt(6); // Initializes with a value between 95 and 100
+            lastSaturationValues[i] = 95 + random[i].nextInt(6); // Initializes with a value between 95 and 100
         }
     }
 
@@ -35,13 +49,13 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
             // Simulate blood saturation values
-            int variation = random.nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
+            int variation = random[patientId].nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
             int newSaturationValue = lastSaturationValues[patientId] + variation;
 
             // Ensure the saturation stays within a realistic and healthy range
             newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
             lastSaturationValues[patientId] = newSaturationValue;
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Saturation",
+            outputStrategy.output(patientId, clock.currentTimeMillis(), "Saturation",
                     Double.toString(newSaturationValue) + "%");
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood saturation data for patient " + patientId);
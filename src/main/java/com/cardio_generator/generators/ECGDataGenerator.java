@@ -1,15 +1,41 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class ECGDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final SplittableRandom[] random;
+    private final SimulationClock clock;
     private double[] lastEcgValues;
     private static final double PI = Math.PI;
+    private static final double SQRT_HALF = Math.sqrt(0.5);
+    // Taylor coefficients of sin and cos; on [-pi/2, pi/2] the error is below 1e-13
+    private static final double S3 = -1.0 / 6;
+    private static final double S5 = 1.0 / 120;
+    private static final double S7 = -1.0 / 5040;
+    private static final double S9 = 1.0 / 362880;
+    private static final double S11 = -1.0 / 39916800;
+    private static final double S13 = 1.0 / 6227020800L;
+    private static final double S15 = -1.0 / 1307674368000L;
+    private static final double S17 = 1.0 / 355687428096000L;
+    private static final double C2 = -1.0 / 2;
+    private static final double C4 = 1.0 / 24;
+    private static final double C6 = -1.0 / 720;
+    private static final double C8 = 1.0 / 40320;
+    private static final double C10 = -1.0 / 3628800;
+    private static final double C12 = 1.0 / 479001600;
+    private static final double C14 = -1.0 / 87178291200L;
+    private static final double C16 = 1.0 / 20922789888000L;
+    private static final double C18 = -1.0 / 6402373705728000L;
 
     public ECGDataGenerator(int patientCount) {
+        this(patientCount, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    public ECGDataGenerator(int patientCount, long seed, SimulationClock clock) {
+        this.random = PatientRandom.streams(seed, "ECG", patientCount);
+        this.clock = clock;
         lastEcgValues = new double[patientCount + 1];
         // Initialize the last ECG value for each patient
         for (int i = 1; i <= patientCount; i++) {
@@ -21,8 +47,11 @@ public class ECGDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
-            double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
+            SplittableRandom patientRandom = random[patientId];
+            double hr = 60.0 + patientRandom.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
+            long now = clock.currentTimeMillis();
+            double ecgValue = simulateEcgWaveform(hr, now / 1000.0) + patientRandom.nextDouble() * 0.05; // Add small noise
+            outputStrategy.output(patientId, now, "ECG", Double.toString(ecgValue));
             lastEcgValues[patientId] = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
@@ -30,17 +59,78 @@ public class ECGDataGenerator implements PatientDataGenerator {
         }
     }
 
-    private double simulateEcgWaveform(int patientId, double lastEcgValue) {
-        // Simplified ECG waveform generation based on sinusoids
-        double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
-        double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
+    /**
+     * Generates one ECG value for each patient and outputs them as one block.
+     * The random numbers are drawn per patient first; the waveform is then
+     * computed in a separate loop of plain arithmetic over arrays, which the
+     * JIT can unroll and vectorize. Values are the same as from
+     * {@link #generate} at the same time.
+     *
+     * @param patientIds IDs of the patients
+     * @param timestamp  time of the samples, in milliseconds since UNIX epoch
+     * @param sink       where the samples go
+     */
+    @Override
+    public void generateBatch(int[] patientIds, long timestamp, SampleSink sink) {
+        int n = patientIds.length;
+        double[] heartRates = new double[n];
+        double[] values = new double[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                SplittableRandom patientRandom = random[patientIds[i]];
+                heartRates[i] = 60.0 + patientRandom.nextDouble() * 20.0;
+                values[i] = patientRandom.nextDouble() * 0.05; // The noise, added below
+            }
+            double t = timestamp / 1000.0;
+            for (int i = 0; i < n; i++) {
+                values[i] = simulateEcgWaveform(heartRates[i], t) + values[i];
+            }
+            for (int i = 0; i < n; i++) {
+                lastEcgValues[patientIds[i]] = values[i];
+            }
+            sink.outputBatch("ECG", timestamp, patientIds, values, n);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG data for " + n + " patients");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Simplified ECG waveform based on sinusoids: a P wave at the heart rate, a
+     * QRS complex at three times and a T wave at twice the heart rate.
+     *
+     * Only one angle is reduced, and its sine and cosine are computed with
+     * polynomials instead of Math.sin; the harmonics follow from the multiple
+     * angle formulas. With no calls and no branches the batch loop can be
+     * vectorized. The result matches the Math.sin form to about 1e-13, apart
+     * from the rounding of the large phase both forms share.
+     *
+     * @param hr heart rate in bpm
+     * @param t  time in seconds
+     * @return the ECG value without noise
+     */
+    static double simulateEcgWaveform(double hr, double t) {
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
+        double turns = ecgFrequency * t;
+        // Half the angle of the P wave, reduced to [-pi/2, pi/2]
+        double h = PI * (turns - Math.rint(turns));
+        double h2 = h * h;
+        double sinHalf = h * (1 + h2 * (S3 + h2 * (S5 + h2 * (S7 + h2 * (S9 + h2 * (S11 + h2 * (S13 + h2 * (S15
+                + h2 * S17))))))));
+        double cosHalf = 1 + h2 * (C2 + h2 * (C4 + h2 * (C6 + h2 * (C8 + h2 * (C10 + h2 * (C12 + h2 * (C14
+                + h2 * (C16 + h2 * C18))))))));
+        double sin = 2 * sinHalf * cosHalf;
+        double sinSquared = sin * sin;
+        double cos = 1 - 2 * sinHalf * sinHalf;
+        double sin2 = 2 * sin * cos;
+        double cos2 = 1 - 2 * sinSquared;
+        double sin3 = sin * (3 - 4 * sinSquared);
 
         // Simulate different components of the ECG signal
-        double pWave = 0.1 * Math.sin(2 * PI * ecgFrequency * t);
-        double qrsComplex = 0.5 * Math.sin(2 * PI * 3 * ecgFrequency * t); // QRS is higher frequency
-        double tWave = 0.2 * Math.sin(2 * PI * 2 * ecgFrequency * t + PI / 4); // T wave is offset
+        double pWave = 0.1 * sin;
+        double qrsComplex = 0.5 * sin3; // QRS is higher frequency
+        double tWave = 0.2 * (sin2 + cos2) * SQRT_HALF; // T wave is offset by pi/4
 
-        return pWave + qrsComplex + tWave + random.nextDouble() * 0.05; // Add small noise
+        return pWave + qrsComplex + tWave;
     }
 }
@@ -0,0 +1,192 @@
+package com.cardio_generator.generators;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Generates ECG at monitor rates, 250 to 500 samples per second, with a PQRST
+ * morphology. Every call produces the next second of a patient's signal and
+ * outputs it as one block, so schedule it once per second.
+ *
+ * The beat shape is precomputed once as a table: P, Q, R, S and T waves as
+ * Gaussians over a beat of one second. Each beat plays the table back with
+ * the wave durations scaled by the square root of the beat's RR interval, as
+ * the QT interval shortens with Bazett's formula, and stays on the baseline
+ * for the rest of the interval. RR intervals vary from beat to beat with the
+ * patient's breathing (respiratory sinus arrhythmia) and a random component.
+ * Per sample this is a table lookup, an interpolation and a noise draw.
+ */
+public class HighFrequencyECGDataGenerator implements PatientDataGenerator {
+
+    /** Samples per second of the default mode */
+    public static final int DEFAULT_SAMPLE_RATE = 250;
+    // Resolution of the beat table, entries per second of a one second beat
+    private static final int TABLE_RATE = 1000;
+    // P, Q, R, S and T waves: time of the peak in seconds, width in seconds, amplitude in mV
+    private static final double[][] WAVES = {
+            { 0.10, 0.025, 0.15 },
+            { 0.19, 0.010, -0.12 },
+            { 0.21, 0.009, 1.00 },
+            { 0.235, 0.011, -0.25 },
+            { 0.45, 0.045, 0.30 },
+    };
+    private static final double[] BEAT = beatTable();
+    private static final double BREATHS_PER_SECOND = 0.25;
+
+    private final int sampleRate;
+    private final SplittableRandom[] random;
+    private final SimulationClock clock;
+    private final double[] meanInterval; // seconds between beats at rest
+    private final double[] breathPhase; // in breaths, 0 to 1
+    private final double[] tablePosition; // position of the next sample in BEAT
+    private final double[] tableStep; // BEAT entries per sample in the current beat
+    private final double[] amplitude; // scale of the current beat
+    private final int[] samplesLeft; // samples until the next beat
+    private final long[] nextTimestamp; // time of the next sample, Long.MIN_VALUE before the first block
+    // One block buffer per worker thread; outputs must not keep it after outputBlock returns
+    private final ThreadLocal<double[]> scratch;
+
+    /**
+     * Creates a generator with a random seed and the system clock.
+     *
+     * @param patientCount total number of patients
+     * @param sampleRate   samples per second, 1 to 1000
+     */
+    public HighFrequencyECGDataGenerator(int patientCount, int sampleRate) {
+        this(patientCount, sampleRate, PatientRandom.randomSeed(), SimulationClock.SYSTEM);
+    }
+
+    /**
+     * Creates a generator whose signal only depends on the seed and the patient count.
+     *
+     * @param patientCount total number of patients
+     * @param sampleRate   samples per second, 1 to 1000
+     * @param seed         seed of the per-patient random streams
+     * @param clock        source of the block timestamps
+     */
+    public HighFrequencyECGDataGenerator(int patientCount, int sampleRate, long seed, SimulationClock clock) {
+        if (sampleRate <= 0 || sampleRate > 1000) {
+            throw new IllegalArgumentException("Sample rate must be between 1 and 1000 per second");
+        }
+        this.sampleRate = sampleRate;
+        this.random = PatientRandom.streams(seed, "HighFrequencyECG", patientCount);
+        this.clock = clock;
+        this.scratch = ThreadLocal.withInitial(() -> new double[sampleRate]);
+        meanInterval = new double[patientCount + 1];
+        breathPhase = new double[patientCount + 1];
+        tablePosition = new double[patientCount + 1];
+        tableStep = new double[patientCount + 1];
+        amplitude = new double[patientCount + 1];
+        samplesLeft = new int[patientCount + 1];
+        nextTimestamp = new long[patientCount + 1];
+        Arrays.fill(nextTimestamp, Long.MIN_VALUE);
+        for (int i = 1; i <= patientCount; i++) {
+            meanInterval[i] = 60.0 / (60 + random[i].nextDouble() * 30); // Resting heart rate between 60 and 90 bpm
+            breathPhase[i] = random[i].nextDouble();
+            startBeat(i);
+            // Start somewhere within the first beat, so the patients' R peaks don't line up
+            int skip = random[i].nextInt(samplesLeft[i]);
+            samplesLeft[i] -= skip;
+            tablePosition[i] += skip * tableStep[i];
+        }
+    }
+
+    /**
+     * @return samples per second
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Outputs the next second of the patient's ECG as one block. Blocks follow
+     * each other without gaps; if the clock has moved more than a second away
+     * from the end of the last block, the signal restarts at the clock's time.
+     *
+     * @param patientId patient's ID
+     * @param outputStrategy where the block is sent
+     */
+    @Override
+    public void generate(int patientId, OutputStrategy outputStrategy) {
+        try {
+            long now = clock.currentTimeMillis();
+            long start = nextTimestamp[patientId];
+            if (start == Long.MIN_VALUE || Math.abs(now - start) > 1000) {
+                start = now;
+            }
+            double[] block = scratch.get();
+            fill(patientId, block);
+            nextTimestamp[patientId] = start + 1000;
+            outputStrategy.outputBlock(patientId, start, sampleRate, "ECG", block, block.length);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG data for patient " + patientId);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the patient's next samples into the block.
+     */
+    private void fill(int patientId, double[] block) {
+        SplittableRandom patientRandom = random[patientId];
+        double position = tablePosition[patientId];
+        double step = tableStep[patientId];
+        double scale = amplitude[patientId];
+        int left = samplesLeft[patientId];
+        int last = BEAT.length - 1;
+        for (int i = 0; i < block.length; i++) {
+            if (left == 0) {
+                startBeat(patientId);
+                position = tablePosition[patientId];
+                step = tableStep[patientId];
+                scale = amplitude[patientId];
+                left = samplesLeft[patientId];
+            }
+            double value = 0; // Baseline between T and the next P wave
+            if (position < last) {
+                int index = (int) position;
+                double fraction = position - index;
+                value = scale * (BEAT[index] + fraction * (BEAT[index + 1] - BEAT[index]));
+            }
+            block[i] = value + (patientRandom.nextDouble() - 0.5) * 0.02; // Small measurement noise
+            position += step;
+            left--;
+        }
+        tablePosition[patientId] = position;
+        samplesLeft[patientId] = left;
+    }
+
+    /**
+     * Draws the next beat's RR interval and amplitude.
+     */
+    private void startBeat(int patientId) {
+        SplittableRandom patientRandom = random[patientId];
+        double arrhythmia = 0.04 * Math.sin(2 * Math.PI * breathPhase[patientId]);
+        double interval = meanInterval[patientId] * (1 + arrhythmia) + 0.015 * patientRandom.nextGaussian();
+        interval = Math.min(Math.max(interval, 0.3), 2.0);
+        breathPhase[patientId] = (breathPhase[patientId] + interval * BREATHS_PER_SECOND) % 1.0;
+        samplesLeft[patientId] = Math.max(1, (int) Math.round(interval * sampleRate));
+        tablePosition[patientId] = 0;
+        // Waves take sqrt(RR) of their duration in a one second beat
+        tableStep[patientId] = TABLE_RATE / (sampleRate * Math.sqrt(interval));
+        amplitude[patientId] = 1 + 0.03 * patientRandom.nextGaussian();
+    }
+
+    /**
+     * Computes the waves of a one second beat; the table ends where the T wave has returned to the baseline.
+     */
+    private static double[] beatTable() {
+        int length = (int) (0.7 * TABLE_RATE) + 1;
+        double[] table = new double[length];
+        for (int i = 0; i < length; i++) {
+            double t = (double) i / TABLE_RATE;
+            for (double[] wave : WAVES) {
+                double z = (t - wave[0]) / wave[1];
+                table[i] += wave[2] * Math.exp(-0.5 * z * z);
+            }
+        }
+        return table;
+    }
+}
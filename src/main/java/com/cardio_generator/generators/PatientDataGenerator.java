@@ -12,4 +12,20 @@ public interface PatientDataGenerator {
      * @param outputStrategy where the output of the data is
      */
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Generates the data of many patients in one call. Generators that override
+     * this fill primitive arrays and pass them on in blocks, without a call and
+     * a String per sample. The default calls {@link #generate} for every patient,
+     * which stamps the generator's own clock time instead of the given time.
+     *
+     * @param patientIds IDs of the patients; a patient must not be in two concurrent calls
+     * @param timestamp  time of the samples, in milliseconds since UNIX epoch
+     * @param sink       where the samples go
+     */
+    default void generateBatch(int[] patientIds, long timestamp, SampleSink sink) {
+        for (int patientId : patientIds) {
+            generate(patientId, sink);
+        }
+    }
 }
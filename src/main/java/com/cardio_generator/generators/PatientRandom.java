@@ -0,0 +1,41 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates the per-patient random streams of the generators. Every patient of
+ * every generator gets its own SplittableRandom, so generator threads never
+ * share a seed, and a run is reproduced by passing the same seed again: the
+ * stream of a patient only depends on the seed, the generator and the patient
+ * count, not on which thread runs the patient or in which order.
+ */
+final class PatientRandom {
+
+    private PatientRandom() {
+    }
+
+    /**
+     * @return a seed for runs that don't need to be reproduced
+     */
+    static long randomSeed() {
+        // The default constructor draws from a global, well-mixed seed sequence
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Creates one stream per patient, indexed by patient ID.
+     *
+     * @param seed         the run's seed
+     * @param generator    distinguishes the generators, so they don't produce the same numbers
+     * @param patientCount total number of patients
+     * @return streams for patient IDs 1 to patientCount; index 0 is unused
+     */
+    static SplittableRandom[] streams(long seed, String generator, int patientCount) {
+        SplittableRandom root = new SplittableRandom(seed ^ generator.hashCode() * 0x9E3779B97F4A7C15L);
+        SplittableRandom[] streams = new SplittableRandom[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            streams[i] = root.split();
+        }
+        return streams;
+    }
+}
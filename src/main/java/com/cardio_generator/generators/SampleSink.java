@@ -0,0 +1,61 @@
+package com.cardio_generator.generators;
+
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Receives the samples of {@link PatientDataGenerator#generateBatch}. Numeric
+ * samples arrive as blocks of primitive arrays, one block per record type;
+ * samples that are not numbers, such as alerts, arrive one at a time through
+ * {@link #output}.
+ */
+public interface SampleSink extends OutputStrategy {
+
+    /**
+     * Receives a block of samples that share a record type and a timestamp.
+     * The arrays belong to the generator and are reused after this call returns.
+     *
+     * @param label      the record type
+     * @param timestamp  time of all samples in the block, in milliseconds since UNIX epoch
+     * @param patientIds patient of each sample
+     * @param values     value of each sample
+     * @param count      number of samples; only the first count array elements are valid
+     */
+    void outputBatch(String label, long timestamp, int[] patientIds, double[] values, int count);
+
+    /**
+     * Adapts an output to a sink. Blocks are written one sample at a time, with
+     * the value formatted by Double.toString.
+     *
+     * @param outputStrategy the output
+     * @return the output itself if it is a sink, otherwise an adapter
+     */
+    static SampleSink of(OutputStrategy outputStrategy) {
+        if (outputStrategy instanceof SampleSink sink) {
+            return sink;
+        }
+        return new SampleSink() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                outputStrategy.output(patientId, timestamp, label, data);
+            }
+
+            @Override
+            public void outputBatch(String label, long timestamp, int[] patientIds, double[] values, int count) {
+                for (int i = 0; i < count; i++) {
+                    outputStrategy.output(patientIds[i], timestamp, label, Double.toString(values[i]));
+                }
+            }
+
+            @Override
+            public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+                    int count) {
+                outputStrategy.outputBlock(patientId, timestamp, sampleRate, label, values, count);
+            }
+
+            @Override
+            public void close() {
+                outputStrategy.close();
+            }
+        };
+    }
+}
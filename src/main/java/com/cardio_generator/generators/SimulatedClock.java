@@ -0,0 +1,41 @@
+package com.cardio_generator.generators;
+
+/**
+ * A clock that only moves when it is told to. Safe to read from any thread.
+ */
+public class SimulatedClock implements SimulationClock {
+
+    private volatile long time;
+
+    /**
+     * Creates a clock standing at the given time.
+     *
+     * @param startTime time in milliseconds since UNIX epoch
+     */
+    public SimulatedClock(long startTime) {
+        this.time = startTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return time;
+    }
+
+    /**
+     * Sets the clock.
+     *
+     * @param time time in milliseconds since UNIX epoch
+     */
+    public void set(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Moves the clock forward. Not atomic; one thread should drive the clock.
+     *
+     * @param millis milliseconds to advance by
+     */
+    public void advance(long millis) {
+        this.time = time + millis;
+    }
+}
@@ -0,0 +1,17 @@
+package com.cardio_generator.generators;
+
+/**
+ * Source of the time the generators stamp on their samples. The simulator uses
+ * the system clock; a simulated clock makes runs reproducible.
+ */
+@FunctionalInterface
+public interface SimulationClock {
+
+    /** The wall clock */
+    SimulationClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return the current time in milliseconds since UNIX epoch
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,347 @@
+package com.cardio_generator.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleSink;
+import com.cardio_generator.generators.SimulationClock;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Drives the generators as fast as the output absorbs the samples, or at a
+ * target rate, to stress-test the ingestion side. Time is simulated: the
+ * generators run in the same mix as in the real-time simulator, with every
+ * patient spread evenly over the ticks of each generator's period, but the
+ * simulated clock advances as soon as a tick's samples are out. Every sample
+ * is stamped with the simulated time of its tick. Generators created with
+ * {@link #getClock()} read that time too, for example for waveforms; with
+ * seeded generators and a single load thread the output is then the same on
+ * every run.
+ *
+ * Latency is measured per sample. At maximum throughput it is the time the
+ * output takes to accept a sample. At a target rate it is measured from the
+ * time the sample was due according to the rate, so an output that falls
+ * behind shows its backlog in the percentiles instead of silently lowering
+ * the rate.
+ *
+ * Patients are partitioned over the load threads, so a generator is never
+ * called for the same patient by two threads.
+ */
+public class LoadGenerator {
+
+    /** Simulated time between two ticks, in milliseconds */
+    public static final long TICK_MS = 100;
+    // Patients per generateBatch call
+    private static final int CHUNK_SIZE = 256;
+    // Larger gaps to the next due sample are slept instead of spun
+    private static final long PARK_THRESHOLD_NANOS = 50_000;
+
+    private final int[] patientIds;
+    private final OutputStrategy outputStrategy;
+    private final double targetRate;
+    private final int threadCount;
+    private final List<Job> jobs = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+    private final SimulationClock clock = () -> {
+        Worker worker = currentWorker.get();
+        return worker != null ? worker.simulatedTime : System.currentTimeMillis();
+    };
+    private Thread reporter;
+    private long lastReportNanos;
+    private long lastReportSamples;
+    private volatile boolean running;
+
+    /**
+     * Creates a load generator; add generators with {@link #schedule}, then call {@link #start}.
+     *
+     * @param patientIds     the patients to generate data for
+     * @param outputStrategy where the generated data goes
+     * @param targetRate     samples per second over all threads; 0 or less for maximum throughput
+     * @param threads        number of load threads
+     */
+    public LoadGenerator(List<Integer> patientIds, OutputStrategy outputStrategy, double targetRate, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.patientIds = patientIds.stream().mapToInt(Integer::intValue).toArray();
+        this.outputStrategy = outputStrategy;
+        this.targetRate = targetRate;
+        this.threadCount = threads;
+    }
+
+    /**
+     * Returns the simulated clock. On a load thread it reads the time of the
+     * tick being generated, on any other thread the system time.
+     *
+     * @return the clock to create the generators with
+     */
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Runs a generator for every patient once per simulated period.
+     *
+     * @param generator the generator
+     * @param period    simulated time between two runs for the same patient
+     * @param timeUnit  period's time unit
+     */
+    public synchronized void schedule(PatientDataGenerator generator, long period, TimeUnit timeUnit) {
+        if (running) {
+            throw new IllegalStateException("Generators must be scheduled before the load starts");
+        }
+        int periodTicks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeUnit.toMillis(period) / TICK_MS));
+        jobs.add(new Job(generator, periodTicks));
+    }
+
+    /**
+     * Starts the load threads, which keep the JVM alive until {@link #stop()}.
+     *
+     * @param startTime        simulated time of the first tick, in milliseconds since UNIX epoch
+     * @param reportIntervalMs how often a report is passed to the listener; 0 for no reports
+     * @param listener         receives the periodic reports, may be null
+     */
+    public synchronized void start(long startTime, long reportIntervalMs, Consumer<LoadReport> listener) {
+        if (running) {
+            throw new IllegalStateException("Load is already running");
+        }
+        running = true;
+        long begin = System.nanoTime();
+        lastReportNanos = begin;
+        double threadRate = targetRate > 0 ? targetRate / threadCount : 0;
+        for (int t = 0; t < threadCount; t++) {
+            // Round-robin partition, so every thread gets the same share of every slot
+            int[] partition = new int[(patientIds.length - t + threadCount - 1) / threadCount];
+            for (int i = 0; i < partition.length; i++) {
+                partition[i] = patientIds[t + i * threadCount];
+            }
+            Worker worker = new Worker(partition, startTime, threadRate, begin);
+            // Not a daemon: the load keeps the simulator running until stopped
+            Thread thread = new Thread(worker, "load-" + t);
+            worker.thread = thread;
+            workers.add(worker);
+            thread.start();
+        }
+        if (reportIntervalMs > 0 && listener != null) {
+            reporter = new Thread(() -> {
+                while (running) {
+                    try {
+                        Thread.sleep(reportIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    listener.accept(report());
+                }
+            }, "load-report");
+            reporter.setDaemon(true);
+            reporter.start();
+        }
+    }
+
+    /**
+     * Returns throughput and latencies since the previous report, or since the start.
+     * Values recorded while the report is taken may be missed.
+     *
+     * @return the report
+     */
+    public synchronized LoadReport report() {
+        long now = System.nanoTime();
+        long samples = 0;
+        LatencyHistogram merged = new LatencyHistogram();
+        for (Worker worker : workers) {
+            samples += worker.samples.get();
+            merged.add(worker.latencies.getAndSet(new LatencyHistogram()));
+        }
+        LoadReport report = new LoadReport(samples - lastReportSamples, now - lastReportNanos, merged);
+        lastReportSamples = samples;
+        lastReportNanos = now;
+        return report;
+    }
+
+    /**
+     * @return the total number of samples output so far
+     */
+    public long getSampleCount() {
+        long samples = 0;
+        for (Worker worker : workers) {
+            samples += worker.samples.get();
+        }
+        return samples;
+    }
+
+    /**
+     * Stops the load threads and waits for them to finish their current tick.
+     */
+    public void stop() {
+        List<Thread> threads = new ArrayList<>();
+        synchronized (this) {
+            running = false;
+            for (Worker worker : workers) {
+                threads.add(worker.thread);
+            }
+            if (reporter != null) {
+                reporter.interrupt();
+                threads.add(reporter);
+            }
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A generator and its period in ticks.
+     */
+    private static final class Job {
+        final PatientDataGenerator generator;
+        final int periodTicks;
+
+        Job(PatientDataGenerator generator, int periodTicks) {
+            this.generator = generator;
+            this.periodTicks = periodTicks;
+        }
+    }
+
+    /**
+     * A job's share of one load thread's patients, spread over the slots of
+     * the period and cut into chunks for generateBatch.
+     */
+    private static final class Share {
+        final PatientDataGenerator generator;
+        final int periodTicks;
+        final int[][][] chunks;
+
+        Share(Job job, int[] patients) {
+            this.generator = job.generator;
+            this.periodTicks = job.periodTicks;
+            this.chunks = new int[periodTicks][][];
+            int n = patients.length;
+            for (int slot = 0; slot < periodTicks; slot++) {
+                int from = (int) (((long) slot * n + periodTicks - 1) / periodTicks);
+                int to = (int) (((long) (slot + 1) * n + periodTicks - 1) / periodTicks);
+                chunks[slot] = new int[(to - from + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+                for (int c = 0; c < chunks[slot].length; c++) {
+                    int start = from + c * CHUNK_SIZE;
+                    chunks[slot][c] = Arrays.copyOfRange(patients, start, Math.min(to, start + CHUNK_SIZE));
+                }
+            }
+        }
+    }
+
+    /**
+     * A load thread: runs the simulated ticks for its partition of the patients,
+     * and is the sink the generators write to, so that it can stamp, pace
+     * and time every sample.
+     */
+    private final class Worker implements Runnable, SampleSink {
+        final List<Share> shares = new ArrayList<>();
+        final double intervalNanos;
+        final long begin;
+        final AtomicLong samples = new AtomicLong();
+        final AtomicReference<LatencyHistogram> latencies = new AtomicReference<>(new LatencyHistogram());
+        Thread thread;
+        long simulatedTime;
+        long count;
+
+        Worker(int[] patients, long startTime, double rate, long begin) {
+            for (Job job : jobs) {
+                shares.add(new Share(job, patients));
+            }
+            this.simulatedTime = startTime;
+            this.intervalNanos = rate > 0 ? 1e9 / rate : 0;
+            this.begin = begin;
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            for (long tick = 0; running; tick++) {
+                for (Share share : shares) {
+                    for (int[] chunk : share.chunks[(int) (tick % share.periodTicks)]) {
+                        if (!running) {
+                            break;
+                        }
+                        try {
+                            share.generator.generateBatch(chunk, simulatedTime, this);
+                        } catch (RuntimeException e) {
+                            System.err.println("Error generating data for " + chunk.length + " patients: "
+                                    + e.getMessage());
+                        }
+                    }
+                }
+                simulatedTime += TICK_MS;
+            }
+        }
+
+        @Override
+        public void outputBatch(String label, long timestamp, int[] patientIds, double[] values, int count) {
+            for (int i = 0; i < count; i++) {
+                output(patientIds[i], timestamp, label, Double.toString(values[i]));
+            }
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            long start = awaitTurn();
+            outputStrategy.output(patientId, simulatedTime, label, data);
+            done(start, 1);
+        }
+
+        /**
+         * Passes a block on as it is: its samples already have their own
+         * timestamps, from generators created with {@link #getClock()}. The
+         * block is paced as a whole and timed as one latency measurement.
+         */
+        @Override
+        public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+                int count) {
+            long start = awaitTurn();
+            outputStrategy.outputBlock(patientId, timestamp, sampleRate, label, values, count);
+            done(start, count);
+        }
+
+        /**
+         * Waits until the next sample is due at the target rate.
+         *
+         * @return the due time, or now at maximum throughput
+         */
+        private long awaitTurn() {
+            if (intervalNanos > 0) {
+                long due = begin + (long) (count * intervalNanos);
+                waitUntil(due);
+                return due;
+            }
+            return System.nanoTime();
+        }
+
+        private void done(long start, int outputSamples) {
+            latencies.get().record(System.nanoTime() - start);
+            count += outputSamples;
+            samples.lazySet(count);
+        }
+
+        private void waitUntil(long due) {
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                if (due - now > PARK_THRESHOLD_NANOS) {
+                    LockSupport.parkNanos(due - now - PARK_THRESHOLD_NANOS / 2);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.cardio_generator.load;
+
+/**
+ * Throughput and output latency of a load run over one reporting interval.
+ */
+public final class LoadReport {
+
+    private final long samples;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+
+    LoadReport(long samples, long elapsedNanos, LatencyHistogram latencies) {
+        this.samples = samples;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+    }
+
+    /**
+     * @return the number of samples output in the interval
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the achieved throughput in samples per second
+     */
+    public double getSamplesPerSecond() {
+        return elapsedNanos > 0 ? samples * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @param fraction the percentile as a fraction, for example 0.99
+     * @return the latency percentile in nanoseconds
+     */
+    public long getLatencyPercentile(double fraction) {
+        return latencies.getPercentile(fraction);
+    }
+
+    /**
+     * @return the largest latency in nanoseconds
+     */
+    public long getMaxLatency() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,.0f samples/s, latency p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us, "
+                + "max %.1f us", getSamplesPerSecond(), getLatencyPercentile(0.5) / 1e3,
+                getLatencyPercentile(0.9) / 1e3, getLatencyPercentile(0.99) / 1e3,
+                getLatencyPercentile(0.999) / 1e3, getMaxLatency() / 1e3);
+    }
+}
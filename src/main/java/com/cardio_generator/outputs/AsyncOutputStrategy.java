@@ -0,0 +1,326 @@
+package com.cardio_generator.outputs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples the generators from a slow output. Samples are put into a bounded
+ * lock-free ring buffer and passed on to the wrapped output by drain threads,
+ * so a generator thread only pays for the enqueue.
+ *
+ * The ring follows the bounded multi-producer multi-consumer queue by Dmitry
+ * Vyukov: every slot carries a sequence number that tells producers and
+ * consumers whether the slot is free or filled for their position, so a
+ * single compare-and-set on the head or tail claims a slot.
+ *
+ * A block of samples from {@link #outputBlock} takes one slot, with a copy
+ * of its values, and is passed on as a block.
+ *
+ * What happens when the ring is full is chosen by the {@link OverflowPolicy}.
+ * With one drain thread, samples reach the wrapped output in the order they
+ * were queued; with several, only the order per drain thread is kept.
+ */
+public class AsyncOutputStrategy implements OutputStrategy {
+
+    /**
+     * What to do with a sample when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until a drain thread frees a slot. Nothing is lost. */
+        BLOCK,
+        /** Discard the oldest queued sample to make room. */
+        DROP_OLDEST,
+        /** Discard the new sample. */
+        DROP_NEWEST
+    }
+
+    // Longest pause of an idle drain thread or a blocked producer
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final OutputStrategy delegate;
+    private final OverflowPolicy policy;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] patientIds;
+    private final long[] timestamps;
+    private final String[] labels;
+    private final String[] data;
+    private final double[][] blocks;
+    private final int[] sampleRates;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<Thread> drainers = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Wraps an output with a single drain thread.
+     *
+     * @param delegate the output the samples are passed on to
+     * @param capacity ring buffer size, rounded up to a power of two
+     * @param policy   what to do when the ring buffer is full
+     */
+    public AsyncOutputStrategy(OutputStrategy delegate, int capacity, OverflowPolicy policy) {
+        this(delegate, capacity, 1, policy);
+    }
+
+    /**
+     * Wraps an output.
+     *
+     * @param delegate     the output the samples are passed on to; with more than
+     *                     one drain thread it must be thread-safe
+     * @param capacity     ring buffer size, rounded up to a power of two
+     * @param drainThreads number of threads calling the wrapped output
+     * @param policy       what to do when the ring buffer is full
+     */
+    public AsyncOutputStrategy(OutputStrategy delegate, int capacity, int drainThreads, OverflowPolicy policy) {
+        if (capacity <= 0 || capacity > 1 << 30 || drainThreads <= 0) {
+            throw new IllegalArgumentException("Capacity and drain threads must be positive");
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.patientIds = new int[size];
+        this.timestamps = new long[size];
+        this.labels = new String[size];
+        this.data = new String[size];
+        this.blocks = new double[size][];
+        this.sampleRates = new int[size];
+        for (int i = 0; i < drainThreads; i++) {
+            Thread drainer = new Thread(this::drain, "output-drain-" + i);
+            drainer.setDaemon(true);
+            drainers.add(drainer);
+            drainer.start();
+        }
+    }
+
+    /**
+     * Queues a sample for the wrapped output. Samples queued after
+     * {@link #close()} are dropped.
+     *
+     * @param patientId patient's ID
+     * @param timestamp data generation noted time
+     * @param label     label for data type
+     * @param data      value of the data
+     */
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        enqueue(patientId, timestamp, label, data, null, 0);
+    }
+
+    /**
+     * Queues a block of samples for the wrapped output as one entry, with a
+     * copy of the values. Blocks queued after {@link #close()} are dropped.
+     *
+     * @param patientId  patient ID number
+     * @param timestamp  time of the first sample
+     * @param sampleRate samples per second
+     * @param label      label for the type of data
+     * @param values     the samples; the array may be reused after the call returns
+     * @param count      number of samples in values
+     */
+    @Override
+    public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+            int count) {
+        enqueue(patientId, timestamp, label, null, Arrays.copyOf(values, count), sampleRate);
+    }
+
+    private void enqueue(int patientId, long timestamp, String label, String data, double[] block,
+            int sampleRate) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long parkNanos = 1_000;
+        while (!offer(patientId, timestamp, label, data, block, sampleRate)) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return;
+            }
+            switch (policy) {
+                case DROP_NEWEST:
+                    dropped.incrementAndGet();
+                    return;
+                case DROP_OLDEST:
+                    if (poll(null)) {
+                        dropped.incrementAndGet();
+                    }
+                    break;
+                default:
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting samples, waits until the queued samples are passed on and
+     * closes the wrapped output.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread drainer : drainers) {
+            LockSupport.unpark(drainer);
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        delegate.close();
+    }
+
+    /**
+     * @return the number of entries currently queued; a block counts as one
+     */
+    public int getQueueDepth() {
+        // Read the head first so the difference is never negative
+        long first = head.get();
+        return (int) Math.max(0, Math.min(tail.get() - first, mask + 1L));
+    }
+
+    /**
+     * @return the number of entries discarded by the overflow policy or after close; a block counts as one
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of entries passed on to the wrapped output; a block counts as one
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the ring buffer size
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Claims the slot at the tail and fills it.
+     *
+     * @return false if the ring buffer is full
+     */
+    private boolean offer(int patientId, long timestamp, String label, String value, double[] block,
+            int sampleRate) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    patientIds[index] = patientId;
+                    timestamps[index] = timestamp;
+                    labels[index] = label;
+                    data[index] = value;
+                    blocks[index] = block;
+                    sampleRates[index] = sampleRate;
+                    // Publishes the slot to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the sample at the head.
+     *
+     * @param sample receives the sample; null to discard it
+     * @return false if the ring buffer is empty
+     */
+    private boolean poll(Sample sample) {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    if (sample != null) {
+                        sample.patientId = patientIds[index];
+                        sample.timestamp = timestamps[index];
+                        sample.label = labels[index];
+                        sample.data = data[index];
+                        sample.block = blocks[index];
+                        sample.sampleRate = sampleRates[index];
+                    }
+                    labels[index] = null;
+                    data[index] = null;
+                    blocks[index] = null;
+                    // Frees the slot for the producer one lap ahead
+                    sequences.set(index, position + mask + 1);
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Drain thread loop: passes samples on until closed and empty. Idle threads
+     * back off from spinning to parking so an empty queue costs no CPU.
+     */
+    private void drain() {
+        Sample sample = new Sample();
+        long parkNanos = 1_000;
+        while (true) {
+            if (poll(sample)) {
+                parkNanos = 1_000;
+                try {
+                    if (sample.block != null) {
+                        delegate.outputBlock(sample.patientId, sample.timestamp, sample.sampleRate, sample.label,
+                                sample.block, sample.block.length);
+                    } else {
+                        delegate.output(sample.patientId, sample.timestamp, sample.label, sample.data);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Error in output: " + e.getMessage());
+                }
+                delivered.incrementAndGet();
+            } else if (closed) {
+                return;
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Reusable holder for a sample or block taken from the ring buffer.
+     */
+    private static final class Sample {
+        int patientId;
+        long timestamp;
+        String label;
+        String data;
+        double[] block; // null for a single sample
+        int sampleRate;
+    }
+}
@@ -0,0 +1,84 @@
+package com.cardio_generator.outputs;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Snapshot of how far a WebSocket client is behind the simulator, as reported
+ * by {@link WebSocketOutputStrategy#getConnectionLag()}.
+ */
+public final class ConnectionLag {
+
+    private final InetSocketAddress address;
+    private final boolean binary;
+    private final long bufferedBytes;
+    private final long lagMillis;
+    private final long messagesSent;
+    private final long messagesDropped;
+    private final long bytesDropped;
+
+    ConnectionLag(InetSocketAddress address, boolean binary, long bufferedBytes, long lagMillis,
+            long messagesSent, long messagesDropped, long bytesDropped) {
+        this.address = address;
+        this.binary = binary;
+        this.bufferedBytes = bufferedBytes;
+        this.lagMillis = lagMillis;
+        this.messagesSent = messagesSent;
+        this.messagesDropped = messagesDropped;
+        this.bytesDropped = bytesDropped;
+    }
+
+    /**
+     * @return the client's address
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @return true if the client receives binary frames, false for CSV
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return bytes sent to the client that are still waiting to be written to its socket
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * @return how long the client has been too far behind to receive new messages, 0 if it keeps up
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * @return messages sent to the client so far
+     */
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * @return messages the client missed because it was too far behind
+     */
+    public long getMessagesDropped() {
+        return messagesDropped;
+    }
+
+    /**
+     * @return bytes of the messages the client missed
+     */
+    public long getBytesDropped() {
+        return bytesDropped;
+    }
+
+    @Override
+    public String toString() {
+        return address + (binary ? " (binary)" : "") + ": " + bufferedBytes + " bytes buffered, lag "
+                + lagMillis + " ms, " + messagesSent + " sent, " + messagesDropped + " dropped";
+    }
+}
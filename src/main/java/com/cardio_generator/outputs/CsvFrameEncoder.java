@@ -0,0 +1,57 @@
+package com.cardio_generator.outputs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packs samples into a chunk of CSV lines, one line per sample in the same
+ * form as the other text outputs: {@code patientId,timestamp,label,data}.
+ * A chunk has no header, so chunks can be written back to back to a stream.
+ *
+ * Not thread safe.
+ */
+final class CsvFrameEncoder implements FrameEncoder {
+
+    private final int maxSamples;
+    private final StringBuilder lines = new StringBuilder(8192);
+    private int samples;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param maxSamples number of samples after which {@link #isFull()} reports a full chunk
+     */
+    CsvFrameEncoder(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    @Override
+    public void add(int patientId, long timestamp, String label, double value) {
+        add(patientId, timestamp, label, Double.toString(value));
+    }
+
+    @Override
+    public void add(int patientId, long timestamp, String label, String data) {
+        lines.append(patientId).append(',').append(timestamp).append(',').append(label).append(',').append(data)
+                .append('\n');
+        samples++;
+    }
+
+    @Override
+    public int size() {
+        return samples;
+    }
+
+    @Override
+    public boolean isFull() {
+        return samples >= maxSamples;
+    }
+
+    @Override
+    public ByteBuffer finish() {
+        ByteBuffer chunk = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        lines.setLength(0);
+        samples = 0;
+        return chunk;
+    }
+}
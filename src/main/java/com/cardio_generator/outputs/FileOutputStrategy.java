@@ -1,18 +1,43 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 // Renamed class from fileOutputStrategy to FileOutputStrategy due to UpperCamelCase.
 /**
  *patient data is sent to separate files according data type.
+ *
+ * Every label keeps its file open for the lifetime of the strategy. Lines are
+ * encoded straight into a reusable direct buffer per label, which is written
+ * to the file channel when it fills up and from a background thread at a fixed
+ * interval. Call {@link #close()} on shutdown so the last lines are written.
  */
 public class FileOutputStrategy implements OutputStrategy {
 
+    /** Default size of the buffer of each label, in bytes */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    /** Default time after which buffered lines are written at the latest, in milliseconds */
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 200;
+
+    private static final byte[] PATIENT_ID = "Patient ID: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIMESTAMP = ", Timestamp: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LABEL = ", Label: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA = ", Data: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    // Longest fixed part of a line: the separators and two numbers of at most 20 characters
+    private static final int FIXED_LINE_BYTES = PATIENT_ID.length + TIMESTAMP.length + LABEL.length
+            + DATA.length + LINE_SEPARATOR.length + 40;
+
     // Renamed BaseDirectory to baseDirectory to due to lowerCamelCase .
     
     private String baseDirectory;
@@ -21,17 +46,49 @@ public class FileOutputStrategy implements OutputStrategy {
     
     public final ConcurrentHashMap<String, String> fileMap = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, LabelFile> files = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final ScheduledExecutorService flusher;
+    // Held while opening a file and while closing, so no file is opened after close()
+    private final Object openLock = new Object();
+    private volatile boolean closed;
+
     /**
      * Applies the output file directory
      *
      * @param baseDirectory file directory
      */
     public FileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Applies the output file directory and the flush thresholds.
+     *
+     * @param baseDirectory   file directory
+     * @param bufferSize      buffer size per label; a full buffer is written immediately
+     * @param flushIntervalMs buffered lines are written at least this often, in milliseconds
+     */
+    public FileOutputStrategy(String baseDirectory, int bufferSize, long flushIntervalMs) {
+        if (bufferSize <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Buffer size and flush interval must be positive");
+        }
         this.baseDirectory = baseDirectory;
+        this.bufferSize = bufferSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "file-output-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The task only needs the files, not the partly constructed strategy
+        ConcurrentHashMap<String, LabelFile> labelFiles = files;
+        flusher.scheduleWithFixedDelay(() -> flush(labelFiles), flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
     }
 
     /**
      * According to the label data is sent to the correct file.
+     * Lines output after {@link #close()} are discarded.
      *
      * @param patientId  patient's ID
      * @param timestamp data generation noted time
@@ -40,26 +97,201 @@ public class FileOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        try {
-            // Create the directory
-            Files.createDirectories(Paths.get(baseDirectory));
-        } catch (IOException e) {
-            System.err.println("Error creating base directory: " + e.getMessage());
+        if (closed) {
             return;
         }
+        LabelFile file = files.get(label);
+        if (file == null) {
+            file = open(label);
+            if (file == null) {
+                return;
+            }
+        }
+        file.write(patientId, timestamp, data);
+    }
+
+    /**
+     * Writes all buffered lines to their files.
+     */
+    public void flush() {
+        flush(files);
+    }
+
+    private static void flush(ConcurrentHashMap<String, LabelFile> files) {
+        for (LabelFile file : files.values()) {
+            file.flush();
+        }
+    }
+
+    /**
+     * Stops the background flush, writes all buffered lines and closes the files.
+     */
+    @Override
+    public void close() {
+        synchronized (openLock) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LabelFile file : files.values()) {
+            file.close();
+        }
+    }
+
+    /**
+     * Opens the file of a label, once per label.
+     *
+     * @return the open file, or null if it cannot be opened or the strategy is closed
+     */
+    private LabelFile open(String label) {
         // Altererd FilePath to filePath due to lowerCamelCase rule (Section 5.2.7)
         // Set the filePath variable
         String filePath = fileMap.computeIfAbsent(label,
                 k -> Paths.get(baseDirectory, label + ".txt").toString());
-
-        // Write the data to the file
-        // Wrapped line to improve readability (Section 4.5) and to.comply with 100-column limit (Section 4.4)
-        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
-                Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
-            out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
-                    patientId, timestamp, label, data);
-        } catch (Exception e) {
+        try {
+            synchronized (openLock) {
+                if (closed) {
+                    return null;
+                }
+                return files.computeIfAbsent(label, k -> {
+                    try {
+                        // Create the directory
+                        Files.createDirectories(Paths.get(baseDirectory));
+                        return new LabelFile(label, Paths.get(filePath), bufferSize);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                });
+            }
+        } catch (IllegalStateException e) {
             System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The open file of one label with its buffer. Writers and the flush thread
+     * synchronize on the instance.
+     */
+    private static final class LabelFile {
+        private final Path path;
+        private final byte[] label;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final byte[] digits = new byte[20];
+
+        LabelFile(String label, Path path, int bufferSize) throws IOException {
+            this.path = path;
+            this.label = label.getBytes(StandardCharsets.UTF_8);
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        /**
+         * Encodes one line as {@code Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n}.
+         */
+        synchronized void write(int patientId, long timestamp, String data) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            // A UTF-8 character takes at most three bytes per char
+            int maxLength = FIXED_LINE_BYTES + label.length + data.length() * 3;
+            if (buffer.remaining() < maxLength) {
+                flush();
+                if (buffer.remaining() < maxLength) {
+                    writeOversized(patientId, timestamp, data);
+                    return;
+                }
+            }
+            buffer.put(PATIENT_ID);
+            putLong(patientId);
+            buffer.put(TIMESTAMP);
+            putLong(timestamp);
+            buffer.put(LABEL);
+            buffer.put(label);
+            buffer.put(DATA);
+            putText(data);
+            buffer.put(LINE_SEPARATOR);
+        }
+
+        synchronized void flush() {
+            if (buffer.position() == 0 || !channel.isOpen()) {
+                return;
+            }
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + path + ": " + e.getMessage());
+            }
+            buffer.clear();
+        }
+
+        synchronized void close() {
+            flush();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file " + path + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Writes a line that does not fit into the buffer at all, bypassing it.
+         */
+        private void writeOversized(int patientId, long timestamp, String data) {
+            String line = String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
+                    patientId, timestamp, new String(label, StandardCharsets.UTF_8), data);
+            ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + path + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Puts the decimal digits of a number without creating a String.
+         */
+        private void putLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                buffer.put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int position = digits.length;
+            do {
+                digits[--position] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            buffer.put(digits, position, digits.length - position);
+        }
+
+        /**
+         * Puts text as UTF-8; plain ASCII, which is all the generators produce, is copied char by char.
+         */
+        private void putText(String text) {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    buffer.put(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                buffer.put((byte) c);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.cardio_generator.outputs;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects samples from any number of threads into frames and hands
+ * each frame to a sender: when it is full, and at least every flush interval
+ * so a quiet stream still goes out promptly. The sender is called with the
+ * batcher's lock held, so frames arrive in order.
+ */
+final class FrameBatcher {
+
+    /** Samples per frame */
+    static final int DEFAULT_FRAME_SAMPLES = 512;
+    /** Longest time a sample waits in a frame that is not full, in milliseconds */
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 20;
+
+    private final FrameEncoder encoder;
+    private final Consumer<ByteBuffer> sender;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Creates a batcher and starts its flush thread.
+     *
+     * @param encoder         encodes the frames; only used by the batcher from now on
+     * @param flushIntervalMs how often a frame that is not full is sent
+     * @param sender          sends a finished frame
+     * @param name            name of the flush thread
+     */
+    FrameBatcher(FrameEncoder encoder, long flushIntervalMs, Consumer<ByteBuffer> sender, String name) {
+        this.encoder = encoder;
+        this.sender = sender;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // A failing send must not stop later flushes
+                System.err.println("Error sending frame: " + e.getMessage());
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a sample as sent by {@link OutputStrategy#output}.
+     */
+    synchronized void add(int patientId, long timestamp, String label, String data) {
+        encoder.add(patientId, timestamp, label, data);
+        if (encoder.isFull()) {
+            sender.accept(encoder.finish());
+        }
+    }
+
+    /**
+     * Adds a block of evenly spaced samples, as sent by {@link OutputStrategy#outputBlock}.
+     */
+    synchronized void addBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+            int count) {
+        for (int i = 0; i < count; i++) {
+            encoder.add(patientId, timestamp + i * 1000L / sampleRate, label, values[i]);
+            if (encoder.isFull()) {
+                sender.accept(encoder.finish());
+            }
+        }
+    }
+
+    /**
+     * Sends the current frame if it holds any samples.
+     */
+    synchronized void flush() {
+        if (encoder.size() > 0) {
+            sender.accept(encoder.finish());
+        }
+    }
+
+    /**
+     * Stops the flush thread and sends what is left.
+     */
+    void close() {
+        flusher.shutdown();
+        flush();
+    }
+}
@@ -0,0 +1,38 @@
+package com.cardio_generator.outputs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs samples into frames that are encoded once and then written to any
+ * number of clients. Implementations are not thread safe; {@link FrameBatcher}
+ * serialises access to them.
+ */
+interface FrameEncoder {
+
+    /**
+     * Adds a numeric sample to the frame.
+     */
+    void add(int patientId, long timestamp, String label, double value);
+
+    /**
+     * Adds a sample as sent by {@link OutputStrategy#output}.
+     */
+    void add(int patientId, long timestamp, String label, String data);
+
+    /**
+     * @return the number of samples in the current frame
+     */
+    int size();
+
+    /**
+     * @return true once the frame should be sent
+     */
+    boolean isFull();
+
+    /**
+     * Completes the frame and starts a new one.
+     *
+     * @return the frame, positioned at its start
+     */
+    ByteBuffer finish();
+}
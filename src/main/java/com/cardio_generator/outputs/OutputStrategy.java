@@ -14,4 +14,31 @@ public interface OutputStrategy {
      * @param data value of the data
      */
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Transfers a block of evenly spaced samples of one patient, such as a
+     * second of a high-frequency waveform, in one call. The default outputs
+     * every sample on its own, with its time rounded down to the millisecond;
+     * outputs that can send a block as one message override this.
+     *
+     * @param patientId  patient ID number
+     * @param timestamp  time of the first sample
+     * @param sampleRate samples per second
+     * @param label      label for the type of data
+     * @param values     the samples; the array may be reused after the call returns
+     * @param count      number of samples in values
+     */
+    default void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+            int count) {
+        for (int i = 0; i < count; i++) {
+            output(patientId, timestamp + i * 1000L / sampleRate, label, Double.toString(values[i]));
+        }
+    }
+
+    /**
+     * Flushes buffered data and releases the resources of the output.
+     * Outputs without buffers or open resources do not need to override this.
+     */
+    default void close() {
+    }
 }
@@ -1,19 +1,68 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.Executors;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * Way of outputting patient data through a TCP socket.
+ * Way of outputting patient data through a TCP socket, to any number of clients.
+ *
+ * By default every sample is one CSV line. A client that sends the line
+ * {@link #BINARY_HELLO} right after connecting gets the binary format instead:
+ * frames of many samples as described in {@link BinaryFrameEncoder}, each
+ * preceded by its length as a 4 byte big endian int.
+ *
+ * Samples are collected into chunks that are encoded once per format and
+ * shared by all clients of that format. One selector thread accepts the
+ * clients and writes to them without blocking, so the generators never wait
+ * for the network. Every client has its own queue of chunks; a client that
+ * falls so far behind that its queue exceeds the limit is disconnected rather
+ * than slowing down or starving the others.
 */
 public class TcpOutputStrategy implements OutputStrategy {
 
-    private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private PrintWriter out;
+    /** Line a client sends right after connecting to receive binary frames instead of CSV lines */
+    public static final String BINARY_HELLO = "FORMAT " + BinaryFrameEncoder.PROTOCOL;
+    /** Bytes that may be waiting for a client before it is disconnected */
+    public static final int DEFAULT_MAX_QUEUED_BYTES = 4 << 20;
+    // How long a new client has to ask for the binary format before it gets CSV
+    private static final int HELLO_TIMEOUT_MS = 500;
+    // How long close() keeps writing what is queued
+    private static final long CLOSE_DRAIN_MS = 1000;
+    // Most buffers handed to one gathering write
+    private static final int MAX_WRITE_BUFFERS = 64;
+
+    private final int maxQueuedBytes;
+    private final Set<Client> csvClients = ConcurrentHashMap.newKeySet();
+    private final Set<Client> binaryClients = ConcurrentHashMap.newKeySet();
+    // Clients that got new chunks, for the selector thread to write to
+    private final Queue<Client> writable = new ConcurrentLinkedQueue<>();
+    // Clients that have not chosen a format yet; only used by the selector thread
+    private final List<Client> pending = new ArrayList<>();
+    private final ByteBuffer ignored = ByteBuffer.allocate(256);
+    private final FrameBatcher csvFrames;
+    private final FrameBatcher binaryFrames;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile long closeDeadline;
+    private volatile boolean closing;
 
     /**
      * Within the given port, creates a TCP server
@@ -21,27 +70,41 @@ public class TcpOutputStrategy implements OutputStrategy {
      * @param port listened port used
      */
     public TcpOutputStrategy(int port) {
+        this(port, DEFAULT_MAX_QUEUED_BYTES);
+    }
+
+    /**
+     * Within the given port, creates a TCP server
+     *
+     * @param port           listened port used
+     * @param maxQueuedBytes bytes that may be waiting for a client before it is disconnected
+     */
+    public TcpOutputStrategy(int port, int maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+        csvFrames = new FrameBatcher(new CsvFrameEncoder(FrameBatcher.DEFAULT_FRAME_SAMPLES),
+                FrameBatcher.DEFAULT_FLUSH_INTERVAL_MS, chunk -> broadcast(csvClients, chunk), "tcp-csv-flush");
+        binaryFrames = new FrameBatcher(new BinaryFrameEncoder(FrameBatcher.DEFAULT_FRAME_SAMPLES),
+                FrameBatcher.DEFAULT_FLUSH_INTERVAL_MS, frame -> broadcast(binaryClients, lengthPrefix(frame), frame),
+                "tcp-frame-flush");
         try {
-            serverSocket = new ServerSocket(port);
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
             System.out.println("TCP Server started on port " + port);
 
-            // Accept clients in a new thread to not block the main thread
-            Executors.newSingleThreadExecutor().submit(() -> {
-                try {
-                    clientSocket = serverSocket.accept();
-                    out = new PrintWriter(clientSocket.getOutputStream(), true);
-                    System.out.println("Client connected: " + clientSocket.getInetAddress());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
+            // Serve clients in a new thread to not block the main thread
+            selectorThread = new Thread(this::serve, "tcp-output");
+            selectorThread.setDaemon(true);
+            selectorThread.start();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Transfers a data line to the TCP client.
+     * Transfers a data line to the TCP clients.
      *
      * @param patientId patient's ID
      * @param timestamp recorded time of the generated data
@@ -50,9 +113,322 @@ public class TcpOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        if (out != null) {
-            String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-            out.println(message);
+        if (!csvClients.isEmpty()) {
+            csvFrames.add(patientId, timestamp, label, data);
+        }
+        if (!binaryClients.isEmpty()) {
+            binaryFrames.add(patientId, timestamp, label, data);
+        }
+    }
+
+    /**
+     * Transfers a block of samples; binary clients get the values without formatting them as text.
+     */
+    @Override
+    public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+            int count) {
+        if (!csvClients.isEmpty()) {
+            csvFrames.addBlock(patientId, timestamp, sampleRate, label, values, count);
+        }
+        if (!binaryClients.isEmpty()) {
+            binaryFrames.addBlock(patientId, timestamp, sampleRate, label, values, count);
+        }
+    }
+
+    /**
+     * Sends what is left, waits briefly for it to be written, and closes the
+     * connections and the server.
+     */
+    @Override
+    public void close() {
+        csvFrames.close();
+        binaryFrames.close();
+        if (selectorThread == null) {
+            return;
+        }
+        closeDeadline = System.currentTimeMillis() + CLOSE_DRAIN_MS;
+        closing = true;
+        selector.wakeup();
+        try {
+            selectorThread.join(CLOSE_DRAIN_MS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of clients that have chosen a format and receive data
+     */
+    int clientCount() {
+        return csvClients.size() + binaryClients.size();
+    }
+
+    private static ByteBuffer lengthPrefix(ByteBuffer frame) {
+        ByteBuffer prefix = ByteBuffer.allocate(4);
+        prefix.putInt(0, frame.remaining());
+        return prefix;
+    }
+
+    /**
+     * Queues a chunk for every client of one format. Called by a batcher with its lock held.
+     */
+    private void broadcast(Set<Client> clients, ByteBuffer... chunk) {
+        boolean added = false;
+        for (Client client : clients) {
+            if (client.enqueue(chunk)) {
+                writable.add(client);
+                added = true;
+            }
+        }
+        if (added) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Selector loop: accepts clients, reads their hello lines and writes their queues.
+     */
+    private void serve() {
+        try {
+            while (!closing || (!drained() && System.currentTimeMillis() < closeDeadline)) {
+                selector.select(pending.isEmpty() ? 0 : HELLO_TIMEOUT_MS / 5);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(client);
+                        }
+                    }
+                }
+                Client client;
+                while ((client = writable.poll()) != null) {
+                    write(client);
+                }
+                expireHellos();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (Client client : csvClients) {
+                client.disconnect(null);
+            }
+            for (Client client : binaryClients) {
+                client.disconnect(null);
+            }
+            for (Client client : pending) {
+                client.disconnect(null);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing TCP output: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean drained() {
+        for (Client client : csvClients) {
+            if (!client.isDrained()) {
+                return false;
+            }
+        }
+        for (Client client : binaryClients) {
+            if (!client.isDrained()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        pending.add(client);
+    }
+
+    private void read(Client client) {
+        try {
+            ByteBuffer in = client.hello != null ? client.hello : ignored;
+            ignored.clear();
+            int read = client.channel.read(in);
+            if (read < 0) {
+                pending.remove(client);
+                client.disconnect("TCP client disconnected: ");
+            } else if (client.hello != null) {
+                ByteBuffer hello = client.hello;
+                for (int i = 0; i < hello.position(); i++) {
+                    if (hello.get(i) == '\n') {
+                        String line = new String(hello.array(), 0, i, StandardCharsets.US_ASCII).trim();
+                        start(client, line.equals(BINARY_HELLO));
+                        return;
+                    }
+                }
+                if (!hello.hasRemaining()) {
+                    start(client, false);
+                }
+            }
+            // Anything else a client sends is ignored
+        } catch (IOException e) {
+            pending.remove(client);
+            client.disconnect("TCP client disconnected: ");
+        }
+    }
+
+    private void expireHellos() {
+        long now = System.currentTimeMillis();
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (now >= pending.get(i).helloDeadline) {
+                start(pending.get(i), false);
+            }
+        }
+    }
+
+    /**
+     * Starts sending data to a client in the format it chose.
+     */
+    private void start(Client client, boolean binary) {
+        pending.remove(client);
+        client.hello = null;
+        client.clients = binary ? binaryClients : csvClients;
+        client.clients.add(client);
+        System.out.println("Client connected: " + client.address + (binary ? " (binary)" : ""));
+    }
+
+    private void write(Client client) {
+        SelectionKey key = client.key;
+        if (!key.isValid()) {
+            return;
+        }
+        try {
+            boolean done = client.write();
+            key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            client.disconnect("TCP client disconnected: ");
+        }
+    }
+
+    /**
+     * A connected client and the chunks waiting to be written to it.
+     */
+    private final class Client {
+
+        final SocketChannel channel;
+        final SocketAddress address;
+        final long helloDeadline = System.currentTimeMillis() + HELLO_TIMEOUT_MS;
+        // Only used by the selector thread
+        SelectionKey key;
+        ByteBuffer hello = ByteBuffer.allocate(64);
+        volatile Set<Client> clients;
+        // Guarded by this
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_WRITE_BUFFERS];
+        private long queuedBytes;
+        private boolean closed;
+
+        Client(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.address = channel.getRemoteAddress();
+        }
+
+        /**
+         * Queues a chunk, sharing its content with the other clients.
+         *
+         * @return true if the queue was empty, so the client needs a write
+         */
+        boolean enqueue(ByteBuffer... chunk) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                for (ByteBuffer buffer : chunk) {
+                    queuedBytes += buffer.remaining();
+                }
+                if (queuedBytes <= maxQueuedBytes) {
+                    boolean wasEmpty = queue.isEmpty();
+                    for (ByteBuffer buffer : chunk) {
+                        queue.add(buffer.duplicate());
+                    }
+                    return wasEmpty;
+                }
+            }
+            disconnect("Disconnected slow TCP client, " + maxQueuedBytes + " bytes behind: ");
+            return false;
+        }
+
+        /**
+         * Writes as much of the queue as the socket takes, with one gathering write.
+         *
+         * @return true if the queue is empty
+         */
+        synchronized boolean write() throws IOException {
+            while (!queue.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer buffer : queue) {
+                    writeBuffers[count++] = buffer;
+                    if (count == MAX_WRITE_BUFFERS) {
+                        break;
+                    }
+                }
+                long written = channel.write(writeBuffers, 0, count);
+                queuedBytes -= written;
+                while (!queue.isEmpty() && !queue.peek().hasRemaining()) {
+                    queue.poll();
+                }
+                Arrays.fill(writeBuffers, 0, count, null);
+                if (written == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized boolean isDrained() {
+            return queue.isEmpty();
+        }
+
+        /**
+         * Stops sending to the client and closes the connection.
+         *
+         * @param reason printed before the client's address, or null to close quietly
+         */
+        void disconnect(String reason) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+                queuedBytes = 0;
+            }
+            if (clients != null) {
+                clients.remove(this);
+            }
+            if (reason != null) {
+                System.err.println(reason + address);
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing TCP client: " + e.getMessage());
+            }
         }
     }
 }
@@ -1,48 +1,248 @@
 package com.cardio_generator.outputs;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Way of outputting patient data to WebSocket clients.
+ *
+ * Samples are coalesced into messages of many samples, sent when a message is
+ * full and at least every flush interval. By default a message is text: CSV
+ * lines separated by '\n'. Clients that request the subprotocol
+ * {@link #BINARY_PROTOCOL} in the handshake get binary messages instead, each
+ * a frame as described in {@link BinaryFrameEncoder}. Both kinds of clients
+ * can be connected at once; each message is encoded once and shared by all
+ * clients of its kind.
+ *
+ * A client whose socket has more than the buffer limit waiting misses
+ * messages until it catches up, and is disconnected if it stays behind for
+ * longer than the lag limit. {@link #getConnectionLag()} reports how far
+ * behind every client is.
+ */
 public class WebSocketOutputStrategy implements OutputStrategy {
 
+    /** Subprotocol a client requests to receive binary frames instead of CSV text messages */
+    public static final String BINARY_PROTOCOL = BinaryFrameEncoder.PROTOCOL;
+    /** Bytes that may be waiting for a client before it misses messages */
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 4 << 20;
+    /** How long a client may miss messages before it is disconnected, in milliseconds */
+    public static final long DEFAULT_MAX_LAG_MS = 5000;
+
     private WebSocketServer server;
+    private final Set<WebSocket> csvClients = ConcurrentHashMap.newKeySet();
+    private final Set<WebSocket> binaryClients = ConcurrentHashMap.newKeySet();
+    private final FrameBatcher csvFrames;
+    private final FrameBatcher binaryFrames;
+    private final long maxBufferedBytes;
+    private final long maxLagMs;
 
     public WebSocketOutputStrategy(int port) {
-        server = new SimpleWebSocketServer(new InetSocketAddress(port));
+        this(port, FrameBatcher.DEFAULT_FRAME_SAMPLES, FrameBatcher.DEFAULT_FLUSH_INTERVAL_MS,
+                DEFAULT_MAX_BUFFERED_BYTES, DEFAULT_MAX_LAG_MS);
+    }
+
+    /**
+     * Creates the server with explicit coalescing and backpressure limits.
+     *
+     * @param port             listened port used
+     * @param messageSamples   samples per message
+     * @param flushIntervalMs  longest time a sample waits in a message that is not full
+     * @param maxBufferedBytes bytes that may be waiting for a client before it misses messages
+     * @param maxLagMs         how long a client may miss messages before it is disconnected
+     */
+    public WebSocketOutputStrategy(int port, int messageSamples, long flushIntervalMs, long maxBufferedBytes,
+            long maxLagMs) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.maxLagMs = maxLagMs;
+        server = new SimpleWebSocketServer(new InetSocketAddress(port), csvClients, binaryClients);
+        // Lets a restarted simulator bind the port while old connections linger
+        server.setReuseAddr(true);
         System.out.println("WebSocket server created on port: " + port + ", listening for connections...");
         server.start();
+        csvFrames = new FrameBatcher(new CsvFrameEncoder(messageSamples), flushIntervalMs,
+                chunk -> send(csvClients, new TextFrame(), chunk), "websocket-csv-flush");
+        binaryFrames = new FrameBatcher(new BinaryFrameEncoder(messageSamples), flushIntervalMs,
+                frame -> send(binaryClients, new BinaryFrame(), frame), "websocket-frame-flush");
     }
 
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
         // Validate inputs
         assert patientId >= 0 : "Patient ID must be non-negative";
         assert timestamp >= 0 : "Timestamp must be non-negative";
         assert label != null && !label.isEmpty() : "Label must not be null or empty";
         assert data != null && !data.isEmpty() : "Data must not be null or empty";
-        
-        // Broadcast the message to all connected clients
+
+        if (!csvClients.isEmpty()) {
+            csvFrames.add(patientId, timestamp, label, data);
+        }
+        if (!binaryClients.isEmpty()) {
+            binaryFrames.add(patientId, timestamp, label, data);
+        }
+    }
+
+    /**
+     * Transfers a block of samples; binary clients get the values without formatting them as text.
+     */
+    @Override
+    public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+            int count) {
+        if (!csvClients.isEmpty()) {
+            csvFrames.addBlock(patientId, timestamp, sampleRate, label, values, count);
+        }
+        if (!binaryClients.isEmpty()) {
+            binaryFrames.addBlock(patientId, timestamp, sampleRate, label, values, count);
+        }
+    }
+
+    /**
+     * Reports how far behind every connected client is.
+     *
+     * @return one entry per client
+     */
+    public List<ConnectionLag> getConnectionLag() {
+        long now = System.currentTimeMillis();
+        List<ConnectionLag> lag = new ArrayList<>();
         for (WebSocket conn : server.getConnections()) {
-            conn.send(message);
+            Subscriber subscriber = conn.getAttachment();
+            if (subscriber != null) {
+                long behindSince = subscriber.behindSince;
+                lag.add(new ConnectionLag(conn.getRemoteSocketAddress(), subscriber.binary, bufferedBytes(conn),
+                        behindSince == 0 ? 0 : now - behindSince, subscriber.messagesSent,
+                        subscriber.messagesDropped, subscriber.bytesDropped));
+            }
+        }
+        return lag;
+    }
+
+    /**
+     * Sends the last messages and stops the server.
+     */
+    @Override
+    public void close() {
+        csvFrames.close();
+        binaryFrames.close();
+        try {
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends one message to every client of a kind that keeps up. Called by a
+     * batcher with its lock held, so every client of a kind is only ever
+     * updated by one thread.
+     */
+    private void send(Set<WebSocket> clients, DataFrame message, ByteBuffer payload) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        int size = payload.remaining();
+        message.setPayload(payload);
+        message.setFin(true);
+        long now = System.currentTimeMillis();
+        for (WebSocket conn : clients) {
+            Subscriber subscriber = conn.getAttachment();
+            if (bufferedBytes(conn) > maxBufferedBytes) {
+                subscriber.messagesDropped++;
+                subscriber.bytesDropped += size;
+                if (subscriber.behindSince == 0) {
+                    subscriber.behindSince = now;
+                } else if (now - subscriber.behindSince > maxLagMs) {
+                    System.err.println("Disconnected slow WebSocket client, " + (now - subscriber.behindSince)
+                            + " ms behind: " + conn.getRemoteSocketAddress());
+                    clients.remove(conn);
+                    conn.closeConnection(CloseFrame.TRY_AGAIN_LATER, "Too far behind");
+                }
+                continue;
+            }
+            subscriber.behindSince = 0;
+            try {
+                // The library frames the shared payload into each connection's own queue
+                conn.sendFrame(message);
+                subscriber.messagesSent++;
+            } catch (WebsocketNotConnectedException e) {
+                // Closing, removed by onClose
+            }
+        }
+    }
+
+    /**
+     * @return bytes queued for the client that its socket has not taken yet
+     */
+    private static long bufferedBytes(WebSocket conn) {
+        long bytes = 0;
+        if (conn instanceof WebSocketImpl impl) {
+            for (ByteBuffer buffer : impl.outQueue) {
+                bytes += buffer.remaining();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Delivery state of one client, attached to its connection. Written by the
+     * batcher of the client's kind, read by {@link #getConnectionLag()}.
+     */
+    private static final class Subscriber {
+
+        final boolean binary;
+        volatile long behindSince;
+        volatile long messagesSent;
+        volatile long messagesDropped;
+        volatile long bytesDropped;
+
+        Subscriber(boolean binary) {
+            this.binary = binary;
         }
     }
 
     private static class SimpleWebSocketServer extends WebSocketServer {
 
-        public SimpleWebSocketServer(InetSocketAddress address) {
-            super(address);
+        private final Set<WebSocket> csvClients;
+        private final Set<WebSocket> binaryClients;
+
+        public SimpleWebSocketServer(InetSocketAddress address, Set<WebSocket> csvClients,
+                Set<WebSocket> binaryClients) {
+            // The empty protocol accepts clients that request none, or one we don't know
+            super(address, List.<Draft>of(new Draft_6455(Collections.emptyList(),
+                    List.<IProtocol>of(new Protocol(BINARY_PROTOCOL), new Protocol("")))));
+            this.csvClients = csvClients;
+            this.binaryClients = binaryClients;
         }
 
         @Override
         public void onOpen(WebSocket conn, org.java_websocket.handshake.ClientHandshake handshake) {
-            System.out.println("New connection: " + conn.getRemoteSocketAddress());
+            IProtocol protocol = ((Draft_6455) conn.getDraft()).getProtocol();
+            boolean binary = protocol != null && BINARY_PROTOCOL.equals(protocol.getProvidedProtocol());
+            conn.setAttachment(new Subscriber(binary));
+            (binary ? binaryClients : csvClients).add(conn);
+            System.out.println("New connection: " + conn.getRemoteSocketAddress() + (binary ? " (binary)" : ""));
         }
 
         @Override
         public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            csvClients.remove(conn);
+            binaryClients.remove(conn);
             System.out.println("Closed connection: " + conn.getRemoteSocketAddress());
         }
 
@@ -0,0 +1,182 @@
+package com.data_management;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes frames of the simulator's binary format straight from the received
+ * buffer into {@link DataStorage}, without copying the frame or creating a
+ * String per sample. Record type names are matched by their bytes against the
+ * types seen before, so a String is only created for a new type.
+ *
+ * The format, as written by the simulator:
+ * <pre>
+ * frame  := version:u8 typeCount:varint type* sampleCount:varint sample*
+ * type   := length:varint name:utf8
+ * sample := patientId:varint timestampDelta:zigzag-varint kind:varint value
+ * kind   := typeIndex &lt;&lt; 1 | isText
+ * value  := ieee754-double:8 bytes little endian, or length:varint text:utf8 if isText
+ * </pre>
+ * Text values are parsed with Double.parseDouble, as in the CSV format;
+ * values that are not numbers are skipped and counted.
+ *
+ * A decoder keeps state between calls, so every thread needs its own instance.
+ */
+public final class BinaryFrameDecoder {
+
+    /** Name of the format in the handshake, e.g. the WebSocket subprotocol */
+    public static final String PROTOCOL = "signal-binary.v1";
+    private static final int VERSION = 1;
+
+    private final SampleBatch batch = new SampleBatch(1024);
+    private int[] frameTypes = new int[8];
+    // Record types seen so far, matched by their UTF-8 bytes
+    private byte[][] typeNames = new byte[8][];
+    private int[] typeIds = new int[8];
+    private int typeCount;
+    private long skippedSamples;
+
+    /**
+     * Decodes a frame and adds its samples to the storage, in batches.
+     *
+     * @param frame   the frame, from its position to its limit; the position is moved to the limit
+     * @param storage where the samples go
+     * @return the number of samples added
+     * @throws IllegalArgumentException if the frame is malformed; samples before the error may have been added
+     */
+    public int decode(ByteBuffer frame, DataStorage storage) {
+        boolean littleEndian = frame.order() == ByteOrder.LITTLE_ENDIAN;
+        int added = 0;
+        batch.clear();
+        try {
+            int version = frame.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported frame version " + version);
+            }
+            int types = readInt(frame);
+            if (frameTypes.length < types) {
+                frameTypes = new int[Math.max(types, frameTypes.length * 2)];
+            }
+            for (int t = 0; t < types; t++) {
+                int length = readInt(frame);
+                frameTypes[t] = recordType(frame, length);
+            }
+            int samples = readInt(frame);
+            long timestamp = 0;
+            for (int i = 0; i < samples; i++) {
+                int patientId = (int) readVarint(frame);
+                long zigzag = readVarint(frame);
+                timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+                int kind = readInt(frame);
+                int type = kind >>> 1;
+                if (type >= types) {
+                    throw new IllegalArgumentException("Unknown type index " + type);
+                }
+                double value;
+                if ((kind & 1) == 0) {
+                    long bits = frame.getLong();
+                    value = Double.longBitsToDouble(littleEndian ? bits : Long.reverseBytes(bits));
+                } else {
+                    int length = readInt(frame);
+                    if (length > frame.remaining()) {
+                        throw new IllegalArgumentException("Bad text length " + length);
+                    }
+                    byte[] text = new byte[length];
+                    frame.get(text);
+                    try {
+                        value = Double.parseDouble(new String(text, StandardCharsets.UTF_8));
+                    } catch (NumberFormatException e) {
+                        skippedSamples++;
+                        continue;
+                    }
+                }
+                batch.add(patientId, frameTypes[type], timestamp, value);
+                if (batch.isFull()) {
+                    added += flush(storage);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame", e);
+        } finally {
+            added += flush(storage);
+            frame.position(frame.limit());
+        }
+        return added;
+    }
+
+    /**
+     * @return the number of samples skipped so far because their text value was not a number
+     */
+    public long getSkippedSamples() {
+        return skippedSamples;
+    }
+
+    private int flush(DataStorage storage) {
+        int size = batch.size();
+        if (size > 0) {
+            storage.addPatientDataBatch(batch);
+            batch.clear();
+        }
+        return size;
+    }
+
+    /**
+     * Reads a record type name and returns its interned id.
+     */
+    private int recordType(ByteBuffer in, int length) {
+        int from = in.position();
+        if (length <= 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Bad record type length " + length);
+        }
+        in.position(from + length);
+        for (int t = 0; t < typeCount; t++) {
+            if (matches(typeNames[t], in, from, length)) {
+                return typeIds[t];
+            }
+        }
+        byte[] name = new byte[length];
+        in.get(from, name);
+        if (typeCount == typeNames.length) {
+            typeNames = Arrays.copyOf(typeNames, typeCount * 2);
+            typeIds = Arrays.copyOf(typeIds, typeCount * 2);
+        }
+        typeNames[typeCount] = name;
+        typeIds[typeCount] = RecordTypeRegistry.intern(new String(name, StandardCharsets.UTF_8));
+        return typeIds[typeCount++];
+    }
+
+    private static boolean matches(byte[] name, ByteBuffer in, int from, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != in.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(ByteBuffer in) {
+        long value = readVarint(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Count out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
@@ -0,0 +1,158 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel bulk loader behind {@link FileDataReader#readDataBulk(DataStorage)}.
+ * Every file is split into line-aligned chunks, each chunk is memory-mapped and
+ * parsed on a ForkJoinPool straight from the mapped bytes, and the samples are
+ * inserted into the storage in batches by a {@link CsvTokenizer}. Apart from
+ * the first occurrence of each record type, parsing creates no Strings.
+ *
+ * Lines have the same CSV format as for {@link FileDataReader#readData}:
+ * {@code patientId,measurementValue,recordType,timestamp}.
+ */
+final class BulkFileLoader {
+
+    static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    private static final int BATCH_SIZE = 4096;
+    private static final int FIELDS = 4;
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * @param parallelism number of parser threads
+     * @param chunkSize   target chunk size in bytes; chunks end at the next line break
+     */
+    BulkFileLoader(int parallelism, int chunkSize) {
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads all given files into the storage and waits until every chunk is done.
+     *
+     * @param files       the files to load
+     * @param dataStorage the storage to insert into
+     * @return what was loaded, and how fast
+     * @throws IOException if a file cannot be opened or mapped
+     */
+    BulkLoadReport load(List<Path> files, DataStorage dataStorage) throws IOException {
+        long begin = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<long[]>> chunks = new ArrayList<>();
+            long bytes = 0;
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    bytes += size;
+                    long start = 0;
+                    while (start < size) {
+                        long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                        // The mapping stays valid after the channel is closed
+                        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                        chunks.add(pool.submit(() -> parseChunk(chunk, dataStorage)));
+                        start = end;
+                    }
+                }
+            }
+            long lines = 0;
+            long malformed = 0;
+            for (ForkJoinTask<long[]> chunk : chunks) {
+                long[] counts = chunk.join();
+                lines += counts[0];
+                malformed += counts[1];
+            }
+            return new BulkLoadReport(files.size(), lines, malformed, bytes, System.nanoTime() - begin);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds the start of the first line at or after a position, so that chunks
+     * never split a line.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long offset = position - 1; // the chunk may already end right after a line break
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one chunk and inserts its samples.
+     *
+     * @return the number of loaded and of malformed lines
+     */
+    private static long[] parseChunk(ByteBuffer chunk, DataStorage dataStorage) {
+        SampleBatch batch = new SampleBatch(BATCH_SIZE);
+        CsvTokenizer tokenizer = new CsvTokenizer(FIELDS);
+        long lines = 0;
+        long malformed = 0;
+
+        int limit = chunk.limit();
+        int position = 0;
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int fields = tokenizer.tokenize(chunk, position, lineEnd);
+            if (fields > 0) {
+                if (fields < FIELDS) {
+                    malformed++;
+                } else {
+                    try {
+                        int patientId = tokenizer.parseInt(0);
+                        double value = tokenizer.parseDouble(1);
+                        long timestamp = tokenizer.parseLong(3);
+                        // Intern the type last, so a malformed line leaves no label behind
+                        int typeId = tokenizer.recordType(2);
+                        batch.add(patientId, typeId, timestamp, value);
+                        lines++;
+                        if (batch.isFull()) {
+                            dataStorage.addPatientDataBatch(batch);
+                            batch.clear();
+                        }
+                    } catch (NumberFormatException e) {
+                        malformed++;
+                    }
+                }
+            }
+            position = lineEnd + 1;
+        }
+        if (batch.size() > 0) {
+            dataStorage.addPatientDataBatch(batch);
+        }
+        return new long[] { lines, malformed };
+    }
+}
@@ -0,0 +1,77 @@
+package com.data_management;
+
+/**
+ * Summary of a bulk load: how much was read and how fast.
+ */
+public final class BulkLoadReport {
+    private final int files;
+    private final long lines;
+    private final long malformedLines;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param files          number of files read
+     * @param lines          number of samples loaded
+     * @param malformedLines number of non-empty lines that could not be parsed
+     * @param bytes          number of bytes read
+     * @param elapsedNanos   wall-clock duration of the load
+     */
+    public BulkLoadReport(int files, long lines, long malformedLines, long bytes, long elapsedNanos) {
+        this.files = files;
+        this.lines = lines;
+        this.malformedLines = malformedLines;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return number of files read
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return number of samples loaded
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return number of non-empty lines that could not be parsed
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * @return number of bytes read
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return wall-clock duration of the load, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return loaded lines per second of wall-clock time
+     */
+    public double getLinesPerSecond() {
+        return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d lines (%d malformed) from %d files, %.1f MB in %.3f s: %.0f lines/s",
+                lines, malformedLines, files, bytes / 1e6, elapsedNanos / 1e9, getLinesPerSecond());
+    }
+}
@@ -0,0 +1,312 @@
+package com.data_management;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits comma-separated lines into fields and parses the fields in place,
+ * without String.split, trim or substrings. Works on Strings and other
+ * CharSequences as well as on byte buffers such as memory-mapped files.
+ * After {@link #tokenize}, fields are addressed by index and parsed with
+ * {@link #parseInt}, {@link #parseLong}, {@link #parseDouble} and
+ * {@link #recordType}; none of these allocate in the common case.
+ *
+ * Fields are trimmed like String.trim. Numbers use the same syntax as
+ * Integer.parseInt, Long.parseLong and Double.parseDouble and throw
+ * NumberFormatException the same way. A tokenizer keeps state between calls,
+ * so every thread needs its own instance.
+ */
+public final class CsvTokenizer {
+
+    // Largest long that converts to double exactly; see parseDouble
+    private static final long EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int maxFields;
+    private final int[] starts;
+    private final int[] ends;
+    private int fields;
+
+    // The current line, copied once so every pass below is a plain array read.
+    // Field bounds are indices into it.
+    private char[] line = new char[128];
+    // Set when the line came from a byte buffer, to decode text as UTF-8
+    private ByteBuffer bytes;
+    private int bytesOffset;
+
+    // Record types seen so far, matched by content
+    private char[][] typeNames = new char[8][];
+    private int[] typeIds = new int[8];
+    private int typeCount;
+
+    /**
+     * Creates a tokenizer.
+     *
+     * @param maxFields number of leading fields to split; further fields are ignored
+     */
+    public CsvTokenizer(int maxFields) {
+        this.maxFields = maxFields;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+    }
+
+    /**
+     * Splits a line into fields.
+     *
+     * @param line the line, without line terminator
+     * @return 0 for a blank line, otherwise the number of fields found, at most maxFields
+     */
+    public int tokenize(CharSequence line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    /**
+     * Splits a line that is part of a longer text, such as one line of a
+     * message holding several, into fields.
+     *
+     * @param text the text holding the line
+     * @param from index of the first character of the line
+     * @param to   index just past the line, without line terminator
+     * @return 0 for a blank line, otherwise the number of fields found, at most maxFields
+     */
+    public int tokenize(CharSequence text, int from, int to) {
+        int length = to - from;
+        char[] target = reserve(length);
+        if (text instanceof String string) {
+            string.getChars(from, to, target, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                target[i] = text.charAt(from + i);
+            }
+        }
+        this.bytes = null;
+        return split(length);
+    }
+
+    /**
+     * Splits a line stored in a byte buffer into fields. The bytes are read as
+     * single-byte characters; record types may still be UTF-8.
+     *
+     * @param buffer the buffer holding the line
+     * @param from   index of the first byte of the line
+     * @param to     index just past the line, without line terminator
+     * @return 0 for a blank line, otherwise the number of fields found, at most maxFields
+     */
+    public int tokenize(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        char[] target = reserve(length);
+        for (int i = 0; i < length; i++) {
+            target[i] = (char) (buffer.get(from + i) & 0xFF);
+        }
+        this.bytes = buffer;
+        this.bytesOffset = from;
+        return split(length);
+    }
+
+    /**
+     * @return the number of fields found by the last tokenize call
+     */
+    public int fieldCount() {
+        return fields;
+    }
+
+    /**
+     * Parses a field as an int.
+     *
+     * @param field the field index
+     * @return the value
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int parseInt(int field) {
+        long value = parseLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + text(field));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a long.
+     *
+     * @param field the field index
+     * @return the value
+     * @throws NumberFormatException if the field is not a valid long
+     */
+    public long parseLong(int field) {
+        int from = starts[field];
+        int to = ends[field];
+        int i = from;
+        boolean negative = false;
+        if (i < to && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+            }
+            // Accumulate negatively so Long.MIN_VALUE parses too
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+            }
+            return -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a field as a double. Plain decimals such as {@code -12.75} are
+     * parsed directly: when the digits fit into 53 bits and there are at most 22
+     * fraction digits, dividing by an exact power of ten gives the correctly
+     * rounded result, the same as Double.parseDouble. Anything else (exponents,
+     * NaN, long mantissas) falls back to Double.parseDouble.
+     *
+     * @param field the field index
+     * @return the value
+     * @throws NumberFormatException if the field is not a valid double
+     */
+    public double parseDouble(int field) {
+        int from = starts[field];
+        int to = ends[field];
+        int i = from;
+        boolean negative = false;
+        if (i < to && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        boolean digits = false;
+        for (; i < to; i++) {
+            char c = line[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= EXACT_MANTISSA / 10) {
+                    return Double.parseDouble(text(field));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits = true;
+                if (dot) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(text(field));
+            }
+        }
+        if (!digits || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(text(field));
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Looks up a field as a record type. Types already seen by this tokenizer are
+     * matched by content; a String is only created for a new type.
+     *
+     * @param field the field index
+     * @return the interned record type id, see {@link RecordTypeRegistry}
+     * @throws NumberFormatException if the field is empty
+     */
+    public int recordType(int field) {
+        int from = starts[field];
+        int length = ends[field] - from;
+        for (int t = 0; t < typeCount; t++) {
+            if (matches(typeNames[t], from, length)) {
+                return typeIds[t];
+            }
+        }
+        if (length == 0) {
+            throw new NumberFormatException("Empty record type");
+        }
+        String name = text(field);
+        char[] key = Arrays.copyOfRange(line, from, from + length);
+        if (typeCount == typeNames.length) {
+            typeNames = Arrays.copyOf(typeNames, typeCount * 2);
+            typeIds = Arrays.copyOf(typeIds, typeCount * 2);
+        }
+        typeNames[typeCount] = key;
+        typeIds[typeCount] = RecordTypeRegistry.intern(name);
+        return typeIds[typeCount++];
+    }
+
+    /**
+     * Returns a field as a String. Allocates; meant for error messages and rare paths.
+     *
+     * @param field the field index
+     * @return the trimmed field text
+     */
+    public String text(int field) {
+        int from = starts[field];
+        int to = ends[field];
+        if (bytes == null) {
+            return new String(line, from, to - from);
+        }
+        byte[] text = new byte[to - from];
+        bytes.get(bytesOffset + from, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private char[] reserve(int length) {
+        if (line.length < length) {
+            line = new char[Math.max(length, line.length * 2)];
+        }
+        return line;
+    }
+
+    private int split(int to) {
+        char[] line = this.line;
+        fields = 0;
+        int fieldStart = 0;
+        for (int i = 0; i <= to && fields < maxFields; i++) {
+            if (i == to || line[i] == ',') {
+                int start = fieldStart;
+                int end = i;
+                while (start < end && line[start] <= ' ') {
+                    start++;
+                }
+                while (end > start && line[end - 1] <= ' ') {
+                    end--;
+                }
+                starts[fields] = start;
+                ends[fields] = end;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        if (fields == 1 && starts[0] == ends[0]) {
+            fields = 0;
+        }
+        return fields;
+    }
+
+    private boolean matches(char[] name, int from, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != line[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
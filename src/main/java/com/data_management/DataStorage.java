@@ -5,8 +5,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import com.alerts.AlertGenerator;
+import com.alerts.PartitionedAlertEvaluator;
+import com.alerts.dispatch.AlertDispatcher;
+import com.data_management.segment.SegmentStore;
 
 /**
  * Manages storage and retrieval of patient data within a healthcare monitoring
@@ -16,7 +19,11 @@ import com.alerts.AlertGenerator;
  * This class is a singleton, hence ensured that only one instance exists globally.
  */
 public class DataStorage {
-    private Map<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
+    private final Map<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
+    // Listeners notified of every stored sample; registration is rare, notification is hot
+    private final List<PatientDataListener> listeners = new CopyOnWriteArrayList<>();
+    // Cold storage for offloaded history, null if everything is kept in memory
+    private volatile SegmentStore segmentStore;
     
     // The instance of DataStorage for the Singleton pattern.
     private static DataStorage instance;
@@ -47,6 +54,8 @@ public class DataStorage {
      * If the patient does not exist, a new Patient object is created and added to
      * the storage.
      * Otherwise, the new data is added to the existing patient's records.
+     * Registered {@link PatientDataListener}s are notified after the data is stored.
+     * This method is safe to call from many threads at once.
      *
      * @param patientId        the unique identifier of the patient
      * @param measurementValue the value of the health metric being recorded
@@ -56,17 +65,92 @@ public class DataStorage {
      *                         milliseconds since the Unix epoch
      */
     public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
-        Patient patient = patientMap.get(patientId);
-        if (patient == null) {
-            patient = new Patient(patientId);
-            patientMap.put(patientId, patient);
+        addPatientData(patientId, measurementValue, recordType, timestamp, null);
+    }
+
+    /**
+     * Adds patient data with additional information, such as "triggered" or
+     * "resolved" for an "Alert" record. Listeners receive the information too.
+     * This method is safe to call from many threads at once.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     * @param additionalInfo   the additional information, or null if there is none
+     */
+    public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) {
+        // computeIfAbsent creates the patient atomically, so concurrent first samples
+        // of the same patient can never end up in two different Patient objects
+        Patient patient = getOrCreatePatient(patientId);
+        patient.addRecord(measurementValue, recordType, timestamp, additionalInfo);
+        for (PatientDataListener listener : listeners) {
+            listener.onPatientData(patientId, measurementValue, recordType, timestamp, additionalInfo);
+        }
+    }
+
+    /**
+     * Adds a batch of samples. Equivalent to calling
+     * {@link #addPatientData(int, double, String, long)} for every sample, but
+     * consecutive samples of the same patient share one patient lookup.
+     * Listeners are notified after the whole batch is stored.
+     *
+     * @param batch the samples to add
+     */
+    public void addPatientDataBatch(SampleBatch batch) {
+        Patient patient = null;
+        for (int i = 0; i < batch.size(); i++) {
+            int patientId = batch.patientIdAt(i);
+            if (patient == null || patient.getPatientId() != patientId) {
+                patient = getOrCreatePatient(patientId);
+            }
+            patient.addRecord(batch.valueAt(i), batch.typeIdAt(i), batch.timestampAt(i));
+        }
+        if (listeners.isEmpty()) {
+            return;
         }
-        patient.addRecord(measurementValue, recordType, timestamp);
+        for (int i = 0; i < batch.size(); i++) {
+            String recordType = RecordTypeRegistry.name(batch.typeIdAt(i));
+            for (PatientDataListener listener : listeners) {
+                listener.onPatientData(batch.patientIdAt(i), batch.valueAt(i), recordType, batch.timestampAt(i));
+            }
+        }
+    }
+
+    /**
+     * Registers a listener that is notified of every sample added from now on.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(PatientDataListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(PatientDataListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Attaches cold storage. From now on {@link #getRecords(int, long, long)} merges
+     * the in-memory records with the samples offloaded to the segment store.
+     *
+     * @param segmentStore the segment store, or null to detach it
+     */
+    public void setSegmentStore(SegmentStore segmentStore) {
+        this.segmentStore = segmentStore;
     }
 
     /**
      * Retrieves a list of PatientRecord objects for a specific patient, filtered by
      * a time range.
+     * If a segment store is attached, offloaded history is included.
      *
      * @param patientId the unique identifier of the patient whose records are to be
      *                  retrieved
@@ -80,11 +164,37 @@ public class DataStorage {
     public List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
         Patient patient = patientMap.get(patientId);
         if (patient != null) {
+            SegmentStore cold = segmentStore;
+            if (cold != null) {
+                return cold.getRecords(patient, startTime, endTime);
+            }
             return patient.getRecords(startTime, endTime);
         }
         return new ArrayList<>(); // return an empty list if no patient is found
     }
 
+    /**
+     * Returns the patient with the given ID without creating it.
+     *
+     * @param patientId the unique identifier of the patient
+     * @return the stored patient, or null if there is none
+     */
+    public Patient getPatient(int patientId) {
+        return patientMap.get(patientId);
+    }
+
+    /**
+     * Returns the patient with the given ID, creating an empty one if it does not
+     * exist yet. Records added directly to the returned patient do not notify
+     * listeners, which is what bulk loads such as crash recovery need.
+     *
+     * @param patientId the unique identifier of the patient
+     * @return the stored patient
+     */
+    public Patient getOrCreatePatient(int patientId) {
+        return patientMap.computeIfAbsent(patientId, Patient::new);
+    }
+
     /**
      * Retrieves a collection of all patients stored in the data storage.
      *
@@ -129,12 +239,20 @@ public class DataStorage {
                     ", Timestamp: " + record.getTimestamp());
         }
 
-        // Initialize the AlertGenerator with the storage
-        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        // Initialize the alert evaluation with the storage, one partition per core
+        PartitionedAlertEvaluator alertEvaluator = new PartitionedAlertEvaluator(storage);
 
         // Evaluate all patients' data to check for conditions that may trigger alerts
-        for (Patient patient : storage.getAllPatients()) {
-            alertGenerator.evaluateData(patient);
+        alertEvaluator.evaluateAll(storage.getAllPatients());
+        alertEvaluator.shutdown();
+
+        // Alerts are printed by daemon threads; let them finish before the JVM exits
+        try {
+            if (!AlertDispatcher.shared().awaitDelivery(10_000)) {
+                System.err.println("Not all alerts were printed before exiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
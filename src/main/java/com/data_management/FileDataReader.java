@@ -9,6 +9,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Reads patient data from output files in a specified directory and loads it into DataStorage.
@@ -34,6 +35,45 @@ public class FileDataReader implements DataReader {
      */
     @Override
     public void readData(DataStorage dataStorage) throws IOException {
+        // Process each file found
+        for (Path file : listFiles()) {
+            processFile(file.toFile(), dataStorage);
+        }
+    }
+
+    /**
+     * Bulk-loads all files in the output directory, using one parser thread per
+     * available processor. Files are memory-mapped, split into line-aligned chunks
+     * and parsed in parallel straight from the bytes; samples are inserted in
+     * batches. Malformed lines are counted instead of logged one by one.
+     *
+     * @param dataStorage the storage where data will be stored
+     * @return the number of lines loaded and the throughput
+     * @throws IOException if there is an error reading the directory or files
+     */
+    public BulkLoadReport readDataBulk(DataStorage dataStorage) throws IOException {
+        return readDataBulk(dataStorage, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Bulk-loads all files in the output directory with the given number of parser threads.
+     *
+     * @param dataStorage the storage where data will be stored
+     * @param parallelism number of parser threads
+     * @return the number of lines loaded and the throughput
+     * @throws IOException if there is an error reading the directory or files
+     */
+    public BulkLoadReport readDataBulk(DataStorage dataStorage, int parallelism) throws IOException {
+        return new BulkFileLoader(parallelism, BulkFileLoader.DEFAULT_CHUNK_SIZE).load(listFiles(), dataStorage);
+    }
+
+    /**
+     * Collects all regular files in the output directory (recursively).
+     *
+     * @return the files to read
+     * @throws IOException if the directory does not exist or cannot be read
+     */
+    private List<Path> listFiles() throws IOException {
         Path directoryPath = Paths.get(outputDirectory);
 
         // Ensure the directory exists and is valid
@@ -41,15 +81,8 @@ public class FileDataReader implements DataReader {
             throw new IOException("Output directory does not exist or is not a directory: " + outputDirectory);
         }
 
-        // Collect all regular files in the directory (recursively)
-        List<File> files = Files.walk(directoryPath)
-                .filter(Files::isRegularFile)
-                .map(Path::toFile)
-                .collect(Collectors.toList());
-
-        // Process each file found
-        for (File file : files) {
-            processFile(file, dataStorage);
+        try (Stream<Path> paths = Files.walk(directoryPath)) {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toList());
         }
     }
 
@@ -62,22 +95,24 @@ public class FileDataReader implements DataReader {
      * @throws IOException if an error occurs while reading the file
      */
     private void processFile(File file, DataStorage dataStorage) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(4);
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
 
             while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
+                int fields = tokenizer.tokenize(line);
+                if (fields == 0) {
                     continue; // Skip empty lines
                 }
 
                 try {
-                    // Parse the line and add the data to storage
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) {
-                        int patientId = Integer.parseInt(parts[0].trim());
-                        double measurementValue = Double.parseDouble(parts[1].trim());
-                        String recordType = parts[2].trim();
-                        long timestamp = Long.parseLong(parts[3].trim());
+                    // Parse the line in place and add the data to storage
+                    if (fields >= 4) {
+                        int patientId = tokenizer.parseInt(0);
+                        double measurementValue = tokenizer.parseDouble(1);
+                        long timestamp = tokenizer.parseLong(3);
+                        // Intern the type last, so a malformed line leaves no label behind
+                        String recordType = RecordTypeRegistry.name(tokenizer.recordType(2));
 
                         dataStorage.addPatientData(patientId, measurementValue, recordType, timestamp);
                     } else {
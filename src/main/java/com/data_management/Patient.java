@@ -1,6 +1,7 @@
 package com.data_management;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -8,20 +9,29 @@ import java.util.HashMap;
 /**
  * Represents a patient and manages their medical records.
  * Stores patient-specific data and provides methods to add and retrieve records.
+ * Records are stored column-wise: one {@link TimeSeriesColumn} per record type,
+ * indexed by the type id from {@link RecordTypeRegistry}. PatientRecord objects
+ * are only created when records are read through the list views.
+ *
+ * Records may be added from many threads at once. Looking up a column is
+ * lock-free; each column serializes its own appends, so threads writing
+ * different patients or record types never contend.
  */
 public class Patient {
-    private int patientId;
-    private List<PatientRecord> patientRecords;
+    private final int patientId;
+    // Indexed by record type id, null for unseen types. Replaced as a whole when a
+    // type is added, so readers and appenders never need a lock to find a column.
+    private volatile TimeSeriesColumn[] columns;
 
     /**
      * Constructs a new Patient with a specified ID.
-     * Initializes an empty list of patient records.
+     * Initializes an empty set of record columns.
      *
      * @param patientId the unique identifier for the patient
      */
     public Patient(int patientId) {
         this.patientId = patientId;
-        this.patientRecords = new ArrayList<>();
+        this.columns = new TimeSeriesColumn[Math.max(RecordTypeRegistry.size(), 8)];
     }
 
     /**
@@ -41,8 +51,7 @@ public class Patient {
      * @param timestamp        the time at which the measurement was taken, in milliseconds since UNIX epoch
      */
     public void addRecord(double measurementValue, String recordType, long timestamp) {
-        PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
-        this.patientRecords.add(record);
+        column(RecordTypeRegistry.intern(recordType)).append(timestamp, measurementValue, null);
     }
 
     /**
@@ -54,37 +63,70 @@ public class Patient {
      * @param additionalInfo   additional information associated with the record
      */
     public void addRecord(double measurementValue, String recordType, long timestamp, String additionalInfo) {
-        PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp, additionalInfo);
-        this.patientRecords.add(record);
+        column(RecordTypeRegistry.intern(recordType)).append(timestamp, measurementValue, additionalInfo);
+    }
+
+    /**
+     * Adds a record whose record type is already interned. Used by batch inserts.
+     *
+     * @param measurementValue the measurement value to store
+     * @param typeId           the interned record type id, see {@link RecordTypeRegistry}
+     * @param timestamp        the time at which the measurement was taken
+     */
+    void addRecord(double measurementValue, int typeId, long timestamp) {
+        column(typeId).append(timestamp, measurementValue, null);
     }
 
     /**
      * Retrieves a list of PatientRecord objects for this patient that fall within a specified time range.
+     * Records are returned in timestamp order. The range is located by binary search
+     * in every record type column, so the cost depends on the number of matching
+     * records rather than on the size of the patient's history.
      *
      * @param startTime the start of the time range, in milliseconds since UNIX epoch
      * @param endTime   the end of the time range, in milliseconds since UNIX epoch
      * @return a list of PatientRecord objects that fall within the specified time range
      */
     public List<PatientRecord> getRecords(long startTime, long endTime) {
-        List<PatientRecord> filteredRecords = new ArrayList<>();
-        for (PatientRecord record : patientRecords) {
-            if (record.getTimestamp() >= startTime && record.getTimestamp() <= endTime) {
-                filteredRecords.add(record);
+        return getRecords(startTime, endTime, new ArrayList<>());
+    }
+
+    /**
+     * Retrieves the records within a time range, merging the in-memory columns
+     * with runs of older samples that are stored elsewhere, such as cold segments.
+     * The extra runs must already be restricted to the time range.
+     *
+     * @param startTime the start of the time range, in milliseconds since UNIX epoch
+     * @param endTime   the end of the time range, in milliseconds since UNIX epoch
+     * @param coldRuns  additional sample runs of this patient within the range
+     * @return the records of both sources, in timestamp order
+     */
+    public List<PatientRecord> getRecords(long startTime, long endTime, List<? extends SampleRun> coldRuns) {
+        List<SampleRun> runs = new ArrayList<>(coldRuns);
+        if (startTime <= endTime) {
+            for (TimeSeriesColumn column : columns) {
+                if (column != null) {
+                    runs.add(column.slice(startTime, endTime));
+                }
             }
         }
-        return filteredRecords;
+        return merge(runs);
     }
 
     /**
      * Retrieve all records for this patient, in the order of record type.
+     * Within a record type, records are in timestamp order.
      *
      * @return a map of record types to lists of records
      */
     public Map<String, List<PatientRecord>> getRecordsByType() {
         Map<String, List<PatientRecord>> recordsByType = new HashMap<>();
-        for (PatientRecord record : patientRecords) {
-            String recordType = record.getRecordType();
-            recordsByType.computeIfAbsent(recordType, k -> new ArrayList<>()).add(record);
+        for (TimeSeriesColumn column : columns) {
+            if (column != null && column.size() > 0) {
+                List<PatientRecord> records = merge(
+                        List.of(column.slice(Long.MIN_VALUE, Long.MAX_VALUE)));
+                recordsByType.put(RecordTypeRegistry.name(column.getTypeId()), records);
+            }
         }
         return recordsByType;
     }
@@ -95,6 +137,89 @@ public class Patient {
      * @return a list of all patient records
      */
     public List<PatientRecord> getAllRecords() {
-        return new ArrayList<>(patientRecords);
+        return getRecords(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the record columns of this patient, one per record type seen so far.
+     * Used by maintenance tasks such as retention that work on the raw columns.
+     *
+     * @return the record type columns
+     */
+    public List<TimeSeriesColumn> getColumns() {
+        List<TimeSeriesColumn> result = new ArrayList<>();
+        for (TimeSeriesColumn column : columns) {
+            if (column != null) {
+                result.add(column);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the column for a record type, creating it on first use.
+     * Creating a column is rare, so it copies the column array under the patient's
+     * lock and publishes the copy; the common case is a single volatile read.
+     *
+     * @param typeId the interned record type id
+     * @return the column holding that record type
+     */
+    private TimeSeriesColumn column(int typeId) {
+        TimeSeriesColumn[] current = columns;
+        if (typeId < current.length && current[typeId] != null) {
+            return current[typeId];
+        }
+        synchronized (this) {
+            current = columns;
+            if (typeId < current.length && current[typeId] != null) {
+                return current[typeId];
+            }
+            TimeSeriesColumn[] grown = Arrays.copyOf(current, Math.max(typeId + 1, current.length));
+            TimeSeriesColumn column = new TimeSeriesColumn(typeId);
+            grown[typeId] = column;
+            columns = grown;
+            return column;
+        }
+    }
+
+    /**
+     * Merges sorted sample runs into a lazy record view, ordered by timestamp.
+     *
+     * @param runs the runs to merge
+     * @return a view over all samples of the runs
+     */
+    private List<PatientRecord> merge(List<? extends SampleRun> runs) {
+        SampleRun[] sources = runs.toArray(new SampleRun[0]);
+        int[] next = new int[sources.length];
+        int capacity = 0;
+        boolean withInfo = false;
+        for (SampleRun run : sources) {
+            capacity += run.size();
+            withInfo |= run.hasInfo();
+        }
+
+        long[] timestamps = new long[capacity];
+        double[] values = new double[capacity];
+        int[] typeIds = new int[capacity];
+        String[] infos = withInfo ? new String[capacity] : null;
+        for (int count = 0; count < capacity; count++) {
+            // Pick the run whose next sample is the oldest; there are only a handful of runs
+            int oldest = -1;
+            for (int r = 0; r < sources.length; r++) {
+                if (next[r] < sources[r].size() && (oldest < 0
+                        || sources[r].timestampAt(next[r]) < sources[oldest].timestampAt(next[oldest]))) {
+                    oldest = r;
+                }
+            }
+            SampleRun run = sources[oldest];
+            int index = next[oldest]++;
+            timestamps[count] = run.timestampAt(index);
+            values[count] = run.valueAt(index);
+            typeIds[count] = run.getTypeId();
+            if (infos != null) {
+                infos[count] = run.infoAt(index);
+            }
+        }
+        return new PatientRecordView(patientId, timestamps, values, typeIds, infos, capacity);
     }
 }
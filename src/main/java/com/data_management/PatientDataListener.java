@@ -0,0 +1,37 @@
+package com.data_management;
+
+/**
+ * Receives every sample that is added to a {@link DataStorage}.
+ * Listeners are called on the thread that adds the data, right after the sample
+ * has been stored, so implementations should return quickly.
+ */
+public interface PatientDataListener {
+
+    /**
+     * Called once for each new sample stored for a patient.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "SystolicBP"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    void onPatientData(int patientId, double measurementValue, String recordType, long timestamp);
+
+    /**
+     * Called once for each new sample stored for a patient, with the additional
+     * information stored along with it, such as "triggered" or "resolved" for an
+     * "Alert" record. The default ignores the information.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Alert"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     * @param additionalInfo   the additional information, or null if there is none
+     */
+    default void onPatientData(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) {
+        onPatientData(patientId, measurementValue, recordType, timestamp);
+    }
+}
@@ -0,0 +1,77 @@
+package com.data_management;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Lazy list of PatientRecord objects over a primitive snapshot of a patient's columns.
+ * Samples are copied out of the columns as primitives (so later writes do not affect
+ * the list) and a PatientRecord is only created when an element is actually read.
+ * The list is detached from the patient: elements can be removed, but not added.
+ */
+class PatientRecordView extends AbstractList<PatientRecord> implements RandomAccess {
+
+    private final int patientId;
+    private final long[] timestamps;
+    private final double[] values;
+    private final int[] typeIds;
+    private final String[] infos; // null if none of the samples carry additional info
+    private int size;
+
+    /**
+     * Creates a view over the first {@code size} entries of the given arrays.
+     *
+     * @param patientId  the patient the records belong to
+     * @param timestamps sample timestamps
+     * @param values     sample values
+     * @param typeIds    interned record type id of each sample
+     * @param infos      additional info of each sample, or null if there is none
+     * @param size       the number of valid entries
+     */
+    PatientRecordView(int patientId, long[] timestamps, double[] values, int[] typeIds, String[] infos, int size) {
+        this.patientId = patientId;
+        this.timestamps = timestamps;
+        this.values = values;
+        this.typeIds = typeIds;
+        this.infos = infos;
+        this.size = size;
+    }
+
+    @Override
+    public PatientRecord get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        String info = infos != null && infos[index] != null ? infos[index] : "";
+        return new PatientRecord(patientId, values[index], RecordTypeRegistry.name(typeIds[index]),
+                timestamps[index], info);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PatientRecord remove(int index) {
+        PatientRecord removed = get(index);
+        int tail = size - index - 1;
+        if (tail > 0) {
+            System.arraycopy(timestamps, index + 1, timestamps, index, tail);
+            System.arraycopy(values, index + 1, values, index, tail);
+            System.arraycopy(typeIds, index + 1, typeIds, index, tail);
+            if (infos != null) {
+                System.arraycopy(infos, index + 1, infos, index, tail);
+            }
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+}
@@ -0,0 +1,94 @@
+package com.data_management;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns record type names (e.g. "ECG", "SystolicBP") into small integer ids.
+ * The storage engine keys its per-type columns by these ids so that a sample
+ * does not have to carry its own String reference.
+ * Ids are assigned in first-seen order and are never reused.
+ */
+public final class RecordTypeRegistry {
+
+    // Maps a record type name to its id
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Maps an id back to its (canonical) record type name
+    private static volatile String[] names = new String[16];
+    private static int nextId = 0;
+
+    /**
+     * RecordTypeRegistry only exposes static methods.
+     */
+    private RecordTypeRegistry() {
+    }
+
+    /**
+     * Returns the id for the given record type, registering it if it is new.
+     *
+     * @param recordType the record type name
+     * @return the interned id of the record type
+     */
+    public static int intern(String recordType) {
+        Integer id = ids.get(recordType);
+        if (id != null) {
+            return id;
+        }
+        return register(recordType);
+    }
+
+    /**
+     * Returns the id for the given record type without registering it.
+     *
+     * @param recordType the record type name
+     * @return the interned id, or -1 if the type has never been seen
+     */
+    public static int lookup(String recordType) {
+        Integer id = ids.get(recordType);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the canonical record type name for an id.
+     *
+     * @param typeId an id previously returned by {@link #intern(String)}
+     * @return the record type name
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public static String name(int typeId) {
+        String[] snapshot = names;
+        if (typeId < 0 || typeId >= snapshot.length || snapshot[typeId] == null) {
+            throw new IllegalArgumentException("Unknown record type id: " + typeId);
+        }
+        return snapshot[typeId];
+    }
+
+    /**
+     * Returns the number of record types registered so far.
+     *
+     * @return the number of known record types
+     */
+    public static synchronized int size() {
+        return nextId;
+    }
+
+    /**
+     * Registers a new record type under the next free id.
+     */
+    private static synchronized int register(String recordType) {
+        Integer existing = ids.get(recordType);
+        if (existing != null) {
+            return existing;
+        }
+        int id = nextId++;
+        String[] current = names;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = recordType;
+        // Publish the name before the id so readers never see an id without a name
+        names = current;
+        ids.put(recordType, id);
+        return id;
+    }
+}
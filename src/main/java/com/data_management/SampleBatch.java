@@ -0,0 +1,101 @@
+package com.data_management;
+
+/**
+ * A reusable batch of samples in parallel primitive arrays, used to insert many
+ * samples into {@link DataStorage} with one call. Record types are stored as
+ * interned ids from {@link RecordTypeRegistry}, so filling a batch does not
+ * allocate.
+ */
+public final class SampleBatch {
+
+    private final int[] patientIds;
+    private final int[] typeIds;
+    private final long[] timestamps;
+    private final double[] values;
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param capacity the maximum number of samples in the batch
+     */
+    public SampleBatch(int capacity) {
+        this.patientIds = new int[capacity];
+        this.typeIds = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Adds a sample to the batch.
+     *
+     * @param patientId the patient ID
+     * @param typeId    the interned record type id
+     * @param timestamp the measurement time, in milliseconds since UNIX epoch
+     * @param value     the measurement value
+     * @throws IllegalStateException if the batch is full
+     */
+    public void add(int patientId, int typeId, long timestamp, double value) {
+        if (size == patientIds.length) {
+            throw new IllegalStateException("Sample batch is full");
+        }
+        patientIds[size] = patientId;
+        typeIds[size] = typeId;
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * @return the number of samples in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no more samples fit into the batch
+     */
+    public boolean isFull() {
+        return size == patientIds.length;
+    }
+
+    /**
+     * Empties the batch so it can be filled again.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param index the sample index
+     * @return the patient ID of the sample at the index
+     */
+    public int patientIdAt(int index) {
+        return patientIds[index];
+    }
+
+    /**
+     * @param index the sample index
+     * @return the interned record type id of the sample at the index
+     */
+    public int typeIdAt(int index) {
+        return typeIds[index];
+    }
+
+    /**
+     * @param index the sample index
+     * @return the timestamp of the sample at the index
+     */
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * @param index the sample index
+     * @return the measurement value of the sample at the index
+     */
+    public double valueAt(int index) {
+        return values[index];
+    }
+}
@@ -0,0 +1,42 @@
+package com.data_management;
+
+/**
+ * A run of samples of one record type of one patient, sorted by timestamp.
+ * Runs are what record queries merge: copied slices of in-memory columns and
+ * runs read straight from cold storage alike.
+ */
+public interface SampleRun {
+
+    /**
+     * @return the interned record type id of the samples
+     */
+    int getTypeId();
+
+    /**
+     * @return the number of samples in the run
+     */
+    int size();
+
+    /**
+     * @param index the sample index
+     * @return the timestamp of the sample at the index
+     */
+    long timestampAt(int index);
+
+    /**
+     * @param index the sample index
+     * @return the value of the sample at the index
+     */
+    double valueAt(int index);
+
+    /**
+     * @param index the sample index
+     * @return the additional info of the sample at the index, or an empty string
+     */
+    String infoAt(int index);
+
+    /**
+     * @return true if any sample in the run may carry additional info
+     */
+    boolean hasInfo();
+}
@@ -0,0 +1,339 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage for all samples of one record type of one patient.
+ * Timestamps and values are kept in growable primitive arrays, so a sample
+ * costs 16 bytes instead of a full PatientRecord object.
+ * Additional info strings are rare (only manual alerts use them), so that
+ * column is only allocated once the first non-empty info is appended.
+ *
+ * Samples are kept sorted by timestamp so that time ranges can be located by
+ * binary search. In-order samples are appended directly; the occasional late
+ * sample goes into a small sorted reorder buffer that is merged into the main
+ * arrays when it fills up or before the column is read.
+ *
+ * All methods are synchronized on the column. Readers copy what they need into
+ * a {@link Slice} while holding the lock, so the lock is only held for the copy
+ * and a background task evicting old samples never blocks a writer for long.
+ */
+public final class TimeSeriesColumn {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // Number of out-of-order samples held back before they are merged in
+    private static final int REORDER_CAPACITY = 32;
+
+    private final int typeId;
+    private long[] timestamps;
+    private double[] values;
+    private String[] infos; // null until a record with additional info is added
+    private int head; // index of the oldest live sample; samples before it were evicted
+    private int end; // index just past the newest live sample
+
+    // Reorder buffer for late samples, sorted by timestamp
+    private final long[] pendingTimestamps = new long[REORDER_CAPACITY];
+    private final double[] pendingValues = new double[REORDER_CAPACITY];
+    private final String[] pendingInfos = new String[REORDER_CAPACITY];
+    private int pending;
+
+    /**
+     * Creates an empty column for the given record type.
+     *
+     * @param typeId the interned record type id, see {@link RecordTypeRegistry}
+     */
+    public TimeSeriesColumn(int typeId) {
+        this.typeId = typeId;
+        this.timestamps = new long[INITIAL_CAPACITY];
+        this.values = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the interned record type id of this column
+     */
+    public int getTypeId() {
+        return typeId;
+    }
+
+    /**
+     * @return the number of samples in this column, including buffered late samples
+     */
+    public synchronized int size() {
+        return end - head + pending;
+    }
+
+    /**
+     * Adds a sample to the column, keeping the column sorted by timestamp.
+     *
+     * @param timestamp      the time of the measurement, in milliseconds since UNIX epoch
+     * @param value          the measurement value
+     * @param additionalInfo optional additional information, may be null or empty
+     */
+    public synchronized void append(long timestamp, double value, String additionalInfo) {
+        String info = additionalInfo != null && !additionalInfo.isEmpty() ? additionalInfo : null;
+        if (end == head || timestamp >= timestamps[end - 1]) {
+            appendInOrder(timestamp, value, info);
+        } else {
+            bufferLate(timestamp, value, info);
+        }
+    }
+
+    /**
+     * Copies the samples within a time range. The range is located by binary search.
+     *
+     * @param startTime inclusive start of the time range
+     * @param endTime   inclusive end of the time range
+     * @return the matching samples, in timestamp order
+     */
+    public synchronized Slice slice(long startTime, long endTime) {
+        mergePending();
+        int from = lowerBound(startTime);
+        int to = Math.max(from, upperBound(endTime));
+        return copy(from, to);
+    }
+
+    /**
+     * Removes all samples older than the cutoff and returns them.
+     * Evicting only moves the start of the column; the arrays are compacted once
+     * more than half of their capacity is evicted.
+     *
+     * @param cutoff samples with a timestamp before this time are removed
+     * @return the removed samples, in timestamp order
+     */
+    public synchronized Slice evictBefore(long cutoff) {
+        mergePending();
+        int to = lowerBound(cutoff);
+        Slice evicted = copy(head, to);
+        if (infos != null) {
+            Arrays.fill(infos, head, to, null);
+        }
+        head = to;
+        if (head > timestamps.length / 2) {
+            compact();
+        }
+        return evicted;
+    }
+
+    /**
+     * Merges the reorder buffer into the sorted main arrays.
+     */
+    private void mergePending() {
+        if (pending == 0) {
+            return;
+        }
+        ensureCapacity(end + pending);
+        if (infos == null && hasPendingInfo()) {
+            infos = new String[timestamps.length];
+        }
+        // Merge from the back so every element is moved at most once
+        int target = end + pending - 1;
+        int main = end - 1;
+        int late = pending - 1;
+        while (late >= 0) {
+            if (main >= head && timestamps[main] > pendingTimestamps[late]) {
+                timestamps[target] = timestamps[main];
+                values[target] = values[main];
+                if (infos != null) {
+                    infos[target] = infos[main];
+                }
+                main--;
+            } else {
+                timestamps[target] = pendingTimestamps[late];
+                values[target] = pendingValues[late];
+                if (infos != null) {
+                    infos[target] = pendingInfos[late];
+                }
+                pendingInfos[late] = null;
+                late--;
+            }
+            target--;
+        }
+        end += pending;
+        pending = 0;
+    }
+
+    /**
+     * Appends a sample whose timestamp is not older than the newest stored sample.
+     */
+    private void appendInOrder(long timestamp, double value, String info) {
+        ensureCapacity(end + 1);
+        timestamps[end] = timestamp;
+        values[end] = value;
+        if (info != null) {
+            if (infos == null) {
+                infos = new String[timestamps.length];
+            }
+            infos[end] = info;
+        }
+        end++;
+    }
+
+    /**
+     * Inserts a late sample into the sorted reorder buffer, merging the buffer
+     * into the main arrays first if it is full.
+     */
+    private void bufferLate(long timestamp, double value, String info) {
+        if (pending == REORDER_CAPACITY) {
+            mergePending();
+        }
+        // Insertion sort; equal timestamps keep their arrival order
+        int position = pending;
+        while (position > 0 && pendingTimestamps[position - 1] > timestamp) {
+            pendingTimestamps[position] = pendingTimestamps[position - 1];
+            pendingValues[position] = pendingValues[position - 1];
+            pendingInfos[position] = pendingInfos[position - 1];
+            position--;
+        }
+        pendingTimestamps[position] = timestamp;
+        pendingValues[position] = value;
+        pendingInfos[position] = info;
+        pending++;
+    }
+
+    /**
+     * @return the first live index whose timestamp is {@code >= timestamp}
+     */
+    private int lowerBound(long timestamp) {
+        int low = head;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first live index whose timestamp is {@code > timestamp}
+     */
+    private int upperBound(long timestamp) {
+        int low = head;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies the samples between two array indices into a slice.
+     */
+    private Slice copy(int from, int to) {
+        String[] infoCopy = infos != null ? Arrays.copyOfRange(infos, from, to) : null;
+        return new Slice(typeId, Arrays.copyOfRange(timestamps, from, to),
+                Arrays.copyOfRange(values, from, to), infoCopy, to - from);
+    }
+
+    /**
+     * @return true if a buffered late sample carries additional info
+     */
+    private boolean hasPendingInfo() {
+        for (int i = 0; i < pending; i++) {
+            if (pendingInfos[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Grows every allocated array so it can hold at least the given number of samples.
+     * Evicted space at the start of the arrays is reused first.
+     */
+    private void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        if (head > 0) {
+            int shift = head;
+            compact();
+            required -= shift;
+            if (required <= timestamps.length) {
+                return;
+            }
+        }
+        int capacity = Math.max(required, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        values = Arrays.copyOf(values, capacity);
+        if (infos != null) {
+            infos = Arrays.copyOf(infos, capacity);
+        }
+    }
+
+    /**
+     * Moves the live samples to the start of new arrays sized for them, releasing
+     * the memory of evicted samples.
+     */
+    private void compact() {
+        int live = end - head;
+        int capacity = Math.max(INITIAL_CAPACITY, live * 2);
+        timestamps = Arrays.copyOfRange(timestamps, head, head + capacity);
+        values = Arrays.copyOfRange(values, head, head + capacity);
+        if (infos != null) {
+            infos = Arrays.copyOfRange(infos, head, head + capacity);
+        }
+        head = 0;
+        end = live;
+    }
+
+    /**
+     * An immutable copy of a run of samples from one column, in timestamp order.
+     */
+    public static final class Slice implements SampleRun {
+        private final int typeId;
+        private final long[] timestamps;
+        private final double[] values;
+        private final String[] infos;
+        private final int size;
+
+        Slice(int typeId, long[] timestamps, double[] values, String[] infos, int size) {
+            this.typeId = typeId;
+            this.timestamps = timestamps;
+            this.values = values;
+            this.infos = infos;
+            this.size = size;
+        }
+
+        @Override
+        public int getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long timestampAt(int index) {
+            return timestamps[index];
+        }
+
+        @Override
+        public double valueAt(int index) {
+            return values[index];
+        }
+
+        @Override
+        public String infoAt(int index) {
+            if (infos == null || infos[index] == null) {
+                return "";
+            }
+            return infos[index];
+        }
+
+        @Override
+        public boolean hasInfo() {
+            return infos != null;
+        }
+    }
+}
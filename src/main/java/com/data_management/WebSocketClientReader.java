@@ -1,17 +1,29 @@
 package com.data_management;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CountDownLatch;
 
 /**
  * Reads patient data in real-time from a WebSocket server.
  * Implements DataReader for continuous data ingestion.
+ *
+ * Messages are CSV lines, one sample each; a message may hold several lines
+ * separated by '\n'. A reader created with binary set asks the server for the
+ * binary format in the handshake and then receives frames of many samples,
+ * decoded by {@link BinaryFrameDecoder}; servers without it keep sending CSV,
+ * which is still understood.
  */
 public class WebSocketClientReader implements DataReader {
 
@@ -20,6 +32,11 @@ public class WebSocketClientReader implements DataReader {
     private WebSocketClient client;
     private volatile boolean isConnected = false;
     private DataStorage dataStorage;
+    // Messages arrive on the client's single read thread, so one tokenizer is enough
+    private final CsvTokenizer tokenizer = new CsvTokenizer(4);
+    private final BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+    private final boolean requestBinary;
+    private volatile boolean binary;
 
     /**
      * Create a WebSocketClientReader with default timeout.
@@ -35,8 +52,19 @@ public class WebSocketClientReader implements DataReader {
      * @param endTime Timeout in seconds
      */
     public WebSocketClientReader(String SERVER_URI, int endTime) {
+        this(SERVER_URI, endTime, false);
+    }
+
+    /**
+     * Create a WebSocketClientReader that can ask for the binary format.
+     * @param SERVER_URI WebSocket server URI
+     * @param endTime Timeout in seconds
+     * @param binary true to request binary frames instead of CSV messages
+     */
+    public WebSocketClientReader(String SERVER_URI, int endTime, boolean binary) {
         this.SERVER_URI = SERVER_URI;
         this.endTime = endTime;
+        this.requestBinary = binary;
     }
 
     /**
@@ -78,10 +106,17 @@ public class WebSocketClientReader implements DataReader {
      * Builds a WebSocketClient with handlers for connection and message events.
      */
     private WebSocketClient clientCreation(URI uri, CountDownLatch latch) {
-        return new WebSocketClient(uri) {
+        // The empty protocol accepts a server that doesn't know the binary format
+        Draft_6455 draft = requestBinary
+                ? new Draft_6455(Collections.emptyList(),
+                        List.<IProtocol>of(new Protocol(BinaryFrameDecoder.PROTOCOL), new Protocol("")))
+                : new Draft_6455();
+        return new WebSocketClient(uri, draft) {
             @Override
             public void onOpen(ServerHandshake handshake) {
-                System.out.println("Connected to WebSocket: " + uri);
+                IProtocol protocol = getProtocol();
+                binary = protocol != null && BinaryFrameDecoder.PROTOCOL.equals(protocol.getProvidedProtocol());
+                System.out.println("Connected to WebSocket: " + uri + (binary ? " (binary)" : ""));
                 latch.countDown();
             }
 
@@ -90,6 +125,11 @@ public class WebSocketClientReader implements DataReader {
                 handleMessage(message);
             }
 
+            @Override
+            public void onMessage(ByteBuffer bytes) {
+                handleFrame(bytes);
+            }
+
             @Override
             public void onClose(int code, String reason, boolean remote) {
                 System.out.println("WebSocket closed: " + reason + " (code: " + code + ")");
@@ -113,27 +153,64 @@ public class WebSocketClientReader implements DataReader {
     }
 
     /**
-     * Parses and stores a message from the server.
-     * Expected: patientId,timestamp,recordType,value
+     * Parses and stores a message from the server without splitting it into Strings.
+     * A message holds one or more lines separated by '\n'; each line is expected
+     * as: patientId,timestamp,recordType,value
      */
     private void handleMessage(String message) {
-        if (message == null || message.isEmpty()) return;
-        String[] tokens = message.split(",");
-        if (tokens.length < 4) {
-            System.err.println("Malformed message: " + message);
+        if (message == null) return;
+        int from = 0;
+        while (from < message.length()) {
+            int end = message.indexOf('\n', from);
+            if (end < 0) {
+                end = message.length();
+            }
+            handleLine(message, from, end);
+            from = end + 1;
+        }
+    }
+
+    private void handleLine(String message, int from, int to) {
+        int fields = tokenizer.tokenize(message, from, to);
+        if (fields == 0) return;
+        if (fields < 4) {
+            System.err.println("Malformed message: " + message.substring(from, to));
             return;
         }
         try {
-            int patientId = Integer.parseInt(tokens[0].trim());
-            long timestamp = Long.parseLong(tokens[1].trim());
-            String recordType = tokens[2].trim();
-            double value = Double.parseDouble(tokens[3].trim());
+            int patientId = tokenizer.parseInt(0);
+            long timestamp = tokenizer.parseLong(1);
+            double value = tokenizer.parseDouble(3);
+            // Intern the type last, so a malformed message leaves no label behind
+            String recordType = RecordTypeRegistry.name(tokenizer.recordType(2));
             dataStorage.addPatientData(patientId, value, recordType, timestamp);
         } catch (NumberFormatException e) {
-            System.err.println("Parse error in message: " + message + " - " + e.getMessage());
+            System.err.println("Parse error in message: " + message.substring(from, to) + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes a binary frame straight from the received buffer into the storage.
+     */
+    private void handleFrame(ByteBuffer frame) {
+        long skipped = decoder.getSkippedSamples();
+        try {
+            decoder.decode(frame, dataStorage);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Malformed frame: " + e.getMessage());
+        }
+        if (decoder.getSkippedSamples() > skipped) {
+            System.err.println("Skipped " + (decoder.getSkippedSamples() - skipped) + " non-numeric samples");
         }
     }
 
+    /**
+     * Returns true if the server agreed to send binary frames.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
     /**
      * Returns true if the client is connected.
      */
@@ -0,0 +1,188 @@
+package com.data_management.retention;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.RecordTypeRegistry;
+import com.data_management.TimeSeriesColumn;
+
+/**
+ * Applies a {@link RetentionPolicy} to the data in a {@link DataStorage}.
+ * A compaction pass evicts raw samples that are older than their rule allows,
+ * folds them into min/max/mean rollups and cascades expired rollups into the
+ * coarser tiers. Passes run on a single background thread; each column is only
+ * locked while its expired prefix is cut off, so addPatientData is never
+ * blocked for the duration of a pass.
+ */
+public class RetentionManager {
+
+    private final DataStorage dataStorage;
+    private final RetentionPolicy policy;
+    // Rollup tiers per (patient, record type), see key()
+    private final Map<Long, List<RollupSeries>> rollups = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a retention manager. Nothing is compacted until {@link #start(long)}
+     * or {@link #compact()} is called.
+     *
+     * @param dataStorage the data storage to compact
+     * @param policy      the retention rules to apply
+     */
+    public RetentionManager(DataStorage dataStorage, RetentionPolicy policy) {
+        this.dataStorage = dataStorage;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts periodic background compaction.
+     *
+     * @param intervalMs time between compaction passes, in milliseconds
+     * @throws IllegalStateException if compaction is already running
+     */
+    public synchronized void start(long intervalMs) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Retention compaction is already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "retention-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runScheduledPass, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background compaction. A pass that is already running is finished first.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    /**
+     * Runs one compaction pass relative to the current time.
+     */
+    public void compact() {
+        compact(System.currentTimeMillis());
+    }
+
+    /**
+     * Runs one compaction pass relative to the given time. Passes never overlap.
+     *
+     * @param now the reference time, in milliseconds since UNIX epoch
+     */
+    public synchronized void compact(long now) {
+        Set<Integer> livePatients = new HashSet<>();
+        for (Patient patient : dataStorage.getAllPatients()) {
+            livePatients.add(patient.getPatientId());
+            for (TimeSeriesColumn column : patient.getColumns()) {
+                RetentionRule rule = policy.getRule(RecordTypeRegistry.name(column.getTypeId()));
+                if (rule != null) {
+                    compact(patient.getPatientId(), column, rule, now);
+                }
+            }
+        }
+        // Drop the rollups of patients that were removed from the storage
+        rollups.keySet().removeIf(key -> !livePatients.contains((int) (key >>> 32)));
+    }
+
+    /**
+     * Returns the rollups of a record type at a given resolution whose buckets
+     * overlap a time range.
+     *
+     * @param patientId    the patient ID
+     * @param recordType   the record type
+     * @param resolutionMs the rollup resolution, as configured in the rule
+     * @param startTime    inclusive start of the time range
+     * @param endTime      inclusive end of the time range
+     * @return the rollups in bucket order, or an empty list if there are none
+     */
+    public List<Rollup> getRollups(int patientId, String recordType, long resolutionMs,
+            long startTime, long endTime) {
+        int typeId = RecordTypeRegistry.lookup(recordType);
+        if (typeId < 0) {
+            return new ArrayList<>();
+        }
+        List<RollupSeries> tiers = rollups.get(key(patientId, typeId));
+        if (tiers != null) {
+            for (RollupSeries series : tiers) {
+                if (series.getResolutionMs() == resolutionMs) {
+                    return series.range(startTime, endTime);
+                }
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Applies a rule to one column: raw samples first, then each rollup tier.
+     */
+    private void compact(int patientId, TimeSeriesColumn column, RetentionRule rule, long now) {
+        long key = key(patientId, column.getTypeId());
+        List<RetentionRule.RollupTier> tiers = rule.getRollups();
+
+        if (rule.getRawRetentionMs() != RetentionRule.FOREVER) {
+            TimeSeriesColumn.Slice evicted = column.evictBefore(now - rule.getRawRetentionMs());
+            if (evicted.size() > 0 && !tiers.isEmpty()) {
+                series(key, tiers.get(0).getResolutionMs()).addSamples(evicted);
+            }
+        }
+        for (int i = 0; i < tiers.size(); i++) {
+            RetentionRule.RollupTier tier = tiers.get(i);
+            if (tier.getRetentionMs() == RetentionRule.FOREVER) {
+                continue;
+            }
+            List<Rollup> expired = series(key, tier.getResolutionMs()).evictBefore(now - tier.getRetentionMs());
+            if (!expired.isEmpty() && i + 1 < tiers.size()) {
+                series(key, tiers.get(i + 1).getResolutionMs()).addRollups(expired);
+            }
+        }
+    }
+
+    /**
+     * Returns the rollup series of a column at a resolution, creating it on first use.
+     */
+    private RollupSeries series(long key, long resolutionMs) {
+        List<RollupSeries> tiers = rollups.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        for (RollupSeries series : tiers) {
+            if (series.getResolutionMs() == resolutionMs) {
+                return series;
+            }
+        }
+        RollupSeries series = new RollupSeries(resolutionMs);
+        tiers.add(series);
+        return series;
+    }
+
+    private void runScheduledPass() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next pass retries
+            System.err.println("Retention compaction failed: " + e.getMessage());
+        }
+    }
+
+    private static long key(int patientId, int typeId) {
+        return ((long) patientId << 32) | (typeId & 0xFFFFFFFFL);
+    }
+}
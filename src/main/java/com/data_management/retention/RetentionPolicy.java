@@ -0,0 +1,59 @@
+package com.data_management.retention;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The set of retention rules, keyed by record type.
+ * Record types without a rule fall back to the default rule; if there is no
+ * default rule either, their data is kept forever. Rules can be changed while
+ * compaction is running; the next compaction pass picks them up.
+ */
+public class RetentionPolicy {
+
+    private final Map<String, RetentionRule> rules = new ConcurrentHashMap<>();
+    private volatile RetentionRule defaultRule;
+
+    /**
+     * Sets the rule for a record type, replacing any previous one.
+     *
+     * @param recordType the record type, e.g. "ECG"
+     * @param rule       the rule to apply
+     * @return this policy, for chaining
+     */
+    public RetentionPolicy setRule(String recordType, RetentionRule rule) {
+        rules.put(recordType, rule);
+        return this;
+    }
+
+    /**
+     * Removes the rule for a record type.
+     *
+     * @param recordType the record type
+     */
+    public void removeRule(String recordType) {
+        rules.remove(recordType);
+    }
+
+    /**
+     * Sets the rule for record types that have no rule of their own.
+     *
+     * @param rule the default rule, or null to keep such data forever
+     * @return this policy, for chaining
+     */
+    public RetentionPolicy setDefaultRule(RetentionRule rule) {
+        this.defaultRule = rule;
+        return this;
+    }
+
+    /**
+     * Returns the rule that applies to a record type.
+     *
+     * @param recordType the record type
+     * @return the rule, or null if data of this type is kept forever
+     */
+    public RetentionRule getRule(String recordType) {
+        RetentionRule rule = rules.get(recordType);
+        return rule != null ? rule : defaultRule;
+    }
+}
@@ -0,0 +1,109 @@
+package com.data_management.retention;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Retention rule for one record type: how long raw samples are kept, and which
+ * rollup tiers they are downsampled into afterwards.
+ * For example, raw ECG can be kept for one hour, then as one-minute rollups
+ * for seven days, then as hourly rollups forever:
+ *
+ * <pre>
+ * new RetentionRule(HOUR)
+ *         .addRollup(MINUTE, 7 * DAY)
+ *         .addRollup(HOUR, RetentionRule.FOREVER);
+ * </pre>
+ *
+ * Samples that leave the raw retention are folded into the first tier; buckets
+ * that leave a tier's retention are folded into the next, coarser tier, or
+ * dropped if it is the last one.
+ */
+public final class RetentionRule {
+
+    /** Retention period meaning "never expire". */
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    private final long rawRetentionMs;
+    private final List<RollupTier> rollups = new ArrayList<>();
+
+    /**
+     * Creates a rule that keeps raw samples for the given period.
+     *
+     * @param rawRetentionMs how long raw samples are kept, in milliseconds, or {@link #FOREVER}
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public RetentionRule(long rawRetentionMs) {
+        if (rawRetentionMs <= 0) {
+            throw new IllegalArgumentException("Raw retention must be positive: " + rawRetentionMs);
+        }
+        this.rawRetentionMs = rawRetentionMs;
+    }
+
+    /**
+     * Adds a rollup tier after the existing ones. Each tier must be coarser than
+     * the previous one and its resolution a multiple of it, so that a bucket of one
+     * tier always falls into exactly one bucket of the next.
+     *
+     * @param resolutionMs width of a rollup bucket, in milliseconds
+     * @param retentionMs  how long buckets of this tier are kept, or {@link #FOREVER}
+     * @return this rule, for chaining
+     * @throws IllegalArgumentException if the tier does not fit after the existing ones
+     */
+    public RetentionRule addRollup(long resolutionMs, long retentionMs) {
+        if (resolutionMs <= 0 || retentionMs <= 0) {
+            throw new IllegalArgumentException("Rollup resolution and retention must be positive");
+        }
+        if (!rollups.isEmpty()) {
+            long previous = rollups.get(rollups.size() - 1).getResolutionMs();
+            if (resolutionMs <= previous || resolutionMs % previous != 0) {
+                throw new IllegalArgumentException("Rollup resolution " + resolutionMs
+                        + " must be a larger multiple of the previous resolution " + previous);
+            }
+        }
+        rollups.add(new RollupTier(resolutionMs, retentionMs));
+        return this;
+    }
+
+    /**
+     * @return how long raw samples are kept, in milliseconds
+     */
+    public long getRawRetentionMs() {
+        return rawRetentionMs;
+    }
+
+    /**
+     * @return the rollup tiers, from finest to coarsest
+     */
+    public List<RollupTier> getRollups() {
+        return Collections.unmodifiableList(rollups);
+    }
+
+    /**
+     * One downsampling tier of a rule.
+     */
+    public static final class RollupTier {
+        private final long resolutionMs;
+        private final long retentionMs;
+
+        RollupTier(long resolutionMs, long retentionMs) {
+            this.resolutionMs = resolutionMs;
+            this.retentionMs = retentionMs;
+        }
+
+        /**
+         * @return width of a rollup bucket, in milliseconds
+         */
+        public long getResolutionMs() {
+            return resolutionMs;
+        }
+
+        /**
+         * @return how long buckets of this tier are kept, in milliseconds
+         */
+        public long getRetentionMs() {
+            return retentionMs;
+        }
+    }
+}
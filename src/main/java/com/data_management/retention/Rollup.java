@@ -0,0 +1,82 @@
+package com.data_management.retention;
+
+/**
+ * Summary of the samples of one record type within one time bucket.
+ * Rollups are what remains of raw samples after they leave the raw retention.
+ */
+public final class Rollup {
+    private final long bucketStart;
+    private final long resolutionMs;
+    private final double min;
+    private final double max;
+    private final double sum;
+    private final long count;
+
+    /**
+     * Creates a rollup.
+     *
+     * @param bucketStart  start of the bucket, in milliseconds since UNIX epoch
+     * @param resolutionMs width of the bucket, in milliseconds
+     * @param min          smallest value in the bucket
+     * @param max          largest value in the bucket
+     * @param sum          sum of all values in the bucket
+     * @param count        number of samples in the bucket
+     */
+    public Rollup(long bucketStart, long resolutionMs, double min, double max, double sum, long count) {
+        this.bucketStart = bucketStart;
+        this.resolutionMs = resolutionMs;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    /**
+     * @return start of the bucket, in milliseconds since UNIX epoch
+     */
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    /**
+     * @return width of the bucket, in milliseconds
+     */
+    public long getResolutionMs() {
+        return resolutionMs;
+    }
+
+    /**
+     * @return smallest value in the bucket
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest value in the bucket
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return sum of all values in the bucket
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return number of samples in the bucket
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean of the values in the bucket
+     */
+    public double getMean() {
+        return sum / count;
+    }
+}
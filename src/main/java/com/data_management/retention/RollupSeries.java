@@ -0,0 +1,170 @@
+package com.data_management.retention;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.data_management.TimeSeriesColumn;
+
+/**
+ * Rollup buckets of one record type of one patient at one resolution, sorted by
+ * bucket start and stored in primitive arrays. Buckets are written by the
+ * compaction thread and read by queries, so all methods are synchronized.
+ */
+class RollupSeries {
+
+    private final long resolutionMs;
+    private long[] starts = new long[16];
+    private double[] mins = new double[16];
+    private double[] maxs = new double[16];
+    private double[] sums = new double[16];
+    private long[] counts = new long[16];
+    private int size;
+
+    RollupSeries(long resolutionMs) {
+        this.resolutionMs = resolutionMs;
+    }
+
+    long getResolutionMs() {
+        return resolutionMs;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Folds raw samples into their buckets.
+     */
+    synchronized void addSamples(TimeSeriesColumn.Slice samples) {
+        for (int i = 0; i < samples.size(); i++) {
+            double value = samples.valueAt(i);
+            merge(bucketOf(samples.timestampAt(i)), value, value, value, 1);
+        }
+    }
+
+    /**
+     * Folds buckets of a finer tier into the buckets of this one.
+     */
+    synchronized void addRollups(List<Rollup> rollups) {
+        for (Rollup rollup : rollups) {
+            merge(bucketOf(rollup.getBucketStart()), rollup.getMin(), rollup.getMax(),
+                    rollup.getSum(), rollup.getCount());
+        }
+    }
+
+    /**
+     * Removes all buckets that end at or before the cutoff and returns them.
+     */
+    synchronized List<Rollup> evictBefore(long cutoff) {
+        int expired = firstAfter(minusResolution(cutoff));
+        List<Rollup> evicted = toRollups(0, expired);
+        int live = size - expired;
+        System.arraycopy(starts, expired, starts, 0, live);
+        System.arraycopy(mins, expired, mins, 0, live);
+        System.arraycopy(maxs, expired, maxs, 0, live);
+        System.arraycopy(sums, expired, sums, 0, live);
+        System.arraycopy(counts, expired, counts, 0, live);
+        size = live;
+        return evicted;
+    }
+
+    /**
+     * Returns the buckets that overlap a time range.
+     */
+    synchronized List<Rollup> range(long startTime, long endTime) {
+        if (startTime > endTime) {
+            return new ArrayList<>();
+        }
+        return toRollups(firstAfter(minusResolution(startTime)), firstAfter(endTime));
+    }
+
+    /**
+     * @return the index of the first bucket starting after the given time
+     */
+    private int firstAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Subtracts one bucket width, saturating instead of overflowing for open ranges.
+     */
+    private long minusResolution(long time) {
+        return time < Long.MIN_VALUE + resolutionMs ? Long.MIN_VALUE : time - resolutionMs;
+    }
+
+    private long bucketOf(long timestamp) {
+        return Math.floorDiv(timestamp, resolutionMs) * resolutionMs;
+    }
+
+    /**
+     * Merges a partial aggregate into the bucket starting at the given time,
+     * creating the bucket if needed. Data normally arrives oldest first, so the
+     * bucket is almost always the last one or a new one after it.
+     */
+    private void merge(long start, double min, double max, double sum, long count) {
+        int index;
+        if (size > 0 && starts[size - 1] == start) {
+            index = size - 1;
+        } else if (size == 0 || starts[size - 1] < start) {
+            index = insert(size, start);
+        } else {
+            index = Arrays.binarySearch(starts, 0, size, start);
+            if (index < 0) {
+                index = insert(-index - 1, start);
+            }
+        }
+        if (counts[index] == 0) {
+            mins[index] = min;
+            maxs[index] = max;
+        } else {
+            mins[index] = Math.min(mins[index], min);
+            maxs[index] = Math.max(maxs[index], max);
+        }
+        sums[index] += sum;
+        counts[index] += count;
+    }
+
+    /**
+     * Opens an empty bucket at the given position.
+     */
+    private int insert(int index, long start) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        int moved = size - index;
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(mins, index, mins, index + 1, moved);
+        System.arraycopy(maxs, index, maxs, index + 1, moved);
+        System.arraycopy(sums, index, sums, index + 1, moved);
+        System.arraycopy(counts, index, counts, index + 1, moved);
+        starts[index] = start;
+        sums[index] = 0;
+        counts[index] = 0;
+        size++;
+        return index;
+    }
+
+    private List<Rollup> toRollups(int from, int to) {
+        List<Rollup> rollups = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            rollups.add(new Rollup(starts[i], resolutionMs, mins[i], maxs[i], sums[i], counts[i]));
+        }
+        return rollups;
+    }
+}
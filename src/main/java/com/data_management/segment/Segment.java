@@ -0,0 +1,261 @@
+package com.data_management.segment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.data_management.RecordTypeRegistry;
+import com.data_management.SampleRun;
+
+/**
+ * An immutable, memory-mapped file of cold patient samples.
+ * Samples are stored as fixed-width 16-byte records (long timestamp, double
+ * value), one sorted block per patient and record type. An index sorted by
+ * patient ID and type locates the blocks, so a query binary-searches the index
+ * and then the block, and reads the samples straight from the page cache.
+ *
+ * <pre>
+ * header:     int magic, int version, int typeCount, int entryCount,
+ *             long dictionaryOffset, long indexOffset, long minTimestamp, long maxTimestamp
+ * data:       per entry, count x (long timestamp, double value)
+ * infos:      per entry with infos, int n, n x (int sampleIndex, short length, UTF-8 bytes)
+ * dictionary: typeCount x (short length, UTF-8 record type)
+ * index:      entryCount x (int patientId, int typeIndex, long dataOffset, int count,
+ *                           long minTimestamp, long maxTimestamp, long infoOffset)
+ * </pre>
+ */
+public final class Segment {
+
+    static final int MAGIC = 0x50534731; // "PSG1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int SAMPLE_SIZE = 16;
+    static final int INDEX_ENTRY_SIZE = 44;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int[] typeIds; // dictionary index to interned record type id
+    private final int entryCount;
+    private final int indexOffset;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private Segment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a patient segment: " + file);
+        }
+        int typeCount = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+        int dictionaryOffset = (int) buffer.getLong(16);
+        this.indexOffset = (int) buffer.getLong(24);
+        this.minTimestamp = buffer.getLong(32);
+        this.maxTimestamp = buffer.getLong(40);
+
+        this.typeIds = new int[typeCount];
+        int position = dictionaryOffset;
+        for (int i = 0; i < typeCount; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            byte[] name = new byte[length];
+            buffer.get(position + 2, name);
+            typeIds[i] = RecordTypeRegistry.intern(new String(name, StandardCharsets.UTF_8));
+            position += 2 + length;
+        }
+    }
+
+    /**
+     * Maps an existing segment file.
+     *
+     * @param file the segment file
+     * @return the mapped segment
+     * @throws IOException if the file cannot be mapped or is not a segment
+     */
+    public static Segment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large to map: " + file);
+            }
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the segment file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of (patient, record type) blocks in the segment
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the oldest timestamp in the segment
+     */
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    /**
+     * @return the newest timestamp in the segment
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * Returns the samples of a patient within a time range, one run per record
+     * type. The runs read directly from the mapped file.
+     *
+     * @param patientId the patient ID
+     * @param startTime inclusive start of the time range
+     * @param endTime   inclusive end of the time range
+     * @return the matching runs, empty if the segment holds no such samples
+     */
+    public List<SampleRun> read(int patientId, long startTime, long endTime) {
+        List<SampleRun> runs = new ArrayList<>();
+        if (startTime > maxTimestamp || endTime < minTimestamp || startTime > endTime) {
+            return runs;
+        }
+        for (int entry = firstEntry(patientId); entry < entryCount && patientOf(entry) == patientId; entry++) {
+            int position = indexOffset + entry * INDEX_ENTRY_SIZE;
+            if (buffer.getLong(position + 20) > endTime || buffer.getLong(position + 28) < startTime) {
+                continue;
+            }
+            int typeId = typeIds[buffer.getInt(position + 4)];
+            int dataOffset = (int) buffer.getLong(position + 8);
+            int count = buffer.getInt(position + 16);
+            long infoOffset = buffer.getLong(position + 36);
+
+            int from = search(dataOffset, count, startTime, false);
+            int to = search(dataOffset, count, endTime, true);
+            if (from < to) {
+                Map<Integer, String> infos = infoOffset < 0 ? null : readInfos((int) infoOffset);
+                runs.add(new MappedRun(buffer, typeId, dataOffset, from, to - from, infos));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * @return the first index entry whose patient ID is not lower than the given one
+     */
+    private int firstEntry(int patientId) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (patientOf(mid) < patientId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int patientOf(int entry) {
+        return buffer.getInt(indexOffset + entry * INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Binary search over the timestamps of a data block.
+     *
+     * @param inclusive if true, returns the first sample after the timestamp,
+     *                  otherwise the first sample at or after it
+     */
+    private int search(int dataOffset, int count, long timestamp, boolean inclusive) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long midTimestamp = buffer.getLong(dataOffset + mid * SAMPLE_SIZE);
+            if (midTimestamp < timestamp || (inclusive && midTimestamp == timestamp)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Map<Integer, String> readInfos(int position) {
+        Map<Integer, String> infos = new HashMap<>();
+        int count = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            int index = buffer.getInt(position);
+            int length = buffer.getShort(position + 4) & 0xFFFF;
+            byte[] info = new byte[length];
+            buffer.get(position + 6, info);
+            infos.put(index, new String(info, StandardCharsets.UTF_8));
+            position += 6 + length;
+        }
+        return infos;
+    }
+
+    /**
+     * A run of samples read straight from a mapped data block.
+     */
+    private static final class MappedRun implements SampleRun {
+        private final ByteBuffer buffer;
+        private final int typeId;
+        private final int dataOffset;
+        private final int from;
+        private final int size;
+        private final Map<Integer, String> infos; // keyed by index within the whole block
+
+        MappedRun(ByteBuffer buffer, int typeId, int dataOffset, int from, int size, Map<Integer, String> infos) {
+            this.buffer = buffer;
+            this.typeId = typeId;
+            this.dataOffset = dataOffset;
+            this.from = from;
+            this.size = size;
+            this.infos = infos;
+        }
+
+        @Override
+        public int getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long timestampAt(int index) {
+            return buffer.getLong(dataOffset + (from + index) * SAMPLE_SIZE);
+        }
+
+        @Override
+        public double valueAt(int index) {
+            return buffer.getDouble(dataOffset + (from + index) * SAMPLE_SIZE + 8);
+        }
+
+        @Override
+        public String infoAt(int index) {
+            String info = infos == null ? null : infos.get(from + index);
+            return info == null ? "" : info;
+        }
+
+        @Override
+        public boolean hasInfo() {
+            return infos != null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.data_management.segment;
+
+import com.data_management.SampleRun;
+
+/**
+ * The samples of one record type of one patient that go into, or come out of,
+ * a segment.
+ */
+final class SegmentEntry {
+    final int patientId;
+    final SampleRun run;
+
+    SegmentEntry(int patientId, SampleRun run) {
+        this.patientId = patientId;
+        this.run = run;
+    }
+}
@@ -0,0 +1,306 @@
+package com.data_management.segment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import com.data_management.SampleRun;
+import com.data_management.TimeSeriesColumn;
+
+/**
+ * Cold storage for patient history that is too old to keep on the heap.
+ * An offload moves every sample older than a cutoff out of the in-memory
+ * columns into new immutable {@link Segment} files, which are memory-mapped
+ * and stay queryable. Once a store is attached with
+ * {@link DataStorage#setSegmentStore(SegmentStore)}, record queries merge the
+ * hot columns with the cold segments transparently.
+ *
+ * Evicted samples stay visible in memory until their segment is mapped. A
+ * read-write lock makes every query see each sample exactly once: queries
+ * hold the read lock, and the offload only takes the write lock to move one
+ * column's samples to the pending list and to swap in new segments. Writers
+ * adding patient data never take it.
+ */
+public class SegmentStore {
+
+    // Upper bound for a single segment file, well below the 2 GiB mapping limit
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final DataStorage dataStorage;
+    private final ReadWriteLock cut = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final List<SegmentEntry> pending = new ArrayList<>(); // guarded by cut
+    private long nextSequence = 1;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a segment store in the given directory. Call {@link #open()} to map
+     * segments written by an earlier run.
+     *
+     * @param directory   directory holding the segment files
+     * @param dataStorage the storage whose patients are offloaded
+     */
+    public SegmentStore(Path directory, DataStorage dataStorage) {
+        this.directory = directory;
+        this.dataStorage = dataStorage;
+    }
+
+    /**
+     * Maps all existing segment files in the directory.
+     *
+     * @throws IOException if the directory cannot be read or a segment is invalid
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                    && p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        List<Segment> opened = new ArrayList<>();
+        for (Path file : files) {
+            opened.add(Segment.open(file));
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        cut.writeLock().lock();
+        try {
+            segments.addAll(opened);
+        } finally {
+            cut.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves all samples older than the cutoff from memory into new segments.
+     *
+     * @param cutoff samples with a timestamp before this time are offloaded
+     * @return the number of samples offloaded
+     * @throws IOException if a segment cannot be written; the samples then stay
+     *                     pending in memory and are retried by the next offload
+     */
+    public synchronized long offload(long cutoff) throws IOException {
+        Files.createDirectories(directory);
+        for (Patient patient : dataStorage.getAllPatients()) {
+            for (TimeSeriesColumn column : patient.getColumns()) {
+                cut.writeLock().lock();
+                try {
+                    TimeSeriesColumn.Slice evicted = column.evictBefore(cutoff);
+                    if (evicted.size() > 0) {
+                        pending.add(new SegmentEntry(patient.getPatientId(), evicted));
+                    }
+                } finally {
+                    cut.writeLock().unlock();
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        // Only this method changes the pending list, so it can be read without the lock here
+        List<Segment> written = new ArrayList<>();
+        List<SegmentEntry> batch = new ArrayList<>();
+        long batchBytes = 0;
+        long samples = 0;
+        try {
+            for (SegmentEntry entry : pending) {
+                long size = SegmentWriter.estimateSize(entry);
+                if (!batch.isEmpty() && batchBytes + size > MAX_SEGMENT_BYTES) {
+                    written.add(writeSegment(batch));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(entry);
+                batchBytes += size;
+                samples += entry.run.size();
+            }
+            written.add(writeSegment(batch));
+        } catch (IOException e) {
+            // Segments of a failed offload would duplicate the retried samples
+            for (Segment segment : written) {
+                Files.deleteIfExists(segment.getFile());
+            }
+            throw e;
+        }
+
+        cut.writeLock().lock();
+        try {
+            segments.addAll(written);
+            pending.clear();
+        } finally {
+            cut.writeLock().unlock();
+        }
+        return samples;
+    }
+
+    /**
+     * Retrieves the records of a patient within a time range from both the
+     * in-memory columns and the cold segments.
+     *
+     * @param patient   the patient
+     * @param startTime the start of the time range, in milliseconds since UNIX epoch
+     * @param endTime   the end of the time range, in milliseconds since UNIX epoch
+     * @return the records in timestamp order
+     */
+    public List<PatientRecord> getRecords(Patient patient, long startTime, long endTime) {
+        cut.readLock().lock();
+        try {
+            List<SampleRun> cold = new ArrayList<>();
+            for (Segment segment : segments) {
+                cold.addAll(segment.read(patient.getPatientId(), startTime, endTime));
+            }
+            for (SegmentEntry entry : pending) {
+                if (entry.patientId == patient.getPatientId()) {
+                    SampleRun run = RangeRun.of(entry.run, startTime, endTime);
+                    if (run.size() > 0) {
+                        cold.add(run);
+                    }
+                }
+            }
+            return patient.getRecords(startTime, endTime, cold);
+        } finally {
+            cut.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of mapped segments
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Starts offloading in the background: every interval, samples older than the
+     * hot window are moved into segments.
+     *
+     * @param intervalMs  time between offloads, in milliseconds
+     * @param hotWindowMs how much recent history stays in memory, in milliseconds
+     */
+    public synchronized void start(long intervalMs, long hotWindowMs) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Segment offloading is already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "segment-offload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                offload(System.currentTimeMillis() - hotWindowMs);
+            } catch (IOException | RuntimeException e) {
+                // Keep the schedule alive; pending samples are retried next time
+                System.err.println("Segment offload failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background offloading. An offload that is already running is finished first.
+     */
+    public void stop() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Segment writeSegment(List<SegmentEntry> batch) throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", PREFIX, nextSequence++, SUFFIX));
+        SegmentWriter.write(file, batch);
+        return Segment.open(file);
+    }
+
+    /**
+     * The part of a sorted run that falls within a time range.
+     */
+    private static final class RangeRun implements SampleRun {
+        private final SampleRun run;
+        private final int from;
+        private final int size;
+
+        private RangeRun(SampleRun run, int from, int size) {
+            this.run = run;
+            this.from = from;
+            this.size = size;
+        }
+
+        static SampleRun of(SampleRun run, long startTime, long endTime) {
+            int from = search(run, startTime, false);
+            int to = search(run, endTime, true);
+            return new RangeRun(run, from, Math.max(0, to - from));
+        }
+
+        private static int search(SampleRun run, long timestamp, boolean inclusive) {
+            int low = 0;
+            int high = run.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long midTimestamp = run.timestampAt(mid);
+                if (midTimestamp < timestamp || (inclusive && midTimestamp == timestamp)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public int getTypeId() {
+            return run.getTypeId();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long timestampAt(int index) {
+            return run.timestampAt(from + index);
+        }
+
+        @Override
+        public double valueAt(int index) {
+            return run.valueAt(from + index);
+        }
+
+        @Override
+        public String infoAt(int index) {
+            return run.infoAt(from + index);
+        }
+
+        @Override
+        public boolean hasInfo() {
+            return run.hasInfo();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.data_management.segment;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.data_management.RecordTypeRegistry;
+import com.data_management.SampleRun;
+
+/**
+ * Writes immutable segment files. See {@link Segment} for the layout.
+ */
+final class SegmentWriter {
+
+    private SegmentWriter() {
+    }
+
+    /**
+     * Writes the given runs into a new segment file. The file is written under a
+     * temporary name, synced and then renamed into place.
+     *
+     * @param file    the segment file to create
+     * @param entries the runs to write, at most one per patient and record type
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, List<SegmentEntry> entries) throws IOException {
+        // Type dictionary, in order of first use
+        List<String> typeNames = new ArrayList<>();
+        Map<Integer, Integer> typeIndex = new HashMap<>();
+        for (SegmentEntry entry : entries) {
+            typeIndex.computeIfAbsent(entry.run.getTypeId(), typeId -> {
+                typeNames.add(RecordTypeRegistry.name(typeId));
+                return typeNames.size() - 1;
+            });
+        }
+        List<SegmentEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.<SegmentEntry>comparingInt(e -> e.patientId)
+                .thenComparingInt(e -> typeIndex.get(e.run.getTypeId())));
+
+        // Lay out data blocks, then info blocks, then dictionary and index
+        long offset = Segment.HEADER_SIZE;
+        long[] dataOffsets = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            dataOffsets[i] = offset;
+            offset += (long) sorted.get(i).run.size() * Segment.SAMPLE_SIZE;
+        }
+        List<byte[]> infoBlocks = new ArrayList<>();
+        long[] infoOffsets = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            byte[] block = encodeInfos(sorted.get(i).run);
+            infoBlocks.add(block);
+            infoOffsets[i] = block == null ? -1 : offset;
+            offset += block == null ? 0 : block.length;
+        }
+        long dictionaryOffset = offset;
+        List<byte[]> encodedNames = new ArrayList<>();
+        for (String name : typeNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(bytes);
+            offset += 2 + bytes.length;
+        }
+        long indexOffset = offset;
+
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        for (SegmentEntry entry : sorted) {
+            minTimestamp = Math.min(minTimestamp, entry.run.timestampAt(0));
+            maxTimestamp = Math.max(maxTimestamp, entry.run.timestampAt(entry.run.size() - 1));
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(Segment.MAGIC);
+            out.writeInt(Segment.VERSION);
+            out.writeInt(typeNames.size());
+            out.writeInt(sorted.size());
+            out.writeLong(dictionaryOffset);
+            out.writeLong(indexOffset);
+            out.writeLong(minTimestamp);
+            out.writeLong(maxTimestamp);
+            for (SegmentEntry entry : sorted) {
+                for (int i = 0; i < entry.run.size(); i++) {
+                    out.writeLong(entry.run.timestampAt(i));
+                    out.writeDouble(entry.run.valueAt(i));
+                }
+            }
+            for (byte[] block : infoBlocks) {
+                if (block != null) {
+                    out.write(block);
+                }
+            }
+            for (byte[] name : encodedNames) {
+                out.writeShort(name.length);
+                out.write(name);
+            }
+            for (int i = 0; i < sorted.size(); i++) {
+                SegmentEntry entry = sorted.get(i);
+                out.writeInt(entry.patientId);
+                out.writeInt(typeIndex.get(entry.run.getTypeId()));
+                out.writeLong(dataOffsets[i]);
+                out.writeInt(entry.run.size());
+                out.writeLong(entry.run.timestampAt(0));
+                out.writeLong(entry.run.timestampAt(entry.run.size() - 1));
+                out.writeLong(infoOffsets[i]);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the estimated file size contribution of an entry, used to split large offloads
+     */
+    static long estimateSize(SegmentEntry entry) {
+        return (long) entry.run.size() * Segment.SAMPLE_SIZE + Segment.INDEX_ENTRY_SIZE + 64;
+    }
+
+    /**
+     * Encodes the non-empty infos of a run as a sparse list, or returns null if there are none.
+     */
+    private static byte[] encodeInfos(SampleRun run) throws IOException {
+        if (!run.hasInfo()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int count = 0;
+        for (int i = 0; i < run.size(); i++) {
+            if (!run.infoAt(i).isEmpty()) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        out.writeInt(count);
+        for (int i = 0; i < run.size(); i++) {
+            String info = run.infoAt(i);
+            if (!info.isEmpty()) {
+                byte[] encoded = info.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(i);
+                out.writeShort(encoded.length);
+                out.write(encoded);
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
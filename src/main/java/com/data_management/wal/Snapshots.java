@@ -0,0 +1,142 @@
+package com.data_management.wal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.RecordTypeRegistry;
+import com.data_management.TimeSeriesColumn;
+
+/**
+ * Reads and writes snapshot files: the complete column data of every patient,
+ * followed by a CRC32C of the whole file.
+ *
+ * <pre>
+ * int magic, int version, int patientCount
+ * per patient: int patientId, int columnCount
+ *   per column: UTF recordType, int sampleCount, boolean hasInfo,
+ *               sampleCount x (long timestamp, double value),
+ *               if hasInfo: sampleCount x UTF info
+ * long crc
+ * </pre>
+ */
+final class Snapshots {
+
+    private static final int MAGIC = 0x50534E31; // "PSN1"
+    private static final int VERSION = 1;
+
+    private Snapshots() {
+    }
+
+    /**
+     * Writes a snapshot of the given patients. The file is written under a
+     * temporary name, synced and then renamed, so a crash never leaves a partial
+     * snapshot behind.
+     *
+     * @param file     the snapshot file to create
+     * @param patients the patients to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    static void write(Path file, Collection<Patient> patients) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(stream, 1 << 16), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(patients.size());
+            for (Patient patient : patients) {
+                List<TimeSeriesColumn> columns = patient.getColumns();
+                out.writeInt(patient.getPatientId());
+                out.writeInt(columns.size());
+                for (TimeSeriesColumn column : columns) {
+                    writeColumn(out, column.slice(Long.MIN_VALUE, Long.MAX_VALUE));
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into the data storage. Listeners are not notified.
+     *
+     * @param file        the snapshot file
+     * @param dataStorage the storage to load into
+     * @return the number of samples loaded
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    static long load(Path file, DataStorage dataStorage) throws IOException {
+        long samples = 0;
+        try (InputStream stream = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(stream, 1 << 16), new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a patient snapshot: " + file);
+            }
+            int patientCount = in.readInt();
+            for (int p = 0; p < patientCount; p++) {
+                Patient patient = dataStorage.getOrCreatePatient(in.readInt());
+                int columnCount = in.readInt();
+                for (int c = 0; c < columnCount; c++) {
+                    samples += readColumn(in, patient);
+                }
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+        }
+        return samples;
+    }
+
+    private static void writeColumn(DataOutputStream out, TimeSeriesColumn.Slice slice) throws IOException {
+        out.writeUTF(RecordTypeRegistry.name(slice.getTypeId()));
+        out.writeInt(slice.size());
+        out.writeBoolean(slice.hasInfo());
+        for (int i = 0; i < slice.size(); i++) {
+            out.writeLong(slice.timestampAt(i));
+            out.writeDouble(slice.valueAt(i));
+        }
+        if (slice.hasInfo()) {
+            for (int i = 0; i < slice.size(); i++) {
+                out.writeUTF(slice.infoAt(i));
+            }
+        }
+    }
+
+    private static int readColumn(DataInputStream in, Patient patient) throws IOException {
+        String recordType = in.readUTF();
+        int size = in.readInt();
+        boolean hasInfo = in.readBoolean();
+        long[] timestamps = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = in.readLong();
+            values[i] = in.readDouble();
+        }
+        for (int i = 0; i < size; i++) {
+            String info = hasInfo ? in.readUTF() : null;
+            patient.addRecord(values[i], recordType, timestamps[i], info);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,534 @@
+package com.data_management.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientDataListener;
+import com.data_management.PatientRecord;
+import com.data_management.RecordTypeRegistry;
+
+/**
+ * Binary write-ahead log for the samples added to a {@link DataStorage}, with
+ * periodic snapshots and crash recovery.
+ *
+ * Every sample added through {@link DataStorage#addPatientData} is appended to
+ * the current log file. Appends go into an in-memory buffer; the buffer is
+ * written out and the file fsynced once {@code batchSize} samples are pending
+ * or every {@code syncIntervalMs}, whichever comes first (group commit). A
+ * crash therefore loses at most the samples of one unsynced batch.
+ *
+ * A checkpoint switches to a new log generation and writes a snapshot of the
+ * storage; the logs and snapshots it replaces are deleted afterwards. Recovery
+ * loads the newest snapshot and replays only the logs written after it, so
+ * restart time depends on the snapshot size rather than on the total history.
+ *
+ * Log files start with a magic number and version, followed by records that
+ * each end in a CRC32C of the record:
+ * <pre>
+ * type record:   byte 1, int typeId, short length, UTF-8 name, int crc
+ * sample record: byte 2, int patientId, int typeId, long timestamp, double value, int crc
+ * info record:   byte 3, int patientId, int typeId, long timestamp, double value,
+ *                int length, UTF-8 additional information, int crc
+ * </pre>
+ * Samples with additional information, such as the status of an "Alert"
+ * record, are logged as info records. Type ids are local to a log file; every
+ * file defines the types it uses. Version 1 files, which have no info records,
+ * are still replayed.
+ */
+public class WriteAheadLog implements PatientDataListener, Closeable {
+
+    private static final int LOG_MAGIC = 0x50574C31; // "PWL1"
+    private static final int LOG_VERSION = 2;
+    private static final byte TYPE_RECORD = 1;
+    private static final byte SAMPLE_RECORD = 2;
+    private static final byte INFO_RECORD = 3;
+    private static final int SAMPLE_RECORD_SIZE = 1 + 4 + 4 + 8 + 8 + 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final DataStorage dataStorage;
+    private final int batchSize;
+    private final long syncIntervalMs;
+
+    // Guarded by this
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private boolean[] definedTypes = new boolean[16];
+    private FileChannel channel;
+    private long generation;
+    private int unsynced; // samples appended since the last sync was started
+
+    // Held while forcing a log file to disk, so it is not closed underneath
+    private final Object syncLock = new Object();
+    // Serializes checkpoints
+    private final Object checkpointLock = new Object();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a write-ahead log in the given directory. Nothing is logged until
+     * {@link #start()} is called.
+     *
+     * @param directory      directory holding the log and snapshot files
+     * @param dataStorage    the storage whose samples are logged and recovered
+     * @param batchSize      number of pending samples that triggers an fsync
+     * @param syncIntervalMs longest time a sample stays unsynced, in milliseconds
+     * @throws IllegalArgumentException if the batch size or interval is not positive
+     */
+    public WriteAheadLog(Path directory, DataStorage dataStorage, int batchSize, long syncIntervalMs) {
+        if (batchSize <= 0 || syncIntervalMs <= 0) {
+            throw new IllegalArgumentException("Batch size and sync interval must be positive");
+        }
+        this.directory = directory;
+        this.dataStorage = dataStorage;
+        this.batchSize = batchSize;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    /**
+     * Restores the storage from the newest snapshot and the logs written after it.
+     * Must be called before {@link #start()}. Recovered samples are added directly
+     * to the patients, so listeners are not notified.
+     *
+     * @return the number of samples recovered
+     * @throws IOException if a snapshot or log cannot be read
+     */
+    public synchronized long recover() throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("Recovery must run before the log is started");
+        }
+        Files.createDirectories(directory);
+        long snapshotGeneration = newest(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long recovered = 0;
+        if (snapshotGeneration > 0) {
+            recovered += Snapshots.load(snapshotFile(snapshotGeneration), dataStorage);
+        }
+        for (long logGeneration : generations(LOG_PREFIX, LOG_SUFFIX)) {
+            if (logGeneration >= snapshotGeneration) {
+                // The snapshot may already hold the first samples of its own log generation
+                recovered += replay(logFile(logGeneration), logGeneration == snapshotGeneration);
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Opens a new log generation, registers with the data storage and starts the
+     * periodic sync.
+     *
+     * @throws IOException if the log file cannot be created
+     */
+    public synchronized void start() throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("Write-ahead log is already started");
+        }
+        Files.createDirectories(directory);
+        generation = Math.max(newest(LOG_PREFIX, LOG_SUFFIX), newest(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) + 1;
+        openLog();
+        scheduler = Executors.newScheduledThreadPool(2, task -> {
+            Thread thread = new Thread(task, "write-ahead-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> runQuietly(this::sync), syncIntervalMs, syncIntervalMs,
+                TimeUnit.MILLISECONDS);
+        dataStorage.addListener(this);
+    }
+
+    /**
+     * Takes a checkpoint every given interval, in the background.
+     *
+     * @param intervalMs time between checkpoints, in milliseconds
+     */
+    public synchronized void startSnapshots(long intervalMs) {
+        if (scheduler == null) {
+            throw new IllegalStateException("Write-ahead log is not started");
+        }
+        scheduler.scheduleWithFixedDelay(() -> runQuietly(this::checkpoint), intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs a sample that was just added to the data storage.
+     */
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        onPatientData(patientId, measurementValue, recordType, timestamp, null);
+    }
+
+    /**
+     * Logs a sample that was just added to the data storage, with its additional information.
+     */
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) {
+        try {
+            append(patientId, measurementValue, recordType, timestamp, additionalInfo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the write-ahead log", e);
+        }
+    }
+
+    /**
+     * Appends a sample to the log buffer. Starts a sync once a full batch is pending.
+     *
+     * @param patientId        the patient ID
+     * @param measurementValue the measurement value
+     * @param recordType       the record type
+     * @param timestamp        the measurement time, in milliseconds since UNIX epoch
+     * @throws IOException if the buffer cannot be written out
+     */
+    public void append(int patientId, double measurementValue, String recordType, long timestamp)
+            throws IOException {
+        append(patientId, measurementValue, recordType, timestamp, null);
+    }
+
+    /**
+     * Appends a sample with additional information to the log buffer. Starts a
+     * sync once a full batch is pending.
+     *
+     * @param patientId        the patient ID
+     * @param measurementValue the measurement value
+     * @param recordType       the record type
+     * @param timestamp        the measurement time, in milliseconds since UNIX epoch
+     * @param additionalInfo   the additional information, or null if there is none
+     * @throws IOException if the buffer cannot be written out
+     */
+    public void append(int patientId, double measurementValue, String recordType, long timestamp,
+            String additionalInfo) throws IOException {
+        byte[] info = additionalInfo == null ? null : additionalInfo.getBytes(StandardCharsets.UTF_8);
+        if (info != null && SAMPLE_RECORD_SIZE + 4 + info.length > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Additional information is too long to log: " + info.length + " bytes");
+        }
+        boolean syncNow;
+        synchronized (this) {
+            if (channel == null) {
+                throw new IllegalStateException("Write-ahead log is not started");
+            }
+            int typeId = RecordTypeRegistry.intern(recordType);
+            if (typeId >= definedTypes.length || !definedTypes[typeId]) {
+                writeTypeRecord(typeId, recordType);
+            }
+            reserve(info == null ? SAMPLE_RECORD_SIZE : SAMPLE_RECORD_SIZE + 4 + info.length);
+            int start = buffer.position();
+            buffer.put(info == null ? SAMPLE_RECORD : INFO_RECORD).putInt(patientId).putInt(typeId)
+                    .putLong(timestamp).putDouble(measurementValue);
+            if (info != null) {
+                buffer.putInt(info.length).put(info);
+            }
+            putChecksum(start);
+            unsynced++;
+            syncNow = unsynced >= batchSize;
+            if (syncNow) {
+                unsynced = 0;
+            }
+        }
+        if (syncNow) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes out the buffered records and fsyncs the current log file. Appends
+     * only wait for the buffer to be written out, not for the fsync itself.
+     *
+     * @throws IOException if the log cannot be written or synced
+     */
+    public void sync() throws IOException {
+        FileChannel target;
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            drain();
+            unsynced = 0;
+            target = channel;
+        }
+        synchronized (syncLock) {
+            if (target.isOpen()) {
+                target.force(false);
+            }
+        }
+    }
+
+    /**
+     * Switches to a new log generation and writes a snapshot of the storage.
+     * Once the snapshot is on disk, older logs and snapshots are deleted.
+     * Appends only pause while the log file is switched.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long snapshotGeneration;
+            synchronized (this) {
+                if (channel == null) {
+                    throw new IllegalStateException("Write-ahead log is not started");
+                }
+                closeLog();
+                generation++;
+                openLog();
+                snapshotGeneration = generation;
+            }
+            // Every sample in older logs is already stored, so the snapshot covers them
+            Snapshots.write(snapshotFile(snapshotGeneration), dataStorage.getAllPatients());
+            for (long old : generations(LOG_PREFIX, LOG_SUFFIX)) {
+                if (old < snapshotGeneration) {
+                    Files.deleteIfExists(logFile(old));
+                }
+            }
+            for (long old : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (old < snapshotGeneration) {
+                    Files.deleteIfExists(snapshotFile(old));
+                }
+            }
+        }
+    }
+
+    /**
+     * Unregisters from the data storage, syncs and closes the log.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        dataStorage.removeListener(this);
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (checkpointLock) {
+            synchronized (this) {
+                if (channel != null) {
+                    closeLog();
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays one log file into the storage. Replay stops at the first incomplete
+     * or corrupt record, which is where a crash interrupted the last write.
+     *
+     * @param file        the log file
+     * @param deduplicate skip samples that are already stored with the same timestamp and value
+     * @return the number of samples replayed
+     */
+    private long replay(Path file, boolean deduplicate) throws IOException {
+        long replayed = 0;
+        Map<Integer, String> types = new HashMap<>();
+        CRC32C check = new CRC32C();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer log = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (log.remaining() < 8 || log.getInt() != LOG_MAGIC) {
+                return 0;
+            }
+            int version = log.getInt();
+            if (version < 1 || version > LOG_VERSION) {
+                return 0;
+            }
+            while (log.hasRemaining()) {
+                int start = log.position();
+                byte tag = log.get();
+                if ((tag == SAMPLE_RECORD || tag == INFO_RECORD) && log.remaining() >= SAMPLE_RECORD_SIZE - 1) {
+                    int patientId = log.getInt();
+                    int typeId = log.getInt();
+                    long timestamp = log.getLong();
+                    double value = log.getDouble();
+                    String info = null;
+                    if (tag == INFO_RECORD) {
+                        if (log.remaining() < 4) {
+                            break;
+                        }
+                        int length = log.getInt();
+                        if (length < 0 || log.remaining() < length + 4) {
+                            break;
+                        }
+                        byte[] bytes = new byte[length];
+                        log.get(bytes);
+                        info = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    String recordType = types.get(typeId);
+                    if (!checksumMatches(log, start, check) || recordType == null) {
+                        break;
+                    }
+                    Patient patient = dataStorage.getOrCreatePatient(patientId);
+                    if (!deduplicate || !isStored(patient, recordType, timestamp, value)) {
+                        patient.addRecord(value, recordType, timestamp, info);
+                        replayed++;
+                    }
+                } else if (tag == TYPE_RECORD && log.remaining() >= 6) {
+                    int typeId = log.getInt();
+                    int length = log.getShort() & 0xFFFF;
+                    if (log.remaining() < length + 4) {
+                        break;
+                    }
+                    byte[] name = new byte[length];
+                    log.get(name);
+                    if (!checksumMatches(log, start, check)) {
+                        break;
+                    }
+                    types.put(typeId, new String(name, StandardCharsets.UTF_8));
+                } else {
+                    break;
+                }
+            }
+            if (log.hasRemaining()) {
+                System.err.println("Ignoring incomplete tail of write-ahead log " + file
+                        + " at offset " + log.position());
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Reads the checksum after a record and compares it with the record bytes.
+     */
+    private static boolean checksumMatches(ByteBuffer log, int start, CRC32C check) {
+        int end = log.position();
+        check.reset();
+        check.update(log.duplicate().position(start).limit(end));
+        return (int) check.getValue() == log.getInt();
+    }
+
+    private static boolean isStored(Patient patient, String recordType, long timestamp, double value) {
+        for (PatientRecord record : patient.getRecords(timestamp, timestamp)) {
+            if (record.getRecordType().equals(recordType) && record.getMeasurementValue() == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeTypeRecord(int typeId, String recordType) throws IOException {
+        byte[] name = recordType.getBytes(StandardCharsets.UTF_8);
+        reserve(1 + 4 + 2 + name.length + 4);
+        int start = buffer.position();
+        buffer.put(TYPE_RECORD).putInt(typeId).putShort((short) name.length).put(name);
+        putChecksum(start);
+        if (typeId >= definedTypes.length) {
+            definedTypes = Arrays.copyOf(definedTypes, Math.max(typeId + 1, definedTypes.length * 2));
+        }
+        definedTypes[typeId] = true;
+    }
+
+    private void putChecksum(int start) {
+        crc.reset();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Makes room for a record, writing the buffer out if it is too full.
+     */
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the log file.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openLog() throws IOException {
+        channel = FileChannel.open(logFile(generation), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        Arrays.fill(definedTypes, false);
+        buffer.clear();
+        buffer.putInt(LOG_MAGIC).putInt(LOG_VERSION);
+        unsynced = 0;
+    }
+
+    private void closeLog() throws IOException {
+        drain();
+        synchronized (syncLock) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private Path logFile(long logGeneration) {
+        return directory.resolve(String.format("%s%016d%s", LOG_PREFIX, logGeneration, LOG_SUFFIX));
+    }
+
+    private Path snapshotFile(long snapshotGeneration) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * @return the highest generation of the given file kind, or 0 if there is none
+     */
+    private long newest(String prefix, String suffix) throws IOException {
+        List<Long> found = generations(prefix, suffix);
+        return found.isEmpty() ? 0 : found.get(found.size() - 1);
+    }
+
+    /**
+     * @return the generations of the given file kind, in ascending order
+     */
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> found.add(Long.parseLong(
+                            name.substring(prefix.length(), name.length() - suffix.length()))));
+        }
+        found.sort(null);
+        return found;
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    private static void runQuietly(IOAction action) {
+        try {
+            action.run();
+        } catch (IOException | RuntimeException e) {
+            // Keep the schedule alive; the next run retries
+            System.err.println("Write-ahead log maintenance failed: " + e.getMessage());
+        }
+    }
+}
@@ -252,4 +252,27 @@ public class AlertGeneratorTest {
         assertTrue(found1, "Alert for patient 1 expected");
         assertTrue(found2, "Alert for patient 2 expected");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test: Records from the patient and from the storage are each evaluated once.
+     */
+    @Test
+    @DisplayName("New storage records are evaluated once alongside the patient's own")
+    void storageRecordsEvaluatedOnce() {
+        int patientId = 789;
+        long now = System.currentTimeMillis();
+        Patient copy = new Patient(patientId);
+        copy.addRecord(185.0, "SystolicBP", now - 2000);
+        dataStorage.addPatientData(patientId, 185.0, "SystolicBP", now - 2000);
+        alertGenerator.evaluateData(copy);
+        alertGenerator.evaluateData(copy);
+        assertTrue(containsAlert(alertGenerator.getActiveAlertsForPatient(patientId), AlertType.HIGH_SYSTOLIC_BP));
+
+        // Only in storage: still read, and the old reading is not evaluated again
+        dataStorage.addPatientData(patientId, 120.0, "SystolicBP", now - 1000);
+        alertGenerator.evaluateData(copy);
+        assertFalse(containsAlert(alertGenerator.getActiveAlertsForPatient(patientId), AlertType.HIGH_SYSTOLIC_BP));
+        alertGenerator.evaluateData(copy);
+        assertFalse(containsAlert(alertGenerator.getActiveAlertsForPatient(patientId), AlertType.HIGH_SYSTOLIC_BP));
+    }
+}
@@ -0,0 +1,148 @@
+package com.alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.TimeSeriesColumn;
+
+/**
+ * Tests for PartitionedAlertEvaluator, which spreads patients over worker threads.
+ */
+public class PartitionedAlertEvaluatorTest {
+
+    private static final int PATIENTS = 200;
+
+    private DataStorage storage;
+    private PartitionedAlertEvaluator evaluator;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+        evaluator = new PartitionedAlertEvaluator(storage, 4);
+    }
+
+    @AfterEach
+    void cleanup() {
+        evaluator.shutdown();
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Parallel sweep finds the same alerts as a sequential one")
+    void parallelSweep() {
+        List<Patient> patients = new ArrayList<>();
+        for (int id = 1; id <= PATIENTS; id++) {
+            Patient patient = new Patient(id);
+            // Every third patient has a critical systolic reading
+            patient.addRecord(id % 3 == 0 ? 185.0 : 120.0, "SystolicBP", System.currentTimeMillis());
+            patients.add(patient);
+        }
+
+        evaluator.evaluateAll(patients);
+
+        List<Alert> alerts = evaluator.getAllActiveAlerts();
+        assertEquals(PATIENTS / 3, alerts.size(), "One alert per critical patient expected");
+        assertTrue(alerts.stream().allMatch(a -> a.getPatientId() % 3 == 0), "Only critical patients alert");
+        assertEquals(1, evaluator.getActiveAlertsForPatient(3).size(), "Per-patient view should see the alert");
+        assertTrue(evaluator.getActiveAlertsForPatient(4).isEmpty(), "Normal patient should have no alert");
+    }
+
+    @Test
+    @DisplayName("Patients are always routed to the same partition")
+    void stablePartitioning() {
+        assertEquals(4, evaluator.getPartitionCount());
+        for (int id = -10; id < 10; id++) {
+            int partition = evaluator.partitionOf(id);
+            assertTrue(partition >= 0 && partition < 4, "Partition out of range for " + id);
+            assertEquals(partition, evaluator.partitionOf(id), "Partition should be stable");
+        }
+    }
+
+    @Test
+    @DisplayName("Streamed samples are evaluated on the owning partition")
+    void streaming() {
+        evaluator.startStreaming();
+        for (int id = 1; id <= 20; id++) {
+            storage.addPatientData(id, 91.0, "OxygenSaturation", 1_700_000_000_000L);
+        }
+        // Reads are queued behind the samples on each partition, so they see them all
+        assertEquals(20, evaluator.getAllActiveAlerts().size(), "Each low reading should trigger");
+    }
+
+    @Test
+    @DisplayName("Alerts handed out are copies of the partition's state")
+    void alertsAreCopies() {
+        evaluator.startStreaming();
+        storage.addPatientData(1, 91.0, "OxygenSaturation", 1_700_000_000_000L);
+        Alert alert = evaluator.getActiveAlertsForPatient(1).get(0);
+        alert.updateAlert("changed", 0);
+        evaluator.getAllActiveAlerts().get(0).updateAlert("changed", 0);
+
+        Alert stored = evaluator.getActiveAlertsForPatient(1).get(0);
+        assertNotEquals("changed", stored.getMessage());
+        assertEquals(1_700_000_000_000L, stored.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Streaming waits while a partition's queue is full")
+    void backpressure() throws InterruptedException {
+        PartitionedAlertEvaluator bounded = new PartitionedAlertEvaluator(storage, 1, 2);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // A patient whose evaluation holds the partition thread until released
+        Patient blocking = new Patient(1) {
+            @Override
+            public List<TimeSeriesColumn> getColumns() {
+                busy.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getColumns();
+            }
+        };
+        Thread sweep = new Thread(() -> bounded.evaluateAll(List.of(blocking)));
+        sweep.start();
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger queued = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                bounded.onPatientData(2, 91.0, "OxygenSaturation", 1_700_000_000_000L + i);
+                queued.incrementAndGet();
+            }
+        });
+        producer.start();
+        Thread.sleep(200);
+        assertEquals(2, queued.get(), "The third sample waits for room");
+        assertTrue(producer.isAlive());
+
+        release.countDown();
+        producer.join(5000);
+        sweep.join(5000);
+        assertEquals(3, queued.get());
+        assertEquals(1, bounded.getActiveAlertsForPatient(2).size());
+        bounded.shutdown();
+    }
+
+    @Test
+    @DisplayName("A partition count below one is rejected")
+    void invalidPartitionCount() {
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedAlertEvaluator(storage, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedAlertEvaluator(storage, 1, 0));
+    }
+}
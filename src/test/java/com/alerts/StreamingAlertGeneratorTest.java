@@ -0,0 +1,124 @@
+package com.alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import com.data_management.DataStorage;
+
+/**
+ * Tests for the streaming (listener based) evaluation path of AlertGenerator,
+ * driven through a single-partition PartitionedAlertEvaluator. Samples are
+ * added to the DataStorage and evaluated as they arrive; reads are queued
+ * behind them, so they see every sample added before.
+ */
+public class StreamingAlertGeneratorTest {
+
+    private static final int PATIENT_ID = 77;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private DataStorage storage;
+    private PartitionedAlertEvaluator evaluator;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+        evaluator = new PartitionedAlertEvaluator(storage, 1);
+        evaluator.startStreaming();
+    }
+
+    @AfterEach
+    void cleanup() {
+        evaluator.shutdown();
+        storage.clearAllData();
+    }
+
+    private boolean hasAlert(AlertType type) {
+        List<Alert> alerts = evaluator.getActiveAlertsForPatient(PATIENT_ID);
+        return alerts.stream().anyMatch(a -> a.getType() == type);
+    }
+
+    @Test
+    @DisplayName("Threshold alerts trigger and resolve as samples arrive")
+    void thresholdTriggerAndResolve() {
+        storage.addPatientData(PATIENT_ID, 185.0, "SystolicBP", NOW);
+        assertTrue(hasAlert(AlertType.HIGH_SYSTOLIC_BP), "High systolic reading should trigger");
+
+        storage.addPatientData(PATIENT_ID, 120.0, "SystolicBP", NOW + 1000);
+        assertFalse(hasAlert(AlertType.HIGH_SYSTOLIC_BP), "Normal reading should resolve");
+    }
+
+    @Test
+    @DisplayName("Rapid oxygen drop is detected only inside the time window")
+    void oxygenRapidDrop() {
+        storage.addPatientData(PATIENT_ID, 98.0, "OxygenSaturation", NOW);
+        storage.addPatientData(PATIENT_ID, 97.0, "OxygenSaturation", NOW + 60_000);
+        storage.addPatientData(PATIENT_ID, 92.5, "OxygenSaturation", NOW + 500_000);
+        assertTrue(hasAlert(AlertType.RAPID_OXYGEN_DROP), "5.5 point drop within 10 minutes should trigger");
+
+        // The 98% reading is now older than 10 minutes, the 97% one is not
+        storage.addPatientData(PATIENT_ID, 93.0, "OxygenSaturation", NOW + 620_000);
+        assertFalse(hasAlert(AlertType.RAPID_OXYGEN_DROP), "Drop from 97% to 93% should resolve");
+    }
+
+    @Test
+    @DisplayName("Combined alert needs both low BP and low oxygen")
+    void combinedAlert() {
+        storage.addPatientData(PATIENT_ID, 85.0, "SystolicBP", NOW);
+        assertFalse(hasAlert(AlertType.HYPOTENSIVE_HYPOXEMIA), "Low BP alone is not enough");
+
+        storage.addPatientData(PATIENT_ID, 91.0, "OxygenSaturation", NOW + 1000);
+        Alert alert = evaluator.getActiveAlertsForPatient(PATIENT_ID).stream()
+                .filter(a -> a.getType() == AlertType.HYPOTENSIVE_HYPOXEMIA).findFirst().orElse(null);
+        assertNotNull(alert, "Low BP and low oxygen should trigger");
+        assertEquals(AlertSeverity.CRITICAL, alert.getSeverity());
+
+        storage.addPatientData(PATIENT_ID, 110.0, "SystolicBP", NOW + 2000);
+        assertFalse(hasAlert(AlertType.HYPOTENSIVE_HYPOXEMIA), "Normal BP should resolve");
+    }
+
+    @Test
+    @DisplayName("ECG peak is evaluated over the sliding window")
+    void ecgPeak() {
+        for (int i = 0; i < 19; i++) {
+            storage.addPatientData(PATIENT_ID, 70.0 + (i % 3), "ECG", NOW + i * 1000L);
+        }
+        assertFalse(hasAlert(AlertType.ECG_ABNORMAL_PEAK), "No evaluation before the window is full");
+
+        storage.addPatientData(PATIENT_ID, 120.0, "ECG", NOW + 19_000);
+        assertTrue(hasAlert(AlertType.ECG_ABNORMAL_PEAK), "Outlier should trigger");
+
+        // Push the outlier out of the window again
+        for (int i = 20; i < 40; i++) {
+            storage.addPatientData(PATIENT_ID, 70.0 + (i % 3), "ECG", NOW + i * 1000L);
+        }
+        assertFalse(hasAlert(AlertType.ECG_ABNORMAL_PEAK), "Normal readings should resolve");
+    }
+
+    @Test
+    @DisplayName("Manual alerts are raised and resolved by streamed Alert records")
+    void manualAlert() {
+        storage.addPatientData(PATIENT_ID, 1.0, "Alert", NOW, "triggered");
+        Alert alert = evaluator.getActiveAlertsForPatient(PATIENT_ID).stream()
+                .filter(a -> a.getType() == AlertType.MANUAL_TRIGGER).findFirst().orElse(null);
+        assertNotNull(alert, "A triggered Alert record should raise the manual alert");
+        assertEquals(NOW, alert.getTimestamp());
+
+        storage.addPatientData(PATIENT_ID, 0.0, "Alert", NOW + 1000, "resolved");
+        assertFalse(hasAlert(AlertType.MANUAL_TRIGGER), "A resolved Alert record should resolve it");
+    }
+
+    @Test
+    @DisplayName("Stopped generators no longer receive samples")
+    void stopStreaming() {
+        evaluator.stopStreaming();
+        storage.addPatientData(PATIENT_ID, 185.0, "SystolicBP", NOW);
+        assertFalse(hasAlert(AlertType.HIGH_SYSTOLIC_BP), "Samples after stopStreaming should be ignored");
+    }
+}
@@ -0,0 +1,127 @@
+package com.alerts.decorator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.alerts.Alert;
+import com.alerts.AlertSeverity;
+import com.alerts.AlertType;
+
+/**
+ * Tests the timer wheel that schedules the repeats of all repeated alerts.
+ */
+public class RepeatSchedulerTest {
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final RepeatScheduler scheduler = new RepeatScheduler(5, 8, repeats -> {
+        List<String> batch = new ArrayList<>();
+        for (RepeatedAlertDecorator repeat : repeats) {
+            batch.add(repeat.getPatientId() + ":" + repeat.getRepeatCount());
+        }
+        batches.add(batch);
+    });
+
+    @AfterEach
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    private static Alert alert(int patientId) {
+        return new Alert(patientId, AlertType.LOW_OXYGEN_SATURATION, "Low oxygen saturation: 90.0%",
+                System.currentTimeMillis(), AlertSeverity.HIGH);
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scheduler.pendingRepeats() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, scheduler.pendingRepeats());
+    }
+
+    private int delivered(int patientId) {
+        int count = 0;
+        for (List<String> batch : batches) {
+            for (String repeat : batch) {
+                if (repeat.startsWith(patientId + ":")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("An alert is repeated up to its maximum count, at its interval")
+    void repeatsUpToMaximum() throws InterruptedException {
+        long start = System.nanoTime();
+        RepeatedAlertDecorator repeated = new RepeatedAlertDecorator(alert(1), 20, 3, scheduler);
+        awaitIdle();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, repeated.getRepeatCount());
+        assertEquals(3, delivered(1));
+        assertTrue(elapsedMs >= 60, "Repeats must not come early: " + elapsedMs + " ms");
+        assertTrue(repeated.getMessage().endsWith("[REPEAT 3/3]"));
+    }
+
+    @Test
+    @DisplayName("Intervals longer than a turn of the wheel wait the extra turns")
+    void longIntervals() throws InterruptedException {
+        // The wheel turns every 40 ms
+        long start = System.nanoTime();
+        new RepeatedAlertDecorator(alert(2), 130, 1, scheduler);
+        awaitIdle();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(1, delivered(2));
+        assertTrue(elapsedMs >= 130, "Repeat came after " + elapsedMs + " ms");
+    }
+
+    @Test
+    @DisplayName("Cancelled alerts are not repeated again")
+    void cancel() throws InterruptedException {
+        RepeatedAlertDecorator cancelledAtOnce = new RepeatedAlertDecorator(alert(3), 20, 5, scheduler);
+        RepeatedAlertDecorator cancelledLater = new RepeatedAlertDecorator(alert(4), 20, 100, scheduler);
+        cancelledAtOnce.cancelRepeats();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cancelledLater.getRepeatCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        cancelledLater.cancelRepeats();
+        awaitIdle();
+        int count = cancelledLater.getRepeatCount();
+        Thread.sleep(100);
+
+        assertEquals(0, delivered(3));
+        assertEquals(count, cancelledLater.getRepeatCount());
+        assertTrue(count < 100);
+    }
+
+    @Test
+    @DisplayName("Repeats that come due together are delivered as one batch")
+    void batches() throws InterruptedException {
+        List<RepeatedAlertDecorator> storm = new ArrayList<>();
+        for (int patientId = 100; patientId < 2100; patientId++) {
+            storm.add(new RepeatedAlertDecorator(alert(patientId), 50, 2, scheduler));
+        }
+        awaitIdle();
+
+        int total = 0;
+        for (List<String> batch : batches) {
+            total += batch.size();
+        }
+        assertEquals(4000, total);
+        // 2000 alerts scheduled within a few ticks, twice
+        assertTrue(batches.size() < 100, "Delivered in " + batches.size() + " batches");
+        for (RepeatedAlertDecorator repeated : storm) {
+            assertEquals(2, repeated.getRepeatCount());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.alerts.dispatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertSeverity;
+import com.alerts.AlertType;
+import com.alerts.rules.RuleEngine;
+import com.alerts.rules.RuleSet;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+
+/**
+ * Tests for AlertDispatcher: fan-out, debouncing and coalescing for slow subscribers.
+ */
+public class AlertDispatcherTest {
+
+    private final AlertDispatcher dispatcher = new AlertDispatcher();
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Every subscriber receives the changes of an alert in order")
+    void fanOut() throws InterruptedException {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        dispatcher.subscribe(first);
+        dispatcher.subscribe(second);
+
+        dispatcher.triggered(alert(1, AlertType.LOW_OXYGEN_SATURATION, 91, 0));
+        dispatcher.updated(alert(1, AlertType.LOW_OXYGEN_SATURATION, 90, 1));
+        dispatcher.resolved(alert(1, AlertType.LOW_OXYGEN_SATURATION, 90, 1));
+        dispatcher.resolved(alert(2, AlertType.LOW_OXYGEN_SATURATION, 93, 1)); // never triggered
+        assertTrue(dispatcher.awaitDelivery(5000));
+
+        for (Recorder recorder : List.of(first, second)) {
+            assertEquals(List.of("TRIGGERED 1 91", "UPDATED 1 90", "RESOLVED 1 90"), recorder.events);
+        }
+    }
+
+    @Test
+    @DisplayName("A blocked subscriber neither blocks the reporter nor collects every update")
+    void slowSubscriber() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder fast = new Recorder();
+        Recorder slow = new Recorder() {
+            @Override
+            public void onAlert(AlertEvent event) {
+                super.onAlert(event);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        dispatcher.subscribe(slow);
+        dispatcher.subscribe(fast);
+
+        // Returns although the slow subscriber is stuck on the trigger
+        dispatcher.triggered(alert(1, AlertType.ECG_ABNORMAL_PEAK, 0, 0));
+        for (int i = 1; i <= 100_000; i++) {
+            dispatcher.updated(alert(1, AlertType.ECG_ABNORMAL_PEAK, i, i));
+        }
+        dispatcher.resolved(alert(1, AlertType.ECG_ABNORMAL_PEAK, 100_000, 100_000));
+        // Everything has been dispatched once the fast subscriber has the resolution
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!fast.kinds.contains("RESOLVED") && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        assertTrue(dispatcher.awaitDelivery(5000));
+
+        assertEquals("TRIGGERED 1 0", slow.events.get(0));
+        assertEquals("RESOLVED 1 100000", slow.events.get(slow.events.size() - 1));
+        assertTrue(slow.events.size() <= 3, "Updates should have been merged: " + slow.events);
+        assertTrue(dispatcher.getCoalescedUpdates() > 0);
+        assertEquals("TRIGGERED 1 0", fast.events.get(0));
+        assertEquals("RESOLVED 1 100000", fast.events.get(fast.events.size() - 1));
+    }
+
+    @Test
+    @DisplayName("A flapping condition produces no events within its debounce delays")
+    void debounce() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        dispatcher.subscribe(recorder);
+        dispatcher.setDebounce(AlertType.LOW_OXYGEN_SATURATION, DebouncePolicy.of(200, 200));
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.triggered(alert(1, AlertType.LOW_OXYGEN_SATURATION, 91, i));
+            dispatcher.resolved(alert(1, AlertType.LOW_OXYGEN_SATURATION, 91, i));
+        }
+        assertTrue(dispatcher.awaitDelivery(5000));
+        Thread.sleep(300);
+        assertEquals(List.of(), recorder.events);
+        assertEquals(10, dispatcher.getSuppressedFlaps());
+
+        // Held past the trigger delay, then briefly cleared: one trigger, no resolution
+        dispatcher.triggered(alert(1, AlertType.LOW_OXYGEN_SATURATION, 90, 20));
+        waitFor(recorder, 1);
+        dispatcher.resolved(alert(1, AlertType.LOW_OXYGEN_SATURATION, 90, 21));
+        dispatcher.triggered(alert(1, AlertType.LOW_OXYGEN_SATURATION, 89, 22));
+        assertTrue(dispatcher.awaitDelivery(5000));
+        Thread.sleep(300);
+        assertEquals(List.of("TRIGGERED 1 90", "UPDATED 1 89"), recorder.events);
+
+        dispatcher.resolved(alert(1, AlertType.LOW_OXYGEN_SATURATION, 89, 23));
+        waitFor(recorder, 3);
+        assertEquals("RESOLVED 1 89", recorder.events.get(2));
+
+        // Other types are not debounced
+        dispatcher.triggered(alert(1, AlertType.HIGH_SYSTOLIC_BP, 190, 24));
+        waitFor(recorder, 4);
+    }
+
+    @Test
+    @DisplayName("Debounce delays run on dispatch time, not on the alert timestamps")
+    void debounceIsWallClock() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        dispatcher.subscribe(recorder);
+        dispatcher.setDebounce(AlertType.LOW_OXYGEN_SATURATION, DebouncePolicy.of(200, 0));
+
+        // Three hours apart in the data, but replayed back to back
+        long threeHours = TimeUnit.HOURS.toMillis(3);
+        dispatcher.triggered(alert(1, AlertType.LOW_OXYGEN_SATURATION, 91, 0));
+        dispatcher.resolved(alert(1, AlertType.LOW_OXYGEN_SATURATION, 91, threeHours));
+        assertTrue(dispatcher.awaitDelivery(5000));
+        Thread.sleep(300);
+
+        assertEquals(List.of(), recorder.events);
+        assertEquals(1, dispatcher.getSuppressedFlaps());
+    }
+
+    @Test
+    @DisplayName("An idle dispatch thread parks until the next change")
+    void idleParksWithoutTimeout() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        dispatcher.subscribe(recorder);
+        dispatcher.triggered(alert(1, AlertType.HIGH_SYSTOLIC_BP, 190, 0));
+        assertTrue(dispatcher.awaitDelivery(5000));
+
+        Thread dispatch = null;
+        Thread.State state = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (LockSupport.getBlocker(thread) == dispatcher) {
+                    dispatch = thread;
+                    state = thread.getState();
+                }
+            }
+        }
+        assertNotNull(dispatch, "The dispatch thread should be parked on the dispatcher");
+        assertEquals(Thread.State.WAITING, state);
+
+        // Still woken by the next change
+        dispatcher.resolved(alert(1, AlertType.HIGH_SYSTOLIC_BP, 190, 1));
+        waitFor(recorder, 2);
+    }
+
+    @Test
+    @DisplayName("An alert generator reports to its dispatcher, not to the console")
+    void generatorReports() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        dispatcher.subscribe(recorder);
+        DataStorage storage = DataStorage.getInstance();
+        AlertGenerator generator = new AlertGenerator(storage, new RuleEngine(RuleSet.defaults()), dispatcher);
+
+        Patient patient = new Patient(7);
+        long time = 1000;
+        for (double systolic : new double[] {190, 195, 120}) {
+            patient.addRecord(systolic, "SystolicBP", time);
+            time += 1000;
+            generator.evaluateData(patient);
+            // One at a time, so the update is not merged into the trigger
+            assertTrue(dispatcher.awaitDelivery(5000));
+        }
+
+        assertEquals(List.of("TRIGGERED", "UPDATED", "RESOLVED"), recorder.kinds);
+        assertEquals(AlertType.HIGH_SYSTOLIC_BP, recorder.alerts.get(0).getType());
+        assertEquals(1000, recorder.alerts.get(0).getTimestamp(), "The trigger is not changed by the update");
+    }
+
+    private static Alert alert(int patientId, AlertType type, double value, long timestamp) {
+        return new Alert(patientId, type, String.valueOf((long) value), timestamp, AlertSeverity.HIGH);
+    }
+
+    private static void waitFor(Recorder recorder, int events) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.events.size() < events && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(events, recorder.events.size(), recorder.events.toString());
+    }
+
+    private static class Recorder implements AlertSubscriber {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final List<String> kinds = new CopyOnWriteArrayList<>();
+        final List<Alert> alerts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onAlert(AlertEvent event) {
+            Alert alert = event.getAlert();
+            events.add(event.getKind() + " " + alert.getPatientId() + " " + alert.getMessage());
+            kinds.add(event.getKind().name());
+            alerts.add(alert);
+        }
+    }
+}
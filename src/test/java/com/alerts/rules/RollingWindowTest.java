@@ -0,0 +1,122 @@
+package com.alerts.rules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Tests for RollingWindow against statistics recomputed from scratch.
+ */
+public class RollingWindowTest {
+
+    @Test
+    @DisplayName("Mean, variance, min and max match a full recomputation at every step")
+    void matchesRecomputation() {
+        Random random = new Random(42);
+        RollingWindow window = new RollingWindow(20);
+        Deque<Double> expected = new ArrayDeque<>();
+        for (int i = 0; i < 5000; i++) {
+            double value = 70 + random.nextGaussian() * 5;
+            window.add(value, i);
+            expected.addLast(value);
+            if (expected.size() > 20) {
+                expected.removeFirst();
+            }
+            assertEquals(expected.size(), window.size());
+            assertEquals(expected.stream().mapToDouble(Double::doubleValue).average().orElseThrow(), window.mean(),
+                    1e-9);
+            assertEquals(Math.sqrt(variance(expected)), window.stdDev(), 1e-9);
+            assertEquals(expected.stream().mapToDouble(Double::doubleValue).max().orElseThrow(), window.max());
+            assertEquals(expected.stream().mapToDouble(Double::doubleValue).min().orElseThrow(), window.min());
+            assertEquals(expected.getFirst(), window.get(0));
+            assertEquals(expected.getLast(), window.get(window.size() - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Variance stays exact when the spread is tiny against the magnitude")
+    void numericallyStable() {
+        RollingWindow window = new RollingWindow(20);
+        double offset = 1e9;
+        for (int i = 0; i < 100; i++) {
+            window.add(offset + (i % 2 == 0 ? -0.1 : 0.1), i);
+        }
+        assertEquals(offset, window.mean(), 1e-6);
+        assertEquals(0.1, window.stdDev(), 1e-6);
+
+        // The sum-of-squares formula loses every significant digit on the same data
+        double sum = 0, sumOfSquares = 0;
+        for (int i = 80; i < 100; i++) {
+            double value = window.get(i - 80);
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        double mean = sum / 20;
+        double naive = Math.sqrt(Math.max(0, sumOfSquares / 20 - mean * mean));
+        assertTrue(Math.abs(naive - 0.1) > 0.01, "Expected the naive formula to be off, got " + naive);
+    }
+
+    @Test
+    @DisplayName("Rounding errors do not build up over many removals")
+    void longRun() {
+        Random random = new Random(7);
+        RollingWindow window = new RollingWindow(50);
+        Deque<Double> expected = new ArrayDeque<>();
+        for (int i = 0; i < RollingWindow.RESYNC_INTERVAL * 3; i++) {
+            double value = random.nextDouble() * (i % 1000 == 0 ? 1e6 : 1);
+            window.add(value, i);
+            expected.addLast(value);
+            if (expected.size() > 50) {
+                expected.removeFirst();
+            }
+        }
+        assertEquals(Math.sqrt(variance(expected)), window.stdDev(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("An age bound evicts old readings however many there are")
+    void ageBound() {
+        RollingWindow window = new RollingWindow(Integer.MAX_VALUE, 1000);
+        window.add(98, 0);
+        window.add(95, 500);
+        assertEquals(98, window.max());
+        assertEquals(95, window.min());
+        window.add(96, 1000);
+        assertEquals(98, window.max(), "A reading exactly at the age bound stays");
+        window.add(97, 1001);
+        assertEquals(97, window.max());
+        assertEquals(3, window.size());
+        assertFalse(window.isFull());
+
+        for (int i = 0; i < 10_000; i++) {
+            window.add(90, 2000 + i / 10);
+        }
+        assertEquals(10_000, window.size(), "The ring grows to hold a full age window");
+        assertEquals(90, window.mean(), 1e-9);
+        assertEquals(0, window.stdDev(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("An empty window reports NaN and rejects bad bounds")
+    void empty() {
+        RollingWindow window = new RollingWindow(3);
+        assertTrue(Double.isNaN(window.mean()));
+        assertTrue(Double.isNaN(window.max()));
+        assertThrows(IndexOutOfBoundsException.class, () -> window.get(0));
+        window.add(1, 0);
+        window.clear();
+        assertEquals(0, window.size());
+        assertThrows(IllegalArgumentException.class, () -> new RollingWindow(0));
+        assertThrows(IllegalArgumentException.class, () -> new RollingWindow(5, 0));
+    }
+
+    private static double variance(Deque<Double> values) {
+        double mean = values.stream().mapToDouble(Double::doubleValue).average().orElseThrow();
+        return values.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / values.size();
+    }
+}
@@ -0,0 +1,143 @@
+package com.alerts.rules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.alerts.Alert;
+import com.alerts.AlertType;
+import com.data_management.PatientRecord;
+import com.data_management.RecordTypeRegistry;
+
+/**
+ * Tests for compiling rule sets and evaluating them sample by sample.
+ */
+public class RuleEngineTest {
+
+    private static final int PATIENT_ID = 5;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final Map<AlertType, Alert> active = new EnumMap<>(AlertType.class);
+    private RuleEngine engine;
+    private RuleEvaluator evaluator;
+
+    @BeforeEach
+    void init() {
+        engine = new RuleEngine(RuleSet.defaults());
+        evaluator = new RuleEvaluator(engine, new AlertSink() {
+            @Override
+            public void trigger(Alert alert) {
+                active.put(alert.getType(), alert);
+            }
+
+            @Override
+            public void resolve(int patientId, AlertType alertType) {
+                active.remove(alertType);
+            }
+        });
+    }
+
+    private void sample(String recordType, double value, long timestamp) {
+        evaluator.evaluate(PATIENT_ID, RecordTypeRegistry.intern(recordType), value, timestamp);
+    }
+
+    @Test
+    @DisplayName("Strict and inclusive thresholds compile to the right bounds")
+    void thresholdBounds() {
+        sample("SystolicBP", 180.0, NOW);
+        assertTrue(active.containsKey(AlertType.HIGH_SYSTOLIC_BP), "180 is at least 180");
+        assertEquals("Critical high systolic blood pressure: 180.0 mmHg",
+                active.get(AlertType.HIGH_SYSTOLIC_BP).getMessage());
+        sample("SystolicBP", 179.99, NOW + 1);
+        assertFalse(active.containsKey(AlertType.HIGH_SYSTOLIC_BP));
+
+        sample("OxygenSaturation", 92.0, NOW);
+        assertFalse(active.containsKey(AlertType.LOW_OXYGEN_SATURATION), "92 is not below 92");
+        sample("OxygenSaturation", Math.nextDown(92.0), NOW + 1);
+        assertTrue(active.containsKey(AlertType.LOW_OXYGEN_SATURATION));
+    }
+
+    @Test
+    @DisplayName("Trend, drop, deviation and combined rules use their windows")
+    void windowedRules() {
+        sample("DiastolicBP", 100, NOW);
+        sample("DiastolicBP", 89, NOW + 1000);
+        assertFalse(active.containsKey(AlertType.BP_DECREASING_TREND), "Trend needs three readings");
+        sample("DiastolicBP", 78, NOW + 2000);
+        assertTrue(active.containsKey(AlertType.BP_DECREASING_TREND));
+
+        sample("OxygenSaturation", 99, NOW);
+        sample("OxygenSaturation", 93.5, NOW + 300_000);
+        Alert drop = active.get(AlertType.RAPID_OXYGEN_DROP);
+        assertNotNull(drop);
+        assertEquals("Rapid drop in oxygen saturation of 5.5% within 10 minutes", drop.getMessage());
+
+        sample("SystolicBP", 85, NOW + 400_000);
+        sample("OxygenSaturation", 91, NOW + 500_000);
+        Alert combined = active.get(AlertType.HYPOTENSIVE_HYPOXEMIA);
+        assertNotNull(combined, "Both latest values are low");
+        assertTrue(combined.getMessage().contains("(85.0 mmHg)") && combined.getMessage().contains("(91.0%)"),
+                combined.getMessage());
+
+        for (int i = 0; i < 19; i++) {
+            sample("ECG", i % 2 == 0 ? 0.9 : 1.1, NOW + i);
+        }
+        assertFalse(active.containsKey(AlertType.ECG_ABNORMAL_PEAK));
+        sample("ECG", 5.0, NOW + 19);
+        assertTrue(active.containsKey(AlertType.ECG_ABNORMAL_PEAK));
+    }
+
+    @Test
+    @DisplayName("A reload changes thresholds for the next sample and keeps the windows")
+    void reload() {
+        sample("SystolicBP", 120, NOW);
+        sample("SystolicBP", 125, NOW + 1000);
+        sample("SystolicBP", 175, NOW + 2000);
+        assertFalse(active.containsKey(AlertType.HIGH_SYSTOLIC_BP));
+
+        Properties overrides = new Properties();
+        overrides.setProperty("systolic.high.threshold", "170");
+        overrides.setProperty("systolic.rising.readings", "4");
+        engine.reload(RuleSet.defaults().withOverrides(overrides));
+        assertEquals(170, engine.getRuleSet().find("systolic.high").getThreshold());
+
+        sample("SystolicBP", 176, NOW + 3000);
+        assertTrue(active.containsKey(AlertType.HIGH_SYSTOLIC_BP), "New threshold applies without a restart");
+        assertFalse(active.containsKey(AlertType.BP_INCREASING_TREND), "Longer trend window starts empty");
+        sample("SystolicBP", 187, NOW + 4000);
+        sample("SystolicBP", 198, NOW + 5000);
+        sample("SystolicBP", 209, NOW + 6000);
+        assertTrue(active.containsKey(AlertType.BP_INCREASING_TREND));
+        assertEquals("Increasing trend in systolic blood pressure detected over 4 readings",
+                active.get(AlertType.BP_INCREASING_TREND).getMessage());
+    }
+
+    @Test
+    @DisplayName("Replaying a record list reports the alerts of the latest records in rule order")
+    void replay() {
+        List<PatientRecord> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            records.add(new PatientRecord(PATIENT_ID, 120, "SystolicBP", NOW + i * 1000L));
+        }
+        records.add(new PatientRecord(PATIENT_ID, 85, "SystolicBP", NOW + 50_000));
+        records.add(new PatientRecord(PATIENT_ID, 90, "OxygenSaturation", NOW + 51_000));
+        List<Alert> alerts = RuleEvaluator.replay(engine.plan(), PATIENT_ID, records);
+        assertEquals(List.of(AlertType.LOW_SYSTOLIC_BP, AlertType.LOW_OXYGEN_SATURATION,
+                AlertType.HYPOTENSIVE_HYPOXEMIA), alerts.stream().map(Alert::getType).toList());
+    }
+
+    @Test
+    @DisplayName("Record types without rules are ignored")
+    void unknownType() {
+        sample("Cholesterol", 1000, NOW);
+        assertTrue(active.isEmpty());
+    }
+}
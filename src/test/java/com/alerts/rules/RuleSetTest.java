@@ -0,0 +1,69 @@
+package com.alerts.rules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import com.alerts.AlertSeverity;
+import com.alerts.AlertType;
+
+/**
+ * Tests for declaring rule sets and overriding their parameters.
+ */
+public class RuleSetTest {
+
+    @Test
+    @DisplayName("A properties file overrides and disables default rules")
+    void load(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("alert-rules.properties");
+        Files.writeString(file, String.join("\n",
+                "oxygen.low.threshold = 90",
+                "oxygen.drop.windowMs=300000",
+                "ecg.peak.readings=40",
+                "diastolic.falling.enabled=false"));
+        RuleSet rules = RuleSet.load(file);
+
+        assertEquals(90, rules.find("oxygen.low").getThreshold());
+        assertEquals(300_000, rules.find("oxygen.drop").getWindowMs());
+        assertEquals(40, rules.find("ecg.peak").getReadings());
+        assertNull(rules.find("diastolic.falling"));
+        assertEquals(RuleSet.defaults().getRules().size() - 1, rules.getRules().size());
+        assertEquals(180, rules.find("systolic.high").getThreshold(), "Other rules keep their defaults");
+    }
+
+    @Test
+    @DisplayName("Unknown keys and invalid values are rejected")
+    void invalidOverrides() {
+        Properties unknownRule = new Properties();
+        unknownRule.setProperty("systolic.hgih.threshold", "170");
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.defaults().withOverrides(unknownRule));
+
+        Properties wrongParameter = new Properties();
+        wrongParameter.setProperty("systolic.high.windowMs", "1000");
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.defaults().withOverrides(wrongParameter));
+
+        Properties notANumber = new Properties();
+        notANumber.setProperty("systolic.high.threshold", "high");
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.defaults().withOverrides(notANumber));
+
+        Properties tooShort = new Properties();
+        tooShort.setProperty("systolic.rising.readings", "1");
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.defaults().withOverrides(tooShort));
+    }
+
+    @Test
+    @DisplayName("Rule names must be unique")
+    void duplicateNames() {
+        Rule rule = Rule.threshold("x", "SystolicBP", Comparison.AT_LEAST, 1, AlertType.HIGH_SYSTOLIC_BP,
+                AlertSeverity.LOW, "{value}");
+        assertThrows(IllegalArgumentException.class, () -> new RuleSet(List.of(rule, rule)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.alerts.rules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for SlidingMax against a scan of every reading in the window.
+ */
+public class SlidingMaxTest {
+
+    @Test
+    @DisplayName("The maximum matches a scan of the window at every step")
+    void matchesScan() {
+        Random random = new Random(3);
+        SlidingMax window = new SlidingMax(10_000);
+        List<long[]> times = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        long timestamp = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // Irregular spacing, with bursts and gaps longer than the window
+            timestamp += random.nextInt(10) == 0 ? random.nextInt(15_000) : random.nextInt(50);
+            double value = 95 + random.nextGaussian() * 2 - (i % 500) * 0.01;
+            window.add(value, timestamp);
+            times.add(new long[] {timestamp});
+            values.add(value);
+
+            double expected = Double.NEGATIVE_INFINITY;
+            for (int j = values.size() - 1; j >= 0 && timestamp - times.get(j)[0] <= 10_000; j--) {
+                expected = Math.max(expected, values.get(j));
+            }
+            assertEquals(expected, window.max(), "at reading " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Readings exactly at the window edge are kept")
+    void edge() {
+        SlidingMax window = new SlidingMax(600_000);
+        assertTrue(Double.isNaN(window.max()));
+        window.add(98, 0);
+        window.add(92, 600_000);
+        assertEquals(98, window.max());
+        window.add(93, 600_001);
+        assertEquals(93, window.max());
+        assertThrows(IllegalArgumentException.class, () -> new SlidingMax(0));
+    }
+}
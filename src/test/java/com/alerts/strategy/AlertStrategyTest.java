@@ -142,4 +142,32 @@ public class AlertStrategyTest {
         assertNotNull(alert, "Should detect rapid oxygen drop");
         assertEquals(AlertType.RAPID_OXYGEN_DROP, alert.getType());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Single-signal strategies treat every record as their signal")
+    public void singleSignalRecordTypeTest() {
+        List<PatientRecord> ecg = new ArrayList<>();
+        for (int i = 0; i < 19; i++) {
+            ecg.add(new PatientRecord(ID, i % 2 == 0 ? 0.1 : 0.2, "HeartRate", NOW + i));
+        }
+        ecg.add(new PatientRecord(ID, 5.0, "HeartRate", NOW + 19));
+        Alert peak = new HeartRateStrategy().checkAlert(ID, ecg);
+        assertNotNull(peak, "Records of any type are ECG readings");
+        assertEquals(AlertType.ECG_ABNORMAL_PEAK, peak.getType());
+
+        List<PatientRecord> saturation = new ArrayList<>();
+        saturation.add(new PatientRecord(ID, 90.0, "Saturation", NOW));
+        Alert low = new OxygenSaturationStrategy().checkAlert(ID, saturation);
+        assertNotNull(low, "Records of any type are saturation readings");
+        assertEquals(AlertType.LOW_OXYGEN_SATURATION, low.getType());
+    }
+
+    @Test
+    @DisplayName("BloodPressureStrategy ignores records that are not blood pressure")
+    public void bloodPressureRecordTypeTest() {
+        List<PatientRecord> recs = new ArrayList<>();
+        recs.add(new PatientRecord(ID, 185.0, "BloodPressure", NOW));
+        assertNull(new BloodPressureStrategy().checkAlert(ID, recs),
+                "Only SystolicBP and DiastolicBP records are readings");
+    }
+}
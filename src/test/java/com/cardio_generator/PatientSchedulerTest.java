@@ -0,0 +1,149 @@
+package com.cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleSink;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Tests for the batched patient scheduler.
+ */
+public class PatientSchedulerTest {
+
+    private static final OutputStrategy NO_OUTPUT = (patientId, timestamp, label, data) -> { };
+
+    private static List<Integer> patients(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Every patient runs once per period, on a fixed pool and on virtual threads")
+    void everyPatientRunsOncePerPeriod() throws InterruptedException {
+        for (boolean virtual : new boolean[] { false, true }) {
+            int patients = 1000;
+            AtomicIntegerArray runs = new AtomicIntegerArray(patients + 1);
+            PatientScheduler scheduler = new PatientScheduler(patients(patients), NO_OUTPUT,
+                    virtual ? PatientScheduler.virtualThreads() : PatientScheduler.fixedPool(), 10);
+            // 5 ticks per period
+            scheduler.schedule((patientId, output) -> runs.incrementAndGet(patientId), 50, TimeUnit.MILLISECONDS);
+            scheduler.start();
+            Thread.sleep(520);
+            scheduler.shutdown();
+
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (int id = 1; id <= patients; id++) {
+                min = Math.min(min, runs.get(id));
+                max = Math.max(max, runs.get(id));
+            }
+            // About ten periods have passed; timer jitter may cost or add a run
+            assertTrue(min >= 8, "Fewest runs: " + min);
+            assertTrue(max <= 12, "Most runs: " + max);
+            assertEquals(0, runs.get(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Due patients are spread evenly over the ticks of a period")
+    void evenSpread() throws InterruptedException {
+        int patients = 1000;
+        List<Integer> perTick = new ArrayList<>();
+        int[] current = new int[1];
+        CountDownLatch done = new CountDownLatch(20);
+        // A single worker runs the chunks of a tick one after the other
+        PatientScheduler scheduler = new PatientScheduler(patients(patients), NO_OUTPUT,
+                Executors.newSingleThreadExecutor(), 20);
+        scheduler.schedule((patientId, output) -> {
+            synchronized (perTick) {
+                current[0]++;
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        // A second job that runs every tick; its first patient marks the end of the first job's chunk
+        scheduler.schedule((patientId, output) -> {
+            if (patientId != 1) {
+                return;
+            }
+            synchronized (perTick) {
+                perTick.add(current[0]);
+                current[0] = 0;
+            }
+            done.countDown();
+        }, 20, TimeUnit.MILLISECONDS);
+        scheduler.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        synchronized (perTick) {
+            // A marker skipped on a slow tick merges two ticks, but a slot is never split or mixed
+            for (int count : perTick) {
+                assertTrue(count > 0 && count % (patients / 5) == 0, "Patients in a tick: " + count);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Chunks still running when they are due again are skipped")
+    void overrunIsSkipped() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicIntegerArray runs = new AtomicIntegerArray(2);
+        PatientScheduler scheduler = new PatientScheduler(patients(1), NO_OUTPUT, PatientScheduler.fixedPool(), 10);
+        scheduler.schedule((patientId, output) -> {
+            runs.incrementAndGet(patientId);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        scheduler.start();
+        Thread.sleep(200);
+        assertEquals(1, runs.get(1));
+        assertTrue(scheduler.getSkippedChunks() > 0);
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("Batches are stamped with the scheduler's clock")
+    void batchesUseClock() throws InterruptedException {
+        List<Long> stamps = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        PatientScheduler scheduler = new PatientScheduler(patients(1), NO_OUTPUT, PatientScheduler.fixedPool(), 10,
+                () -> 42L);
+        scheduler.schedule(new PatientDataGenerator() {
+            @Override
+            public void generate(int patientId, OutputStrategy outputStrategy) {
+                fail("Batches should be generated as a whole");
+            }
+
+            @Override
+            public void generateBatch(int[] patientIds, long timestamp, SampleSink sink) {
+                stamps.add(timestamp);
+                done.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        scheduler.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        for (long stamp : stamps) {
+            assertEquals(42L, stamp);
+        }
+    }
+}
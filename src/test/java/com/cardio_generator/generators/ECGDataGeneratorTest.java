@@ -57,6 +57,53 @@ public class ECGDataGeneratorTest {
         }
     }
 
+    @Test
+    @DisplayName("Batch generation gives the same values as generate")
+    public void batchMatchesGenerate() {
+        long time = 1_700_000_000_123L;
+        ECGDataGenerator single = new ECGDataGenerator(PATIENTS, 9, new SimulatedClock(time));
+        ECGDataGenerator batch = new ECGDataGenerator(PATIENTS, 9, new SimulatedClock(0));
+        int[] ids = { 3, 1, 7, 10, 2 };
+
+        RecordingOutputStrategy expected = new RecordingOutputStrategy();
+        for (int id : ids) {
+            single.generate(id, expected);
+        }
+        RecordingOutputStrategy actual = new RecordingOutputStrategy();
+        batch.generateBatch(ids, time, SampleSink.of(actual));
+
+        assertEquals(ids.length, actual.getRecords().size());
+        for (int i = 0; i < ids.length; i++) {
+            OutputRecord want = expected.getRecords().get(i);
+            OutputRecord got = actual.getRecords().get(i);
+            assertEquals(want.patientId, got.patientId);
+            assertEquals(time, got.timestamp);
+            assertEquals("ECG", got.recordType);
+            assertEquals(want.value, got.value);
+        }
+    }
+
+    @Test
+    @DisplayName("Polynomial waveform matches the Math.sin form")
+    public void waveformMatchesSin() {
+        for (double hr = 60; hr <= 80; hr += 0.37) {
+            for (double t = 0; t < 100; t += 0.013) {
+                assertEquals(sinWaveform(hr, t), ECGDataGenerator.simulateEcgWaveform(hr, t), 1e-12);
+            }
+            // At epoch times both forms round the phase, just not the same way
+            double now = 1_700_000_000.5;
+            assertEquals(sinWaveform(hr, now), ECGDataGenerator.simulateEcgWaveform(hr, now), 1e-5);
+        }
+    }
+
+    private static double sinWaveform(double hr, double t) {
+        double ecgFrequency = hr / 60.0;
+        double pWave = 0.1 * Math.sin(2 * Math.PI * ecgFrequency * t);
+        double qrsComplex = 0.5 * Math.sin(2 * Math.PI * 3 * ecgFrequency * t);
+        double tWave = 0.2 * Math.sin(2 * Math.PI * 2 * ecgFrequency * t + Math.PI / 4);
+        return pWave + qrsComplex + tWave;
+    }
+
     // Helper for capturing output
     private static class RecordingOutputStrategy implements OutputStrategy {
         private List<OutputRecord> records = new ArrayList<>();
@@ -0,0 +1,150 @@
+package com.cardio_generator.generators;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Tests for the high-frequency ECG generator.
+ */
+public class HighFrequencyECGDataGeneratorTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * Keeps every block as a continuous signal.
+     */
+    private static class BlockRecorder implements OutputStrategy {
+        final List<Long> blockTimes = new ArrayList<>();
+        final List<Double> signal = new ArrayList<>();
+        int calls;
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            fail("Samples should arrive in blocks");
+        }
+
+        @Override
+        public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+                int count) {
+            assertEquals("ECG", label);
+            calls++;
+            blockTimes.add(timestamp);
+            for (int i = 0; i < count; i++) {
+                signal.add(values[i]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Each call outputs one second as one block, blocks follow without gaps")
+    void oneBlockPerSecond() {
+        SimulatedClock clock = new SimulatedClock(START);
+        HighFrequencyECGDataGenerator generator = new HighFrequencyECGDataGenerator(3, 250, 1, clock);
+        BlockRecorder output = new BlockRecorder();
+        for (int s = 0; s < 5; s++) {
+            generator.generate(2, output);
+            // The scheduler's timing jitters; the signal stays continuous
+            clock.advance(s % 2 == 0 ? 1040 : 960);
+        }
+        assertEquals(5, output.calls);
+        assertEquals(5 * 250, output.signal.size());
+        for (int s = 0; s < 5; s++) {
+            assertEquals(START + s * 1000, output.blockTimes.get(s));
+        }
+    }
+
+    @Test
+    @DisplayName("The signal has PQRST beats at a resting heart rate, with varying RR intervals")
+    void beatsWithVariability() {
+        int rate = 500;
+        SimulatedClock clock = new SimulatedClock(START);
+        HighFrequencyECGDataGenerator generator = new HighFrequencyECGDataGenerator(1, rate, 5, clock);
+        BlockRecorder output = new BlockRecorder();
+        for (int s = 0; s < 60; s++) {
+            generator.generate(1, output);
+            clock.advance(1000);
+        }
+
+        List<Integer> peaks = new ArrayList<>();
+        double minimum = 0;
+        for (int i = 1; i < output.signal.size() - 1; i++) {
+            double value = output.signal.get(i);
+            minimum = Math.min(minimum, value);
+            if (value > 0.6 && value >= output.signal.get(i - 1) && value > output.signal.get(i + 1)) {
+                peaks.add(i);
+            }
+        }
+        // 60 to 90 bpm over a minute, give or take the variability
+        assertTrue(peaks.size() >= 55 && peaks.size() <= 95, "Beats: " + peaks.size());
+        // An S wave below the baseline follows the R peaks
+        assertTrue(minimum < -0.15, "Minimum: " + minimum);
+
+        int shortest = Integer.MAX_VALUE;
+        int longest = 0;
+        for (int i = 1; i < peaks.size(); i++) {
+            int interval = peaks.get(i) - peaks.get(i - 1);
+            shortest = Math.min(shortest, interval);
+            longest = Math.max(longest, interval);
+        }
+        // Every R peak is a beat, not noise: no interval under 0.3 s
+        assertTrue(shortest >= 0.3 * rate, "Shortest RR: " + shortest);
+        assertTrue(longest - shortest >= 5, "RR intervals should vary");
+    }
+
+    @Test
+    @DisplayName("Outputs without block support get every sample with its own timestamp")
+    void defaultBlockOutput() {
+        List<Long> timestamps = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> {
+            Double.parseDouble(data);
+            timestamps.add(timestamp);
+        };
+        new HighFrequencyECGDataGenerator(1, 250, 2, new SimulatedClock(START)).generate(1, output);
+
+        assertEquals(250, timestamps.size());
+        for (int i = 0; i < 250; i++) {
+            assertEquals(START + i * 4, timestamps.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Blocks of one thread reuse the same buffer across patients and seconds")
+    void reusesBlockBuffer() {
+        List<double[]> buffers = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                fail("Samples should arrive in blocks");
+            }
+
+            @Override
+            public void outputBlock(int patientId, long timestamp, int sampleRate, String label,
+                    double[] values, int count) {
+                buffers.add(values);
+            }
+        };
+        HighFrequencyECGDataGenerator generator =
+                new HighFrequencyECGDataGenerator(2, 250, 3, new SimulatedClock(START));
+        generator.generate(1, output);
+        generator.generate(2, output);
+        generator.generate(1, output);
+
+        assertEquals(3, buffers.size());
+        assertSame(buffers.get(0), buffers.get(1));
+        assertSame(buffers.get(0), buffers.get(2));
+    }
+
+    @Test
+    @DisplayName("Sample rates outside 1 to 1000 are rejected")
+    void invalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new HighFrequencyECGDataGenerator(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HighFrequencyECGDataGenerator(1, 2000));
+    }
+}
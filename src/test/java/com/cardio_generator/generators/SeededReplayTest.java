@@ -0,0 +1,97 @@
+package com.cardio_generator.generators;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Tests for the seeded generators and the simulated clock.
+ */
+public class SeededReplayTest {
+
+    private static final int PATIENTS = 20;
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * Runs every generator for every patient over a number of simulated seconds
+     * and returns the output as text, one sample per line.
+     */
+    private static List<String> run(long seed, List<Integer> order, int seconds) {
+        SimulatedClock clock = new SimulatedClock(START);
+        List<PatientDataGenerator> generators = List.of(
+                new ECGDataGenerator(PATIENTS, seed, clock),
+                new BloodSaturationDataGenerator(PATIENTS, seed, clock),
+                new BloodPressureDataGenerator(PATIENTS, seed, clock),
+                new BloodLevelsDataGenerator(PATIENTS, seed, clock),
+                new AlertGenerator(PATIENTS, seed, clock));
+        List<String> lines = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) ->
+                lines.add(patientId + "," + timestamp + "," + label + "," + data);
+        for (int s = 0; s < seconds; s++) {
+            for (PatientDataGenerator generator : generators) {
+                for (int patientId : order) {
+                    generator.generate(patientId, output);
+                }
+            }
+            clock.advance(1000);
+        }
+        return lines;
+    }
+
+    private static List<Integer> patients() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= PATIENTS; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("The same seed and patient count reproduce the same stream")
+    void sameSeedSameStream() {
+        List<String> first = run(42, patients(), 30);
+        List<String> second = run(42, patients(), 30);
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("A patient's values don't depend on the order patients are run in")
+    void independentOfPatientOrder() {
+        List<Integer> reversed = patients();
+        Collections.reverse(reversed);
+        List<String> inOrder = run(7, patients(), 10);
+        List<String> backwards = run(7, reversed, 10);
+        for (int patientId = 1; patientId <= PATIENTS; patientId++) {
+            String prefix = patientId + ",";
+            assertEquals(inOrder.stream().filter(line -> line.startsWith(prefix)).toList(),
+                    backwards.stream().filter(line -> line.startsWith(prefix)).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Different seeds produce different values")
+    void differentSeeds() {
+        assertNotEquals(run(1, patients(), 5), run(2, patients(), 5));
+    }
+
+    @Test
+    @DisplayName("Samples are stamped with the injected clock")
+    void usesInjectedClock() {
+        SimulatedClock clock = new SimulatedClock(START);
+        List<Long> timestamps = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> timestamps.add(timestamp);
+        BloodSaturationDataGenerator generator = new BloodSaturationDataGenerator(PATIENTS, 3, clock);
+        generator.generate(1, output);
+        clock.advance(500);
+        generator.generate(1, output);
+        assertEquals(List.of(START, START + 500), timestamps);
+    }
+}
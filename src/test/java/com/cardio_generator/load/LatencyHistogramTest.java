@@ -0,0 +1,58 @@
+package com.cardio_generator.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for the latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Percentiles are within the bucket precision of the exact values")
+    void percentiles() {
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal spread from nanoseconds to seconds
+            values[i] = (long) Math.exp(random.nextGaussian() * 3 + 9);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double fraction : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long estimate = histogram.getPercentile(fraction);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 32 + 1,
+                    fraction + ": exact " + exact + ", estimate " + estimate);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getPercentile(1.0));
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    @DisplayName("Small values are exact; merge and reset work")
+    void smallValuesMergeAndReset() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            a.record(i);
+        }
+        b.record(-5);
+        b.record(Long.MAX_VALUE);
+        assertEquals(5, a.getPercentile(0.5));
+        a.add(b);
+        assertEquals(12, a.getCount());
+        assertEquals(0, a.getPercentile(0.01));
+        assertEquals(Long.MAX_VALUE, a.getPercentile(1.0));
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getPercentile(0.5));
+    }
+}
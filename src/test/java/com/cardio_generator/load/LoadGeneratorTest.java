@@ -0,0 +1,103 @@
+package com.cardio_generator.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Tests for the load generation mode.
+ */
+public class LoadGeneratorTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private static List<Integer> patients(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Maximum throughput keeps the generator mix and stamps simulated time")
+    void simulatedTimestamps() throws InterruptedException {
+        Map<Integer, List<Long>> fast = new ConcurrentHashMap<>();
+        Map<Integer, List<Long>> slow = new ConcurrentHashMap<>();
+        OutputStrategy recording = (patientId, timestamp, label, data) ->
+                (label.equals("fast") ? fast : slow).computeIfAbsent(patientId, k -> new ArrayList<>()).add(timestamp);
+        LoadGenerator load = new LoadGenerator(patients(20), recording, 0, 2);
+        load.schedule((patientId, output) -> output.output(patientId, 0, "fast", "1"), 1, TimeUnit.SECONDS);
+        load.schedule((patientId, output) -> output.output(patientId, 0, "slow", "1"), 10, TimeUnit.SECONDS);
+        load.start(START, 0, null);
+        while (load.getSampleCount() < 20_000) {
+            Thread.sleep(10);
+        }
+        load.stop();
+
+        for (int patientId = 1; patientId <= 20; patientId++) {
+            List<Long> fastTimes = fast.get(patientId);
+            List<Long> slowTimes = slow.get(patientId);
+            // One sample per simulated second, however fast the real clock went
+            for (int i = 1; i < fastTimes.size(); i++) {
+                assertEquals(1000, fastTimes.get(i) - fastTimes.get(i - 1));
+            }
+            assertTrue(fastTimes.get(0) >= START && fastTimes.get(0) < START + 1000);
+            assertEquals(fastTimes.size() / 10.0, slowTimes.size(), 1.0);
+        }
+    }
+
+    @Test
+    @DisplayName("A target rate is held and reported")
+    void targetRate() throws InterruptedException {
+        OutputStrategy discard = (patientId, timestamp, label, data) -> { };
+        LoadGenerator load = new LoadGenerator(patients(100), discard, 5000, 1);
+        load.schedule((patientId, output) -> output.output(patientId, 0, "ECG", "1"), 1, TimeUnit.SECONDS);
+        load.start(START, 0, null);
+        Thread.sleep(1000);
+        LoadReport report = load.report();
+        load.stop();
+
+        assertEquals(5000, report.getSamplesPerSecond(), 1000);
+        assertTrue(report.getLatencyPercentile(0.5) <= report.getLatencyPercentile(0.99));
+        assertTrue(report.getLatencyPercentile(0.99) <= report.getMaxLatency());
+        assertTrue(report.toString().contains("samples/s"));
+    }
+
+    @Test
+    @DisplayName("Seeded generators on the simulated clock replay the same stream")
+    void seededReplay() throws InterruptedException {
+        List<String> first = record(5_000);
+        List<String> second = record(5_000);
+        assertEquals(first, second);
+    }
+
+    private static List<String> record(int samples) throws InterruptedException {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        OutputStrategy recording = (patientId, timestamp, label, data) ->
+                lines.add(patientId + "," + timestamp + "," + label + "," + data);
+        LoadGenerator load = new LoadGenerator(patients(50), recording, 0, 1);
+        load.schedule(new ECGDataGenerator(50, 42, load.getClock()), 1, TimeUnit.SECONDS);
+        load.schedule(new BloodSaturationDataGenerator(50, 42, load.getClock()), 1, TimeUnit.SECONDS);
+        load.start(START, 0, null);
+        while (load.getSampleCount() < samples) {
+            Thread.sleep(10);
+        }
+        load.stop();
+        synchronized (lines) {
+            return new ArrayList<>(lines.subList(0, samples));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the asynchronous output decorator.
+ */
+public class AsyncOutputStrategyTest {
+
+    @Test
+    @DisplayName("All samples from several producers are delivered, in order per producer")
+    void deliversEverything() throws InterruptedException {
+        RecordingOutput sink = new RecordingOutput(null);
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 64, AsyncOutputStrategy.OverflowPolicy.BLOCK);
+        int producers = 4;
+        int samples = 20_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int patientId = p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < samples; i++) {
+                    output.output(patientId, i, "ECG", "x");
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+        output.close();
+
+        assertTrue(sink.closed);
+        assertEquals(0, output.getDroppedCount());
+        assertEquals(producers * samples, output.getDeliveredCount());
+        assertEquals(producers * samples, sink.records.size());
+        long[] last = new long[producers];
+        Arrays.fill(last, -1);
+        for (long[] record : sink.records) {
+            assertEquals(last[(int) record[0]] + 1, record[1]);
+            last[(int) record[0]] = record[1];
+        }
+    }
+
+    @Test
+    @DisplayName("Drop-newest discards new samples while the output is stalled")
+    void dropNewest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput sink = new RecordingOutput(release);
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 4, AsyncOutputStrategy.OverflowPolicy.DROP_NEWEST);
+        output.output(0, 0, "ECG", "x");
+        // Wait until the drain thread is stuck in the output
+        assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            output.output(0, i, "ECG", "x");
+        }
+        assertEquals(4, output.getQueueDepth());
+        assertEquals(6, output.getDroppedCount());
+        release.countDown();
+        output.close();
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), sink.timestamps());
+    }
+
+    @Test
+    @DisplayName("Drop-oldest keeps the newest samples while the output is stalled")
+    void dropOldest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput sink = new RecordingOutput(release);
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 4, AsyncOutputStrategy.OverflowPolicy.DROP_OLDEST);
+        output.output(0, 0, "ECG", "x");
+        assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            output.output(0, i, "ECG", "x");
+        }
+        assertEquals(6, output.getDroppedCount());
+        release.countDown();
+        output.close();
+
+        assertEquals(List.of(0L, 7L, 8L, 9L, 10L), sink.timestamps());
+    }
+
+    @Test
+    @DisplayName("Block waits for free space instead of losing samples")
+    void block() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput sink = new RecordingOutput(release);
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 2, AsyncOutputStrategy.OverflowPolicy.BLOCK);
+        output.output(0, 0, "ECG", "x");
+        assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 5; i++) {
+                output.output(0, i, "ECG", "x");
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "Producer should wait while the queue is full");
+        assertEquals(2, output.getQueueDepth());
+
+        release.countDown();
+        producer.join(5_000);
+        assertFalse(producer.isAlive());
+        output.close();
+        assertEquals(0, output.getDroppedCount());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), sink.timestamps());
+    }
+
+    @Test
+    @DisplayName("Samples output after close are dropped")
+    void afterClose() {
+        RecordingOutput sink = new RecordingOutput(null);
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 100, AsyncOutputStrategy.OverflowPolicy.BLOCK);
+        assertEquals(128, output.getCapacity());
+        output.close();
+        output.output(1, 1, "ECG", "x");
+        assertEquals(1, output.getDroppedCount());
+        assertTrue(sink.records.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A block is queued as one entry and reaches the output as a block")
+    void blockPassesThrough() {
+        List<double[]> blocks = Collections.synchronizedList(new ArrayList<>());
+        List<Long> starts = Collections.synchronizedList(new ArrayList<>());
+        RecordingOutput sink = new RecordingOutput(null) {
+            @Override
+            public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+                    int count) {
+                starts.add(timestamp);
+                blocks.add(Arrays.copyOf(values, count));
+            }
+        };
+        AsyncOutputStrategy output = new AsyncOutputStrategy(sink, 4, AsyncOutputStrategy.OverflowPolicy.BLOCK);
+        double[] scratch = { 0.1, 0.2, 0.3, 99 };
+        output.outputBlock(1, 1000, 250, "ECG", scratch, 3);
+        // The caller may reuse its array at once
+        scratch[0] = -1;
+        output.outputBlock(1, 1012, 250, "ECG", scratch, 1);
+        output.close();
+
+        assertTrue(sink.records.isEmpty(), "No sample should have been output on its own");
+        assertEquals(List.of(1000L, 1012L), starts);
+        assertArrayEquals(new double[] { 0.1, 0.2, 0.3 }, blocks.get(0));
+        assertArrayEquals(new double[] { -1 }, blocks.get(1));
+        assertEquals(2, output.getDeliveredCount());
+    }
+
+    /**
+     * Records samples; optionally blocks in the first call until released.
+     */
+    private static class RecordingOutput implements OutputStrategy {
+        final List<long[]> records = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release;
+        volatile boolean closed;
+
+        RecordingOutput(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            records.add(new long[] { patientId, timestamp });
+            entered.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        List<Long> timestamps() {
+            List<Long> timestamps = new ArrayList<>();
+            for (long[] record : records) {
+                timestamps.add(record[1]);
+            }
+            return timestamps;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import com.data_management.BinaryFrameDecoder;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+
+/**
+ * Tests for the binary frame encoder, decoded with the data side's decoder.
+ */
+public class BinaryFrameEncoderTest {
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+    }
+
+    @AfterEach
+    void cleanup() {
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Encoded samples decode to the same values")
+    void roundTrip() {
+        BinaryFrameEncoder encoder = new BinaryFrameEncoder(10_000);
+        Random random = new Random(3);
+        long timestamp = 1_700_000_000_000L;
+        String[] labels = { "ECG", "Saturation", "SystolicPressure" };
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() * 100;
+            // Out of order timestamps need negative deltas
+            timestamp += random.nextInt(20) - 5;
+            if (i % 2 == 0) {
+                encoder.add(1 + i % 10, timestamp, labels[i % 3], values[i]);
+            } else {
+                encoder.add(1 + i % 10, timestamp, labels[i % 3], Double.toString(values[i]));
+            }
+        }
+        assertEquals(1000, encoder.size());
+        ByteBuffer frame = encoder.finish();
+        assertEquals(0, encoder.size());
+        // Well under the ~40 bytes of a CSV line
+        assertTrue(frame.remaining() < 1000 * 13, "Frame size: " + frame.remaining());
+
+        assertEquals(1000, new BinaryFrameDecoder().decode(frame, storage));
+        for (int patientId = 1; patientId <= 10; patientId++) {
+            List<PatientRecord> records = storage.getRecords(patientId, 0, Long.MAX_VALUE);
+            assertEquals(100, records.size());
+        }
+        random = new Random(3);
+        timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < values.length; i++) {
+            random.nextGaussian();
+            timestamp += random.nextInt(20) - 5;
+            boolean found = false;
+            for (PatientRecord record : storage.getRecords(1 + i % 10, timestamp, timestamp)) {
+                found |= record.getRecordType().equals(labels[i % 3])
+                        && Double.doubleToLongBits(record.getMeasurementValue()) == Double.doubleToLongBits(values[i]);
+            }
+            assertTrue(found, "Sample " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Text data is kept as text, and each frame starts a fresh type list")
+    void textAndFreshFrames() {
+        BinaryFrameEncoder encoder = new BinaryFrameEncoder(2);
+        encoder.add(1, 1000, "Alert", "triggered");
+        encoder.add(1, 1001, "Saturation", "97.0%");
+        assertTrue(encoder.isFull());
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+        assertEquals(0, decoder.decode(encoder.finish(), storage));
+        assertEquals(2, decoder.getSkippedSamples());
+
+        encoder.add(2, 2000, "Cholesterol", "180.5");
+        assertFalse(encoder.isFull());
+        assertEquals(1, decoder.decode(encoder.finish(), storage));
+        PatientRecord record = storage.getRecords(2, 0, Long.MAX_VALUE).get(0);
+        assertEquals("Cholesterol", record.getRecordType());
+        assertEquals(180.5, record.getMeasurementValue());
+        assertEquals(2000, record.getTimestamp());
+    }
+}
@@ -0,0 +1,223 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import com.data_management.BinaryFrameDecoder;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.WebSocketClientReader;
+
+/**
+ * Tests the format negotiation of the network outputs: clients that ask for
+ * the binary format get frames, all others keep getting CSV.
+ */
+public class BinaryNetworkOutputTest {
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+    }
+
+    @AfterEach
+    void cleanup() {
+        storage.clearAllData();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    private int storedSamples(int patients) {
+        int count = 0;
+        for (int patientId = 1; patientId <= patients; patientId++) {
+            count += storage.getRecords(patientId, 0, Long.MAX_VALUE).size();
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("WebSocket clients get binary frames or CSV messages, as negotiated")
+    void webSocketNegotiation() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(8093);
+        WebSocketClientReader reader = new WebSocketClientReader("ws://localhost:8093", 10, true);
+        List<String> csv = new CopyOnWriteArrayList<>();
+        AtomicInteger csvBinaryMessages = new AtomicInteger();
+        WebSocketClient csvClient = new WebSocketClient(new URI("ws://localhost:8093")) {
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+                // Messages hold several lines each
+                csv.addAll(List.of(message.split("\n")));
+            }
+
+            @Override
+            public void onMessage(ByteBuffer bytes) {
+                csvBinaryMessages.incrementAndGet();
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        };
+        try {
+            Thread.sleep(300); // Let the server start
+            reader.readData(storage);
+            assertTrue(csvClient.connectBlocking());
+            assertTrue(reader.isBinary());
+            Thread.sleep(200); // Let the server register both connections
+
+            for (int i = 0; i < 100; i++) {
+                output.output(1 + i % 5, 1_700_000_000_000L + i, "ECG", Double.toString(i * 0.5));
+            }
+            output.outputBlock(6, 1_700_000_001_000L, 250, "ECG", new double[] { 0.1, 0.2, 0.3, 0.4 }, 4);
+
+            await(() -> storedSamples(6) == 104 && csv.size() == 104);
+            assertEquals(104, storedSamples(6));
+            assertEquals(1_700_000_001_012L, storage.getRecords(6, 0, Long.MAX_VALUE).get(3).getTimestamp());
+            assertEquals(104, csv.size());
+            assertEquals("1,1700000000000,ECG,0.0", csv.get(0));
+            assertEquals("6,1700000001012,ECG,0.4", csv.get(103));
+            assertEquals(0, csvBinaryMessages.get());
+        } finally {
+            csvClient.close();
+            reader.close();
+            output.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A TCP client that sends the hello line gets length-prefixed frames")
+    void tcpBinary() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(8094);
+        try (Socket socket = new Socket("localhost", 8094)) {
+            OutputStream out = socket.getOutputStream();
+            out.write((TcpOutputStrategy.BINARY_HELLO + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(500); // Let the server read the hello
+
+            for (int i = 0; i < 1000; i++) {
+                output.output(1 + i % 4, 1_700_000_000_000L + i, "SystolicPressure", Double.toString(100 + i % 40));
+            }
+            output.close();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+            int samples = 0;
+            while (samples < 1000) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                samples += decoder.decode(ByteBuffer.wrap(frame), storage);
+            }
+            assertEquals(1000, storedSamples(4));
+            assertEquals(250, storage.getRecords(2, 0, Long.MAX_VALUE).size());
+        } finally {
+            output.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Blocks keep their raw values through the simulator's async wrapping to a binary client")
+    void tcpBinaryBlocksThroughAsync() throws Exception {
+        AtomicInteger blocks = new AtomicInteger();
+        AtomicInteger samples = new AtomicInteger();
+        TcpOutputStrategy tcp = new TcpOutputStrategy(8101) {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                samples.incrementAndGet();
+                super.output(patientId, timestamp, label, data);
+            }
+
+            @Override
+            public void outputBlock(int patientId, long timestamp, int sampleRate, String label, double[] values,
+                    int count) {
+                blocks.incrementAndGet();
+                super.outputBlock(patientId, timestamp, sampleRate, label, values, count);
+            }
+        };
+        // Wrapped as HealthDataSimulator does by default
+        OutputStrategy output = new AsyncOutputStrategy(tcp, 65536, AsyncOutputStrategy.OverflowPolicy.BLOCK);
+        double[] values = new double[250];
+        try (Socket socket = new Socket("localhost", 8101)) {
+            OutputStream out = socket.getOutputStream();
+            out.write((TcpOutputStrategy.BINARY_HELLO + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(500); // Let the server read the hello
+
+            for (int second = 0; second < 4; second++) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Math.sin((second * 250 + i) / 7.0) / 3;
+                }
+                output.outputBlock(5, 1_700_000_000_000L + second * 1000L, 250, "ECG", values, values.length);
+            }
+            output.close();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+            int decoded = 0;
+            while (decoded < 1000) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                decoded += decoder.decode(ByteBuffer.wrap(frame), storage);
+            }
+            assertEquals(4, blocks.get(), "Every block should reach the output as a block");
+            assertEquals(0, samples.get());
+            List<PatientRecord> records = storage.getRecords(5, 0, Long.MAX_VALUE);
+            assertEquals(1000, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(1_700_000_000_000L + (i / 250) * 1000L + (i % 250) * 4L, records.get(i).getTimestamp());
+                assertEquals(Math.sin(i / 7.0) / 3, records.get(i).getMeasurementValue());
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A TCP client that sends nothing keeps getting CSV lines")
+    void tcpCsv() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(8095);
+        try (Socket socket = new Socket("localhost", 8095)) {
+            Thread.sleep(1000); // Past the hello timeout
+            output.output(3, 1_700_000_000_000L, "ECG", "0.25");
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            assertEquals("3,1700000000000,ECG,0.25", in.readLine());
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the buffered file output.
+ */
+public class FileOutputStrategyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Lines keep the original format and go to one file per label")
+    void formatAndFiles() throws IOException {
+        Path directory = tempDir.resolve("out");
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString());
+        output.output(7, 1_700_000_000_000L, "ECG", "0.123");
+        output.output(-1, -5, "Saturation", "97.0%");
+        output.output(8, 1_700_000_000_001L, "ECG", "Ωmega");
+        output.close();
+
+        assertEquals(List.of(
+                String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s", 7, 1_700_000_000_000L, "ECG", "0.123"),
+                String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s", 8, 1_700_000_000_001L, "ECG", "Ωmega")),
+                Files.readAllLines(directory.resolve("ECG.txt")));
+        assertEquals(List.of("Patient ID: -1, Timestamp: -5, Label: Saturation, Data: 97.0%"),
+                Files.readAllLines(directory.resolve("Saturation.txt")));
+        assertEquals(directory.resolve("ECG.txt").toString(), output.fileMap.get("ECG"));
+    }
+
+    @Test
+    @DisplayName("Full buffers are written immediately and nothing is lost or torn")
+    void sizeThresholdAndConcurrency() throws Exception {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString(), 256, 60_000);
+        int threads = 4;
+        int lines = 5_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int patientId = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < lines; i++) {
+                    output.output(patientId, i, "ECG", Integer.toString(i));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        // The flush interval has not passed, so everything on disk was written because buffers filled up
+        assertTrue(Files.size(tempDir.resolve("ECG.txt")) > 0);
+        output.close();
+
+        List<String> written = Files.readAllLines(tempDir.resolve("ECG.txt"));
+        assertEquals(threads * lines, written.size());
+        for (String line : written) {
+            assertTrue(line.matches("Patient ID: \\d, Timestamp: (\\d+), Label: ECG, Data: \\1"), line);
+        }
+    }
+
+    @Test
+    @DisplayName("Buffered lines are written by the background flush")
+    void timeThreshold() throws Exception {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString(), 64 * 1024, 20);
+        output.output(1, 2, "ECG", "3");
+        Path file = tempDir.resolve("ECG.txt");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(file) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("Patient ID: 1, Timestamp: 2, Label: ECG, Data: 3"), Files.readAllLines(file));
+        output.close();
+        // Output after close is discarded
+        output.output(1, 3, "ECG", "4");
+        assertEquals(1, Files.readAllLines(file).size());
+    }
+
+    @Test
+    @DisplayName("Lines longer than the buffer are written directly")
+    void oversizedLine() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString(), 64, 60_000);
+        String data = "x".repeat(500);
+        output.output(1, 2, "Alert", data);
+        output.output(1, 3, "Alert", "y");
+        output.close();
+        assertEquals(List.of("Patient ID: 1, Timestamp: 2, Label: Alert, Data: " + data,
+                "Patient ID: 1, Timestamp: 3, Label: Alert, Data: y"),
+                Files.readAllLines(tempDir.resolve("Alert.txt")));
+    }
+
+    @Test
+    @DisplayName("Labels first seen while closing leave no file open")
+    void openDuringClose() throws Exception {
+        Path fds = Path.of("/proc/self/fd");
+        assumeTrue(Files.isDirectory(fds), "Needs /proc to list open files");
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString());
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; !stop.get(); i++) {
+                    output.output(1, i, "Label-" + writer + "-" + i, "1.0");
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        Thread.sleep(50);
+        output.close();
+        stop.set(true);
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        int open = 0;
+        try (Stream<Path> links = Files.list(fds)) {
+            for (Path link : (Iterable<Path>) links::iterator) {
+                try {
+                    if (Files.readSymbolicLink(link).startsWith(tempDir)) {
+                        open++;
+                    }
+                } catch (IOException e) {
+                    // Closed while listing
+                }
+            }
+        }
+        assertEquals(0, open);
+    }
+}
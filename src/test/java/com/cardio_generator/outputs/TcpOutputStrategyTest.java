@@ -0,0 +1,118 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.data_management.BinaryFrameDecoder;
+import com.data_management.DataStorage;
+
+/**
+ * Tests the TCP output with several clients at once.
+ */
+public class TcpOutputStrategyTest {
+
+    private static void awaitClients(TcpOutputStrategy output, int clients) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (output.clientCount() < clients && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(clients, output.clientCount());
+    }
+
+    @Test
+    @DisplayName("Every client gets every sample, in the format it chose")
+    void fanOut() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(8096);
+        DataStorage storage = DataStorage.getInstance();
+        storage.clearAllData();
+        try (Socket csv1 = new Socket("localhost", 8096);
+                Socket csv2 = new Socket("localhost", 8096);
+                Socket binary = new Socket("localhost", 8096)) {
+            binary.getOutputStream().write((TcpOutputStrategy.BINARY_HELLO + "\n").getBytes(StandardCharsets.US_ASCII));
+            awaitClients(output, 3);
+
+            for (int i = 0; i < 2000; i++) {
+                output.output(1 + i % 10, 1_700_000_000_000L + i, "ECG", Double.toString(i));
+            }
+            output.close();
+
+            for (Socket socket : new Socket[] { csv1, csv2 }) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                for (int i = 0; i < 2000; i++) {
+                    assertEquals((1 + i % 10) + "," + (1_700_000_000_000L + i) + ",ECG," + (double) i, in.readLine());
+                }
+                assertNull(in.readLine());
+            }
+            DataInputStream in = new DataInputStream(binary.getInputStream());
+            BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+            int samples = 0;
+            while (samples < 2000) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                samples += decoder.decode(ByteBuffer.wrap(frame), storage);
+            }
+            assertEquals(200, storage.getRecords(3, 0, Long.MAX_VALUE).size());
+        } finally {
+            output.close();
+            storage.clearAllData();
+        }
+    }
+
+    @Test
+    @DisplayName("A client that stops reading is disconnected without holding up the others")
+    void slowClientEvicted() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(8097, 256 * 1024);
+        Socket slow = new Socket();
+        slow.setReceiveBufferSize(4096);
+        slow.connect(new java.net.InetSocketAddress("localhost", 8097));
+        try (slow; Socket fast = new Socket("localhost", 8097)) {
+            AtomicLong lines = new AtomicLong();
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[65536];
+                try {
+                    InputStream in = fast.getInputStream();
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        for (int i = 0; i < read; i++) {
+                            if (buffer[i] == '\n') {
+                                lines.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // Closed
+                }
+            });
+            reader.start();
+            awaitClients(output, 2);
+
+            // About 12 MB, much more than the socket buffers of the slow client hold
+            int samples = 400_000;
+            for (int i = 0; i < samples; i++) {
+                output.output(1 + i % 1000, 1_700_000_000_000L + i, "ECG", "0.123456789");
+                if (i % 2000 == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            assertEquals(1, output.clientCount());
+            output.close();
+            reader.join(10_000);
+            assertEquals(samples, lines.get());
+        } finally {
+            output.close();
+        }
+    }
+}
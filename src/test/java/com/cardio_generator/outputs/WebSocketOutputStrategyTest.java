@@ -0,0 +1,137 @@
+package com.cardio_generator.outputs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the coalescing and backpressure of the WebSocket output.
+ */
+public class WebSocketOutputStrategyTest {
+
+    /**
+     * Client that counts CSV lines and can stall its read thread to fall behind.
+     */
+    private static class CountingClient extends WebSocketClient {
+
+        final AtomicInteger messages = new AtomicInteger();
+        final AtomicInteger lines = new AtomicInteger();
+        volatile CountDownLatch stall;
+
+        CountingClient(int port) throws Exception {
+            super(new URI("ws://localhost:" + port));
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            messages.incrementAndGet();
+            lines.addAndGet((int) message.chars().filter(c -> c == '\n').count());
+            CountDownLatch latch = stall;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+
+    @Test
+    @DisplayName("Samples are coalesced into few messages that every client receives")
+    void coalescing() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(8098, 100, 1000, 1 << 20, 5000);
+        CountingClient first = new CountingClient(8098);
+        CountingClient second = new CountingClient(8098);
+        try {
+            assertTrue(first.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(second.connectBlocking(5, TimeUnit.SECONDS));
+            Thread.sleep(200); // Let the server register both connections
+
+            for (int i = 0; i < 1000; i++) {
+                output.output(1 + i % 10, 1_700_000_000_000L + i, "ECG", "0.5");
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((first.lines.get() < 1000 || second.lines.get() < 1000)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1000, first.lines.get());
+            assertEquals(1000, second.lines.get());
+            assertEquals(10, first.messages.get());
+
+            List<ConnectionLag> lag = output.getConnectionLag();
+            assertEquals(2, lag.size());
+            for (ConnectionLag connection : lag) {
+                assertFalse(connection.isBinary());
+                assertEquals(10, connection.getMessagesSent());
+                assertEquals(0, connection.getMessagesDropped());
+                assertEquals(0, connection.getLagMillis());
+            }
+        } finally {
+            first.close();
+            second.close();
+            output.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A client that falls behind misses messages and is then disconnected")
+    void slowClient() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(8099, 500, 20, 64 * 1024, 300);
+        CountingClient slow = new CountingClient(8099);
+        CountingClient fast = new CountingClient(8099);
+        CountDownLatch stall = new CountDownLatch(1);
+        slow.stall = stall;
+        try {
+            assertTrue(slow.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(fast.connectBlocking(5, TimeUnit.SECONDS));
+            Thread.sleep(200); // Let the server register both connections
+
+            // About 40 MB, far more than the socket buffers of the stalled client hold
+            int samples = 1_000_000;
+            for (int i = 0; i < samples && output.getConnectionLag().size() == 2; i++) {
+                output.output(1 + i % 1000, 1_700_000_000_000L + i, "ECG", "0.123456789012");
+                if (i % 2000 == 0) {
+                    Thread.sleep(2);
+                }
+            }
+            // The stalled client can't see the close, but the server has dropped it
+            List<ConnectionLag> lag = output.getConnectionLag();
+            assertEquals(1, lag.size());
+            assertEquals(0, lag.get(0).getMessagesDropped());
+            assertTrue(lag.get(0).getMessagesSent() > 0);
+        } finally {
+            stall.countDown();
+            slow.close();
+            fast.close();
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests for the binary frame decoder, on frames built byte by byte from the format description.
+ */
+public class BinaryFrameDecoderTest {
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+    }
+
+    @AfterEach
+    void cleanup() {
+        storage.clearAllData();
+    }
+
+    private static void varint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void zigzag(ByteArrayOutputStream out, long value) {
+        varint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void text(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        varint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void number(ByteArrayOutputStream out, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (bits >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Three samples of two types: a number, a number with an earlier
+     * timestamp, and a number sent as text.
+     */
+    private static byte[] sampleFrame() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(1);
+        varint(out, 2);
+        text(out, "ECG");
+        text(out, "SystolicPressure");
+        varint(out, 3);
+
+        varint(out, 300);
+        zigzag(out, 1_700_000_000_000L);
+        varint(out, 0 << 1);
+        number(out, -0.25);
+
+        varint(out, 7);
+        zigzag(out, -4);
+        varint(out, 1 << 1);
+        number(out, 120.0);
+
+        varint(out, 7);
+        zigzag(out, 10);
+        varint(out, (1 << 1) | 1);
+        text(out, "118.5");
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Samples are decoded from a frame built by hand")
+    void decodesFrame() {
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+        ByteBuffer frame = ByteBuffer.wrap(sampleFrame());
+
+        assertEquals(3, decoder.decode(frame, storage));
+        assertFalse(frame.hasRemaining());
+
+        List<PatientRecord> ecg = storage.getRecords(300, 0, Long.MAX_VALUE);
+        assertEquals(1, ecg.size());
+        assertEquals("ECG", ecg.get(0).getRecordType());
+        assertEquals(1_700_000_000_000L, ecg.get(0).getTimestamp());
+        assertEquals(-0.25, ecg.get(0).getMeasurementValue());
+
+        List<PatientRecord> pressure = storage.getRecords(7, 0, Long.MAX_VALUE);
+        assertEquals(2, pressure.size());
+        assertEquals(1_699_999_999_996L, pressure.get(0).getTimestamp());
+        assertEquals(120.0, pressure.get(0).getMeasurementValue());
+        assertEquals(1_700_000_000_006L, pressure.get(1).getTimestamp());
+        assertEquals(118.5, pressure.get(1).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("A frame can be decoded from a direct buffer and from the middle of a buffer")
+    void directAndOffsetBuffers() {
+        byte[] bytes = sampleFrame();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 10);
+        direct.position(10);
+        direct.put(bytes);
+        direct.position(10);
+
+        assertEquals(3, new BinaryFrameDecoder().decode(direct, storage));
+        assertEquals(2, storage.getRecords(7, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Text that is not a number is skipped and counted")
+    void nonNumericText() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(1);
+        varint(out, 1);
+        text(out, "Alert");
+        varint(out, 2);
+        varint(out, 1);
+        zigzag(out, 1000);
+        varint(out, 1);
+        text(out, "triggered");
+        varint(out, 1);
+        zigzag(out, 0);
+        varint(out, 1);
+        text(out, "1");
+
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+        assertEquals(1, decoder.decode(ByteBuffer.wrap(out.toByteArray()), storage));
+        assertEquals(1, decoder.getSkippedSamples());
+    }
+
+    @Test
+    @DisplayName("Malformed frames are rejected")
+    void malformedFrames() {
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder();
+        byte[] frame = sampleFrame();
+
+        byte[] truncated = java.util.Arrays.copyOf(frame, frame.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(ByteBuffer.wrap(truncated), storage));
+
+        byte[] badVersion = frame.clone();
+        badVersion[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(ByteBuffer.wrap(badVersion), storage));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(1);
+        varint(out, 0);
+        varint(out, 1);
+        varint(out, 1);
+        zigzag(out, 0);
+        varint(out, 3 << 1);
+        number(out, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode(ByteBuffer.wrap(out.toByteArray()), storage));
+    }
+}
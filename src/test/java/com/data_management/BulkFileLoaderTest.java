@@ -0,0 +1,127 @@
+package com.data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for the parallel bulk load mode of FileDataReader.
+ */
+public class BulkFileLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+    }
+
+    @AfterEach
+    void cleanup() {
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Bulk load parses the same values as the line-by-line reader")
+    void sameResultAsSerialReader() throws IOException {
+        Files.writeString(tempDir.resolve("mixed.txt"), String.join("\n",
+                "101,120.0,SystolicBP,1000",
+                " 101 , 80.25 , DiastolicBP , 1001 ",
+                "102,-0.125,ECG,1002\r",
+                "102,1.5e2,ECG,1003",
+                "",
+                "103,97.333333333333333333,OxygenSaturation,1004",
+                "103,+7,ECG,1005,extra field") + "\n");
+
+        new FileDataReader(tempDir.toString()).readData(storage);
+        List<PatientRecord> expected101 = storage.getRecords(101, 0, Long.MAX_VALUE);
+        List<PatientRecord> expected102 = storage.getRecords(102, 0, Long.MAX_VALUE);
+        List<PatientRecord> expected103 = storage.getRecords(103, 0, Long.MAX_VALUE);
+        storage.clearAllData();
+
+        BulkLoadReport report = new FileDataReader(tempDir.toString()).readDataBulk(storage, 2);
+
+        assertEquals(6, report.getLines());
+        assertEquals(0, report.getMalformedLines());
+        assertSameRecords(expected101, storage.getRecords(101, 0, Long.MAX_VALUE));
+        assertSameRecords(expected102, storage.getRecords(102, 0, Long.MAX_VALUE));
+        assertSameRecords(expected103, storage.getRecords(103, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Chunks are split on line boundaries")
+    void chunkBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(i % 7).append(',').append(i).append(".5,ECG,").append(1_000_000 + i).append('\n');
+        }
+        Files.writeString(tempDir.resolve("ecg.txt"), content.toString());
+
+        // Tiny chunks force many boundaries, including ones right after a line break
+        BulkFileLoader loader = new BulkFileLoader(3, 37);
+        BulkLoadReport report = loader.load(List.of(tempDir.resolve("ecg.txt")), storage);
+
+        assertEquals(1000, report.getLines());
+        int total = 0;
+        for (Patient patient : storage.getAllPatients()) {
+            for (PatientRecord record : patient.getAllRecords()) {
+                int i = (int) (record.getTimestamp() - 1_000_000);
+                assertEquals(i % 7, record.getPatientId());
+                assertEquals(i + 0.5, record.getMeasurementValue());
+                total++;
+            }
+        }
+        assertEquals(1000, total);
+    }
+
+    @Test
+    @DisplayName("Malformed lines are counted and skipped")
+    void malformedLines() throws IOException {
+        Files.writeString(tempDir.resolve("bad.txt"), String.join("\n",
+                "not a valid line",
+                "1,abc,ECG,1000",
+                "1,2.0,ECG,notatime",
+                "1,2.0,BulkJunkLabel,notatime",
+                "99999999999,2.0,ECG,1000",
+                "1,2.0,ECG,1000"));
+
+        BulkLoadReport report = new FileDataReader(tempDir.toString()).readDataBulk(storage, 1);
+
+        assertEquals(1, report.getLines());
+        assertEquals(5, report.getMalformedLines());
+        assertEquals(1, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+        assertEquals(-1, RecordTypeRegistry.lookup("BulkJunkLabel"), "Rejected lines register no type");
+        assertTrue(report.getLinesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Missing directory is reported like in readData")
+    void missingDirectory() {
+        FileDataReader reader = new FileDataReader(tempDir.resolve("missing").toString());
+        assertThrows(IOException.class, () -> reader.readDataBulk(storage));
+    }
+
+    private static void assertSameRecords(List<PatientRecord> expected, List<PatientRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getRecordType(), actual.get(i).getRecordType());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            // Bit-exact: the fast path must round like Double.parseDouble
+            assertEquals(Double.doubleToLongBits(expected.get(i).getMeasurementValue()),
+                    Double.doubleToLongBits(actual.get(i).getMeasurementValue()));
+        }
+    }
+}
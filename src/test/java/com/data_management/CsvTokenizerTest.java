@@ -0,0 +1,104 @@
+package com.data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Tests for the in-place CSV field parser shared by the readers.
+ */
+public class CsvTokenizerTest {
+
+    @Test
+    @DisplayName("Fields are split and trimmed without allocating substrings")
+    void splitAndTrim() {
+        CsvTokenizer tokenizer = new CsvTokenizer(4);
+        assertEquals(4, tokenizer.tokenize(" 12 , -3.5,\tECG ,1700000000000 "));
+        assertEquals(12, tokenizer.parseInt(0));
+        assertEquals(-3.5, tokenizer.parseDouble(1));
+        assertEquals("ECG", tokenizer.text(2));
+        assertEquals(1_700_000_000_000L, tokenizer.parseLong(3));
+
+        assertEquals(0, tokenizer.tokenize("   "));
+        assertEquals(2, tokenizer.tokenize("1,2"));
+        // Fields beyond the limit are ignored
+        assertEquals(4, tokenizer.tokenize("1,2,3,4,5,6"));
+        assertEquals(4, tokenizer.parseLong(3));
+
+        // One line of a text holding several
+        String text = "1,100,ECG,0.5\n2,200,ECG,1.5\n";
+        assertEquals(4, tokenizer.tokenize(text, 14, 27));
+        assertEquals(2, tokenizer.parseInt(0));
+        assertEquals(1.5, tokenizer.parseDouble(3));
+        assertEquals("ECG", tokenizer.text(2));
+    }
+
+    @Test
+    @DisplayName("Numbers parse exactly like the JDK parsers")
+    void matchesJdkParsers() {
+        CsvTokenizer tokenizer = new CsvTokenizer(3);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double value = switch (i % 4) {
+                case 0 -> Math.round(random.nextGaussian() * 100_000) / 1000.0;
+                case 1 -> random.nextDouble();
+                case 2 -> random.nextGaussian() * 1e-30;
+                default -> random.nextInt(1000);
+            };
+            int id = random.nextInt();
+            long timestamp = random.nextLong();
+            String line = id + "," + value + "," + timestamp;
+            tokenizer.tokenize(line);
+            assertEquals(id, tokenizer.parseInt(0), line);
+            assertEquals(Double.parseDouble(Double.toString(value)), tokenizer.parseDouble(1), line);
+            assertEquals(timestamp, tokenizer.parseLong(2), line);
+        }
+
+        tokenizer.tokenize(Long.MIN_VALUE + "," + Integer.MIN_VALUE + ",+7");
+        assertEquals(Long.MIN_VALUE, tokenizer.parseLong(0));
+        assertEquals(Integer.MIN_VALUE, tokenizer.parseInt(1));
+        assertEquals(7, tokenizer.parseInt(2));
+
+        tokenizer.tokenize("1e3,NaN,0.12345678901234567890123");
+        assertEquals(1000.0, tokenizer.parseDouble(0));
+        assertTrue(Double.isNaN(tokenizer.parseDouble(1)));
+        assertEquals(0.12345678901234567890123, tokenizer.parseDouble(2));
+    }
+
+    @Test
+    @DisplayName("Invalid numbers throw NumberFormatException")
+    void invalidNumbers() {
+        CsvTokenizer tokenizer = new CsvTokenizer(4);
+        tokenizer.tokenize("abc,,9223372036854775808,2147483648");
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseInt(0));
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseDouble(0));
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseLong(1));
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseDouble(1));
+        assertThrows(NumberFormatException.class, () -> tokenizer.recordType(1));
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseLong(2));
+        assertThrows(NumberFormatException.class, () -> tokenizer.parseInt(3));
+        assertEquals(2_147_483_648L, tokenizer.parseLong(3));
+    }
+
+    @Test
+    @DisplayName("Record types resolve to the interned ids for Strings and bytes alike")
+    void recordTypes() {
+        CsvTokenizer tokenizer = new CsvTokenizer(2);
+        tokenizer.tokenize("ECG,SystolicBP");
+        int ecg = tokenizer.recordType(0);
+        assertEquals(RecordTypeRegistry.intern("ECG"), ecg);
+        assertEquals(RecordTypeRegistry.intern("SystolicBP"), tokenizer.recordType(1));
+
+        byte[] line = "xx1, ECG ,2.5\nrest".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        assertEquals(2, tokenizer.tokenize(buffer, 2, 8));
+        assertEquals(1, tokenizer.parseInt(0));
+        assertEquals(ecg, tokenizer.recordType(1));
+        assertEquals("ECG", tokenizer.text(1));
+    }
+}
@@ -0,0 +1,109 @@
+package com.data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress tests for concurrent ingestion into DataStorage. Many producers write
+ * to the same patients at once; no sample may be lost or duplicated.
+ */
+public class DataStorageConcurrencyTest {
+
+    private static final int PRODUCERS = 16;
+    private static final int PATIENTS = 40;
+    private static final int SAMPLES_PER_PATIENT = 500; // per producer
+    private static final String[] TYPES = { "ECG", "SystolicBP", "DiastolicBP", "OxygenSaturation" };
+    private static final long START = 1_700_000_000_000L;
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+    }
+
+    @AfterEach
+    void cleanup() {
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Concurrent producers never lose samples or create duplicate patients")
+    void concurrentProducers() throws InterruptedException {
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    startGate.await();
+                    for (int i = 0; i < SAMPLES_PER_PATIENT; i++) {
+                        for (int patientId = 1; patientId <= PATIENTS; patientId++) {
+                            // Every producer writes every patient and type, with its own timestamps
+                            String type = TYPES[(i + producer) % TYPES.length];
+                            storage.addPatientData(patientId, producer, type, START + i * PRODUCERS + producer);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        startGate.countDown();
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), "No producer should fail");
+        assertEquals(PATIENTS, storage.getAllPatients().size(), "Each patient must be created exactly once");
+        for (Patient patient : storage.getAllPatients()) {
+            List<PatientRecord> records = patient.getAllRecords();
+            assertEquals(PRODUCERS * SAMPLES_PER_PATIENT, records.size(),
+                    "Patient " + patient.getPatientId() + " lost samples");
+            int[] perProducer = new int[PRODUCERS];
+            for (int i = 0; i < records.size(); i++) {
+                PatientRecord record = records.get(i);
+                perProducer[(int) record.getMeasurementValue()]++;
+                if (i > 0) {
+                    assertTrue(records.get(i - 1).getTimestamp() <= record.getTimestamp(), "Records must stay sorted");
+                }
+            }
+            for (int count : perProducer) {
+                assertEquals(SAMPLES_PER_PATIENT, count);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Readers see consistent data while producers are writing")
+    void readersDuringWrites() throws InterruptedException {
+        int samples = 20_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < samples; i++) {
+                storage.addPatientData(1, i, TYPES[i % TYPES.length], START + i);
+            }
+        });
+        writer.start();
+        int lastSize = 0;
+        while (writer.isAlive()) {
+            List<PatientRecord> records = storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE);
+            assertTrue(records.size() >= lastSize, "Visible samples must never disappear");
+            lastSize = records.size();
+        }
+        writer.join();
+        assertEquals(samples, storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+}
@@ -52,6 +52,7 @@ class FileDataReaderTest {
         File badFile = tempDir.resolve("bad.txt").toFile();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(badFile))) {
             bw.write("not a valid line\n");
+            bw.write("101,1.0,SerialJunkLabel,notatime\n");
         }
 
         DataStorage storage = DataStorage.getInstance();
@@ -59,6 +60,8 @@ class FileDataReaderTest {
 
         // Act & Assert: Should skip bad lines and not throw
         reader.readData(storage);
+        // Bad lines leave no record type behind
+        assertEquals(-1, RecordTypeRegistry.lookup("SerialJunkLabel"));
     }
 
     @Test
@@ -156,4 +156,53 @@ public class PatientTest {
         List<PatientRecord> subset = testPatient.getRecords(REFERENCE_TIME + 400, REFERENCE_TIME + 600);
         assertEquals(201, subset.size(), "Subset size should match the expected count");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Records of different types keep their type and additional info")
+    public void columnarStorageRoundTripTest() {
+        testPatient.addRecord(120.0, "SystolicBP", REFERENCE_TIME - 1000);
+        testPatient.addRecord(1.0, "Alert", REFERENCE_TIME, "triggered");
+        testPatient.addRecord(80.0, "DiastolicBP", REFERENCE_TIME);
+
+        Map<String, List<PatientRecord>> grouped = testPatient.getRecordsByType();
+        assertEquals(3, grouped.size(), "Each record type should get its own column");
+        assertEquals("triggered", grouped.get("Alert").get(0).getAdditionalInfo(), "Additional info should survive");
+        assertEquals("", grouped.get("SystolicBP").get(0).getAdditionalInfo(), "Plain records have no info");
+        assertEquals(80.0, grouped.get("DiastolicBP").get(0).getMeasurementValue(), "Value should match");
+    }
+
+    @Test
+    @DisplayName("Returned record lists are snapshots of the columns")
+    public void recordListIsSnapshotTest() {
+        testPatient.addRecord(36.5, "Temperature", REFERENCE_TIME);
+        List<PatientRecord> snapshot = testPatient.getAllRecords();
+
+        testPatient.addRecord(36.6, "Temperature", REFERENCE_TIME + 1);
+        assertEquals(1, snapshot.size(), "Later writes should not show up in an earlier snapshot");
+
+        snapshot.remove(0);
+        assertEquals(2, testPatient.getAllRecords().size(), "Removing from a snapshot should not remove records");
+    }
+
+    @Test
+    @DisplayName("Out-of-order records are returned in timestamp order")
+    public void outOfOrderRecordsTest() {
+        // Mix in-order and late arrivals, more than fit into the reorder buffer
+        for (int idx = 0; idx < 100; idx++) {
+            testPatient.addRecord(idx, "ECG", REFERENCE_TIME + idx * 10);
+            testPatient.addRecord(1000 + idx, "ECG", REFERENCE_TIME + idx * 10 - 5);
+        }
+        testPatient.addRecord(-1.0, "SystolicBP", REFERENCE_TIME + 3);
+
+        List<PatientRecord> all = testPatient.getAllRecords();
+        assertEquals(201, all.size(), "No record should be lost while reordering");
+        for (int idx = 1; idx < all.size(); idx++) {
+            assertTrue(all.get(idx - 1).getTimestamp() <= all.get(idx).getTimestamp(),
+                    "Records should be sorted by timestamp");
+        }
+
+        List<PatientRecord> window = testPatient.getRecords(REFERENCE_TIME - 5, REFERENCE_TIME + 5);
+        assertEquals(4, window.size(), "Range query should see buffered late records");
+        assertEquals("SystolicBP", window.get(2).getRecordType(), "Types should be merged by timestamp");
+    }
+}
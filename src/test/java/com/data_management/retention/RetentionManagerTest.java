@@ -0,0 +1,146 @@
+package com.data_management.retention;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+
+/**
+ * Tests for the retention subsystem: raw eviction, rollups and tier cascading.
+ */
+public class RetentionManagerTest {
+
+    private static final int PATIENT_ID = 5;
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // Aligned to a whole day so bucket boundaries are easy to reason about
+    private static final long NOW = 19_700L * DAY;
+
+    private DataStorage storage;
+    private RetentionManager manager;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+        RetentionPolicy policy = new RetentionPolicy()
+                .setRule("ECG", new RetentionRule(HOUR)
+                        .addRollup(MINUTE, DAY)
+                        .addRollup(HOUR, RetentionRule.FOREVER));
+        manager = new RetentionManager(storage, policy);
+    }
+
+    @AfterEach
+    void cleanup() {
+        manager.stop();
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Raw samples older than the raw retention are evicted")
+    void rawEviction() {
+        storage.addPatientData(PATIENT_ID, 1.0, "ECG", NOW - 2 * HOUR);
+        storage.addPatientData(PATIENT_ID, 2.0, "ECG", NOW - 30 * MINUTE);
+        storage.addPatientData(PATIENT_ID, 3.0, "ECG", NOW - MINUTE);
+
+        manager.compact(NOW);
+
+        List<PatientRecord> records = storage.getRecords(PATIENT_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(2, records.size());
+        assertEquals(2.0, records.get(0).getMeasurementValue());
+        assertEquals(3.0, records.get(1).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Evicted samples are rolled up into min/max/mean buckets")
+    void rollups() {
+        long bucket = NOW - 2 * HOUR;
+        storage.addPatientData(PATIENT_ID, 70.0, "ECG", bucket + 1_000);
+        storage.addPatientData(PATIENT_ID, 90.0, "ECG", bucket + 20_000);
+        storage.addPatientData(PATIENT_ID, 80.0, "ECG", bucket + 59_999);
+        storage.addPatientData(PATIENT_ID, 50.0, "ECG", bucket + MINUTE);
+
+        manager.compact(NOW);
+
+        List<Rollup> rollups = manager.getRollups(PATIENT_ID, "ECG", MINUTE, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(2, rollups.size());
+        Rollup first = rollups.get(0);
+        assertEquals(bucket, first.getBucketStart());
+        assertEquals(3, first.getCount());
+        assertEquals(70.0, first.getMin());
+        assertEquals(90.0, first.getMax());
+        assertEquals(80.0, first.getMean(), 1e-9);
+        assertEquals(50.0, rollups.get(1).getMean(), 1e-9);
+
+        // Range queries only return overlapping buckets
+        assertEquals(1, manager.getRollups(PATIENT_ID, "ECG", MINUTE, bucket + MINUTE, NOW).size());
+    }
+
+    @Test
+    @DisplayName("Expired rollups cascade into the coarser tier")
+    void cascade() {
+        long hour = NOW - 3 * DAY;
+        for (int minute = 0; minute < 60; minute++) {
+            storage.addPatientData(PATIENT_ID, minute, "ECG", hour + minute * MINUTE);
+        }
+
+        // First pass creates minute buckets, which are already past their one-day retention
+        manager.compact(NOW);
+
+        assertTrue(manager.getRollups(PATIENT_ID, "ECG", MINUTE, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        List<Rollup> hourly = manager.getRollups(PATIENT_ID, "ECG", HOUR, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1, hourly.size());
+        assertEquals(hour, hourly.get(0).getBucketStart());
+        assertEquals(60, hourly.get(0).getCount());
+        assertEquals(0.0, hourly.get(0).getMin());
+        assertEquals(59.0, hourly.get(0).getMax());
+        assertEquals(29.5, hourly.get(0).getMean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Record types without a rule are kept")
+    void typesWithoutRuleAreKept() {
+        storage.addPatientData(PATIENT_ID, 120.0, "SystolicBP", NOW - 30 * DAY);
+
+        manager.compact(NOW);
+
+        assertEquals(1, storage.getRecords(PATIENT_ID, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Background compaction evicts old data while writers keep adding")
+    void backgroundCompaction() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        storage.addPatientData(PATIENT_ID, 1.0, "ECG", now - 2 * HOUR);
+        manager.start(10);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (manager.getRollups(PATIENT_ID, "ECG", MINUTE, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            storage.addPatientData(PATIENT_ID, 2.0, "ECG", System.currentTimeMillis());
+            Thread.sleep(5);
+        }
+        manager.stop();
+
+        assertEquals(1, manager.getRollups(PATIENT_ID, "ECG", MINUTE, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        List<PatientRecord> records = storage.getRecords(PATIENT_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertTrue(records.stream().allMatch(r -> r.getMeasurementValue() == 2.0),
+                "Only recent samples should remain");
+    }
+
+    @Test
+    @DisplayName("Rollup tiers must get coarser in whole multiples")
+    void invalidTiers() {
+        RetentionRule rule = new RetentionRule(HOUR).addRollup(MINUTE, DAY);
+        assertThrows(IllegalArgumentException.class, () -> rule.addRollup(90_000L, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new RetentionRule(0));
+    }
+}
@@ -0,0 +1,131 @@
+package com.data_management.segment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+
+/**
+ * Tests for offloading old samples into memory-mapped segments and merging them
+ * back into record queries.
+ */
+public class SegmentStoreTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private DataStorage storage;
+    private SegmentStore store;
+
+    @BeforeEach
+    void init() {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+        store = new SegmentStore(directory, storage);
+        storage.setSegmentStore(store);
+    }
+
+    @AfterEach
+    void cleanup() {
+        store.stop();
+        storage.setSegmentStore(null);
+        storage.clearAllData();
+    }
+
+    @Test
+    @DisplayName("Queries merge offloaded and in-memory samples in timestamp order")
+    void mergeHotAndCold() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            storage.addPatientData(1, i, i % 2 == 0 ? "ECG" : "SystolicBP", NOW + i);
+            storage.addPatientData(2, -i, "ECG", NOW + i);
+        }
+
+        assertEquals(120, store.offload(NOW + 60));
+        assertEquals(1, store.getSegmentCount());
+        // Only the hot part is left in memory
+        assertEquals(40, storage.getOrCreatePatient(1).getAllRecords().size());
+
+        List<PatientRecord> records = storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(100, records.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(NOW + i, records.get(i).getTimestamp());
+            assertEquals(i, records.get(i).getMeasurementValue());
+            assertEquals(i % 2 == 0 ? "ECG" : "SystolicBP", records.get(i).getRecordType());
+        }
+
+        List<PatientRecord> range = storage.getRecords(2, NOW + 50, NOW + 69);
+        assertEquals(20, range.size());
+        assertEquals(-50.0, range.get(0).getMeasurementValue());
+        assertEquals(-69.0, range.get(19).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Segments are found again after a restart")
+    void reopen() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            storage.addPatientData(3, i, "OxygenSaturation", NOW + i * 1000L);
+        }
+        store.offload(NOW + 5000);
+        store.offload(NOW + 100_000);
+        assertEquals(2, store.getSegmentCount());
+
+        SegmentStore reopened = new SegmentStore(directory, storage);
+        reopened.open();
+        storage.setSegmentStore(reopened);
+
+        List<PatientRecord> records = storage.getRecords(3, NOW, NOW + 9000);
+        assertEquals(10, records.size());
+        assertEquals(9.0, records.get(9).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Additional info survives offloading")
+    void additionalInfo() throws IOException {
+        storage.getOrCreatePatient(4).addRecord(1.0, "Alert", NOW, "triggered");
+        storage.getOrCreatePatient(4).addRecord(0.0, "Alert", NOW + 1, null);
+        store.offload(NOW + 10);
+
+        List<PatientRecord> records = storage.getRecords(4, NOW, NOW + 10);
+        assertEquals(2, records.size());
+        assertEquals("triggered", records.get(0).getAdditionalInfo());
+        assertEquals("", records.get(1).getAdditionalInfo());
+    }
+
+    @Test
+    @DisplayName("Concurrent queries see every sample exactly once during offloads")
+    void consistentDuringOffload() throws Exception {
+        int samples = 20_000;
+        for (int i = 0; i < samples; i++) {
+            storage.addPatientData(5, i, "ECG", NOW + i);
+        }
+
+        Thread offloader = new Thread(() -> {
+            try {
+                for (int step = 1; step <= 20; step++) {
+                    store.offload(NOW + step * 1000L);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        offloader.start();
+        while (offloader.isAlive()) {
+            assertEquals(samples, storage.getRecords(5, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        }
+        offloader.join();
+        assertEquals(samples, storage.getRecords(5, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(0, storage.getOrCreatePatient(5).getAllRecords().size());
+    }
+}
@@ -0,0 +1,147 @@
+package com.data_management.wal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+
+/**
+ * Tests for the write-ahead log: logging, checkpoints and crash recovery.
+ * A restart is simulated by clearing the storage and recovering from the directory.
+ */
+public class WriteAheadLogTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private DataStorage storage;
+    private WriteAheadLog wal;
+
+    @BeforeEach
+    void init() throws IOException {
+        storage = DataStorage.getInstance();
+        storage.clearAllData();
+        wal = new WriteAheadLog(directory, storage, 100, 50);
+        wal.start();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        wal.close();
+        storage.clearAllData();
+    }
+
+    private void addSamples(int patientId, int from, int to) {
+        for (int i = from; i < to; i++) {
+            storage.addPatientData(patientId, i, i % 2 == 0 ? "ECG" : "SystolicBP", NOW + i);
+        }
+    }
+
+    private long restart() throws IOException {
+        wal.close();
+        storage.clearAllData();
+        wal = new WriteAheadLog(directory, storage, 100, 50);
+        long recovered = wal.recover();
+        wal.start();
+        return recovered;
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Logged samples are recovered after a restart")
+    void recoverFromLog() throws IOException {
+        addSamples(1, 0, 250);
+        addSamples(2, 0, 10);
+
+        assertEquals(260, restart());
+
+        List<PatientRecord> records = storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(250, records.size());
+        assertEquals(NOW + 249, records.get(249).getTimestamp());
+        assertEquals("SystolicBP", records.get(249).getRecordType());
+        assertEquals(10, storage.getRecords(2, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("The status of an Alert record is recovered from the log alone")
+    void recoverAlertStatus() throws IOException {
+        storage.addPatientData(3, 1.0, "Alert", NOW, "triggered");
+        storage.addPatientData(3, 120.0, "SystolicBP", NOW + 1);
+
+        assertEquals(0, countFiles("snapshot-"));
+        assertEquals(2, restart());
+
+        List<PatientRecord> records = storage.getRecords(3, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(2, records.size());
+        assertEquals("Alert", records.get(0).getRecordType());
+        assertEquals("triggered", records.get(0).getAdditionalInfo());
+        assertEquals("SystolicBP", records.get(1).getRecordType());
+    }
+
+    @Test
+    @DisplayName("Recovery loads the snapshot and replays only the newer log")
+    void recoverFromSnapshotAndTail() throws IOException {
+        addSamples(1, 0, 500);
+        wal.checkpoint();
+        addSamples(1, 500, 520);
+
+        assertEquals(1, countFiles("snapshot-"));
+        assertEquals(1, countFiles("wal-"), "Logs covered by the snapshot should be deleted");
+
+        assertEquals(520, restart());
+        List<PatientRecord> records = storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(520, records.size(), "No sample should be lost or duplicated");
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, records.get(i).getMeasurementValue());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is ignored")
+    void tornTail() throws IOException {
+        addSamples(1, 0, 10);
+        wal.close();
+
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(p -> p.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        assertEquals(9, restart());
+        assertEquals(9, storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Recovery does not notify listeners or log samples again")
+    void recoveryIsSilent() throws IOException {
+        addSamples(1, 0, 20);
+        restart();
+        restart();
+
+        assertEquals(20, storage.getRecords(1, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+}